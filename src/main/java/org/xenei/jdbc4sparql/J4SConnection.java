@@ -37,11 +37,14 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jena.riot.RDFDataMgr;
@@ -58,6 +61,8 @@ import org.xenei.jdbc4sparql.impl.rdf.RdfTable;
 import org.xenei.jdbc4sparql.impl.rdf.ResourceBuilder;
 import org.xenei.jdbc4sparql.impl.virtual.VirtualCatalog;
 import org.xenei.jdbc4sparql.meta.MetaCatalogBuilder;
+import org.xenei.jdbc4sparql.sparql.PlanCache;
+import org.xenei.jdbc4sparql.sparql.ResultCache;
 import org.xenei.jdbc4sparql.sparql.builders.SchemaBuilder;
 import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
 import org.xenei.jena.entities.EntityManager;
@@ -86,6 +91,17 @@ public class J4SConnection implements Connection {
 			.getLogger(J4SConnection.class);
 	private DatasetProducer dsProducer = null;
 	private final Properties properties;
+	// 64 MB of rows in memory before spilling.
+	private static final long DEFAULT_SPILL_THRESHOLD = 64L * 1024 * 1024;
+	// number of translated queries to keep.
+	private static final int DEFAULT_PLAN_CACHE_SIZE = 100;
+	// runs the background work of the connection, shut down on close.
+	private final ExecutorService defaultExecutor;
+	private ExecutorService executor;
+	// the catalog models are updated while queries are translated.
+	private final Object queryLock = new Object();
+	private final PlanCache planCache;
+	private final ResultCache resultCache;
 
 	public J4SConnection(final J4SDriver driver, final J4SUrl url,
 			final Properties properties) throws IOException,
@@ -96,7 +112,18 @@ public class J4SConnection implements Connection {
 		}
 		this.properties = properties;
 
-		this.catalogMap = new HashMap<String, Catalog>();
+		// statements may parse and execute queries concurrently.
+		this.catalogMap = new ConcurrentHashMap<String, Catalog>();
+		this.defaultExecutor = Executors
+				.newCachedThreadPool(new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread t = new Thread(r, "j4s-worker");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		this.executor = null;
 		this.sqlWarnings = null;
 		this.driver = driver;
 		this.url = url;
@@ -132,6 +159,36 @@ public class J4SConnection implements Connection {
 
 		catalogMap.put(VirtualCatalog.NAME, new VirtualCatalog());
 
+		// fail on connect rather than on the first query.
+		isNativeTypeFilters();
+
+		if (getInValuesThreshold() < 0) {
+			throw new SQLException(String.format(
+					"Property '%s' may not be negative",
+					J4SPropertyNames.IN_VALUES_THRESHOLD_PROPERTY));
+		}
+
+		final int planCacheSize = getPlanCacheSize();
+		if (planCacheSize < 0) {
+			throw new SQLException(String.format(
+					"Property '%s' may not be negative",
+					J4SPropertyNames.PLAN_CACHE_PROPERTY));
+		}
+		planCache = new PlanCache(planCacheSize);
+
+		final long resultCacheSize = getResultCacheSize();
+		if (resultCacheSize < 0) {
+			throw new SQLException(String.format(
+					"Property '%s' may not be negative",
+					J4SPropertyNames.RESULT_CACHE_PROPERTY));
+		}
+		final long resultCacheTTL = getResultCacheTTL();
+		if (resultCacheTTL < 0) {
+			throw new SQLException(String.format(
+					"Property '%s' may not be negative",
+					J4SPropertyNames.RESULT_CACHE_TTL_PROPERTY));
+		}
+		resultCache = new ResultCache(resultCacheSize, resultCacheTTL);
 	}
 
 	@Override
@@ -156,6 +213,9 @@ public class J4SConnection implements Connection {
 		}
 		final RdfCatalog cat = catalogBuilder.build(model);
 		catalogMap.put(cat.getName().getShortName(), cat);
+		// the new catalog may replace one used by a cached query.
+		planCache.clear();
+		resultCache.clear();
 		return cat;
 	}
 
@@ -172,6 +232,9 @@ public class J4SConnection implements Connection {
 
 	@Override
 	public void close() throws SQLException {
+		defaultExecutor.shutdownNow();
+		planCache.close();
+		resultCache.close();
 		for (final Catalog cat : catalogMap.values()) {
 			cat.close();
 		}
@@ -289,7 +352,7 @@ public class J4SConnection implements Connection {
 	public Statement createStatement(final int resultSetType,
 			final int resultSetConcurrency, final int resultSetHoldability)
 					throws SQLException {
-		final Catalog catalog = catalogMap.get(getCatalog());
+		final Catalog catalog = lookupCatalog(getCatalog());
 		if (catalog instanceof RdfCatalog) {
 			return new J4SStatement(this, (RdfCatalog) catalog, resultSetType,
 					resultSetConcurrency, resultSetHoldability);
@@ -316,6 +379,10 @@ public class J4SConnection implements Connection {
 		return properties.getProperty(J4SPropertyNames.CATALOG_PROPERTY);
 	}
 
+	private Catalog lookupCatalog(final String name) {
+		return name == null ? null : catalogMap.get(name);
+	}
+
 	public Map<String, Catalog> getCatalogs() {
 		return catalogMap;
 	}
@@ -349,6 +416,154 @@ public class J4SConnection implements Connection {
 		return networkTimeout;
 	}
 
+	/**
+	 * Get the number of rows that a scrollable result set retrieves in the
+	 * background ahead of the cursor.
+	 *
+	 * @return the number of rows or 0 if the rows should be retrieved before
+	 *         the result set is returned.
+	 * @throws SQLException
+	 *             if the property is not a valid number.
+	 */
+	public int getPrefetchSize() throws SQLException {
+		return (int) getNumberProperty(J4SPropertyNames.PREFETCH_PROPERTY, 0);
+	}
+
+	/**
+	 * Get the number of rows to decode in each columnar block of a forward
+	 * only result set.
+	 *
+	 * @return the batch size or 0 if result sets should not be batched.
+	 * @throws SQLException
+	 *             if the property is not a valid number.
+	 */
+	public int getResultBatchSize() throws SQLException {
+		return (int) getNumberProperty(J4SPropertyNames.RESULT_BATCH_PROPERTY,
+				0);
+	}
+
+	/**
+	 * Get the number of bytes of rows that a scrollable result set holds in
+	 * memory before the remaining rows are written to disk.
+	 *
+	 * @return the threshold or 0 if result sets should never spill.
+	 * @throws SQLException
+	 *             if the property is not a valid number.
+	 */
+	public long getSpillThreshold() throws SQLException {
+		return getNumberProperty(J4SPropertyNames.SPILL_THRESHOLD_PROPERTY,
+				J4SConnection.DEFAULT_SPILL_THRESHOLD);
+	}
+
+	/**
+	 * Get the maximum number of translated queries to cache.
+	 *
+	 * @return the cache size or 0 if queries should not be cached.
+	 * @throws SQLException
+	 *             if the property is not a valid number.
+	 */
+	public int getPlanCacheSize() throws SQLException {
+		return (int) getNumberProperty(J4SPropertyNames.PLAN_CACHE_PROPERTY,
+				J4SConnection.DEFAULT_PLAN_CACHE_SIZE);
+	}
+
+	/**
+	 * Get the number of items an IN list must have before its values are
+	 * also sent as a VALUES block ahead of the table patterns. The block
+	 * lists string values as plain literals and integer values as plain
+	 * literals and xsd:integer, so it should only be enabled when the column
+	 * data is stored in those forms.
+	 *
+	 * @return the threshold or 0 (the default) if no VALUES blocks are sent.
+	 * @throws SQLException
+	 *             if the property is not a valid number.
+	 */
+	public int getInValuesThreshold() throws SQLException {
+		return (int) getNumberProperty(
+				J4SPropertyNames.IN_VALUES_THRESHOLD_PROPERTY, 0);
+	}
+
+	/**
+	 * Get the maximum number of bytes of query results to cache.
+	 *
+	 * @return the cache size or 0 if results should not be cached.
+	 * @throws SQLException
+	 *             if the property is not a valid number.
+	 */
+	public long getResultCacheSize() throws SQLException {
+		return getNumberProperty(J4SPropertyNames.RESULT_CACHE_PROPERTY, 0);
+	}
+
+	/**
+	 * Get the number of milliseconds cached query results are kept. Results
+	 * from SERVICE catalogs are only cached if this is set.
+	 *
+	 * @return the time to live or 0 if local results are kept until the
+	 *         catalog changes.
+	 * @throws SQLException
+	 *             if the property is not a valid number.
+	 */
+	public long getResultCacheTTL() throws SQLException {
+		return getNumberProperty(J4SPropertyNames.RESULT_CACHE_TTL_PROPERTY,
+				0);
+	}
+
+	/**
+	 * Get the cache of query results for this connection.
+	 *
+	 * @return the result cache.
+	 */
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Get the cache of translated queries for this connection.
+	 *
+	 * @return the plan cache.
+	 */
+	public PlanCache getPlanCache() {
+		return planCache;
+	}
+
+	/**
+	 * Determine if the column type checks are written with standard SPARQL
+	 * functions. The typeFilter property is either "java" (the default) to
+	 * use the java extension functions or "native".
+	 *
+	 * @return true if native type filters are used.
+	 * @throws SQLException
+	 *             if the property is not a valid value.
+	 */
+	public boolean isNativeTypeFilters() throws SQLException {
+		final String value = properties
+				.getProperty(J4SPropertyNames.TYPE_FILTER_PROPERTY);
+		if (StringUtils.isBlank(value) || "java".equalsIgnoreCase(value.trim())) {
+			return false;
+		}
+		if ("native".equalsIgnoreCase(value.trim())) {
+			return true;
+		}
+		throw new SQLException(String.format(
+				"Property '%s' must be 'java' or 'native' but was '%s'",
+				J4SPropertyNames.TYPE_FILTER_PROPERTY, value));
+	}
+
+	private long getNumberProperty(final String name, final long defaultValue)
+			throws SQLException {
+		final String value = properties.getProperty(name);
+		if (StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (final NumberFormatException e) {
+			throw new SQLException(String.format(
+					"Property '%s' must be a number but was '%s'", name, value),
+					e);
+		}
+	}
+
 	@Override
 	public String getSchema() {
 		return properties.getProperty(J4SPropertyNames.SCHEMA_PROPERTY);
@@ -392,9 +607,43 @@ public class J4SConnection implements Connection {
 		return true;
 	}
 
+	/**
+	 * Get the executor that runs asynchronous statement executions and
+	 * retrieves result rows in the background.
+	 *
+	 * @return the executor.
+	 */
+	public ExecutorService getExecutor() {
+		return executor == null ? defaultExecutor : executor;
+	}
+
+	/**
+	 * Set the executor that runs asynchronous statement executions and
+	 * retrieves result rows in the background. The executor is not shut down
+	 * when the connection is closed.
+	 *
+	 * @param executor
+	 *            the executor or null to use the executor of the connection.
+	 */
+	public void setExecutor(final ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Get the lock held while a statement translates a query. The catalog
+	 * models are not safe for concurrent update so queries on one connection
+	 * are translated one at a time. The translated queries only read the
+	 * models so they are executed without the lock.
+	 *
+	 * @return the lock object.
+	 */
+	Object getQueryLock() {
+		return queryLock;
+	}
+
 	@Override
-	public boolean isWrapperFor(final Class<?> arg0) throws SQLException {
-		return false;
+	public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+		return (iface != null) && iface.isInstance(this);
 	}
 
 	private void loadConfig(final URL url) throws IOException,
@@ -469,9 +718,10 @@ public class J4SConnection implements Connection {
 	}
 
 	@Override
-	public PreparedStatement prepareStatement(final String arg0)
+	public PreparedStatement prepareStatement(final String sql)
 			throws SQLException {
-		throw new SQLFeatureNotSupportedException();
+		return prepareStatement(sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
+				ResultSet.CONCUR_READ_ONLY);
 	}
 
 	@Override
@@ -481,15 +731,26 @@ public class J4SConnection implements Connection {
 	}
 
 	@Override
-	public PreparedStatement prepareStatement(final String arg0,
-			final int arg1, final int arg2) throws SQLException {
-		throw new SQLFeatureNotSupportedException();
+	public PreparedStatement prepareStatement(final String sql,
+			final int resultSetType, final int resultSetConcurrency)
+			throws SQLException {
+		return prepareStatement(sql, resultSetType, resultSetConcurrency,
+				this.getHoldability());
 	}
 
 	@Override
-	public PreparedStatement prepareStatement(final String arg0,
-			final int arg1, final int arg2, final int arg3) throws SQLException {
-		throw new SQLFeatureNotSupportedException();
+	public PreparedStatement prepareStatement(final String sql,
+			final int resultSetType, final int resultSetConcurrency,
+			final int resultSetHoldability) throws SQLException {
+		final Catalog catalog = lookupCatalog(getCatalog());
+		if (catalog instanceof RdfCatalog) {
+			return new J4SPreparedStatement(this, (RdfCatalog) catalog, sql,
+					resultSetType, resultSetConcurrency, resultSetHoldability);
+		}
+		else {
+			throw new SQLException("Catalog '" + getCatalog()
+					+ "' does not support statements");
+		}
 	}
 
 	@Override
@@ -556,7 +817,7 @@ public class J4SConnection implements Connection {
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("Setting catalog to '{}'", catalog);
 			}
-			if (catalogMap.get(catalog) == null) {
+			if (lookupCatalog(catalog) == null) {
 				throw new SQLException("Catalog " + catalog + " was not found");
 			}
 			properties.setProperty(J4SPropertyNames.CATALOG_PROPERTY, catalog);
@@ -616,7 +877,7 @@ public class J4SConnection implements Connection {
 	@Override
 	public void setSchema(final String schema) throws SQLException {
 		if (schema != null) {
-			final Catalog cat = catalogMap.get(getCatalog());
+			final Catalog cat = lookupCatalog(getCatalog());
 			if (cat == null) {
 				throw new SQLException(String.format(
 						"Catalog '%s' was not found", getCatalog()));
@@ -653,7 +914,11 @@ public class J4SConnection implements Connection {
 	}
 
 	@Override
-	public <T> T unwrap(final Class<T> arg0) throws SQLException {
-		throw new SQLFeatureNotSupportedException();
+	public <T> T unwrap(final Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException(String.format("%s is not a wrapper for %s",
+				getClass().getName(), iface.getName()));
 	}
 }
@@ -0,0 +1,641 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xenei.jdbc4sparql.iface.TypeConverter;
+import org.xenei.jdbc4sparql.impl.rdf.RdfCatalog;
+import org.xenei.jdbc4sparql.sparql.SparqlQueryBuilder;
+import org.xenei.jdbc4sparql.sparql.SparqlView;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+import com.hp.hpl.jena.sparql.expr.NodeValue;
+
+/**
+ * A statement with JDBC parameters.
+ *
+ * The SQL is translated once when the statement is prepared. Each execution
+ * binds the parameter values into a copy of the translated query so the SQL
+ * is not parsed again. A batch of parameter sets is executed as a single
+ * query with a VALUES block holding all of the sets. The rows for the batch
+ * are returned by getResultSet() after executeBatch().
+ *
+ * Parameters may be used anywhere except the select list and LIMIT clause.
+ */
+public class J4SPreparedStatement extends J4SStatement implements
+PreparedStatement {
+	private final J4SConnection connection;
+	private final String sql;
+	// the translated query and the max rows it was translated with.
+	private SparqlQueryBuilder template;
+	private int templateMaxRows;
+	// the parameter values, a null value is SQL NULL.
+	private final Node[] values;
+	private final boolean[] isSet;
+	// the parameter sets added to the batch.
+	private final List<Binding> batch;
+
+	private static Logger LOG = LoggerFactory
+			.getLogger(J4SPreparedStatement.class);
+
+	public J4SPreparedStatement(final J4SConnection connection,
+			final RdfCatalog catalog, final String sql,
+			final int resultSetType, final int resultSetConcurrency,
+			final int resultSetHoldability) throws SQLException {
+		super(connection, catalog, resultSetType, resultSetConcurrency,
+				resultSetHoldability);
+		if (LOG.isDebugEnabled()) {
+			J4SPreparedStatement.LOG.debug("Preparing {}", sql);
+		}
+		this.connection = connection;
+		this.sql = sql;
+		synchronized (connection.getQueryLock()) {
+			this.template = getPlan(sql);
+		}
+		this.templateMaxRows = getMaxRows();
+		final int count = template.getParameters().size();
+		this.values = new Node[count];
+		this.isSet = new boolean[count];
+		this.batch = new ArrayList<Binding>();
+	}
+
+	/**
+	 * Get the translated query. The query is translated again if the maximum
+	 * number of rows has changed.
+	 */
+	private SparqlQueryBuilder getTemplate() throws SQLException {
+		if (isClosed()) {
+			throw new SQLException("Statement is closed");
+		}
+		if (templateMaxRows != getMaxRows()) {
+			synchronized (connection.getQueryLock()) {
+				template = getPlan(sql);
+			}
+			templateMaxRows = getMaxRows();
+		}
+		return template;
+	}
+
+	/**
+	 * Create the binding for the current parameter values.
+	 *
+	 * @throws SQLException
+	 *             if a parameter has not been set.
+	 */
+	private Binding createBinding() throws SQLException {
+		final List<Var> params = template.getParameters();
+		final BindingMap retval = BindingFactory.create();
+		for (int i = 0; i < values.length; i++) {
+			if (!isSet[i]) {
+				throw new SQLException(String.format(
+						"Parameter %s has not been set", i + 1));
+			}
+			// NULL parameters are left unbound.
+			if (values[i] != null) {
+				retval.add(params.get(i), values[i]);
+			}
+		}
+		return retval;
+	}
+
+	private void setParameter(final int parameterIndex, final Node value)
+			throws SQLException {
+		if (isClosed()) {
+			throw new SQLException("Statement is closed");
+		}
+		if ((parameterIndex < 1) || (parameterIndex > values.length)) {
+			throw new SQLException(String.format(
+					"Parameter index %s is not between 1 and %s",
+					parameterIndex, values.length));
+		}
+		values[parameterIndex - 1] = value;
+		isSet[parameterIndex - 1] = true;
+	}
+
+	/**
+	 * Convert a java value to a node. Literals are created the same way as the
+	 * literals in the SQL text.
+	 *
+	 * @param value
+	 *            The value to convert.
+	 * @return the node or null if the value is null.
+	 * @throws SQLException
+	 *             if the value can not be converted.
+	 */
+	static Node asNode(final Object value) throws SQLException {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof Node) {
+			return (Node) value;
+		}
+		if (value instanceof NodeValue) {
+			return ((NodeValue) value).asNode();
+		}
+		if (value instanceof String) {
+			return NodeValue.makeString((String) value).asNode();
+		}
+		if ((value instanceof Byte) || (value instanceof Short)
+				|| (value instanceof Integer) || (value instanceof Long)) {
+			return NodeValue.makeInteger(((Number) value).longValue())
+					.asNode();
+		}
+		if (value instanceof BigInteger) {
+			return NodeValue.makeInteger((BigInteger) value).asNode();
+		}
+		if ((value instanceof Float) || (value instanceof Double)) {
+			return NodeValue.makeDouble(((Number) value).doubleValue())
+					.asNode();
+		}
+		if (value instanceof BigDecimal) {
+			return NodeValue.makeDecimal((BigDecimal) value).asNode();
+		}
+		if (value instanceof Boolean) {
+			return NodeValue.makeBoolean((Boolean) value).asNode();
+		}
+		if (value instanceof Timestamp) {
+			final String parts[] = value.toString().split(" ");
+			return NodeFactory.createLiteral(
+					String.format("%sT%s", parts[0], parts[1]),
+					XSDDatatype.XSDdateTime);
+		}
+		if (value instanceof Time) {
+			return NodeFactory.createLiteral(value.toString(),
+					XSDDatatype.XSDtime);
+		}
+		if (value instanceof Date) {
+			return NodeFactory.createLiteral(value.toString(),
+					XSDDatatype.XSDdate);
+		}
+		if (value instanceof java.util.Date) {
+			return asNode(new Timestamp(((java.util.Date) value).getTime()));
+		}
+		if (value instanceof URL) {
+			try {
+				return NodeFactory.createURI(((URL) value).toURI().toString());
+			} catch (final URISyntaxException e) {
+				throw new SQLException(e.getMessage(), e);
+			}
+		}
+		if (value instanceof java.net.URI) {
+			return NodeFactory.createURI(value.toString());
+		}
+		return TypeConverter.getNodeValue(value).asNode();
+	}
+
+	@Override
+	public void addBatch() throws SQLException {
+		getTemplate();
+		batch.add(createBinding());
+	}
+
+	@Override
+	public void addBatch(final String sql) throws SQLException {
+		throw new SQLException(
+				"addBatch(String) may not be called on a PreparedStatement");
+	}
+
+	@Override
+	public void clearBatch() throws SQLException {
+		batch.clear();
+	}
+
+	@Override
+	public void clearParameters() throws SQLException {
+		Arrays.fill(values, null);
+		Arrays.fill(isSet, false);
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		final SparqlQueryBuilder builder = getTemplate();
+		if (builder.getParameters().isEmpty()) {
+			execute(builder);
+		}
+		else {
+			execute(builder.bindParameters(Collections
+					.singletonList(createBinding())));
+		}
+		return true;
+	}
+
+	@Override
+	public boolean execute(final String sql) throws SQLException {
+		throw new SQLException(
+				"execute(String) may not be called on a PreparedStatement");
+	}
+
+	/**
+	 * Execute all of the parameter sets in the batch as one query. The rows
+	 * for all of the sets are returned by getResultSet(). The maximum number
+	 * of rows applies to the batch as a whole.
+	 *
+	 * @return an array with Statement.SUCCESS_NO_INFO for each set.
+	 */
+	@Override
+	public int[] executeBatch() throws SQLException {
+		final SparqlQueryBuilder builder = getTemplate();
+		final int[] retval = new int[batch.size()];
+		if (batch.isEmpty()) {
+			return retval;
+		}
+		if (LOG.isDebugEnabled()) {
+			J4SPreparedStatement.LOG.debug("execute batch of {}", batch.size());
+		}
+		try {
+			if (builder.getParameters().isEmpty()) {
+				execute(builder);
+			}
+			else {
+				execute(builder.bindParameters(new ArrayList<Binding>(batch)));
+			}
+		} finally {
+			batch.clear();
+		}
+		Arrays.fill(retval, SUCCESS_NO_INFO);
+		return retval;
+	}
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		execute();
+		return getResultSet();
+	}
+
+	@Override
+	public ResultSet executeQuery(final String sql) throws SQLException {
+		throw new SQLException(
+				"executeQuery(String) may not be called on a PreparedStatement");
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return new J4SResultSetMetaData(new SparqlView(getTemplate()));
+	}
+
+	@Override
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setArray(final int parameterIndex, final Array x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setAsciiStream(final int parameterIndex, final InputStream x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setAsciiStream(final int parameterIndex, final InputStream x,
+			final int length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setAsciiStream(final int parameterIndex, final InputStream x,
+			final long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBigDecimal(final int parameterIndex, final BigDecimal x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setBinaryStream(final int parameterIndex, final InputStream x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBinaryStream(final int parameterIndex, final InputStream x,
+			final int length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBinaryStream(final int parameterIndex, final InputStream x,
+			final long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBlob(final int parameterIndex, final Blob x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBlob(final int parameterIndex, final InputStream inputStream)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBlob(final int parameterIndex,
+			final InputStream inputStream, final long length)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setBoolean(final int parameterIndex, final boolean x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setByte(final int parameterIndex, final byte x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setBytes(final int parameterIndex, final byte[] x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCharacterStream(final int parameterIndex,
+			final Reader reader) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCharacterStream(final int parameterIndex,
+			final Reader reader, final int length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setCharacterStream(final int parameterIndex,
+			final Reader reader, final long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setClob(final int parameterIndex, final Clob x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setClob(final int parameterIndex, final Reader reader)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setClob(final int parameterIndex, final Reader reader,
+			final long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setDate(final int parameterIndex, final Date x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setDate(final int parameterIndex, final Date x,
+			final Calendar cal) throws SQLException {
+		if (cal != null) {
+			throw new SQLFeatureNotSupportedException();
+		}
+		setDate(parameterIndex, x);
+	}
+
+	@Override
+	public void setDouble(final int parameterIndex, final double x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setFloat(final int parameterIndex, final float x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setInt(final int parameterIndex, final int x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setLong(final int parameterIndex, final long x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setNCharacterStream(final int parameterIndex,
+			final Reader value) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNCharacterStream(final int parameterIndex,
+			final Reader value, final long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNClob(final int parameterIndex, final NClob value)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNClob(final int parameterIndex, final Reader reader)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNClob(final int parameterIndex, final Reader reader,
+			final long length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setNString(final int parameterIndex, final String value)
+			throws SQLException {
+		setString(parameterIndex, value);
+	}
+
+	@Override
+	public void setNull(final int parameterIndex, final int sqlType)
+			throws SQLException {
+		setParameter(parameterIndex, null);
+	}
+
+	@Override
+	public void setNull(final int parameterIndex, final int sqlType,
+			final String typeName) throws SQLException {
+		setParameter(parameterIndex, null);
+	}
+
+	@Override
+	public void setObject(final int parameterIndex, final Object x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setObject(final int parameterIndex, final Object x,
+			final int targetSqlType) throws SQLException {
+		if (x == null) {
+			setNull(parameterIndex, targetSqlType);
+		}
+		else {
+			setObject(parameterIndex, TypeConverter.extractData(x,
+					TypeConverter.getJavaType(targetSqlType)));
+		}
+	}
+
+	@Override
+	public void setObject(final int parameterIndex, final Object x,
+			final int targetSqlType, final int scaleOrLength)
+			throws SQLException {
+		setObject(parameterIndex, x, targetSqlType);
+	}
+
+	@Override
+	public void setRef(final int parameterIndex, final Ref x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setRowId(final int parameterIndex, final RowId x)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setShort(final int parameterIndex, final short x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setSQLXML(final int parameterIndex, final SQLXML xmlObject)
+			throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setString(final int parameterIndex, final String x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setTime(final int parameterIndex, final Time x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setTime(final int parameterIndex, final Time x,
+			final Calendar cal) throws SQLException {
+		if (cal != null) {
+			throw new SQLFeatureNotSupportedException();
+		}
+		setTime(parameterIndex, x);
+	}
+
+	@Override
+	public void setTimestamp(final int parameterIndex, final Timestamp x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+
+	@Override
+	public void setTimestamp(final int parameterIndex, final Timestamp x,
+			final Calendar cal) throws SQLException {
+		if (cal != null) {
+			throw new SQLFeatureNotSupportedException();
+		}
+		setTimestamp(parameterIndex, x);
+	}
+
+	@Override
+	@Deprecated
+	public void setUnicodeStream(final int parameterIndex, final InputStream x,
+			final int length) throws SQLException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public void setURL(final int parameterIndex, final URL x)
+			throws SQLException {
+		setParameter(parameterIndex, asNode(x));
+	}
+}
@@ -9,5 +9,13 @@ public interface J4SPropertyNames {
 	public static final String SCHEMA_PROPERTY = "schema";
 	public static final String USER_PROPERTY = "user";
 	public static final String PASSWORD_PROPERTY = "password";
+	public static final String RESULT_BATCH_PROPERTY = "resultBatch";
+	public static final String SPILL_THRESHOLD_PROPERTY = "spillThreshold";
+	public static final String PREFETCH_PROPERTY = "prefetch";
+	public static final String TYPE_FILTER_PROPERTY = "typeFilter";
+	public static final String PLAN_CACHE_PROPERTY = "planCache";
+	public static final String IN_VALUES_THRESHOLD_PROPERTY = "inValuesThreshold";
+	public static final String RESULT_CACHE_PROPERTY = "resultCache";
+	public static final String RESULT_CACHE_TTL_PROPERTY = "resultCacheTTL";
 
 }
@@ -24,16 +24,24 @@ import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xenei.jdbc4sparql.iface.Catalog;
 import org.xenei.jdbc4sparql.iface.Schema;
 import org.xenei.jdbc4sparql.impl.rdf.RdfCatalog;
+import org.xenei.jdbc4sparql.sparql.ExecutionControl;
+import org.xenei.jdbc4sparql.sparql.ExplainPlan;
+import org.xenei.jdbc4sparql.sparql.PlanCache;
 import org.xenei.jdbc4sparql.sparql.SparqlQueryBuilder;
 import org.xenei.jdbc4sparql.sparql.SparqlView;
 import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
 
+import com.hp.hpl.jena.query.QueryCancelledException;
+
 public class J4SStatement implements Statement {
 	private final J4SConnection connection;
 	private RdfCatalog catalog;
@@ -43,8 +51,17 @@ public class J4SStatement implements Statement {
 	private final SparqlParser parser;
 	private ResultSet resultSet;
 	private int fetchDirection;
+	private int fetchSize;
+	private final int batchSize;
+	private final long spillThreshold;
+	private final int prefetchSize;
 	private final int resultSetConcurrency;
 	private int queryTimeout;
+	private int maxRows;
+	// the control for the last execute.
+	private volatile ExecutionControl control;
+	// the control for the asynchronous executions.
+	private ExecutionControl asyncControl;
 	private final int resultSetType;
 	private final int resultSetHoldability;
 	private boolean poolable;
@@ -69,12 +86,21 @@ public class J4SStatement implements Statement {
 				this.schema = schemas.iterator().next();
 			}
 		}
-		this.queryTimeout = connection.getNetworkTimeout();
+		// the network timeout is in milliseconds, JDBC query timeouts start
+		// at 0 (no limit).
+		this.queryTimeout = 0;
 		this.parser = connection.getSparqlParser();
 		this.resultSet = null;
 		this.poolable = true;
+		this.maxRows = 0;
+		this.control = null;
+		this.asyncControl = null;
 		this.resultSetHoldability = resultSetHoldability;
 		this.fetchDirection = ResultSet.FETCH_FORWARD;
+		this.fetchSize = 0;
+		this.batchSize = connection.getResultBatchSize();
+		this.spillThreshold = connection.getSpillThreshold();
+		this.prefetchSize = connection.getPrefetchSize();
 		this.resultSetConcurrency = resultSetConcurrency;
 		this.resultSetType = resultSetType;
 	}
@@ -86,8 +112,19 @@ public class J4SStatement implements Statement {
 
 	@Override
 	public void cancel() throws SQLException {
-		// TODO Auto-generated method stub
-
+		if (closed) {
+			throw new SQLException("Statement is closed");
+		}
+		final ExecutionControl current = control;
+		if (current != null) {
+			current.cancel();
+		}
+		synchronized (this) {
+			if (asyncControl != null) {
+				asyncControl.cancel();
+				asyncControl = null;
+			}
+		}
 	}
 
 	@Override
@@ -115,6 +152,9 @@ public class J4SStatement implements Statement {
 
 	@Override
 	public boolean execute(final String sql) throws SQLException {
+		if ((resultSet != null) && !resultSet.isClosed()) {
+			resultSet.close();
+		}
 		resultSet = null;
 		if (LOG.isDebugEnabled()) {
 			J4SStatement.LOG.debug("execute {}", sql);
@@ -126,14 +166,51 @@ public class J4SStatement implements Statement {
 		else if (parts[0].equalsIgnoreCase("show")) {
 			resultSet = executeShow(parts);
 		}
+		else if (parts[0].equalsIgnoreCase("explain")) {
+			final ExecutionControl queryControl = new ExecutionControl(
+					queryTimeout * 1000L, connection.getExecutor());
+			control = queryControl;
+			resultSet = executeExplain(catalog, schema, sql, maxRows,
+					queryControl);
+		}
 		else {
-			final SparqlView view = new SparqlView(parse(sql));
-			resultSet = view.getResultSet();
-			resultSet.setFetchDirection(getFetchDirection());
+			final SparqlQueryBuilder builder;
+			synchronized (connection.getQueryLock()) {
+				builder = getPlan(sql);
+			}
+			execute(builder);
 		}
 		return resultSet != null;
 	}
 
+	/**
+	 * Execute the translated query and make its result set the current result
+	 * set.
+	 *
+	 * @param builder
+	 *            The built builder for the query.
+	 * @throws SQLException
+	 *             if the query can not be executed.
+	 */
+	void execute(final SparqlQueryBuilder builder) throws SQLException {
+		if ((resultSet != null) && !resultSet.isClosed()) {
+			resultSet.close();
+		}
+		resultSet = null;
+		final ExecutionControl queryControl = new ExecutionControl(
+				queryTimeout * 1000L, connection.getExecutor());
+		control = queryControl;
+		try {
+			final SparqlView view = new SparqlView(builder);
+			resultSet = view.getResultSet(resultSetType, fetchSize,
+					batchSize, spillThreshold, prefetchSize, queryControl,
+					connection.getResultCache());
+		} catch (final QueryCancelledException e) {
+			throw queryControl.createException(e);
+		}
+		resultSet.setFetchDirection(getFetchDirection());
+	}
+
 	@Override
 	public boolean execute(final String sql, final int autoGeneratedKeys)
 			throws SQLException {
@@ -163,6 +240,247 @@ public class J4SStatement implements Statement {
 		return getResultSet();
 	}
 
+	/**
+	 * Execute a query on the connection executor.
+	 *
+	 * The SQL is parsed, translated and executed by the executor so the
+	 * calling thread does not wait for the query. Translation holds the
+	 * connection query lock so queries on one connection are translated one
+	 * at a time, the queries are executed concurrently. The catalog, schema
+	 * and result set settings of the statement at the time of the call are used.
+	 * The result set is not the current result set of the statement and is
+	 * not closed by later executions, the caller must close it.
+	 *
+	 * Reachable through unwrap( J4SStatement.class ).
+	 *
+	 * @param sql
+	 *            The query to execute.
+	 * @return A future for the result set.
+	 * @throws SQLException
+	 *             if the statement is closed or the SQL is a USE command.
+	 */
+	public Future<ResultSet> executeQueryAsync(final String sql)
+			throws SQLException {
+		if (closed) {
+			throw new SQLException("Statement is closed");
+		}
+		if (LOG.isDebugEnabled()) {
+			J4SStatement.LOG.debug("executeAsync {}", sql);
+		}
+		final String[] parts = sql.trim().split("\\s");
+		if (parts[0].equalsIgnoreCase("use")) {
+			throw new SQLException("use may not be executed asynchronously");
+		}
+		final RdfCatalog queryCatalog = catalog;
+		final Schema querySchema = schema;
+		final int queryFetchSize = fetchSize;
+		final int queryFetchDirection = fetchDirection;
+		final int queryMaxRows = maxRows;
+		final ExecutionControl queryControl = getAsyncControl();
+		return connection.getExecutor().submit(new Callable<ResultSet>() {
+			@Override
+			public ResultSet call() throws SQLException {
+				if (parts[0].equalsIgnoreCase("show")) {
+					return executeShow(parts);
+				}
+				if (parts[0].equalsIgnoreCase("explain")) {
+					return executeExplain(queryCatalog, querySchema, sql,
+							queryMaxRows, queryControl);
+				}
+				final SparqlQueryBuilder builder;
+				synchronized (connection.getQueryLock()) {
+					builder = getPlan(queryCatalog, querySchema, sql,
+							queryMaxRows);
+				}
+				final ResultSet retval;
+				try {
+					final SparqlView view = new SparqlView(builder);
+					retval = view.getResultSet(resultSetType, queryFetchSize,
+							batchSize, spillThreshold, prefetchSize,
+							queryControl, connection.getResultCache());
+				} catch (final QueryCancelledException e) {
+					throw queryControl.createException(e);
+				}
+				retval.setFetchDirection(queryFetchDirection);
+				return retval;
+			}
+		});
+	}
+
+	/**
+	 * Get the translated query for the current catalog, schema and maximum
+	 * rows. Must be called while holding the connection query lock.
+	 *
+	 * @param sql
+	 *            The query to translate.
+	 * @return the builder for the query.
+	 * @throws SQLException
+	 *             if the query can not be translated.
+	 */
+	SparqlQueryBuilder getPlan(final String sql) throws SQLException {
+		return getPlan(catalog, schema, sql, maxRows);
+	}
+
+	/**
+	 * Get the translated query from the connection plan cache, translating
+	 * and caching it if it is not there. Must be called while holding the
+	 * connection query lock. The query is built before it is returned so the
+	 * executions of the builder do not change it.
+	 *
+	 * @param queryCatalog
+	 *            The default catalog for the query.
+	 * @param querySchema
+	 *            The default schema for the query, may be null.
+	 * @param sql
+	 *            The query to translate.
+	 * @param queryMaxRows
+	 *            The maximum number of rows or 0 for no maximum.
+	 * @return the builder for the query.
+	 * @throws SQLException
+	 *             if the query can not be translated.
+	 */
+	private SparqlQueryBuilder getPlan(final RdfCatalog queryCatalog,
+			final Schema querySchema, final String sql, final int queryMaxRows)
+			throws SQLException {
+		final PlanCache cache = connection.getPlanCache();
+		final PlanCache.Key key = new PlanCache.Key(sql, queryCatalog
+				.getName().getShortName(), querySchema == null ? null
+				: querySchema.getName().getShortName(), queryMaxRows);
+		SparqlQueryBuilder builder = cache.get(key);
+		if (builder == null) {
+			final long generation = cache.getGeneration();
+			for (final Catalog cat : connection.getCatalogs().values()) {
+				if (cat instanceof RdfCatalog) {
+					cache.watch(((RdfCatalog) cat).getResource().getModel());
+				}
+			}
+			builder = parse(queryCatalog, querySchema, sql);
+			J4SStatement.applyMaxRows(builder, queryMaxRows);
+			builder.build().setResultVars();
+			cache.put(key, builder, generation);
+		}
+		else if (LOG.isDebugEnabled()) {
+			J4SStatement.LOG.debug("using cached plan for {}", sql);
+		}
+		return builder;
+	}
+
+	/**
+	 * Limit the query to the maximum number of rows. The smaller of the SQL
+	 * LIMIT and the maximum is used. For SERVICE catalogs the limit is only
+	 * applied within the service call when the driver does not remove any of
+	 * the returned rows (e.g. native type filters without local filters).
+	 * Otherwise the java type checks could drop rows after the endpoint has
+	 * applied the limit, so the limit is applied locally.
+	 *
+	 * @param builder
+	 *            the builder for the query.
+	 * @param maxRows
+	 *            the maximum number of rows or 0 for no maximum.
+	 */
+	private static void applyMaxRows(final SparqlQueryBuilder builder,
+			final int maxRows) {
+		if (maxRows > 0) {
+			final Long limit = builder.getLimit();
+			if ((limit == null) || (limit > maxRows)) {
+				builder.setLimit(Long.valueOf(maxRows));
+			}
+		}
+	}
+
+	/**
+	 * Get the control for asynchronous executions. A new control is created
+	 * after a cancel or when the query timeout or the executor changes.
+	 */
+	private synchronized ExecutionControl getAsyncControl() {
+		final long timeout = queryTimeout * 1000L;
+		final ExecutorService executor = connection.getExecutor();
+		if ((asyncControl == null) || (asyncControl.getTimeout() != timeout)
+				|| (asyncControl.getExecutor() != executor)) {
+			asyncControl = new ExecutionControl(timeout, executor);
+		}
+		return asyncControl;
+	}
+
+	/**
+	 * Execute EXPLAIN [ANALYZE] &lt;select&gt;.
+	 *
+	 * The result set lists the steps of the plan for the select, see
+	 * ExplainPlan. ANALYZE executes the select, reading and discarding the
+	 * rows, and adds the time to translate the statement, the time to the
+	 * first row and the time and number of rows to read the rest.
+	 *
+	 * @param queryCatalog
+	 *            The default catalog for the query.
+	 * @param querySchema
+	 *            The default schema for the query, may be null.
+	 * @param sql
+	 *            The EXPLAIN statement.
+	 * @param queryMaxRows
+	 *            The maximum number of rows or 0 for no maximum.
+	 * @param queryControl
+	 *            The control for the execution of the select.
+	 * @return The result set of the plan steps.
+	 * @throws SQLException
+	 *             if the select can not be translated or executed.
+	 */
+	private ResultSet executeExplain(final RdfCatalog queryCatalog,
+			final Schema querySchema, final String sql,
+			final int queryMaxRows, final ExecutionControl queryControl)
+			throws SQLException {
+		String select = sql.trim().substring("explain".length()).trim();
+		boolean analyze = false;
+		final String[] parts = select.split("\\s", 2);
+		if (parts[0].equalsIgnoreCase("analyze")) {
+			analyze = true;
+			select = parts.length == 1 ? "" : parts[1].trim();
+		}
+		if (select.isEmpty()) {
+			throw new SQLException(
+					"explain must be followed by [ANALYZE] and a select statement");
+		}
+
+		final ExplainPlan plan;
+		final SparqlQueryBuilder builder;
+		final long translateStart = System.currentTimeMillis();
+		synchronized (connection.getQueryLock()) {
+			builder = getPlan(queryCatalog, querySchema, select, queryMaxRows);
+			plan = new ExplainPlan(select, builder);
+		}
+		if (analyze) {
+			plan.addStep(ExplainPlan.TRANSLATE, null, null, null,
+					System.currentTimeMillis() - translateStart);
+			final long executeStart = System.currentTimeMillis();
+			final ResultSet rs;
+			try {
+				final SparqlView view = new SparqlView(builder);
+				// analyze measures the execution so the result cache is
+				// not used.
+				rs = view.getResultSet(ResultSet.TYPE_FORWARD_ONLY, fetchSize,
+						batchSize, 0, 0, queryControl, null);
+				try {
+					long rows = 0;
+					if (rs.next()) {
+						rows++;
+					}
+					final long fetchStart = System.currentTimeMillis();
+					plan.addStep(ExplainPlan.EXECUTE, null, null, null,
+							fetchStart - executeStart);
+					while (rs.next()) {
+						rows++;
+					}
+					plan.addStep(ExplainPlan.FETCH, null, null, rows,
+							System.currentTimeMillis() - fetchStart);
+				} finally {
+					rs.close();
+				}
+			} catch (final QueryCancelledException e) {
+				throw queryControl.createException(e);
+			}
+		}
+		return plan.getResultSet();
+	}
+
 	private ResultSet executeShow(final String[] parts) throws SQLException {
 		if (parts.length == 1) {
 			throw new SQLException(
@@ -255,7 +573,7 @@ public class J4SStatement implements Statement {
 
 	@Override
 	public int getFetchSize() throws SQLException {
-		return Integer.MAX_VALUE;
+		return fetchSize;
 	}
 
 	@Override
@@ -270,7 +588,7 @@ public class J4SStatement implements Statement {
 
 	@Override
 	public int getMaxRows() throws SQLException {
-		return Integer.MAX_VALUE;
+		return maxRows;
 	}
 
 	@Override
@@ -334,12 +652,24 @@ public class J4SStatement implements Statement {
 	}
 
 	@Override
-	public boolean isWrapperFor(final Class<?> arg0) throws SQLException {
-		return false;
+	public boolean isWrapperFor(final Class<?> iface) throws SQLException {
+		return (iface != null) && iface.isInstance(this);
 	}
 
 	public SparqlQueryBuilder parse(final String sql) throws SQLException {
-		return parser.parse(connection.getCatalogs(), catalog, schema, sql);
+		return parse(catalog, schema, sql);
+	}
+
+	/**
+	 * Parse the SQL and apply the connection settings to the builder.
+	 */
+	private SparqlQueryBuilder parse(final RdfCatalog queryCatalog,
+			final Schema querySchema, final String sql) throws SQLException {
+		final SparqlQueryBuilder builder = parser.parse(
+				connection.getCatalogs(), queryCatalog, querySchema, sql);
+		builder.setNativeTypeFilters(connection.isNativeTypeFilters());
+		builder.setInValuesThreshold(connection.getInValuesThreshold());
+		return builder;
 	}
 
 	@Override
@@ -370,8 +700,11 @@ public class J4SStatement implements Statement {
 	}
 
 	@Override
-	public void setFetchSize(final int arg0) throws SQLException {
-		// ignore this
+	public void setFetchSize(final int rows) throws SQLException {
+		if (rows < 0) {
+			throw new SQLException("Fetch size may not be negative");
+		}
+		fetchSize = rows;
 	}
 
 	@Override
@@ -381,9 +714,11 @@ public class J4SStatement implements Statement {
 	}
 
 	@Override
-	public void setMaxRows(final int arg0) throws SQLException {
-		// TODO Auto-generated method stub
-
+	public void setMaxRows(final int maxRows) throws SQLException {
+		if (maxRows < 0) {
+			throw new SQLException("Max rows must not be less than zero");
+		}
+		this.maxRows = maxRows;
 	}
 
 	@Override
@@ -393,12 +728,19 @@ public class J4SStatement implements Statement {
 
 	@Override
 	public void setQueryTimeout(final int queryTimeout) throws SQLException {
+		if (queryTimeout < 0) {
+			throw new SQLException("Query timeout must not be less than zero");
+		}
 		this.queryTimeout = queryTimeout;
 	}
 
 	@Override
-	public <T> T unwrap(final Class<T> arg0) throws SQLException {
-		throw new SQLFeatureNotSupportedException();
+	public <T> T unwrap(final Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException(String.format("%s is not a wrapper for %s",
+				getClass().getName(), iface.getName()));
 	}
 
 }
@@ -41,7 +41,15 @@ public class J4SUrl {
 	public static final String TYPE_CONFIG = "config";
 	public static final String[] ARGS = {
 			J4SPropertyNames.CATALOG_PROPERTY, J4SPropertyNames.TYPE_PROPERTY,
-			J4SPropertyNames.BUILDER_PROPERTY, J4SPropertyNames.PARSER_PROPERTY
+			J4SPropertyNames.BUILDER_PROPERTY, J4SPropertyNames.PARSER_PROPERTY,
+			J4SPropertyNames.RESULT_BATCH_PROPERTY,
+			J4SPropertyNames.SPILL_THRESHOLD_PROPERTY,
+			J4SPropertyNames.PREFETCH_PROPERTY,
+			J4SPropertyNames.TYPE_FILTER_PROPERTY,
+			J4SPropertyNames.PLAN_CACHE_PROPERTY,
+			J4SPropertyNames.IN_VALUES_THRESHOLD_PROPERTY,
+			J4SPropertyNames.RESULT_CACHE_PROPERTY,
+			J4SPropertyNames.RESULT_CACHE_TTL_PROPERTY
 	};
 
 	private URI endpoint;
@@ -25,6 +25,7 @@ import org.xenei.jdbc4sparql.sparql.items.NamedObject;
 
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QuerySolution;
 
 public interface Catalog extends NamedObject<CatalogName> {
@@ -43,6 +44,17 @@ public interface Catalog extends NamedObject<CatalogName> {
 	 */
 	public List<QuerySolution> executeLocalQuery(final Query query);
 
+	/**
+	 * Create an execution of the query against the local Model.
+	 *
+	 * The results are not materialized. The caller is responsible for closing
+	 * the returned QueryExecution.
+	 *
+	 * @param query
+	 * @return The QueryExecution for the query.
+	 */
+	public QueryExecution createLocalExecution(final Query query);
+
 	/**
 	 * Return the list of schemas that have names matching the pattern if name
 	 * pattern == null return all the schemas if name pattern == "" return only
@@ -99,8 +99,26 @@ public interface Table extends NamedObject<TableName> {
 	 */
 	public String getQuerySegmentFmt();
 
+	/**
+	 * Get the number of distinct values in a column of this table when the
+	 * statistics were last collected.
+	 *
+	 * @param column
+	 *            The column to get the count for.
+	 * @return the number of distinct values or null if it is not known.
+	 */
+	Long getDistinctCount(Column column);
+
 	String getRemarks();
 
+	/**
+	 * Get the number of rows in the table when the statistics were last
+	 * collected.
+	 *
+	 * @return the number of rows or null if it is not known.
+	 */
+	Long getRowCount();
+
 	/**
 	 * @return The schema the table belongs in.
 	 */
@@ -31,6 +31,8 @@ import java.sql.Time;
 import java.sql.Types;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.sql.rowset.serial.SerialBlob;
 import javax.sql.rowset.serial.SerialClob;
@@ -65,9 +67,9 @@ public final class TypeConverter {
 		if (value == null) {
 			return null;
 		}
-		final SPARQLToJava stj = getSPARQLType(value.getClass());
-		final RDFDatatype dt = TypeMapper.getInstance().getTypeByName(
-				stj.sparqlType);
+		final String sparqlType = JAVA_TO_SPARQL.get(value.getClass());
+		final RDFDatatype dt = sparqlType == null ? null : TypeMapper
+				.getInstance().getTypeByName(sparqlType);
 		LiteralLabel lit = null;
 		Node node = null;
 		if (dt == null) {
@@ -90,12 +92,11 @@ public final class TypeConverter {
 	 */
 	public static Class<?> getJavaType(final int sqlType)
 			throws SQLDataException {
-		for (final SQLToJava map : TypeConverter.SQL_TO_JAVA) {
-			if (map.sqlType == sqlType) {
-				return map.javaType;
-			}
+		final Class<?> javaType = SQL_TO_JAVA_MAP.get(sqlType);
+		if (javaType == null) {
+			throw new SQLDataException(String.format("SQL Type %s", sqlType));
 		}
-		throw new SQLDataException(String.format("SQL Type %s", sqlType));
+		return javaType;
 	}
 
 	/**
@@ -116,13 +117,12 @@ public final class TypeConverter {
 		if (dataType == null) {
 			return String.class;
 		}
-		for (final SPARQLToJava map : TypeConverter.SPARQL_TO_JAVA) {
-			if (map.sparqlType.equals(dataType.getURI())) {
-				return map.javaType;
-			}
+		final Class<?> javaType = SPARQL_TO_JAVA_MAP.get(dataType.getURI());
+		if (javaType == null) {
+			throw new SQLDataException(String.format("SPARQL Type %s",
+					dataType.getURI()));
 		}
-		throw new SQLDataException(String.format("SPARQL Type %s",
-				dataType.getURI()));
+		return javaType;
 	}
 
 	/**
@@ -148,21 +148,7 @@ public final class TypeConverter {
 	 * @return The sql Type for the class.
 	 */
 	public static Integer getSqlType(final Class<?> javaType) {
-		for (final SQLToJava map : TypeConverter.SQL_TO_JAVA) {
-			if (map.javaType.equals(javaType)) {
-				return map.sqlType;
-			}
-		}
-		return null;
-	}
-
-	private static SPARQLToJava getSPARQLType(final Class<?> javaType) {
-		for (final SPARQLToJava map : TypeConverter.SPARQL_TO_JAVA) {
-			if (map.javaType.equals(javaType)) {
-				return map;
-			}
-		}
-		return null;
+		return JAVA_TO_SQL.get(javaType);
 	}
 
 	/**
@@ -383,6 +369,36 @@ public final class TypeConverter {
 																																																																																								String.class),
 	};
 
+	// lookup tables built from the arrays above. The first entry for a type
+	// wins so the array order is preserved.
+	private static final Map<Integer, Class<?>> SQL_TO_JAVA_MAP;
+	private static final Map<Class<?>, Integer> JAVA_TO_SQL;
+	private static final Map<String, Class<?>> SPARQL_TO_JAVA_MAP;
+	private static final Map<Class<?>, String> JAVA_TO_SPARQL;
+
+	static {
+		SQL_TO_JAVA_MAP = new HashMap<Integer, Class<?>>();
+		JAVA_TO_SQL = new HashMap<Class<?>, Integer>();
+		for (final SQLToJava map : TypeConverter.SQL_TO_JAVA) {
+			if (!SQL_TO_JAVA_MAP.containsKey(map.sqlType)) {
+				SQL_TO_JAVA_MAP.put(map.sqlType, map.javaType);
+			}
+			if (!JAVA_TO_SQL.containsKey(map.javaType)) {
+				JAVA_TO_SQL.put(map.javaType, map.sqlType);
+			}
+		}
+		SPARQL_TO_JAVA_MAP = new HashMap<String, Class<?>>();
+		JAVA_TO_SPARQL = new HashMap<Class<?>, String>();
+		for (final SPARQLToJava map : TypeConverter.SPARQL_TO_JAVA) {
+			if (!SPARQL_TO_JAVA_MAP.containsKey(map.sparqlType)) {
+				SPARQL_TO_JAVA_MAP.put(map.sparqlType, map.javaType);
+			}
+			if (!JAVA_TO_SPARQL.containsKey(map.javaType)) {
+				JAVA_TO_SPARQL.put(map.javaType, map.sparqlType);
+			}
+		}
+	}
+
 	private static Map<Class<?>, Object> nullValueMap;
 
 	static {
@@ -396,33 +412,287 @@ public final class TypeConverter {
 		nullValueMap.put(Double.class, new Double(0.0));
 	}
 
+	/**
+	 * Converts values of one java class to another java class.
+	 *
+	 * Converters are compiled once for each (source class, target class) pair
+	 * and held in a registry so that the result sets and the type checking
+	 * filters share the same instances. Additional converters may be added
+	 * with registerConverter().
+	 *
+	 * @param <T>
+	 *            The target java class.
+	 */
+	public static abstract class Converter<T> {
+		private final Class<?> sourceType;
+		private final Class<T> targetType;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param sourceType
+		 *            The class of the values to convert.
+		 * @param targetType
+		 *            The class the values are converted to.
+		 */
+		protected Converter(final Class<?> sourceType,
+				final Class<T> targetType) {
+			if (sourceType == null) {
+				throw new IllegalArgumentException(
+						"Source type may not be null");
+			}
+			if (targetType == null) {
+				throw new IllegalArgumentException(
+						"Target type may not be null");
+			}
+			this.sourceType = sourceType;
+			this.targetType = targetType;
+		}
+
+		/**
+		 * Convert the value.
+		 *
+		 * @param value
+		 *            A non null instance of the source type.
+		 * @return the converted value or null if the value can not be
+		 *         represented as the target type.
+		 * @throws SQLException
+		 *             if the value can not be converted.
+		 */
+		public abstract T convert(Object value) throws SQLException;
+
+		public final Class<?> getSourceType() {
+			return sourceType;
+		}
+
+		public final Class<T> getTargetType() {
+			return targetType;
+		}
+	}
+
+	/**
+	 * Converts the values of a single column to the target class.
+	 *
+	 * The converter for the last source class seen is retained so the
+	 * registry is only consulted when the class of the column values changes.
+	 *
+	 * @param <T>
+	 *            The target java class.
+	 */
+	public static final class ColumnConverter<T> {
+		private final Class<T> targetType;
+		private Converter<T> converter;
+
+		public ColumnConverter(final Class<T> targetType) {
+			if (targetType == null) {
+				throw new IllegalArgumentException(
+						"Target type may not be null");
+			}
+			this.targetType = targetType;
+		}
+
+		/**
+		 * Convert the value.
+		 *
+		 * @param value
+		 *            The value to convert, may be null.
+		 * @return The converted value. Null values are converted to the null
+		 *         value for the target class (e.g. 0 for Integer).
+		 * @throws SQLException
+		 */
+		@SuppressWarnings("unchecked")
+		public T convert(final Object value) throws SQLException {
+			if (value == null) {
+				return (T) nullValueMap.get(targetType);
+			}
+			Converter<T> conv = converter;
+			if ((conv == null) || (conv.getSourceType() != value.getClass())) {
+				conv = getConverter(value.getClass(), targetType);
+				converter = conv;
+			}
+			return conv.convert(value);
+		}
+
+		public Class<T> getTargetType() {
+			return targetType;
+		}
+	}
+
+	// target codes for the compiled number and string converters.
+	private static final int TO_BIG_DECIMAL = 1;
+	private static final int TO_BIG_INTEGER = 2;
+	private static final int TO_BYTE = 3;
+	private static final int TO_DOUBLE = 4;
+	private static final int TO_FLOAT = 5;
+	private static final int TO_INTEGER = 6;
+	private static final int TO_LONG = 7;
+	private static final int TO_SHORT = 8;
+	private static final int TO_STRING = 9;
+	private static final int TO_BOOLEAN = 10;
+	private static final int TO_BYTES = 11;
+	private static final int TO_BLOB = 12;
+	private static final int TO_CLOB = 13;
+	private static final int TO_UNKNOWN = 0;
+
+	private static final Map<Class<?>, Integer> TARGET_CODES;
+
+	static {
+		TARGET_CODES = new HashMap<Class<?>, Integer>();
+		TARGET_CODES.put(BigDecimal.class, TO_BIG_DECIMAL);
+		TARGET_CODES.put(BigInteger.class, TO_BIG_INTEGER);
+		TARGET_CODES.put(Byte.class, TO_BYTE);
+		TARGET_CODES.put(Double.class, TO_DOUBLE);
+		TARGET_CODES.put(Float.class, TO_FLOAT);
+		TARGET_CODES.put(Integer.class, TO_INTEGER);
+		TARGET_CODES.put(Long.class, TO_LONG);
+		TARGET_CODES.put(Short.class, TO_SHORT);
+		TARGET_CODES.put(String.class, TO_STRING);
+		TARGET_CODES.put(Boolean.class, TO_BOOLEAN);
+		TARGET_CODES.put(byte[].class, TO_BYTES);
+		TARGET_CODES.put(Blob.class, TO_BLOB);
+		TARGET_CODES.put(Clob.class, TO_CLOB);
+	}
+
+	private static int getTargetCode(final Class<?> targetType) {
+		final Integer code = TARGET_CODES.get(targetType);
+		return code == null ? TO_UNKNOWN : code;
+	}
+
+	/**
+	 * The registry of converters. Source class to target class to converter.
+	 */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Converter<?>>> CONVERTERS = new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Converter<?>>>();
+
+	private static ConcurrentMap<Class<?>, Converter<?>> getConverters(
+			final Class<?> sourceType) {
+		ConcurrentMap<Class<?>, Converter<?>> map = CONVERTERS
+				.get(sourceType);
+		if (map == null) {
+			map = new ConcurrentHashMap<Class<?>, Converter<?>>();
+			final ConcurrentMap<Class<?>, Converter<?>> old = CONVERTERS
+					.putIfAbsent(sourceType, map);
+			if (old != null) {
+				map = old;
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Get the converter from the source class to the target class.
+	 *
+	 * The converter is compiled on first request and the same instance is
+	 * returned on subsequent requests.
+	 *
+	 * @param sourceType
+	 *            The class of the values to convert.
+	 * @param targetType
+	 *            The class to convert the values to.
+	 * @return the converter.
+	 */
 	@SuppressWarnings("unchecked")
-	public static <T> T extractData(final Object columnObject,
-			final Class<T> resultingClass) throws SQLException {
-		if (columnObject == null) {
-			return (T) nullValueMap.get(resultingClass);
+	public static <T> Converter<T> getConverter(final Class<?> sourceType,
+			final Class<T> targetType) {
+		final ConcurrentMap<Class<?>, Converter<?>> map = getConverters(sourceType);
+		Converter<?> retval = map.get(targetType);
+		if (retval == null) {
+			retval = compile(sourceType, targetType);
+			final Converter<?> old = map.putIfAbsent(targetType, retval);
+			if (old != null) {
+				retval = old;
+			}
 		}
+		return (Converter<T>) retval;
+	}
 
-		// try the simple case
-		if (resultingClass.isAssignableFrom(columnObject.getClass())) {
-			return resultingClass.cast(columnObject);
+	/**
+	 * Register a converter. Replaces any converter for the same source and
+	 * target classes.
+	 *
+	 * @param converter
+	 *            The converter to register.
+	 */
+	public static void registerConverter(final Converter<?> converter) {
+		getConverters(converter.getSourceType()).put(
+				converter.getTargetType(), converter);
+	}
+
+	private static <T> Converter<T> compile(final Class<?> sourceType,
+			final Class<T> targetType) {
+		// the simple case
+		if (targetType.isAssignableFrom(sourceType)) {
+			return new Converter<T>(sourceType, targetType) {
+				@Override
+				public T convert(final Object value) {
+					return getTargetType().cast(value);
+				}
+			};
+		}
+
+		// simple numeric assignment
+		if (Number.class.isAssignableFrom(sourceType)) {
+			return new NumberConverter<T>(sourceType, targetType);
 		}
 
-		// see if we can do a simple numeric assignment
-		if (columnObject instanceof Number) {
-			return fromNumber(columnObject, resultingClass);
+		if (sourceType == String.class) {
+			return new StringConverter<T>(targetType);
 		}
 
-		// see if we can convert from a string
-		if (columnObject instanceof String) {
-			return fromString(columnObject, resultingClass);
+		if (sourceType == Boolean.class) {
+			final Converter<T> fromString = getConverter(String.class,
+					targetType);
+			return new Converter<T>(sourceType, targetType) {
+				@Override
+				public T convert(final Object value) throws SQLException {
+					return fromString.convert(((Boolean) value) ? "1" : "0");
+				}
+			};
 		}
 
-		if (columnObject instanceof Boolean) {
-			final Boolean b = (Boolean) columnObject;
-			return fromString(b ? "1" : "0", resultingClass);
+		if ((sourceType == byte[].class)
+				|| Blob.class.isAssignableFrom(sourceType)
+				|| Clob.class.isAssignableFrom(sourceType)
+				|| InputStream.class.isAssignableFrom(sourceType)) {
+			return new Converter<T>(sourceType, targetType) {
+				@Override
+				public T convert(final Object value) throws SQLException {
+					return fromLob(value, getTargetType());
+				}
+			};
 		}
 
+		return new Converter<T>(sourceType, targetType) {
+			@Override
+			public T convert(final Object value) throws SQLException {
+				throw new SQLException(String.format(
+						" Can not cast %s (%s) to %s", value.getClass(),
+						value.toString(), getTargetType()));
+			}
+		};
+	}
+
+	/**
+	 * Convert the column object to the resulting class.
+	 *
+	 * @param columnObject
+	 *            The value to convert, may be null.
+	 * @param resultingClass
+	 *            The class to convert to.
+	 * @return the converted value.
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T extractData(final Object columnObject,
+			final Class<T> resultingClass) throws SQLException {
+		if (columnObject == null) {
+			return (T) nullValueMap.get(resultingClass);
+		}
+		return getConverter(columnObject.getClass(), resultingClass).convert(
+				columnObject);
+	}
+
+	private static <T> T fromLob(final Object columnObject,
+			final Class<T> resultingClass) throws SQLException {
 		if (columnObject instanceof byte[]) {
 			try {
 				if (resultingClass.isAssignableFrom(Clob.class)) {
@@ -439,7 +709,7 @@ public final class TypeConverter {
 							(byte[]) columnObject));
 				}
 				final String s = new String((byte[]) columnObject);
-				return fromString(s, resultingClass);
+				return extractData(s, resultingClass);
 			} catch (final IOException e) {
 				throw new SQLException(e.getMessage(), e);
 			}
@@ -462,7 +732,7 @@ public final class TypeConverter {
 				final String s = new String(
 						IOUtils.toByteArray(((Blob) columnObject)
 								.getBinaryStream()));
-				return fromString(s, resultingClass);
+				return extractData(s, resultingClass);
 			} catch (final IOException e) {
 				throw new SQLException(e.getMessage(), e);
 			}
@@ -483,138 +753,145 @@ public final class TypeConverter {
 				}
 				final String s = String.valueOf(IOUtils.toCharArray(c
 						.getCharacterStream()));
-				return fromString(s, resultingClass);
+				return extractData(s, resultingClass);
 			} catch (final IOException e) {
 				throw new SQLException(e.getMessage(), e);
 			}
 		}
-		if (columnObject instanceof InputStream) {
-			try {
-				final InputStream is = (InputStream) columnObject;
-				if (resultingClass.isAssignableFrom(Clob.class)) {
-					return resultingClass.cast(new SerialClob(IOUtils
-							.toCharArray(is)));
-				}
-				if (resultingClass.isAssignableFrom(Blob.class)) {
-					return resultingClass.cast(new SerialBlob(IOUtils
-							.toByteArray(is)));
-				}
-				if (resultingClass.isAssignableFrom(byte[].class)) {
-					return resultingClass.cast(IOUtils.toByteArray(is));
-				}
-				return fromString(new String(IOUtils.toByteArray(is)),
-						resultingClass);
-			} catch (final IOException e) {
-				throw new SQLException(e.getMessage(), e);
+		try {
+			final InputStream is = (InputStream) columnObject;
+			if (resultingClass.isAssignableFrom(Clob.class)) {
+				return resultingClass.cast(new SerialClob(IOUtils
+						.toCharArray(is)));
+			}
+			if (resultingClass.isAssignableFrom(Blob.class)) {
+				return resultingClass.cast(new SerialBlob(IOUtils
+						.toByteArray(is)));
+			}
+			if (resultingClass.isAssignableFrom(byte[].class)) {
+				return resultingClass.cast(IOUtils.toByteArray(is));
 			}
+			return extractData(new String(IOUtils.toByteArray(is)),
+					resultingClass);
+		} catch (final IOException e) {
+			throw new SQLException(e.getMessage(), e);
 		}
-		throw new SQLException(String.format(" Can not cast %s (%s) to %s",
-				columnObject.getClass(), columnObject.toString(),
-				resultingClass));
 	}
 
-	private static <T> T fromNumber(final Object columnObject,
-			final Class<T> resultingClass) throws SQLException {
-		final Number n = Number.class.cast(columnObject);
-		if (resultingClass == BigDecimal.class) {
-			return resultingClass.cast(new BigDecimal(n.toString()));
-		}
-		if (resultingClass == BigInteger.class) {
-			return resultingClass.cast(new BigInteger(n.toString()));
-		}
-		if (resultingClass == Byte.class) {
-			return resultingClass.cast(new Byte(n.byteValue()));
-		}
-		if (resultingClass == Double.class) {
-			return resultingClass.cast(new Double(n.doubleValue()));
-		}
-		if (resultingClass == Float.class) {
-			return resultingClass.cast(new Float(n.floatValue()));
-		}
-		if (resultingClass == Integer.class) {
-			return resultingClass.cast(new Integer(n.intValue()));
-		}
-		if (resultingClass == Long.class) {
-			return resultingClass.cast(new Long(n.longValue()));
-		}
-		if (resultingClass == Short.class) {
-			return resultingClass.cast(new Short(n.shortValue()));
-		}
-		if (resultingClass == String.class) {
-			return resultingClass.cast(n.toString());
-		}
-		if (resultingClass == Boolean.class) {
-			if (n.byteValue() == 0) {
-				return resultingClass.cast(Boolean.FALSE);
-			}
-			if (n.byteValue() == 1) {
-				return resultingClass.cast(Boolean.TRUE);
+	/**
+	 * Converts Number values. The target is resolved to a code once when the
+	 * converter is compiled.
+	 */
+	private static class NumberConverter<T> extends Converter<T> {
+		private final int target;
+
+		NumberConverter(final Class<?> sourceType, final Class<T> targetType) {
+			super(sourceType, targetType);
+			this.target = getTargetCode(targetType);
+		}
+
+		@Override
+		public T convert(final Object value) throws SQLException {
+			final Number n = (Number) value;
+			final Class<T> resultingClass = getTargetType();
+			switch (target) {
+				case TO_BIG_DECIMAL:
+					return resultingClass.cast(new BigDecimal(n.toString()));
+				case TO_BIG_INTEGER:
+					return resultingClass.cast(new BigInteger(n.toString()));
+				case TO_BYTE:
+					return resultingClass.cast(Byte.valueOf(n.byteValue()));
+				case TO_DOUBLE:
+					return resultingClass.cast(Double.valueOf(n.doubleValue()));
+				case TO_FLOAT:
+					return resultingClass.cast(Float.valueOf(n.floatValue()));
+				case TO_INTEGER:
+					return resultingClass.cast(Integer.valueOf(n.intValue()));
+				case TO_LONG:
+					return resultingClass.cast(Long.valueOf(n.longValue()));
+				case TO_SHORT:
+					return resultingClass.cast(Short.valueOf(n.shortValue()));
+				case TO_STRING:
+					return resultingClass.cast(n.toString());
+				case TO_BOOLEAN:
+					if (n.byteValue() == 0) {
+						return resultingClass.cast(Boolean.FALSE);
+					}
+					if (n.byteValue() == 1) {
+						return resultingClass.cast(Boolean.TRUE);
+					}
+					return null;
+				case TO_BYTES:
+					return resultingClass.cast(n.toString().getBytes());
+				case TO_BLOB:
+					return resultingClass.cast(new SerialBlob(n.toString()
+							.getBytes()));
+				case TO_CLOB:
+					return resultingClass.cast(new SerialClob(n.toString()
+							.toCharArray()));
+				default:
+					return null;
 			}
 		}
-		if (resultingClass == byte[].class) {
-			return resultingClass.cast(n.toString().getBytes());
-		}
-		if (resultingClass == Blob.class) {
-			return resultingClass.cast(new SerialBlob(n.toString().getBytes()));
-		}
-		if (resultingClass == Clob.class) {
-			return resultingClass.cast(new SerialClob(n.toString()
-					.toCharArray()));
-		}
-		return null;
 	}
 
-	private static <T> T fromString(final Object columnObject,
-			final Class<T> resultingClass) throws SQLException {
-		final String val = String.class.cast(columnObject);
-		// to numeric casts
-		try {
-			if (resultingClass == BigDecimal.class) {
-				return resultingClass.cast(new BigDecimal(val));
-			}
-			if (resultingClass == BigInteger.class) {
-				return resultingClass.cast(new BigInteger(val));
-			}
-			if (resultingClass == Byte.class) {
-				return resultingClass.cast(new Byte(val));
-			}
-			if (resultingClass == Double.class) {
-				return resultingClass.cast(new Double(val));
-			}
-			if (resultingClass == Float.class) {
-				return resultingClass.cast(new Float(val));
-			}
-			if (resultingClass == Integer.class) {
-				return resultingClass.cast(new Integer(val));
-			}
-			if (resultingClass == Long.class) {
-				return resultingClass.cast(new Long(val));
-			}
-			if (resultingClass == Short.class) {
-				return resultingClass.cast(new Short(val));
-			}
-		} catch (final NumberFormatException e) {
-			return null;
+	/**
+	 * Converts String values. The target is resolved to a code once when the
+	 * converter is compiled.
+	 */
+	private static class StringConverter<T> extends Converter<T> {
+		private final int target;
+
+		StringConverter(final Class<T> targetType) {
+			super(String.class, targetType);
+			this.target = getTargetCode(targetType);
 		}
 
-		if (resultingClass == Boolean.class) {
-			if ("0".equals(val)) {
-				return resultingClass.cast(Boolean.FALSE);
-			}
-			if ("1".equals(val)) {
-				return resultingClass.cast(Boolean.TRUE);
+		@Override
+		public T convert(final Object value) throws SQLException {
+			final String val = (String) value;
+			final Class<T> resultingClass = getTargetType();
+			try {
+				switch (target) {
+					case TO_BIG_DECIMAL:
+						return resultingClass.cast(new BigDecimal(val));
+					case TO_BIG_INTEGER:
+						return resultingClass.cast(new BigInteger(val));
+					case TO_BYTE:
+						return resultingClass.cast(Byte.valueOf(val));
+					case TO_DOUBLE:
+						return resultingClass.cast(Double.valueOf(val));
+					case TO_FLOAT:
+						return resultingClass.cast(Float.valueOf(val));
+					case TO_INTEGER:
+						return resultingClass.cast(Integer.valueOf(val));
+					case TO_LONG:
+						return resultingClass.cast(Long.valueOf(val));
+					case TO_SHORT:
+						return resultingClass.cast(Short.valueOf(val));
+					case TO_BOOLEAN:
+						if ("0".equals(val)) {
+							return resultingClass.cast(Boolean.FALSE);
+						}
+						if ("1".equals(val)) {
+							return resultingClass.cast(Boolean.TRUE);
+						}
+						return null;
+					case TO_BYTES:
+						return resultingClass.cast(val.getBytes());
+					case TO_BLOB:
+						return resultingClass.cast(new SerialBlob(val
+								.getBytes()));
+					case TO_CLOB:
+						return resultingClass.cast(new SerialClob(val
+								.toCharArray()));
+					default:
+						return null;
+				}
+			} catch (final NumberFormatException e) {
+				return null;
 			}
 		}
-		if (resultingClass == byte[].class) {
-			return resultingClass.cast(val.getBytes());
-		}
-		if (resultingClass == Blob.class) {
-			return resultingClass.cast(new SerialBlob(val.getBytes()));
-		}
-		if (resultingClass == Clob.class) {
-			return resultingClass.cast(new SerialClob(val.toCharArray()));
-		}
-		return null;
 	}
 
 }
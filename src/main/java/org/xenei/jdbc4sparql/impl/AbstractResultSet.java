@@ -59,6 +59,9 @@ public abstract class AbstractResultSet implements ResultSet {
 
 	private Boolean lastReadWasNull;
 
+	// the converter last used for each column.
+	private final TypeConverter.ColumnConverter<?>[] converters;
+
 	private static Logger LOG = LoggerFactory
 			.getLogger(AbstractResultSet.class);
 
@@ -75,6 +78,8 @@ public abstract class AbstractResultSet implements ResultSet {
 		this.fetchDirection = ResultSet.FETCH_FORWARD;
 		this.holdability = ResultSet.CLOSE_CURSORS_AT_COMMIT;
 		this.concurrency = ResultSet.CONCUR_READ_ONLY;
+		converters = new TypeConverter.ColumnConverter<?>[table
+				.getColumnCount()];
 		columnNameIdx = new HashMap<String, Integer>();
 		for (int i = 0; i < table.getColumnCount(); i++) {
 			// FIXME change to withSegments( table.getSegments() ).getDBName()
@@ -100,10 +105,20 @@ public abstract class AbstractResultSet implements ResultSet {
 		}
 	}
 
+	@SuppressWarnings("unchecked")
 	private <T> T extractData(final int columnIdx, final Class<T> resultingClass)
 			throws SQLException {
-		return TypeConverter.extractData(getObject(columnIdx + 1),
-				resultingClass);
+		final Object value = getObject(columnIdx + 1);
+		if ((columnIdx < 0) || (columnIdx >= converters.length)) {
+			return TypeConverter.extractData(value, resultingClass);
+		}
+		TypeConverter.ColumnConverter<?> converter = converters[columnIdx];
+		if ((converter == null)
+				|| (converter.getTargetType() != resultingClass)) {
+			converter = new TypeConverter.ColumnConverter<T>(resultingClass);
+			converters[columnIdx] = converter;
+		}
+		return (T) converter.convert(value);
 	}
 
 	@Override
@@ -208,7 +223,7 @@ public abstract class AbstractResultSet implements ResultSet {
 
 	@Override
 	public boolean getBoolean(final int columnOrdinal) throws SQLException {
-		return extractData(columnOrdinal - 1, Boolean.class);
+		return readBoolean(columnOrdinal);
 	}
 
 	@Override
@@ -216,12 +231,12 @@ public abstract class AbstractResultSet implements ResultSet {
 		if (LOG.isDebugEnabled()) {
 			AbstractResultSet.LOG.debug("getting Boolean {}", columnLabel);
 		}
-		return extractData(getColumnIndex(columnLabel), Boolean.class);
+		return getBoolean(getColumnIndex(columnLabel) + 1);
 	}
 
 	@Override
 	public byte getByte(final int columnOrdinal) throws SQLException {
-		return extractData(columnOrdinal - 1, Byte.class);
+		return (byte) readLong(columnOrdinal);
 	}
 
 	@Override
@@ -229,7 +244,7 @@ public abstract class AbstractResultSet implements ResultSet {
 		if (LOG.isDebugEnabled()) {
 			AbstractResultSet.LOG.debug("getting Byte {}", columnLabel);
 		}
-		return extractData(getColumnIndex(columnLabel), Byte.class);
+		return getByte(getColumnIndex(columnLabel) + 1);
 	}
 
 	@Override
@@ -340,7 +355,7 @@ public abstract class AbstractResultSet implements ResultSet {
 
 	@Override
 	public double getDouble(final int columnOrdinal) throws SQLException {
-		return extractData(columnOrdinal - 1, Double.class);
+		return readDouble(columnOrdinal);
 	}
 
 	@Override
@@ -348,7 +363,7 @@ public abstract class AbstractResultSet implements ResultSet {
 		if (LOG.isDebugEnabled()) {
 			AbstractResultSet.LOG.debug("getting Double {}", columnLabel);
 		}
-		return extractData(getColumnIndex(columnLabel), Double.class);
+		return getDouble(getColumnIndex(columnLabel) + 1);
 	}
 
 	@Override
@@ -363,7 +378,7 @@ public abstract class AbstractResultSet implements ResultSet {
 
 	@Override
 	public float getFloat(final int columnOrdinal) throws SQLException {
-		return extractData(columnOrdinal - 1, Float.class);
+		return (float) readDouble(columnOrdinal);
 	}
 
 	@Override
@@ -371,7 +386,7 @@ public abstract class AbstractResultSet implements ResultSet {
 		if (LOG.isDebugEnabled()) {
 			AbstractResultSet.LOG.debug("getting float {}", columnLabel);
 		}
-		return extractData(getColumnIndex(columnLabel), Float.class);
+		return getFloat(getColumnIndex(columnLabel) + 1);
 	}
 
 	@Override
@@ -381,7 +396,7 @@ public abstract class AbstractResultSet implements ResultSet {
 
 	@Override
 	public int getInt(final int columnOrdinal) throws SQLException {
-		return extractData(columnOrdinal - 1, Integer.class);
+		return (int) readLong(columnOrdinal);
 	}
 
 	@Override
@@ -389,12 +404,12 @@ public abstract class AbstractResultSet implements ResultSet {
 		if (LOG.isDebugEnabled()) {
 			AbstractResultSet.LOG.debug("getting int {}", columnLabel);
 		}
-		return extractData(getColumnIndex(columnLabel), Integer.class);
+		return getInt(getColumnIndex(columnLabel) + 1);
 	}
 
 	@Override
 	public long getLong(final int columnOrdinal) throws SQLException {
-		return extractData(columnOrdinal - 1, Long.class);
+		return readLong(columnOrdinal);
 	}
 
 	@Override
@@ -402,7 +417,7 @@ public abstract class AbstractResultSet implements ResultSet {
 		if (LOG.isDebugEnabled()) {
 			AbstractResultSet.LOG.debug("getting long {}", columnLabel);
 		}
-		return extractData(getColumnIndex(columnLabel), Long.class);
+		return getLong(getColumnIndex(columnLabel) + 1);
 	}
 
 	@Override
@@ -530,7 +545,7 @@ public abstract class AbstractResultSet implements ResultSet {
 
 	@Override
 	public short getShort(final int columnOrdinal) throws SQLException {
-		return extractData(columnOrdinal - 1, Short.class);
+		return (short) readLong(columnOrdinal);
 	}
 
 	@Override
@@ -538,7 +553,7 @@ public abstract class AbstractResultSet implements ResultSet {
 		if (LOG.isDebugEnabled()) {
 			AbstractResultSet.LOG.debug("getting short {}", columnLabel);
 		}
-		return extractData(getColumnIndex(columnLabel), Short.class);
+		return getShort(getColumnIndex(columnLabel) + 1);
 	}
 
 	@Override
@@ -690,6 +705,58 @@ public abstract class AbstractResultSet implements ResultSet {
 
 	abstract protected Object readObject(int columnOrdinal) throws SQLException;
 
+	/**
+	 * Read the column as a boolean.
+	 *
+	 * Implementations that can read the value without creating an
+	 * intermediate object should override this method and call setWasNull()
+	 * with the null state of the column. The default implementation converts
+	 * the value returned by readObject().
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the value or false if the column is null.
+	 * @throws SQLException
+	 */
+	protected boolean readBoolean(final int columnOrdinal) throws SQLException {
+		return extractData(columnOrdinal - 1, Boolean.class);
+	}
+
+	/**
+	 * Read the column as a double. Used by getDouble() and getFloat().
+	 *
+	 * Implementations that can read the value without creating an
+	 * intermediate object should override this method and call setWasNull()
+	 * with the null state of the column. The default implementation converts
+	 * the value returned by readObject().
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the value or 0 if the column is null.
+	 * @throws SQLException
+	 */
+	protected double readDouble(final int columnOrdinal) throws SQLException {
+		return extractData(columnOrdinal - 1, Double.class);
+	}
+
+	/**
+	 * Read the column as a long. Used by getLong(), getInt(), getShort() and
+	 * getByte().
+	 *
+	 * Implementations that can read the value without creating an
+	 * intermediate object should override this method and call setWasNull()
+	 * with the null state of the column. The default implementation converts
+	 * the value returned by readObject().
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the value or 0 if the column is null.
+	 * @throws SQLException
+	 */
+	protected long readLong(final int columnOrdinal) throws SQLException {
+		return extractData(columnOrdinal - 1, Long.class);
+	}
+
 	@Override
 	public void refreshRow() throws SQLException {
 		throw new SQLFeatureNotSupportedException();
@@ -1230,6 +1297,17 @@ public abstract class AbstractResultSet implements ResultSet {
 		throw new SQLFeatureNotSupportedException();
 	}
 
+	/**
+	 * Record the null state of the last column read. Must be called by
+	 * implementations that read a column without calling getObject().
+	 *
+	 * @param wasNull
+	 *            true if the column read was null.
+	 */
+	protected final void setWasNull(final boolean wasNull) {
+		lastReadWasNull = wasNull;
+	}
+
 	@Override
 	public boolean wasNull() throws SQLException {
 		if (lastReadWasNull == null) {
@@ -72,6 +72,16 @@ public abstract class AbstractTable implements Table {
 		return getColumnList().iterator();
 	}
 
+	@Override
+	public Long getDistinctCount(final Column column) {
+		return null;
+	}
+
+	@Override
+	public Long getRowCount() {
+		return null;
+	}
+
 	@Override
 	public String getSPARQLName() {
 		return NameUtils.getSPARQLName(this);
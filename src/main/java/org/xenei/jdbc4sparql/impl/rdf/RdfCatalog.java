@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import org.xenei.jdbc4sparql.iface.Catalog;
 import org.xenei.jdbc4sparql.iface.NameFilter;
 import org.xenei.jdbc4sparql.iface.Schema;
+import org.xenei.jdbc4sparql.iface.Table;
 import org.xenei.jdbc4sparql.iface.name.CatalogName;
 import org.xenei.jena.entities.EntityManager;
 import org.xenei.jena.entities.EntityManagerFactory;
@@ -132,6 +133,11 @@ public class RdfCatalog implements Catalog, ResourceWrapper {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public QueryExecution createLocalExecution(final Query query) {
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public List<QuerySolution> executeLocalQuery(final Query query) {
 			throw new UnsupportedOperationException();
@@ -241,6 +247,20 @@ public class RdfCatalog implements Catalog, ResourceWrapper {
 		schemaList = null;
 	}
 
+	/**
+	 * Create an execution of the query against the local Model.
+	 *
+	 * This is used to stream the results of queries built by the query
+	 * builder. The caller must close the returned QueryExecution.
+	 *
+	 * @param query
+	 * @return The QueryExecution for the query.
+	 */
+	@Override
+	public QueryExecution createLocalExecution(final Query query) {
+		return QueryExecutionFactory.create(query, localModel);
+	}
+
 	/**
 	 * Execute the query against the local Model.
 	 *
@@ -252,8 +272,7 @@ public class RdfCatalog implements Catalog, ResourceWrapper {
 	@Override
 	public List<QuerySolution> executeLocalQuery(final Query query) {
 
-		final QueryExecution qexec = QueryExecutionFactory.create(query,
-				localModel);
+		final QueryExecution qexec = createLocalExecution(query);
 		try {
 			final ResultSet rs = qexec.execSelect();
 			final List<QuerySolution> retval = WrappedIterator.create(rs)
@@ -366,13 +385,29 @@ public class RdfCatalog implements Catalog, ResourceWrapper {
 		return getSparqlEndpoint() != null;
 	}
 
-	private Set<Schema> readSchemas() {
+	private synchronized Set<Schema> readSchemas() {
 		if (schemaList == null) {
 			schemaList = getSchemas();
 		}
 		return schemaList;
 	}
 
+	/**
+	 * Collect the table and column statistics for all the tables in the
+	 * catalog.
+	 *
+	 * @see RdfTable#updateStatistics()
+	 */
+	public void updateStatistics() {
+		for (final Schema schema : readSchemas()) {
+			for (final Table table : schema.getTables()) {
+				if (table instanceof RdfTable) {
+					((RdfTable) table).updateStatistics();
+				}
+			}
+		}
+	}
+
 	@Override
 	public String toString() {
 		return getName().toString();
@@ -238,6 +238,7 @@ ResourceWrapper {
 
 	private RdfTable table;
 	private ColumnName columnName;
+	private RdfColumnDef columnDef;
 
 	public void delete() {
 		final Model model = getResource().getModel();
@@ -256,10 +257,16 @@ ResourceWrapper {
 		return getSchema().getCatalog();
 	}
 
+	/**
+	 * @see ResourceBuilder#getEntity(Resource, Class, String, Class)
+	 */
 	@Override
-	@Predicate(impl = true)
-	public RdfColumnDef getColumnDef() {
-		throw new EntityManagerRequiredException();
+	public synchronized RdfColumnDef getColumnDef() {
+		if (columnDef == null) {
+			columnDef = ResourceBuilder.getEntity(getResource(),
+					RdfColumn.class, "columnDef", RdfColumnDef.class);
+		}
+		return columnDef;
 	}
 
 	@Override
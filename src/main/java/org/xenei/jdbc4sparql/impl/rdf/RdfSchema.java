@@ -257,7 +257,7 @@ ResourceWrapper {
 		throw new EntityManagerRequiredException();
 	}
 
-	private Set<Table> readTables() {
+	private synchronized Set<Table> readTables() {
 		if (tableList == null) {
 			tableList = getTables();
 		}
@@ -30,6 +30,7 @@ import org.xenei.jena.entities.annotations.Predicate;
 import org.xenei.jena.entities.annotations.Subject;
 
 import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.RDFList;
@@ -37,6 +38,7 @@ import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.ResourceFactory;
 import com.hp.hpl.jena.shared.Lock;
+import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.vocabulary.RDFS;
 
 @Subject(namespace = "http://org.xenei.jdbc4sparql/entity/Table#")
@@ -48,7 +50,10 @@ ResourceWrapper {
 			table.schema = schema;
 			final Property p = ResourceFactory.createProperty(
 					ResourceBuilder.getNamespace(RdfSchema.class), "tables");
-			schema.getResource().addProperty(p, table.getResource());
+			// only add when missing so model listeners do not see a change.
+			if (!schema.getResource().hasProperty(p, table.getResource())) {
+				schema.getResource().addProperty(p, table.getResource());
+			}
 			return table;
 		}
 
@@ -273,6 +278,16 @@ ResourceWrapper {
 			return remarks;
 		}
 
+		@Override
+		public Long getDistinctCount(final Column column) {
+			return null;
+		}
+
+		@Override
+		public Long getRowCount() {
+			return null;
+		}
+
 		@Override
 		public Schema getSchema() {
 			return schema;
@@ -503,7 +518,7 @@ ResourceWrapper {
 		return tableName;
 	}
 
-	private Query getQuery(final Map<String, Catalog> catalogs,
+	private synchronized Query getQuery(final Map<String, Catalog> catalogs,
 			final SparqlParser parser) throws SQLException {
 		if (queryBuilder == null) {
 			final RdfCatalog catalog = getCatalog();
@@ -547,6 +562,78 @@ ResourceWrapper {
 		throw new EntityManagerRequiredException();
 	}
 
+	/**
+	 * Get the number of distinct values found in the column when the
+	 * statistics were last collected. The count is stored with the column
+	 * definition.
+	 *
+	 * @see #updateStatistics()
+	 */
+	@Override
+	public Long getDistinctCount(final Column column) {
+		if (column instanceof RdfColumn) {
+			return ResourceBuilder.getLong(((RdfColumn) column).getResource(),
+					RdfColumn.class, "distinctCount");
+		}
+		return null;
+	}
+
+	/**
+	 * Get the number of rows found when the statistics were last collected.
+	 *
+	 * @see #updateStatistics()
+	 */
+	@Override
+	public Long getRowCount() {
+		return ResourceBuilder.getLong(getResource(), RdfTable.class,
+				"rowCount");
+	}
+
+	/**
+	 * Count the rows in the table and the distinct values of each column in
+	 * the data and store them with the table and column definitions.
+	 *
+	 * The counts are used by the query builder to order the tables in a
+	 * query. They are not updated when the data changes so this should be
+	 * called again after large changes.
+	 */
+	public void updateStatistics() {
+		final String eol = System.getProperty("line.separator");
+		final Var tableVar = Var.alloc("tbl");
+		final List<Column> cols = getColumnList();
+		final StringBuilder select = new StringBuilder(
+				"SELECT (count(*) AS ?rowCount)");
+		final StringBuilder where = new StringBuilder("WHERE { ")
+		.append(String.format(getQuerySegmentFmt(), tableVar)).append(eol);
+		for (int i = 0; i < cols.size(); i++) {
+			final Column col = cols.get(i);
+			final Var colVar = Var.alloc("col" + i);
+			select.append(String.format(" (count(distinct %s) AS ?count%s)",
+					colVar, i));
+			final String segment = String.format(col.getQuerySegmentFmt(),
+					tableVar, colVar);
+			if (col.isOptional()) {
+				where.append("OPTIONAL ");
+			}
+			where.append("{ ").append(segment).append(eol).append("}")
+			.append(eol);
+		}
+		where.append("}");
+
+		final List<QuerySolution> solns = getCatalog().executeQuery(
+				select.append(eol).append(where).toString());
+		if (!solns.isEmpty()) {
+			final QuerySolution soln = solns.get(0);
+			ResourceBuilder.setLong(getResource(), RdfTable.class, "rowCount",
+					soln.getLiteral("rowCount").getLong());
+			for (int i = 0; i < cols.size(); i++) {
+				ResourceBuilder.setLong(((RdfColumn) cols.get(i)).getResource(),
+						RdfColumn.class, "distinctCount",
+						soln.getLiteral("count" + i).getLong());
+			}
+		}
+	}
+
 	public SparqlResultSet getResultSet(final Map<String, Catalog> catalogs,
 			final SparqlParser parser) throws SQLException {
 		return new SparqlResultSet(this, getQuery(catalogs, parser));
@@ -583,10 +670,13 @@ ResourceWrapper {
 		return null;
 	}
 
+	/**
+	 * @see ResourceBuilder#getEntity(Resource, Class, String, Class)
+	 */
 	@Override
-	@Predicate(impl = true)
 	public RdfTableDef getTableDef() {
-		throw new EntityManagerRequiredException();
+		return ResourceBuilder.getEntity(getResource(), RdfTable.class,
+				"tableDef", RdfTableDef.class);
 	}
 
 	@Override
@@ -242,11 +242,12 @@ ResourceWrapper {
 	 * get the primary key for the table
 	 *
 	 * @return
+	 * @see ResourceBuilder#getEntity(Resource, Class, String, Class)
 	 */
 	@Override
-	@Predicate(impl = true)
 	public RdfKey getPrimaryKey() {
-		throw new EntityManagerRequiredException();
+		return ResourceBuilder.getEntity(getResource(), RdfTableDef.class,
+				"primaryKey", RdfKey.class);
 	}
 
 	@Override
@@ -259,17 +260,21 @@ ResourceWrapper {
 	 * Get the table sort order key. returns null if the table is not sorted.
 	 *
 	 * @return
+	 * @see ResourceBuilder#getEntity(Resource, Class, String, Class)
 	 */
 	@Override
-	@Predicate(impl = true)
 	public RdfKey getSortKey() {
-		throw new EntityManagerRequiredException();
+		return ResourceBuilder.getEntity(getResource(), RdfTableDef.class,
+				"sortKey", RdfKey.class);
 	}
 
+	/**
+	 * @see ResourceBuilder#getEntity(Resource, Class, String, Class)
+	 */
 	@Override
-	@Predicate(impl = true)
 	public RdfTableDef getSuperTableDef() {
-		throw new EntityManagerRequiredException();
+		return ResourceBuilder.getEntity(getResource(), RdfTableDef.class,
+				"superTableDef", RdfTableDef.class);
 	}
 
 	@Predicate(impl = true)
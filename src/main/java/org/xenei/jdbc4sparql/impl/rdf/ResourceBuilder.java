@@ -3,11 +3,14 @@ package org.xenei.jdbc4sparql.impl.rdf;
 import org.xenei.jdbc4sparql.iface.NamespacedObject;
 import org.xenei.jena.entities.EntityManager;
 import org.xenei.jena.entities.EntityManagerFactory;
+import org.xenei.jena.entities.MissingAnnotation;
 import org.xenei.jena.entities.annotations.Subject;
 
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.shared.Lock;
 import com.hp.hpl.jena.vocabulary.RDF;
 
 public class ResourceBuilder {
@@ -27,6 +30,87 @@ public class ResourceBuilder {
 		return subject.namespace();
 	}
 
+	/**
+	 * Get a long value stored on a resource.
+	 *
+	 * @param resource
+	 *            The resource to read.
+	 * @param typeClass
+	 *            The class that defines the property namespace.
+	 * @param localName
+	 *            The name of the property.
+	 * @return the value or null if it is not set.
+	 */
+	public static Long getLong(final Resource resource,
+			final Class<?> typeClass, final String localName) {
+		final Property p = new ResourceBuilder(resource.getModel())
+		.getProperty(typeClass, localName);
+		final Statement stmt = resource.getProperty(p);
+		return stmt == null ? null : stmt.getLong();
+	}
+
+	/**
+	 * Read the entity that is the value of a property of a resource.
+	 *
+	 * Entities use this rather than a predicate annotation for getters that
+	 * narrow the return type of an interface method. The annotation is also
+	 * placed on the bridge method and the entity manager uses whichever of
+	 * the two methods the JVM lists first, the bridge does not return the
+	 * entity.
+	 *
+	 * @param resource
+	 *            The resource to read.
+	 * @param typeClass
+	 *            The class that defines the property namespace.
+	 * @param localName
+	 *            The name of the property.
+	 * @param entityClass
+	 *            The class of the entity.
+	 * @return the entity or null if the property is not set.
+	 */
+	public static <T> T getEntity(final Resource resource,
+			final Class<?> typeClass, final String localName,
+			final Class<T> entityClass) {
+		final Property p = new ResourceBuilder(resource.getModel())
+		.getProperty(typeClass, localName);
+		final Statement stmt = resource.getProperty(p);
+		if (stmt == null) {
+			return null;
+		}
+		try {
+			return EntityManagerFactory.getEntityManager().read(
+					stmt.getResource(), entityClass);
+		} catch (final MissingAnnotation e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Set a long value on a resource replacing any existing value.
+	 *
+	 * @param resource
+	 *            The resource to update.
+	 * @param typeClass
+	 *            The class that defines the property namespace.
+	 * @param localName
+	 *            The name of the property.
+	 * @param value
+	 *            The value to set.
+	 */
+	public static void setLong(final Resource resource,
+			final Class<?> typeClass, final String localName, final long value) {
+		final Model model = resource.getModel();
+		final Property p = new ResourceBuilder(model).getProperty(typeClass,
+				localName);
+		model.enterCriticalSection(Lock.WRITE);
+		try {
+			resource.removeAll(p);
+			resource.addLiteral(p, value);
+		} finally {
+			model.leaveCriticalSection();
+		}
+	}
+
 	private final Model model;
 
 	public ResourceBuilder(final Model model) {
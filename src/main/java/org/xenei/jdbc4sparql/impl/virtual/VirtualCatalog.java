@@ -13,6 +13,7 @@ import org.xenei.jdbc4sparql.iface.name.CatalogName;
 
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QuerySolution;
 
 public class VirtualCatalog implements Catalog {
@@ -30,6 +31,11 @@ public class VirtualCatalog implements Catalog {
 		schemas = null;
 	}
 
+	@Override
+	public QueryExecution createLocalExecution(final Query query) {
+		return null;
+	}
+
 	@Override
 	public List<QuerySolution> executeLocalQuery(final Query query) {
 		return null;
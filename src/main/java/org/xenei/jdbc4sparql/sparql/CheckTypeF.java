@@ -1,6 +1,7 @@
 package org.xenei.jdbc4sparql.sparql;
 
 import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
 
 import org.slf4j.Logger;
@@ -29,6 +30,7 @@ public class CheckTypeF implements Function {
 	private ExprVar var;
 	private NodeValueInteger type;
 	private NodeValueBoolean nullable;
+	private TypeConverter.ColumnConverter<?> converter;
 	private Object convertedValue;
 	private static final Logger LOG = LoggerFactory.getLogger(CheckTypeF.class);
 	private static final String IRI = "java:"
@@ -55,6 +57,7 @@ public class CheckTypeF implements Function {
 	public CheckTypeF() {
 	}
 
+	@SuppressWarnings("unchecked")
 	private void configure(final Expr arg1, final Expr arg2, final Expr arg3) {
 		if (!(arg1 instanceof ExprVar)) {
 			throw new IllegalArgumentException("Argument 1 must be a ExprVar");
@@ -72,6 +75,15 @@ public class CheckTypeF implements Function {
 					"Argument 3 must be a NodeValueBoolean");
 		}
 		nullable = (NodeValueBoolean) arg3;
+
+		// resolve the conversion once for the column.
+		try {
+			converter = new TypeConverter.ColumnConverter<Object>(
+					(Class<Object>) TypeConverter.getJavaType(type
+							.getInteger().intValue()));
+		} catch (final SQLDataException e) {
+			converter = null;
+		}
 	}
 
 	public Object getValue() {
@@ -109,8 +121,6 @@ public class CheckTypeF implements Function {
 					nullable));
 		}
 
-		final int sqlType = type.getInteger().intValue();
-
 		convertedValue = null;
 		final Node n = binding.get(var.asVar());
 		if (n == null) {
@@ -136,13 +146,14 @@ public class CheckTypeF implements Function {
 			columnObject = n.toString();
 		}
 
+		if (converter == null) {
+			return NodeValue.FALSE;
+		}
+
 		try {
-			convertedValue = TypeConverter.extractData(columnObject,
-					TypeConverter.getJavaType(sqlType));
-			boolean retval = true;
-			if (convertedValue == null) {
-				retval = nullable.getBoolean();
-			}
+			convertedValue = converter.convert(columnObject);
+			// a value that does not convert is not a null value.
+			final boolean retval = convertedValue != null;
 			if (LOG.isDebugEnabled()) {
 				LOG.debug("CheckTypeF({}) of {} ", var, binding);
 				LOG.debug("with value ({}) {} is {}", n, convertedValue, retval);
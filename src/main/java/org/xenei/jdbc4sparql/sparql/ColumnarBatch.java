@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.hp.hpl.jena.query.QuerySolution;
+
+/**
+ * A block of decoded rows stored by column.
+ *
+ * Numeric and boolean columns are stored in primitive vectors, all other
+ * columns are dictionary encoded so that repeated URIs and strings are stored
+ * once per batch. Nulls are tracked in a bitmap per column. Values that do not
+ * fit the vector for their column (e.g. a string in an integer column) are
+ * kept as is.
+ *
+ * The batch is reused: each call to fill() replaces the contents.
+ */
+class ColumnarBatch {
+
+	/**
+	 * The storage for one column of the batch.
+	 */
+	private static abstract class ColumnVector {
+		protected final BitSet nulls;
+		// values that could not be stored in the vector.
+		protected final BitSet otherRows;
+		protected final Map<Integer, Object> others;
+
+		protected ColumnVector() {
+			nulls = new BitSet();
+			otherRows = new BitSet();
+			others = new HashMap<Integer, Object>();
+		}
+
+		void clear() {
+			nulls.clear();
+			otherRows.clear();
+			others.clear();
+		}
+
+		final Object get(final int row) {
+			if (nulls.get(row)) {
+				return null;
+			}
+			if (otherRows.get(row)) {
+				return others.get(row);
+			}
+			return read(row);
+		}
+
+		final boolean isNull(final int row) {
+			return nulls.get(row);
+		}
+
+		final void set(final int row, final Object value) {
+			if (value == null) {
+				nulls.set(row);
+			}
+			else if (!write(row, value)) {
+				otherRows.set(row);
+				others.put(row, value);
+			}
+		}
+
+		/**
+		 * Read the value stored in the vector.
+		 */
+		abstract Object read(int row);
+
+		/**
+		 * Write the value into the vector.
+		 *
+		 * @return false if the value does not fit the vector.
+		 */
+		abstract boolean write(int row, Object value);
+	}
+
+	private static class LongVector extends ColumnVector {
+		private final long[] values;
+		private final int sqlType;
+
+		LongVector(final int capacity, final int sqlType) {
+			values = new long[capacity];
+			this.sqlType = sqlType;
+		}
+
+		long getLong(final int row) {
+			return values[row];
+		}
+
+		@Override
+		Object read(final int row) {
+			switch (sqlType) {
+				case Types.TINYINT:
+					return Byte.valueOf((byte) values[row]);
+				case Types.SMALLINT:
+					return Short.valueOf((short) values[row]);
+				case Types.INTEGER:
+					return Integer.valueOf((int) values[row]);
+				default:
+					return Long.valueOf(values[row]);
+			}
+		}
+
+		@Override
+		boolean write(final int row, final Object value) {
+			if ((value instanceof Long) || (value instanceof Integer)
+					|| (value instanceof Short) || (value instanceof Byte)) {
+				values[row] = ((Number) value).longValue();
+				return true;
+			}
+			if ((value instanceof BigInteger)
+					&& (((BigInteger) value).bitLength() < 64)) {
+				values[row] = ((BigInteger) value).longValue();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static class DoubleVector extends ColumnVector {
+		private final double[] values;
+		private final int sqlType;
+
+		DoubleVector(final int capacity, final int sqlType) {
+			values = new double[capacity];
+			this.sqlType = sqlType;
+		}
+
+		double getDouble(final int row) {
+			return values[row];
+		}
+
+		@Override
+		Object read(final int row) {
+			if (sqlType == Types.REAL) {
+				return Float.valueOf((float) values[row]);
+			}
+			return Double.valueOf(values[row]);
+		}
+
+		@Override
+		boolean write(final int row, final Object value) {
+			if ((value instanceof Number) && !(value instanceof BigDecimal)
+					&& !(value instanceof BigInteger)) {
+				values[row] = ((Number) value).doubleValue();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static class BooleanVector extends ColumnVector {
+		private final boolean[] values;
+
+		BooleanVector(final int capacity) {
+			values = new boolean[capacity];
+		}
+
+		boolean getBoolean(final int row) {
+			return values[row];
+		}
+
+		@Override
+		Object read(final int row) {
+			return Boolean.valueOf(values[row]);
+		}
+
+		@Override
+		boolean write(final int row, final Object value) {
+			if (value instanceof Boolean) {
+				values[row] = ((Boolean) value).booleanValue();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static class DictionaryVector extends ColumnVector {
+		private final int[] codes;
+		private final List<Object> dictionary;
+		private final Map<Object, Integer> index;
+
+		DictionaryVector(final int capacity) {
+			codes = new int[capacity];
+			dictionary = new ArrayList<Object>();
+			index = new HashMap<Object, Integer>();
+		}
+
+		@Override
+		void clear() {
+			super.clear();
+			dictionary.clear();
+			index.clear();
+		}
+
+		@Override
+		Object read(final int row) {
+			return dictionary.get(codes[row]);
+		}
+
+		@Override
+		boolean write(final int row, final Object value) {
+			Integer code = index.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(value);
+				index.put(value, code);
+			}
+			codes[row] = code;
+			return true;
+		}
+	}
+
+	private final SolutionDecoder decoder;
+	private final ColumnVector[] columns;
+	private final int capacity;
+	private int size;
+	private int cursor;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param decoder
+	 *            The decode plan for the solutions.
+	 * @param capacity
+	 *            The maximum number of rows in the batch.
+	 */
+	ColumnarBatch(final SolutionDecoder decoder, final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException(
+					"Batch capacity must be greater than 0");
+		}
+		this.decoder = decoder;
+		this.capacity = capacity;
+		this.columns = new ColumnVector[decoder.getColumnCount()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = createVector(decoder.getSqlType(i + 1), capacity);
+		}
+		this.size = 0;
+		this.cursor = -1;
+	}
+
+	private static ColumnVector createVector(final int sqlType,
+			final int capacity) {
+		switch (sqlType) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+				return new LongVector(capacity, sqlType);
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return new DoubleVector(capacity, sqlType);
+			case Types.BOOLEAN:
+			case Types.BIT:
+				return new BooleanVector(capacity);
+			default:
+				return new DictionaryVector(capacity);
+		}
+	}
+
+	/**
+	 * Replace the contents of the batch with the next rows from the solutions.
+	 *
+	 * @param solutions
+	 *            The solutions to read.
+	 * @return the number of rows read.
+	 */
+	int fill(final Iterator<QuerySolution> solutions) {
+		for (final ColumnVector column : columns) {
+			column.clear();
+		}
+		size = 0;
+		cursor = -1;
+		while ((size < capacity) && solutions.hasNext()) {
+			final QuerySolution soln = solutions.next();
+			for (int i = 0; i < columns.length; i++) {
+				columns[i].set(size, decoder.decode(soln, i + 1));
+			}
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Move to the next row in the batch.
+	 *
+	 * @return true if positioned on a row.
+	 */
+	boolean advance() {
+		if (cursor < size) {
+			cursor++;
+		}
+		return cursor < size;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private ColumnVector getVector(final int columnOrdinal) {
+		if ((cursor < 0) || (cursor >= size)) {
+			throw new IllegalStateException("Batch not positioned on a row");
+		}
+		return columns[columnOrdinal - 1];
+	}
+
+	/**
+	 * Get the value of the column for the current row.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the value or null.
+	 */
+	Object getObject(final int columnOrdinal) {
+		return getVector(columnOrdinal).get(cursor);
+	}
+
+	/**
+	 * Check if the column for the current row is null.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return true if the value is null.
+	 */
+	boolean isNull(final int columnOrdinal) {
+		return getVector(columnOrdinal).isNull(cursor);
+	}
+
+	/**
+	 * Check if the value of the column for the current row is stored in a
+	 * primitive vector.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return true if the value is held as a primitive.
+	 */
+	boolean isPrimitive(final int columnOrdinal) {
+		final ColumnVector vector = getVector(columnOrdinal);
+		return !(vector instanceof DictionaryVector)
+				&& !vector.isNull(cursor) && !vector.otherRows.get(cursor);
+	}
+
+	/**
+	 * Get the value of an integer column for the current row. Only valid if
+	 * isPrimitive() returns true.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the value.
+	 */
+	long getLong(final int columnOrdinal) {
+		final ColumnVector vector = getVector(columnOrdinal);
+		if (vector instanceof DoubleVector) {
+			return (long) ((DoubleVector) vector).getDouble(cursor);
+		}
+		if (vector instanceof BooleanVector) {
+			return ((BooleanVector) vector).getBoolean(cursor) ? 1 : 0;
+		}
+		return ((LongVector) vector).getLong(cursor);
+	}
+
+	/**
+	 * Get the value of a numeric column for the current row. Only valid if
+	 * isPrimitive() returns true.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the value.
+	 */
+	double getDouble(final int columnOrdinal) {
+		final ColumnVector vector = getVector(columnOrdinal);
+		if (vector instanceof LongVector) {
+			return ((LongVector) vector).getLong(cursor);
+		}
+		if (vector instanceof BooleanVector) {
+			return ((BooleanVector) vector).getBoolean(cursor) ? 1 : 0;
+		}
+		return ((DoubleVector) vector).getDouble(cursor);
+	}
+
+	/**
+	 * Get the value of a boolean column for the current row. Only valid if
+	 * isPrimitive() returns true.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the value.
+	 */
+	boolean getBoolean(final int columnOrdinal) {
+		final ColumnVector vector = getVector(columnOrdinal);
+		if (vector instanceof LongVector) {
+			return ((LongVector) vector).getLong(cursor) != 0;
+		}
+		if (vector instanceof DoubleVector) {
+			return ((DoubleVector) vector).getDouble(cursor) != 0;
+		}
+		return ((BooleanVector) vector).getBoolean(cursor);
+	}
+}
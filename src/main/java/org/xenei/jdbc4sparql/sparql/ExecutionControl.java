@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xenei.jdbc4sparql.iface.Catalog;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryCancelledException;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.sparql.engine.http.Service;
+
+/**
+ * Creates and tracks the query executions for a statement so that they can
+ * be timed out and cancelled.
+ *
+ * Every execution created by the control has the timeout applied to it, both
+ * to the local execution and to any SERVICE calls it makes to a remote
+ * endpoint. The timeout limits the time to the first result only, so a result
+ * set that is read slowly is not aborted part way through. Cancelling the
+ * control aborts all the executions that are still open and any that are
+ * created afterwards.
+ *
+ * The control also carries the executor that retrieves rows in the background
+ * for the executions. Without an executor the rows are retrieved by the
+ * caller.
+ */
+public class ExecutionControl {
+	private static final Logger LOG = LoggerFactory
+			.getLogger(ExecutionControl.class);
+
+	// timeout in milliseconds, 0 for none.
+	private final long timeout;
+	private final ExecutorService executor;
+	private final Set<QueryExecution> executions;
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor for a control without an executor.
+	 *
+	 * @param timeout
+	 *            The timeout for each execution in milliseconds. 0 or less for
+	 *            no timeout.
+	 */
+	public ExecutionControl(final long timeout) {
+		this(timeout, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param timeout
+	 *            The timeout for each execution in milliseconds. 0 or less for
+	 *            no timeout.
+	 * @param executor
+	 *            The executor for background retrieval or null to retrieve on
+	 *            the caller's thread.
+	 */
+	public ExecutionControl(final long timeout, final ExecutorService executor) {
+		this.timeout = timeout > 0 ? timeout : 0;
+		this.executor = executor;
+		this.executions = Collections
+				.newSetFromMap(new ConcurrentHashMap<QueryExecution, Boolean>());
+		this.cancelled = false;
+	}
+
+	/**
+	 * Create an execution of the query against the local model of the
+	 * catalog. The caller must close the returned QueryExecution.
+	 *
+	 * @param catalog
+	 *            The catalog to execute the query against.
+	 * @param query
+	 *            The query to execute.
+	 * @return The QueryExecution for the query.
+	 * @throws QueryCancelledException
+	 *             if the control has been cancelled.
+	 */
+	public QueryExecution createExecution(final Catalog catalog,
+			final Query query) {
+		if (cancelled) {
+			throw new QueryCancelledException();
+		}
+		removeClosed();
+		final QueryExecution qexec = catalog.createLocalExecution(query);
+		if (timeout > 0) {
+			// no limit once the first result has been returned.
+			qexec.setTimeout(timeout, TimeUnit.MILLISECONDS, -1,
+					TimeUnit.MILLISECONDS);
+			qexec.getContext().set(Service.queryTimeout, timeout);
+		}
+		executions.add(qexec);
+		if (cancelled) {
+			// cancelled while the execution was being created.
+			qexec.abort();
+		}
+		return qexec;
+	}
+
+	/**
+	 * Abort all the open executions and prevent new ones.
+	 */
+	public void cancel() {
+		cancelled = true;
+		for (final QueryExecution qexec : executions) {
+			if (LOG.isDebugEnabled()) {
+				ExecutionControl.LOG.debug("Aborting {}", qexec.getQuery());
+			}
+			qexec.abort();
+		}
+		executions.clear();
+	}
+
+	/**
+	 * Create the exception that reports an execution ended by this control.
+	 *
+	 * @param cause
+	 *            The exception thrown by the execution.
+	 * @return a SQLTimeoutException if the execution timed out, a
+	 *         SQLException otherwise.
+	 */
+	public SQLException createException(final RuntimeException cause) {
+		if (!cancelled && (timeout > 0)) {
+			return new SQLTimeoutException(String.format(
+					"Query exceeded the timeout of %s ms", timeout), cause);
+		}
+		return new SQLException("Query was cancelled", cause);
+	}
+
+	/**
+	 * Get the number of executions that have not been closed. For testing.
+	 *
+	 * @return the number of open executions.
+	 */
+	int getActiveCount() {
+		removeClosed();
+		return executions.size();
+	}
+
+	/**
+	 * Get the executor for background retrieval.
+	 *
+	 * @return the executor or null if rows are retrieved on the caller's
+	 *         thread.
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Get the timeout applied to the executions.
+	 *
+	 * @return the timeout in milliseconds or 0 for none.
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	private void removeClosed() {
+		final Iterator<QueryExecution> iter = executions.iterator();
+		while (iter.hasNext()) {
+			if (iter.next().isClosed()) {
+				iter.remove();
+			}
+		}
+	}
+}
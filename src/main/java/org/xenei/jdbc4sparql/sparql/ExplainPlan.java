@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.xenei.jdbc4sparql.iface.ColumnDef;
+import org.xenei.jdbc4sparql.impl.DataTable;
+import org.xenei.jdbc4sparql.impl.rdf.RdfCatalog;
+import org.xenei.jdbc4sparql.impl.rdf.RdfSchema;
+import org.xenei.jdbc4sparql.impl.rdf.RdfTable;
+import org.xenei.jdbc4sparql.impl.rdf.RdfTableDef;
+import org.xenei.jdbc4sparql.meta.MetaCatalogBuilder;
+import org.xenei.jdbc4sparql.sparql.items.QueryTableInfo;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
+import com.hp.hpl.jena.sparql.algebra.Op;
+import com.hp.hpl.jena.sparql.algebra.OpVisitorBase;
+import com.hp.hpl.jena.sparql.algebra.OpWalker;
+import com.hp.hpl.jena.sparql.algebra.TransformCopy;
+import com.hp.hpl.jena.sparql.algebra.Transformer;
+import com.hp.hpl.jena.sparql.algebra.op.OpLabel;
+import com.hp.hpl.jena.sparql.algebra.op.OpService;
+import com.hp.hpl.jena.sparql.util.FmtUtils;
+
+/**
+ * The plan for a query as reported by EXPLAIN.
+ *
+ * Each step of the plan is a row of the result set: the step name, the detail, the estimated rows, the actual rows and the elapsed time in
+ * milliseconds. The plan lists the SQL, the SPARQL query, the optimized
+ * algebra, the parts of the algebra that are executed by SERVICE endpoints
+ * (REMOTE) and by the driver (LOCAL) and the estimated rows for each table
+ * with statistics. EXPLAIN ANALYZE adds the translate, execute and fetch
+ * steps with the actual times and rows.
+ */
+public class ExplainPlan {
+	public static final String SQL = "SQL";
+	public static final String SPARQL = "SPARQL";
+	public static final String ALGEBRA = "ALGEBRA";
+	public static final String REMOTE = "REMOTE";
+	public static final String LOCAL = "LOCAL";
+	public static final String TABLE = "TABLE";
+	public static final String TRANSLATE = "TRANSLATE";
+	public static final String EXECUTE = "EXECUTE";
+	public static final String FETCH = "FETCH";
+
+	// the name of the table that holds the steps.
+	private static final String TABLE_NAME = "Explain";
+
+	private static Integer toInteger(final Long value) {
+		return value == null ? null : Integer.valueOf((int) Math.min(
+				Integer.MAX_VALUE, value));
+	}
+
+	private final List<Object[]> steps;
+
+	/**
+	 * Create the plan for a query.
+	 *
+	 * @param sql
+	 *            The SQL statement.
+	 * @param builder
+	 *            The builder for the statement.
+	 * @throws SQLDataException
+	 *             if the query can not be built.
+	 */
+	public ExplainPlan(final String sql, final SparqlQueryBuilder builder)
+			throws SQLDataException {
+		steps = new ArrayList<Object[]>();
+		final Query query = builder.build();
+		addStep(ExplainPlan.SQL, sql, null, null, null);
+		addStep(ExplainPlan.SPARQL, query.toString(), null, null, null);
+
+		final Op op = Algebra.optimize(Algebra.compile(query));
+		addStep(ExplainPlan.ALGEBRA, op.toString(), null, null, null);
+
+		// the SERVICE calls are executed by the endpoint, the rest by the
+		// driver.
+		final List<OpService> services = new ArrayList<OpService>();
+		OpWalker.walk(op, new OpVisitorBase() {
+			@Override
+			public void visit(final OpService opService) {
+				services.add(opService);
+			}
+		});
+		for (final OpService service : services) {
+			addStep(ExplainPlan.REMOTE, service.toString(), null, null, null);
+		}
+		final Op local = Transformer.transform(new TransformCopy() {
+			@Override
+			public Op transform(final OpService opService, final Op subOp) {
+				return OpLabel.create(
+						"SERVICE " + FmtUtils.stringForNode(opService.getService()),
+						null);
+			}
+		}, op);
+		addStep(ExplainPlan.LOCAL, local.toString(), null, null, null);
+
+		for (final QueryTableInfo tableInfo : builder.getTables()) {
+			addStep(ExplainPlan.TABLE,
+					String.format("%s%s", tableInfo.getName().getDBName(),
+							tableInfo.isOptional() ? " OPTIONAL" : ""),
+					builder.getEstimatedRows(tableInfo), null, null);
+		}
+	}
+
+	/**
+	 * Add a step to the plan.
+	 *
+	 * @param step
+	 *            The step name.
+	 * @param detail
+	 *            The detail for the step, may be null.
+	 * @param estimatedRows
+	 *            The estimated number of rows, may be null.
+	 * @param actualRows
+	 *            The actual number of rows, may be null.
+	 * @param elapsed
+	 *            The elapsed time in milliseconds, may be null.
+	 */
+	public void addStep(final String step, final String detail,
+			final Long estimatedRows, final Long actualRows, final Long elapsed) {
+		steps.add(new Object[] {
+				step, detail, ExplainPlan.toInteger(estimatedRows),
+				ExplainPlan.toInteger(actualRows),
+				ExplainPlan.toInteger(elapsed)
+		});
+	}
+
+	/**
+	 * Get the steps of the plan as rows of the result set.
+	 *
+	 * @return the steps in order.
+	 */
+	public List<Object[]> getSteps() {
+		return Collections.unmodifiableList(steps);
+	}
+
+	/**
+	 * Get the steps of the plan as a result set with the columns STEP,
+	 * DETAIL, ESTIMATED_ROWS, ACTUAL_ROWS and ELAPSED_MS.
+	 *
+	 * The table for the result set is defined in a model of its own so the
+	 * metadata catalog is not changed.
+	 *
+	 * @return the result set.
+	 * @throws SQLException
+	 */
+	public ResultSet getResultSet() throws SQLException {
+		final Model model = ModelFactory.createDefaultModel();
+		final RdfCatalog catalog = new RdfCatalog.Builder().setName(
+				MetaCatalogBuilder.LOCAL_NAME).build(model);
+		final RdfSchema schema = new RdfSchema.Builder().setCatalog(catalog)
+				.setName(MetaCatalogBuilder.SCHEMA_NAME).build(model);
+		final ColumnDef nonNullString = MetaCatalogBuilder
+				.getNonNullStringBuilder().build(model);
+		final ColumnDef nullableString = MetaCatalogBuilder
+				.getNullStringBuilder().build(model);
+		final ColumnDef nullableInt = MetaCatalogBuilder.getNullIntBuilder()
+				.build(model);
+		final RdfTableDef tableDef = new RdfTableDef.Builder()
+		.addColumnDef(nonNullString) // STEP
+		.addColumnDef(nullableString) // DETAIL
+		.addColumnDef(nullableInt) // ESTIMATED_ROWS
+		.addColumnDef(nullableInt) // ACTUAL_ROWS
+		.addColumnDef(nullableInt) // ELAPSED_MS
+		.build(model);
+		final RdfTable explainTable = new RdfTable.Builder().setSchema(schema)
+				.setTableDef(tableDef).setType(MetaCatalogBuilder.TABLE_TYPE)
+				.setName(ExplainPlan.TABLE_NAME).setColumn(0, "STEP")
+				.setColumn(1, "DETAIL").setColumn(2, "ESTIMATED_ROWS")
+				.setColumn(3, "ACTUAL_ROWS").setColumn(4, "ELAPSED_MS")
+				.build(model);
+
+		final DataTable table = new DataTable(explainTable);
+		for (final Object[] data : steps) {
+			table.addData(data);
+		}
+		return table.getResultSet();
+	}
+}
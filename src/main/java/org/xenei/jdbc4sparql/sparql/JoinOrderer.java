@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.E_Equals;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.syntax.Element;
+import com.hp.hpl.jena.sparql.syntax.ElementFilter;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.syntax.PatternVars;
+
+/**
+ * Orders the required table patterns of a query so that the most selective
+ * tables are evaluated first.
+ *
+ * The estimated size of a table is the number of rows in the table divided by
+ * the number of distinct values of each column that is compared to a constant
+ * in a filter. The smallest table is placed first, followed by the smallest
+ * table that is joined to the tables already placed. This keeps the
+ * intermediate results small and avoids cross products when the endpoint
+ * evaluates the patterns in the order written.
+ *
+ * Only runs of adjacent table patterns (filters may be between them) are
+ * reordered. Optional patterns, binds and sub queries depend on what comes
+ * before them so they are left in place, as are tables without statistics.
+ */
+final class JoinOrderer {
+
+	private static class TableEntry {
+		private final Element element;
+		private final int position;
+		private final Set<Var> vars;
+		private final long estimate;
+
+		TableEntry(final Element element, final int position,
+				final long estimate) {
+			this.element = element;
+			this.position = position;
+			this.vars = new HashSet<Var>(PatternVars.vars(element));
+			this.estimate = estimate;
+		}
+
+		private boolean isBefore(final TableEntry other) {
+			return (estimate < other.estimate)
+					|| ((estimate == other.estimate) && (position < other.position));
+		}
+	}
+
+	/**
+	 * Split the filter expression into the expressions that are and-ed
+	 * together.
+	 */
+	private static void addConjuncts(final Expr expr, final List<Expr> exprs) {
+		if (expr instanceof E_LogicalAnd) {
+			addConjuncts(((E_LogicalAnd) expr).getArg1(), exprs);
+			addConjuncts(((E_LogicalAnd) expr).getArg2(), exprs);
+		}
+		else {
+			exprs.add(expr);
+		}
+	}
+
+	private static void addFilters(final Element element, final List<Expr> exprs) {
+		if (element instanceof ElementFilter) {
+			addConjuncts(((ElementFilter) element).getExpr(), exprs);
+		}
+		else if (element instanceof ElementGroup) {
+			for (final Element el : ((ElementGroup) element).getElements()) {
+				if (el instanceof ElementFilter) {
+					addConjuncts(((ElementFilter) el).getExpr(), exprs);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collect the filter expressions that may limit or join the tables.
+	 */
+	private static List<Expr> getExprs(final ElementGroup group,
+			final Collection<Expr> joinExprs) {
+		final List<Expr> exprs = new ArrayList<Expr>();
+		for (final Element element : group.getElements()) {
+			addFilters(element, exprs);
+		}
+		for (final Expr expr : joinExprs) {
+			addConjuncts(expr, exprs);
+		}
+		return exprs;
+	}
+
+	/**
+	 * Estimate the number of rows each table pattern will produce.
+	 *
+	 * @param group
+	 *            The query group that holds the table patterns.
+	 * @param rowCounts
+	 *            The number of rows for each table pattern in the group.
+	 * @param distinctCounts
+	 *            The number of distinct values for the column variables.
+	 * @param joinExprs
+	 *            Join expressions that are not in the group.
+	 * @return the estimated number of rows for each table pattern in
+	 *         rowCounts.
+	 */
+	static Map<Element, Long> estimate(final ElementGroup group,
+			final Map<Element, Long> rowCounts,
+			final Map<Var, Long> distinctCounts,
+			final Collection<Expr> joinExprs) {
+		return estimate(rowCounts, distinctCounts, getExprs(group, joinExprs));
+	}
+
+	private static Map<Element, Long> estimate(
+			final Map<Element, Long> rowCounts,
+			final Map<Var, Long> distinctCounts, final List<Expr> exprs) {
+		final Map<Element, Long> retval = new IdentityHashMap<Element, Long>();
+		for (final Map.Entry<Element, Long> entry : rowCounts.entrySet()) {
+			final Set<Var> vars = new HashSet<Var>(PatternVars.vars(entry
+					.getKey()));
+			long estimate = entry.getValue();
+			for (final Expr expr : exprs) {
+				final Var v = getConstantEquals(expr);
+				final Long distinct = v == null ? null : distinctCounts.get(v);
+				if ((distinct != null) && (distinct > 1) && vars.contains(v)) {
+					estimate = Math.max(1, estimate / distinct);
+				}
+			}
+			retval.put(entry.getKey(), estimate);
+		}
+		return retval;
+	}
+
+	/**
+	 * Get the variable that the expression compares to a constant.
+	 *
+	 * @return the variable or null if the expression is not such a comparison.
+	 */
+	private static Var getConstantEquals(final Expr expr) {
+		if (expr instanceof E_Equals) {
+			final Expr arg1 = ((E_Equals) expr).getArg1();
+			final Expr arg2 = ((E_Equals) expr).getArg2();
+			if (arg1.isVariable() && arg2.isConstant()) {
+				return arg1.asVar();
+			}
+			if (arg2.isVariable() && arg1.isConstant()) {
+				return arg2.asVar();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Determine if an expression joins the table to the tables already
+	 * placed.
+	 */
+	private static boolean isJoined(final TableEntry entry,
+			final Set<Var> placedVars, final List<Expr> exprs) {
+		for (final Expr expr : exprs) {
+			final Set<Var> vars = expr.getVarsMentioned();
+			if (!Collections.disjoint(vars, entry.vars)
+					&& !Collections.disjoint(vars, placedVars)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Order the table entries: the smallest first then the smallest that is
+	 * joined to those already placed.
+	 */
+	private static List<TableEntry> order(final List<TableEntry> entries,
+			final List<Expr> exprs) {
+		final List<TableEntry> remaining = new ArrayList<TableEntry>(entries);
+		final List<TableEntry> retval = new ArrayList<TableEntry>();
+		final Set<Var> placedVars = new HashSet<Var>();
+		while (!remaining.isEmpty()) {
+			TableEntry best = null;
+			boolean bestJoined = false;
+			for (final TableEntry entry : remaining) {
+				final boolean joined = isJoined(entry, placedVars, exprs);
+				if ((best == null) || (joined && !bestJoined)
+						|| ((joined == bestJoined) && entry.isBefore(best))) {
+					best = entry;
+					bestJoined = joined;
+				}
+			}
+			remaining.remove(best);
+			retval.add(best);
+			placedVars.addAll(best.vars);
+		}
+		return retval;
+	}
+
+	/**
+	 * Reorder the table patterns in the group.
+	 *
+	 * @param group
+	 *            The query group that holds the table patterns.
+	 * @param rowCounts
+	 *            The number of rows for each required table pattern in the
+	 *            group. Patterns that are not in the map are not moved.
+	 * @param distinctCounts
+	 *            The number of distinct values for the column variables.
+	 * @param joinExprs
+	 *            Join expressions that are not in the group.
+	 * @return true if the order of the group was changed.
+	 */
+	static boolean reorder(final ElementGroup group,
+			final Map<Element, Long> rowCounts,
+			final Map<Var, Long> distinctCounts,
+			final Collection<Expr> joinExprs) {
+		final List<Element> elements = group.getElements();
+		final List<Expr> exprs = getExprs(group, joinExprs);
+		final Map<Element, Long> estimates = estimate(rowCounts,
+				distinctCounts, exprs);
+
+		boolean retval = false;
+		int start = 0;
+		while (start < elements.size()) {
+			// find the run of tables and filters.
+			final List<Integer> slots = new ArrayList<Integer>();
+			final List<TableEntry> entries = new ArrayList<TableEntry>();
+			int end = start;
+			while (end < elements.size()) {
+				final Element element = elements.get(end);
+				final Long estimate = estimates.get(element);
+				if (estimate != null) {
+					slots.add(end);
+					entries.add(new TableEntry(element, end, estimate));
+				}
+				else if (!(element instanceof ElementFilter)) {
+					break;
+				}
+				end++;
+			}
+
+			if (entries.size() > 1) {
+				final List<TableEntry> ordered = order(entries, exprs);
+				for (int i = 0; i < slots.size(); i++) {
+					final TableEntry entry = ordered.get(i);
+					retval |= entry.position != slots.get(i);
+					elements.set(slots.get(i), entry.element);
+				}
+			}
+			start = end + 1;
+		}
+		return retval;
+	}
+
+	private JoinOrderer() {
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.math.BigDecimal;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xenei.jdbc4sparql.iface.ColumnDef;
+import org.xenei.jdbc4sparql.iface.TypeConverter;
+import org.xenei.jdbc4sparql.sparql.items.QueryColumnInfo;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.sparql.expr.E_Bound;
+import com.hp.hpl.jena.sparql.expr.E_Conditional;
+import com.hp.hpl.jena.sparql.expr.E_Datatype;
+import com.hp.hpl.jena.sparql.expr.E_Equals;
+import com.hp.hpl.jena.sparql.expr.E_Function;
+import com.hp.hpl.jena.sparql.expr.E_GreaterThanOrEqual;
+import com.hp.hpl.jena.sparql.expr.E_LessThanOrEqual;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.E_LogicalNot;
+import com.hp.hpl.jena.sparql.expr.E_LogicalOr;
+import com.hp.hpl.jena.sparql.expr.E_Str;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.expr.ExprVar;
+import com.hp.hpl.jena.sparql.expr.NodeValue;
+import com.hp.hpl.jena.sparql.syntax.ElementBind;
+
+/**
+ * Builds the type checks of CheckTypeF and ForceTypeF from standard SPARQL
+ * functions.
+ *
+ * A column that may not be null must be bound and its value must cast to the
+ * XSD type for the column. A column that may be null must either be unbound or
+ * have a value that casts to the XSD type. As with CheckTypeF a row with a
+ * value that can not be cast is removed. The value of the column is the cast
+ * of the value to that type, or the string form of the value for character
+ * columns.
+ *
+ * Because the expressions only use standard functions they can be evaluated
+ * by a remote endpoint and optimized by the local query engine. Only the casts
+ * that SPARQL 1.1 requires (section 17.5) are used: integral columns are cast
+ * to xsd:integer and checked against the range of the java type. Column types
+ * that have no required cast, such as dates and times, use the java
+ * functions.
+ */
+public final class NativeTypeF {
+
+	// the cast for each java type, String is handled by STR().
+	private static final Map<Class<?>, XSDDatatype> CASTS = new HashMap<Class<?>, XSDDatatype>();
+
+	// the range of the integral java types that are cast to xsd:integer.
+	private static final Map<Class<?>, long[]> RANGES = new HashMap<Class<?>, long[]>();
+
+	static {
+		CASTS.put(Byte.class, XSDDatatype.XSDinteger);
+		CASTS.put(Short.class, XSDDatatype.XSDinteger);
+		CASTS.put(Integer.class, XSDDatatype.XSDinteger);
+		CASTS.put(Long.class, XSDDatatype.XSDinteger);
+		CASTS.put(Float.class, XSDDatatype.XSDfloat);
+		CASTS.put(Double.class, XSDDatatype.XSDdouble);
+		CASTS.put(BigDecimal.class, XSDDatatype.XSDdecimal);
+		CASTS.put(Boolean.class, XSDDatatype.XSDboolean);
+		CASTS.put(java.sql.Timestamp.class, XSDDatatype.XSDdateTime);
+
+		RANGES.put(Byte.class, new long[] {
+				Byte.MIN_VALUE, Byte.MAX_VALUE
+		});
+		RANGES.put(Short.class, new long[] {
+				Short.MIN_VALUE, Short.MAX_VALUE
+		});
+		RANGES.put(Integer.class, new long[] {
+				Integer.MIN_VALUE, Integer.MAX_VALUE
+		});
+		RANGES.put(Long.class, new long[] {
+				Long.MIN_VALUE, Long.MAX_VALUE
+		});
+	}
+
+	/**
+	 * Don't instantiate.
+	 */
+	private NativeTypeF() {
+	}
+
+	/**
+	 * Get the java type for the column or null if the SQL type is not known.
+	 */
+	private static Class<?> getJavaType(final ColumnDef columnDef) {
+		try {
+			return TypeConverter.getJavaType(columnDef.getType());
+		} catch (final SQLDataException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Determine if the checks for the column can be written in standard
+	 * SPARQL.
+	 *
+	 * @param columnInfo
+	 *            The column to check.
+	 * @return true if native filters can be used for the column.
+	 */
+	public static boolean isSupported(final QueryColumnInfo columnInfo) {
+		final Class<?> javaType = getJavaType(columnInfo.getColumn()
+				.getColumnDef());
+		return String.class.equals(javaType) || CASTS.containsKey(javaType);
+	}
+
+	/**
+	 * Get the expression that converts the column value to the column type.
+	 *
+	 * @param columnInfo
+	 *            The column to convert.
+	 * @return the conversion expression.
+	 * @throws IllegalArgumentException
+	 *             if the column type is not supported.
+	 */
+	public static Expr getValue(final QueryColumnInfo columnInfo) {
+		final ExprVar var = new ExprVar(columnInfo.getGUIDVar());
+		final Class<?> javaType = getJavaType(columnInfo.getColumn()
+				.getColumnDef());
+		if (String.class.equals(javaType)) {
+			return new E_Str(var);
+		}
+		final XSDDatatype dt = getDatatype(columnInfo, javaType);
+		final Expr cast = new E_Function(dt.getURI(), new ExprList(var));
+		final long[] range = RANGES.get(javaType);
+		if (range == null) {
+			return cast;
+		}
+		// a value outside the range is cast from an empty string, an error,
+		// so that it does not convert.
+		return new E_Conditional(new E_LogicalAnd(new E_GreaterThanOrEqual(
+				cast, NodeValue.makeInteger(range[0])), new E_LessThanOrEqual(
+						cast, NodeValue.makeInteger(range[1]))), cast,
+						new E_Function(dt.getURI(), new ExprList(
+								NodeValue.makeString(""))));
+	}
+
+	/**
+	 * Get the XSD type that the column value is cast to.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the column type is not supported.
+	 */
+	private static XSDDatatype getDatatype(final QueryColumnInfo columnInfo,
+			final Class<?> javaType) {
+		final XSDDatatype dt = CASTS.get(javaType);
+		if (dt == null) {
+			throw new IllegalArgumentException(String.format(
+					"%s has no native type conversion", columnInfo));
+		}
+		return dt;
+	}
+
+	/**
+	 * Get the filter that removes rows where the column value does not
+	 * convert to the column type, or where the column is null and may not be
+	 * null.
+	 *
+	 * @param columnInfo
+	 *            The column to check.
+	 * @return the filter expression or null if every value is acceptable.
+	 * @throws IllegalArgumentException
+	 *             if the column type is not supported.
+	 */
+	public static Expr getFilter(final QueryColumnInfo columnInfo) {
+		final ColumnDef columnDef = columnInfo.getColumn().getColumnDef();
+		final ExprVar var = new ExprVar(columnInfo.getGUIDVar());
+		final boolean nullable = columnDef.getNullable() == ResultSetMetaData.columnNullable;
+		final Expr value = getValue(columnInfo);
+		if (value instanceof E_Str) {
+			// every value has a string form.
+			return nullable ? null : new E_Bound(var);
+		}
+		// an unbound or unconvertible value is an error and so false.
+		final Expr converts = new E_Equals(new E_Datatype(value),
+				NodeValue.makeNode(NodeFactory.createURI(getDatatype(
+						columnInfo, getJavaType(columnDef)).getURI())));
+		return nullable ? new E_LogicalOr(new E_LogicalNot(new E_Bound(var)),
+				converts) : converts;
+	}
+
+	/**
+	 * Get the binding of the column variable to the converted value.
+	 *
+	 * @param columnInfo
+	 *            The column to bind.
+	 * @return the binding.
+	 * @throws IllegalArgumentException
+	 *             if the column type is not supported.
+	 */
+	public static ElementBind getBinding(final QueryColumnInfo columnInfo) {
+		return new ElementBind(columnInfo.getVar(), getValue(columnInfo));
+	}
+}
@@ -0,0 +1,420 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.hp.hpl.jena.sparql.core.TriplePath;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.E_Bound;
+import com.hp.hpl.jena.sparql.expr.E_Coalesce;
+import com.hp.hpl.jena.sparql.expr.E_Conditional;
+import com.hp.hpl.jena.sparql.expr.E_Function;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.E_LogicalNot;
+import com.hp.hpl.jena.sparql.expr.E_LogicalOr;
+import com.hp.hpl.jena.sparql.expr.E_OneOfBase;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprFunction;
+import com.hp.hpl.jena.sparql.expr.ExprFunctionOp;
+import com.hp.hpl.jena.sparql.expr.ExprVar;
+import com.hp.hpl.jena.sparql.syntax.Element;
+import com.hp.hpl.jena.sparql.syntax.ElementBind;
+import com.hp.hpl.jena.sparql.syntax.ElementFilter;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.syntax.ElementOptional;
+import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
+import com.hp.hpl.jena.sparql.syntax.PatternVars;
+
+/**
+ * Converts OPTIONAL patterns into required patterns when a filter rejects the
+ * rows where the pattern does not match.
+ *
+ * Nullable columns are added to the query as OPTIONAL patterns which ARQ
+ * evaluates as left joins. When a filter is null rejecting on a column (e.g.
+ * <code>col = x</code>, <code>col IS NOT NULL</code>, <code>col LIKE ...</code>
+ * or a join key) the rows where the column is not bound are removed anyway so
+ * the pattern may be joined instead. Where possible the triples are added to
+ * the required triple block of the group so that ARQ can merge them into the
+ * basic graph pattern.
+ *
+ * A pattern is only converted when the filter applies to it (it is in the
+ * filter group or its nested groups) and the rejected variable is not bound
+ * anywhere else in the query.
+ */
+final class OptionalRewriter {
+
+	/**
+	 * Marks a variable that is bound by more than one pattern.
+	 */
+	private static final Object SHARED = new Object();
+
+	/**
+	 * Don't instantiate.
+	 */
+	private OptionalRewriter() {
+	}
+
+	/**
+	 * Convert the OPTIONAL patterns in the group that are made required by
+	 * the filters.
+	 *
+	 * @param group
+	 *            The group to rewrite.
+	 * @return the number of patterns converted.
+	 */
+	static int rewrite(final ElementGroup group) {
+		final Map<Var, Var> binds = new HashMap<Var, Var>();
+		int count = 0;
+		int converted;
+		do {
+			// a converted pattern may make its enclosing OPTIONAL the only
+			// pattern that binds the variable.
+			final Map<Var, Object> owners = new HashMap<Var, Object>();
+			binds.clear();
+			scan(group, null, owners, binds);
+			converted = rewrite(group, group, new HashSet<Var>(), owners,
+					binds);
+			count += converted;
+		} while (converted > 0);
+		return count;
+	}
+
+	private static int rewrite(final ElementGroup root,
+			final ElementGroup group, final Set<Var> inherited,
+			final Map<Var, Object> owners, final Map<Var, Var> binds) {
+		final Set<Var> rejected = new HashSet<Var>(inherited);
+		for (final Element element : group.getElements()) {
+			if (element instanceof ElementFilter) {
+				addRejectedVars(rejected, ((ElementFilter) element).getExpr());
+			}
+		}
+		// a bound alias is not bound when the column is not.
+		final List<Var> aliases = new ArrayList<Var>(rejected);
+		while (!aliases.isEmpty()) {
+			final Var v = binds.get(aliases.remove(aliases.size() - 1));
+			if ((v != null) && rejected.add(v)) {
+				aliases.add(v);
+			}
+		}
+
+		int count = 0;
+		final List<Element> converted = new ArrayList<Element>();
+		final ListIterator<Element> iter = group.getElements().listIterator();
+		while (iter.hasNext()) {
+			final Element element = iter.next();
+			if (element instanceof ElementOptional) {
+				final ElementOptional optional = (ElementOptional) element;
+				if (isRequired(root, optional, rejected, owners)) {
+					iter.set(optional.getOptionalElement());
+					converted.add(optional.getOptionalElement());
+				}
+				else if (optional.getOptionalElement() instanceof ElementGroup) {
+					count += rewrite(root,
+							(ElementGroup) optional.getOptionalElement(),
+							rejected, owners, binds);
+				}
+			}
+			else if (element instanceof ElementGroup) {
+				count += rewrite(root, (ElementGroup) element, rejected,
+						owners, binds);
+			}
+		}
+		for (final Element element : converted) {
+			mergeTriples(group, element);
+		}
+		return count + converted.size();
+	}
+
+	/**
+	 * Add the triples of a converted pattern to the first triple block of the
+	 * group. The triples are only moved when every variable that they bind is
+	 * either bound by the block or not used by the other elements of the
+	 * group, so the position of the triples in the group does not change the
+	 * result.
+	 *
+	 * @param group
+	 *            The group that contains the pattern.
+	 * @param element
+	 *            The converted pattern.
+	 */
+	private static void mergeTriples(final ElementGroup group,
+			final Element element) {
+		final List<Element> elements;
+		if (element instanceof ElementGroup) {
+			elements = ((ElementGroup) element).getElements();
+		}
+		else {
+			elements = Collections.singletonList(element);
+		}
+		for (final Element triples : elements) {
+			if (!(triples instanceof ElementPathBlock)) {
+				return;
+			}
+		}
+		ElementPathBlock block = null;
+		for (final Element candidate : group.getElements()) {
+			if ((candidate instanceof ElementPathBlock)
+					&& (candidate != element)) {
+				block = (ElementPathBlock) candidate;
+				break;
+			}
+		}
+		if (block == null) {
+			return;
+		}
+		final Set<Var> blockVars = new HashSet<Var>(PatternVars.vars(block));
+		final Set<Var> otherVars = addMentionedVars(new HashSet<Var>(), group,
+				element);
+		for (final Var v : PatternVars.vars(element)) {
+			if (!blockVars.contains(v) && otherVars.contains(v)) {
+				return;
+			}
+		}
+		for (final Element triples : elements) {
+			for (final TriplePath tp : ((ElementPathBlock) triples)
+					.getPattern()) {
+				block.addTriplePath(tp);
+			}
+		}
+		// elements compare by structure so remove by identity.
+		final Iterator<Element> iter = group.getElements().iterator();
+		while (iter.hasNext()) {
+			if (iter.next() == element) {
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Add the variables that the patterns and binds in the element mention.
+	 * Filters apply to the whole group so they are not included.
+	 *
+	 * @param vars
+	 *            The set to add the variables to.
+	 * @param element
+	 *            The element to scan.
+	 * @param skip
+	 *            An element that is not scanned.
+	 * @return the vars set.
+	 */
+	private static Set<Var> addMentionedVars(final Set<Var> vars,
+			final Element element, final Element skip) {
+		if (element == skip) {
+			return vars;
+		}
+		if (element instanceof ElementGroup) {
+			for (final Element child : ((ElementGroup) element).getElements()) {
+				addMentionedVars(vars, child, skip);
+			}
+		}
+		else if (element instanceof ElementOptional) {
+			addMentionedVars(vars,
+					((ElementOptional) element).getOptionalElement(), skip);
+		}
+		else if (element instanceof ElementBind) {
+			vars.add(((ElementBind) element).getVar());
+			vars.addAll(((ElementBind) element).getExpr().getVarsMentioned());
+		}
+		else if (!(element instanceof ElementFilter)) {
+			PatternVars.vars(vars, element);
+		}
+		return vars;
+	}
+
+	/**
+	 * Returns true if the optional pattern is the only pattern that binds one
+	 * of the rejected variables. The filters of the optional pattern are
+	 * evaluated with the variables of the enclosing group so the pattern is
+	 * not converted if they use a variable that is bound outside of it.
+	 */
+	private static boolean isRequired(final ElementGroup root,
+			final ElementOptional optional, final Set<Var> rejected,
+			final Map<Var, Object> owners) {
+		boolean required = false;
+		for (final Var v : rejected) {
+			required |= owners.get(v) == optional;
+		}
+		if (required
+				&& (optional.getOptionalElement() instanceof ElementGroup)) {
+			Set<Var> outside = null;
+			for (final Element element : ((ElementGroup) optional
+					.getOptionalElement()).getElements()) {
+				if (element instanceof ElementFilter) {
+					if (outside == null) {
+						outside = addMentionedVars(new HashSet<Var>(), root,
+								optional);
+					}
+					for (final Var v : ((ElementFilter) element).getExpr()
+							.getVarsMentioned()) {
+						required &= !outside.contains(v);
+					}
+				}
+			}
+		}
+		return required;
+	}
+
+	/**
+	 * Record the innermost OPTIONAL pattern that binds each variable and the
+	 * column each BIND alias is bound from. Variables that are bound by more
+	 * than one pattern, or by a pattern that is not scanned, are marked as
+	 * shared. Variables that are bound outside of an OPTIONAL pattern are
+	 * owned by null.
+	 *
+	 * @param element
+	 *            The element to scan.
+	 * @param optional
+	 *            The enclosing OPTIONAL pattern or null.
+	 * @param owners
+	 *            The map of variable to owning pattern.
+	 * @param binds
+	 *            The map of BIND alias to column variable.
+	 */
+	private static void scan(final Element element,
+			final ElementOptional optional, final Map<Var, Object> owners,
+			final Map<Var, Var> binds) {
+		if (element instanceof ElementGroup) {
+			for (final Element child : ((ElementGroup) element).getElements()) {
+				scan(child, optional, owners, binds);
+			}
+		}
+		else if (element instanceof ElementOptional) {
+			final ElementOptional child = (ElementOptional) element;
+			scan(child.getOptionalElement(), child, owners, binds);
+		}
+		else if (element instanceof ElementPathBlock) {
+			for (final Var v : PatternVars.vars(element)) {
+				if (owners.containsKey(v) && (owners.get(v) != optional)) {
+					owners.put(v, SHARED);
+				}
+				else {
+					owners.put(v, optional);
+				}
+			}
+		}
+		else if (element instanceof ElementBind) {
+			final ElementBind bind = (ElementBind) element;
+			final Var v = getBoundVar(bind.getExpr());
+			if (v != null) {
+				binds.put(bind.getVar(), v);
+			}
+		}
+		else if (!(element instanceof ElementFilter)) {
+			for (final Var v : PatternVars.vars(element)) {
+				owners.put(v, SHARED);
+			}
+		}
+	}
+
+	/**
+	 * Get the variable that must be bound for the BIND expression to be
+	 * bound. This is the argument of a plain variable or a ForceTypeF
+	 * conversion.
+	 *
+	 * @param expr
+	 *            The bind expression.
+	 * @return the variable or null.
+	 */
+	private static Var getBoundVar(final Expr expr) {
+		if (expr instanceof ExprVar) {
+			return ((ExprVar) expr).asVar();
+		}
+		if ((expr instanceof E_Function)
+				&& ForceTypeF.IRI.equals(((E_Function) expr).getFunctionIRI())
+				&& (((E_Function) expr).getArg(1) instanceof ExprVar)) {
+			return ((ExprVar) ((E_Function) expr).getArg(1)).asVar();
+		}
+		return null;
+	}
+
+	/**
+	 * Add the variables that the filter expression rejects when they are not
+	 * bound.
+	 *
+	 * @param vars
+	 *            The set to add the variables to.
+	 * @param expr
+	 *            The filter expression.
+	 * @return the vars set.
+	 */
+	static Set<Var> addRejectedVars(final Set<Var> vars, final Expr expr) {
+		if (expr instanceof E_LogicalAnd) {
+			addRejectedVars(vars, ((E_LogicalAnd) expr).getArg1());
+			addRejectedVars(vars, ((E_LogicalAnd) expr).getArg2());
+		}
+		else if (expr instanceof E_LogicalOr) {
+			// only the variables that both sides reject.
+			final Set<Var> left = addRejectedVars(new HashSet<Var>(),
+					((E_LogicalOr) expr).getArg1());
+			left.retainAll(addRejectedVars(new HashSet<Var>(),
+					((E_LogicalOr) expr).getArg2()));
+			vars.addAll(left);
+		}
+		else if (expr instanceof E_Bound) {
+			addStrictVars(vars, ((E_Bound) expr).getArg());
+		}
+		else if (expr instanceof E_LogicalNot) {
+			addStrictVars(vars, ((E_LogicalNot) expr).getArg());
+		}
+		else {
+			addStrictVars(vars, expr);
+		}
+		return vars;
+	}
+
+	/**
+	 * Add the variables that cause the expression to be an error when they are
+	 * not bound. The logical operators, BOUND, COALESCE, IF, EXISTS and
+	 * extension functions may have a value when a variable is not bound so
+	 * they are not entered.
+	 *
+	 * @param vars
+	 *            The set to add the variables to.
+	 * @param expr
+	 *            The expression.
+	 */
+	private static void addStrictVars(final Set<Var> vars, final Expr expr) {
+		if (expr instanceof ExprVar) {
+			vars.add(((ExprVar) expr).asVar());
+		}
+		else if (expr instanceof E_OneOfBase) {
+			addStrictVars(vars, ((E_OneOfBase) expr).getLHS());
+		}
+		else if ((expr instanceof ExprFunction)
+				&& !((expr instanceof E_LogicalAnd)
+						|| (expr instanceof E_LogicalOr)
+						|| (expr instanceof E_LogicalNot)
+						|| (expr instanceof E_Bound)
+						|| (expr instanceof E_Coalesce)
+						|| (expr instanceof E_Conditional)
+						|| (expr instanceof E_Function) || (expr instanceof ExprFunctionOp))) {
+			for (final Expr arg : ((ExprFunction) expr).getArgs()) {
+				addStrictVars(vars, arg);
+			}
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.SortCondition;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.core.VarExprList;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.syntax.Element;
+import com.hp.hpl.jena.sparql.syntax.ElementAssign;
+import com.hp.hpl.jena.sparql.syntax.ElementBind;
+import com.hp.hpl.jena.sparql.syntax.ElementData;
+import com.hp.hpl.jena.sparql.syntax.ElementFilter;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.syntax.ElementMinus;
+import com.hp.hpl.jena.sparql.syntax.ElementNamedGraph;
+import com.hp.hpl.jena.sparql.syntax.ElementOptional;
+import com.hp.hpl.jena.sparql.syntax.ElementService;
+import com.hp.hpl.jena.sparql.syntax.ElementSubQuery;
+import com.hp.hpl.jena.sparql.syntax.ElementUnion;
+
+/**
+ * Binds the values of JDBC parameters into a built query.
+ *
+ * A single set of values is substituted into the expressions as constants.
+ * Several sets of values are added as a VALUES block to each group that uses
+ * the parameters, and to the outer group, so that one query returns the rows
+ * for all of the sets. Sub queries project the parameters so the groups join
+ * on the parameter values.
+ *
+ * The query is modified in place so it should be a clone.
+ */
+final class ParameterBinder {
+
+	/**
+	 * Don't instantiate.
+	 */
+	private ParameterBinder() {
+	}
+
+	/**
+	 * Replace the parameters in the query with their values. Parameters that
+	 * are not bound are left as variables.
+	 *
+	 * @param query
+	 *            The query to modify.
+	 * @param binding
+	 *            The parameter values.
+	 */
+	static void substitute(final Query query, final Binding binding) {
+		if (query.getQueryPattern() != null) {
+			substitute(query.getQueryPattern(), binding);
+		}
+		substitute(query.getProject(), binding);
+		if (query.hasGroupBy()) {
+			substitute(query.getGroupBy(), binding);
+		}
+		if (query.hasHaving()) {
+			final ListIterator<Expr> iter = query.getHavingExprs()
+					.listIterator();
+			while (iter.hasNext()) {
+				iter.set(iter.next().copySubstitute(binding));
+			}
+		}
+		if (query.hasOrderBy()) {
+			final ListIterator<SortCondition> iter = query.getOrderBy()
+					.listIterator();
+			while (iter.hasNext()) {
+				final SortCondition sc = iter.next();
+				iter.set(new SortCondition(sc.getExpression().copySubstitute(
+						binding), sc.getDirection()));
+			}
+		}
+	}
+
+	private static void substitute(final VarExprList exprList,
+			final Binding binding) {
+		for (final Var v : exprList.getVars()) {
+			final Expr expr = exprList.getExpr(v);
+			if (expr != null) {
+				exprList.getExprs().put(v, expr.copySubstitute(binding));
+			}
+		}
+	}
+
+	private static void substitute(final Element element,
+			final Binding binding) {
+		if (element instanceof ElementGroup) {
+			final ListIterator<Element> iter = ((ElementGroup) element)
+					.getElements().listIterator();
+			while (iter.hasNext()) {
+				final Element e = iter.next();
+				if (e instanceof ElementFilter) {
+					iter.set(new ElementFilter(((ElementFilter) e).getExpr()
+							.copySubstitute(binding)));
+				}
+				else if (e instanceof ElementBind) {
+					final ElementBind bind = (ElementBind) e;
+					iter.set(new ElementBind(bind.getVar(), bind.getExpr()
+							.copySubstitute(binding)));
+				}
+				else if (e instanceof ElementAssign) {
+					final ElementAssign assign = (ElementAssign) e;
+					iter.set(new ElementAssign(assign.getVar(), assign
+							.getExpr().copySubstitute(binding)));
+				}
+				else {
+					substitute(e, binding);
+				}
+			}
+		}
+		else if (element instanceof ElementSubQuery) {
+			substitute(((ElementSubQuery) element).getQuery(), binding);
+		}
+		else {
+			for (final Element child : getChildren(element)) {
+				substitute(child, binding);
+			}
+		}
+	}
+
+	/**
+	 * Add the parameter values to the query as VALUES blocks.
+	 *
+	 * @param query
+	 *            The query to modify.
+	 * @param params
+	 *            The parameter variables.
+	 * @param rows
+	 *            The parameter values, one binding for each set.
+	 */
+	static void addValues(final Query query, final List<Var> params,
+			final List<Binding> rows) {
+		ElementGroup group;
+		if (query.getQueryPattern() instanceof ElementGroup) {
+			group = (ElementGroup) query.getQueryPattern();
+		}
+		else {
+			group = new ElementGroup();
+			if (query.getQueryPattern() != null) {
+				group.addElement(query.getQueryPattern());
+			}
+			query.setQueryPattern(group);
+		}
+		// the outer group always has the values as the projection, order by
+		// and having may use the parameters.
+		addValues(group, params, rows, true);
+	}
+
+	private static ElementData createData(final List<Var> params,
+			final List<Binding> rows) {
+		final ElementData data = new ElementData();
+		for (final Var v : params) {
+			data.add(v);
+		}
+		for (final Binding b : rows) {
+			data.add(b);
+		}
+		return data;
+	}
+
+	private static boolean usesParams(final Expr expr, final List<Var> params) {
+		for (final Var v : expr.getVarsMentioned()) {
+			if (params.contains(v)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add the values to the groups that use the parameters.
+	 *
+	 * @param force
+	 *            if true the values are added to the group even if it does not
+	 *            use the parameters.
+	 * @return true if the element contains a group that uses the parameters.
+	 */
+	private static boolean addValues(final Element element,
+			final List<Var> params, final List<Binding> rows,
+			final boolean force) {
+		if (element instanceof ElementGroup) {
+			final List<Element> elements = ((ElementGroup) element)
+					.getElements();
+			boolean direct = false;
+			boolean nested = false;
+			for (final Element e : elements) {
+				if (e instanceof ElementFilter) {
+					direct |= usesParams(((ElementFilter) e).getExpr(), params);
+				}
+				else if (e instanceof ElementBind) {
+					direct |= usesParams(((ElementBind) e).getExpr(), params);
+				}
+				else if (e instanceof ElementAssign) {
+					direct |= usesParams(((ElementAssign) e).getExpr(), params);
+				}
+				else {
+					nested |= addValues(e, params, rows, false);
+				}
+			}
+			if (direct || force) {
+				elements.add(0, createData(params, rows));
+			}
+			return direct || nested;
+		}
+		if (element instanceof ElementSubQuery) {
+			final Query subQuery = ((ElementSubQuery) element).getQuery();
+			if ((subQuery.getQueryPattern() != null)
+					&& addValues(subQuery.getQueryPattern(), params, rows, false)) {
+				if (!subQuery.isQueryResultStar()) {
+					for (final Var v : params) {
+						if (!subQuery.getProjectVars().contains(v)) {
+							subQuery.addResultVar(v);
+						}
+					}
+				}
+				return true;
+			}
+			return false;
+		}
+		boolean retval = false;
+		for (final Element child : getChildren(element)) {
+			retval |= addValues(child, params, rows, false);
+		}
+		return retval;
+	}
+
+	/**
+	 * Get the elements directly contained in the element. Groups and sub
+	 * queries are handled by the callers.
+	 */
+	private static Collection<Element> getChildren(final Element element) {
+		if (element instanceof ElementOptional) {
+			return Collections.singletonList(((ElementOptional) element)
+					.getOptionalElement());
+		}
+		if (element instanceof ElementUnion) {
+			return ((ElementUnion) element).getElements();
+		}
+		if (element instanceof ElementMinus) {
+			return Collections.singletonList(((ElementMinus) element)
+					.getMinusElement());
+		}
+		if (element instanceof ElementNamedGraph) {
+			return Collections.singletonList(((ElementNamedGraph) element)
+					.getElement());
+		}
+		if (element instanceof ElementService) {
+			return Collections.singletonList(((ElementService) element)
+					.getElement());
+		}
+		return Collections.emptyList();
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.sql.SQLDataException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelChangedListener;
+import com.hp.hpl.jena.rdf.model.Statement;
+
+/**
+ * A bounded least recently used cache of the translated queries for a
+ * connection.
+ *
+ * The cache maps the SQL text and the state it was translated in (catalog,
+ * schema and maximum rows) to the built SparqlQueryBuilder. A built builder
+ * is not changed by executing its query so it may be shared by any number of
+ * executions.
+ *
+ * The cache is cleared when any of the watched schema models change.
+ */
+public class PlanCache {
+
+	/**
+	 * The key for a translated query.
+	 */
+	public static class Key {
+		private final String sql;
+		private final String catalog;
+		private final String schema;
+		private final int maxRows;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param sql
+		 *            The SQL text.
+		 * @param catalog
+		 *            The name of the default catalog.
+		 * @param schema
+		 *            The name of the default schema, may be null.
+		 * @param maxRows
+		 *            The maximum number of rows applied to the query.
+		 */
+		public Key(final String sql, final String catalog,
+				final String schema, final int maxRows) {
+			if (sql == null) {
+				throw new IllegalArgumentException("sql may not be null");
+			}
+			this.sql = sql;
+			this.catalog = catalog;
+			this.schema = schema;
+			this.maxRows = maxRows;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (o instanceof Key) {
+				final Key k = (Key) o;
+				return sql.equals(k.sql) && equal(catalog, k.catalog)
+						&& equal(schema, k.schema) && (maxRows == k.maxRows);
+			}
+			return false;
+		}
+
+		private static boolean equal(final String s1, final String s2) {
+			return s1 == null ? s2 == null : s1.equals(s2);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = sql.hashCode();
+			h = (31 * h) + (catalog == null ? 0 : catalog.hashCode());
+			h = (31 * h) + (schema == null ? 0 : schema.hashCode());
+			return (31 * h) + maxRows;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Key[%s.%s %s (%s)]", catalog, schema, sql,
+					maxRows);
+		}
+	}
+
+	/**
+	 * Clears the cache when the model changes.
+	 */
+	private class Invalidator extends StatementListener {
+		@Override
+		public void addedStatement(final Statement s) {
+			clear();
+		}
+
+		@Override
+		public void removedStatement(final Statement s) {
+			clear();
+		}
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(PlanCache.class);
+
+	private final int maxSize;
+	private final Map<Key, SparqlQueryBuilder> plans;
+	private final Map<Model, ModelChangedListener> watched;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong evictions;
+	// incremented each time the cache is cleared.
+	private final AtomicLong generation;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxSize
+	 *            The maximum number of queries to cache. 0 disables the cache.
+	 */
+	public PlanCache(final int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException(
+					"maxSize may not be less than zero");
+		}
+		this.maxSize = maxSize;
+		this.plans = new LinkedHashMap<Key, SparqlQueryBuilder>(16, 0.75f,
+				true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<Key, SparqlQueryBuilder> eldest) {
+				if (size() > PlanCache.this.maxSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+		this.watched = new IdentityHashMap<Model, ModelChangedListener>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.evictions = new AtomicLong();
+		this.generation = new AtomicLong();
+	}
+
+	/**
+	 * Get the translated query for the key.
+	 *
+	 * @param key
+	 *            The key to look up.
+	 * @return the built builder or null if it is not in the cache.
+	 */
+	public SparqlQueryBuilder get(final Key key) {
+		if (maxSize == 0) {
+			return null;
+		}
+		final SparqlQueryBuilder retval;
+		synchronized (plans) {
+			retval = plans.get(key);
+		}
+		if (retval == null) {
+			misses.incrementAndGet();
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		return retval;
+	}
+
+	/**
+	 * Get the generation of the cache. The generation changes each time the
+	 * cache is cleared.
+	 *
+	 * @return the current generation.
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Add a translated query to the cache. The builder is built if it has not
+	 * been. The query is not added if the cache has been cleared since the
+	 * generation was read as the query may have been translated with an old
+	 * schema.
+	 *
+	 * @param key
+	 *            The key for the query.
+	 * @param builder
+	 *            The builder for the query.
+	 * @param generation
+	 *            The generation read before the query was translated.
+	 * @throws SQLDataException
+	 *             if the query can not be built.
+	 */
+	public void put(final Key key, final SparqlQueryBuilder builder,
+			final long generation) throws SQLDataException {
+		if (maxSize == 0) {
+			return;
+		}
+		// resolve the result vars so that the query is not changed by the
+		// executions.
+		builder.build().setResultVars();
+		synchronized (plans) {
+			if (this.generation.get() == generation) {
+				plans.put(key, builder);
+			}
+		}
+	}
+
+	/**
+	 * Clear the cache if the model changes. Watching a model that is already
+	 * watched has no effect.
+	 *
+	 * @param model
+	 *            The schema model to watch.
+	 */
+	public void watch(final Model model) {
+		synchronized (watched) {
+			if (!watched.containsKey(model)) {
+				final ModelChangedListener listener = new Invalidator();
+				model.register(listener);
+				watched.put(model, listener);
+			}
+		}
+	}
+
+	/**
+	 * Remove all the queries from the cache.
+	 */
+	public void clear() {
+		synchronized (plans) {
+			generation.incrementAndGet();
+			if (!plans.isEmpty()) {
+				if (LOG.isDebugEnabled()) {
+					PlanCache.LOG.debug("Clearing {} plans", plans.size());
+				}
+				plans.clear();
+			}
+		}
+	}
+
+	/**
+	 * Clear the cache and stop watching the models.
+	 */
+	public void close() {
+		clear();
+		synchronized (watched) {
+			for (final Map.Entry<Model, ModelChangedListener> entry : watched
+					.entrySet()) {
+				entry.getKey().unregister(entry.getValue());
+			}
+			watched.clear();
+		}
+	}
+
+	/**
+	 * Get the number of lookups that found a query.
+	 *
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of lookups that did not find a query.
+	 *
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Get the number of queries removed to make room for others.
+	 *
+	 * @return the eviction count.
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Get the maximum number of queries in the cache.
+	 *
+	 * @return the maximum size, 0 if the cache is disabled.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Get the number of queries in the cache.
+	 *
+	 * @return the number of cached queries.
+	 */
+	public int size() {
+		synchronized (plans) {
+			return plans.size();
+		}
+	}
+}
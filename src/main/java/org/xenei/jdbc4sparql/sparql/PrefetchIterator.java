@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * An iterator that decodes query solutions into rows on a worker task.
+ *
+ * The worker drains the solutions into a bounded buffer while the caller
+ * consumes earlier rows. When the buffer is full the worker waits for the
+ * caller to catch up. An exception thrown by the solutions is passed to the
+ * caller after the rows read before it. Closing the iterator stops the worker
+ * and discards the buffered rows.
+ */
+class PrefetchIterator extends NiceIterator<Node[]> {
+	private static final Logger LOG = LoggerFactory
+			.getLogger(PrefetchIterator.class);
+
+	// how long the worker waits for space before checking for close.
+	private static final long OFFER_WAIT_MS = 100;
+
+	/**
+	 * Marks the end of the rows.
+	 */
+	private static final Object END = new Object();
+
+	/**
+	 * Carries an exception from the worker to the caller.
+	 */
+	private static class Failure {
+		final Throwable cause;
+
+		Failure(final Throwable cause) {
+			this.cause = cause;
+		}
+	}
+
+	private final SolutionDecoder decoder;
+	private final ClosableIterator<QuerySolution> solutions;
+	private final BlockingQueue<Object> buffer;
+	private final Future<?> worker;
+	// set by whichever of the worker and close() runs first.
+	private final AtomicBoolean started;
+	private final CountDownLatch stopped;
+	private volatile boolean closed;
+	private Object nextItem;
+	private boolean finished;
+
+	/**
+	 * Constructor. Submits the worker to the executor.
+	 *
+	 * @param decoder
+	 *            The decoder for the solutions.
+	 * @param solutions
+	 *            The solutions to decode. Closed by the worker when it
+	 *            finishes.
+	 * @param capacity
+	 *            The maximum number of rows to buffer.
+	 * @param executor
+	 *            The executor that runs the worker.
+	 * @throws RejectedExecutionException
+	 *             if the executor does not accept the worker. The solutions
+	 *             are closed.
+	 */
+	PrefetchIterator(final SolutionDecoder decoder,
+			final ClosableIterator<QuerySolution> solutions,
+			final int capacity, final ExecutorService executor) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		}
+		this.decoder = decoder;
+		this.solutions = solutions;
+		this.buffer = new ArrayBlockingQueue<Object>(capacity);
+		this.closed = false;
+		this.nextItem = null;
+		this.finished = false;
+		this.started = new AtomicBoolean(false);
+		this.stopped = new CountDownLatch(1);
+		try {
+			this.worker = executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					if (started.compareAndSet(false, true)) {
+						produce();
+					}
+				}
+			});
+		} catch (final RejectedExecutionException e) {
+			solutions.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * The worker loop.
+	 */
+	private void produce() {
+		final int columnCount = decoder.getColumnCount();
+		try {
+			while (!closed && solutions.hasNext()) {
+				final QuerySolution soln = solutions.next();
+				final Node[] row = new Node[columnCount];
+				for (int i = 0; i < columnCount; i++) {
+					row[i] = decoder.getNode(soln, i + 1);
+				}
+				if (!put(row)) {
+					return;
+				}
+			}
+			put(END);
+		} catch (final InterruptedException e) {
+			// closed while waiting.
+		} catch (final Throwable e) {
+			if (LOG.isDebugEnabled()) {
+				PrefetchIterator.LOG.debug("Prefetch failed", e);
+			}
+			try {
+				put(new Failure(e));
+			} catch (final InterruptedException e1) {
+				// closed while waiting.
+			}
+		} finally {
+			solutions.close();
+			stopped.countDown();
+		}
+	}
+
+	/**
+	 * Put an item in the buffer waiting for space.
+	 *
+	 * @return false if the iterator was closed before there was space.
+	 */
+	private boolean put(final Object item) throws InterruptedException {
+		while (!closed) {
+			if (buffer.offer(item, OFFER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (nextItem != null) {
+			return true;
+		}
+		if (finished || closed) {
+			return false;
+		}
+		Object item;
+		try {
+			item = buffer.take();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			close();
+			throw new IllegalStateException("Interrupted waiting for rows", e);
+		}
+		if (item == END) {
+			finished = true;
+			return false;
+		}
+		if (item instanceof Failure) {
+			finished = true;
+			final Throwable cause = ((Failure) item).cause;
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause.getMessage(), cause);
+		}
+		nextItem = item;
+		return true;
+	}
+
+	@Override
+	public Node[] next() {
+		if (!hasNext()) {
+			return noElements("No more rows");
+		}
+		final Node[] retval = (Node[]) nextItem;
+		nextItem = null;
+		return retval;
+	}
+
+	/**
+	 * Stop the worker and release the buffered rows. The solutions are closed
+	 * by the worker once it stops.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			nextItem = null;
+			if (started.compareAndSet(false, true)) {
+				// the worker never ran.
+				solutions.close();
+				stopped.countDown();
+			}
+			else {
+				worker.cancel(true);
+			}
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * Check if the worker is still running. For testing.
+	 *
+	 * @return true if the worker has not finished.
+	 */
+	boolean isRunning() {
+		return stopped.getCount() > 0;
+	}
+}
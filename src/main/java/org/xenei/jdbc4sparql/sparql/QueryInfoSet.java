@@ -45,6 +45,9 @@ public class QueryInfoSet {
 
 	private boolean guidFlg;
 
+	// write the type filters with standard SPARQL functions.
+	private boolean nativeTypeFilters;
+
 	public QueryInfoSet() {
 		this.tablesInQuery = new QueryItemCollection<QueryTableInfo, Table, TableName>();
 		this.columnsInQuery = new QueryItemCollection<QueryColumnInfo, Column, ColumnName>();
@@ -78,6 +81,14 @@ public class QueryInfoSet {
 		return guidFlg;
 	}
 
+	public void setNativeTypeFilters(final boolean state) {
+		this.nativeTypeFilters = state;
+	}
+
+	public boolean useNativeTypeFilters() {
+		return nativeTypeFilters;
+	}
+
 	public void addDefinedColumns(final List<String> columnsInUsing)
 			throws SQLDataException {
 		if (tablesInQuery.isEmpty()) {
@@ -0,0 +1,552 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xenei.jdbc4sparql.iface.Catalog;
+import org.xenei.jdbc4sparql.impl.rdf.RdfCatalog;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.sparql.core.ResultBinding;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * A cache of the results of executed queries for a connection.
+ *
+ * The cache maps the catalog and the text of the built SPARQL query to the
+ * rows that the query returned. Rows are held as arrays of nodes, not as
+ * query solutions, and the cache is bounded by the estimated number of bytes
+ * of rows it holds. When the bound is reached the least recently used results
+ * are removed. Results that are larger than the bound are not cached.
+ *
+ * Results from a local catalog are removed when the local model of the
+ * catalog changes and, if a time to live is set, when they expire. The
+ * changes made by a SERVICE endpoint can not be seen so results from a
+ * SERVICE catalog are only cached when a time to live is set.
+ *
+ * Results are only cached once all the rows of the query have been read.
+ */
+public class ResultCache {
+
+	/**
+	 * The key for the results of a query.
+	 */
+	private static class Key {
+		private final String catalog;
+		private final String query;
+
+		Key(final String catalog, final String query) {
+			this.catalog = catalog;
+			this.query = query;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (o instanceof Key) {
+				final Key k = (Key) o;
+				return catalog.equals(k.catalog) && query.equals(k.query);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * catalog.hashCode()) + query.hashCode();
+		}
+	}
+
+	/**
+	 * The cached results of a query.
+	 */
+	private static class Entry {
+		private final Var[] vars;
+		private final Node[][] rows;
+		private final long size;
+		// 0 if the results do not expire.
+		private final long expires;
+
+		Entry(final Var[] vars, final Node[][] rows, final long size,
+				final long expires) {
+			this.vars = vars;
+			this.rows = rows;
+			this.size = size;
+			this.expires = expires;
+		}
+
+		private boolean isExpired(final long now) {
+			return (expires > 0) && (now >= expires);
+		}
+	}
+
+	/**
+	 * Removes the results for the catalogs when the model changes.
+	 */
+	private class Invalidator extends StatementListener {
+		private final Set<String> catalogs = new HashSet<String>();
+
+		@Override
+		public void addedStatement(final Statement s) {
+			invalidate();
+		}
+
+		@Override
+		public void removedStatement(final Statement s) {
+			invalidate();
+		}
+
+		private void invalidate() {
+			synchronized (watched) {
+				for (final String catalog : catalogs) {
+					ResultCache.this.invalidate(catalog);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached rows as query solutions.
+	 */
+	private static class ReplayIterator extends NiceIterator<QuerySolution> {
+		private final Entry entry;
+		private int position;
+
+		ReplayIterator(final Entry entry) {
+			this.entry = entry;
+			this.position = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < entry.rows.length;
+		}
+
+		@Override
+		public QuerySolution next() {
+			if (!hasNext()) {
+				return noElements("No more solutions");
+			}
+			final Node[] row = entry.rows[position++];
+			final BindingMap binding = BindingFactory.create();
+			for (int i = 0; i < entry.vars.length; i++) {
+				if (row[i] != null) {
+					binding.add(entry.vars[i], row[i]);
+				}
+			}
+			return new ResultBinding(null, binding);
+		}
+	}
+
+	/**
+	 * Records the rows as the solutions are read and adds them to the cache
+	 * when the last solution has been read.
+	 */
+	private class RecordingIterator extends NiceIterator<QuerySolution> {
+		private final Key key;
+		private final ClosableIterator<QuerySolution> solutions;
+		private final Var[] vars;
+		private final long generation;
+		private List<Node[]> rows;
+		private long size;
+
+		RecordingIterator(final Key key, final Query query,
+				final ClosableIterator<QuerySolution> solutions,
+				final long generation) {
+			this.key = key;
+			this.solutions = solutions;
+			this.vars = Var.varList(query.getResultVars()).toArray(
+					new Var[0]);
+			this.generation = generation;
+			this.rows = new ArrayList<Node[]>();
+			this.size = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			final boolean retval = solutions.hasNext();
+			if (!retval && (rows != null)) {
+				put(key, new Entry(vars, rows.toArray(new Node[rows.size()][]),
+						size, timeToLive > 0 ? System.currentTimeMillis()
+								+ timeToLive : 0), generation);
+				rows = null;
+			}
+			return retval;
+		}
+
+		@Override
+		public QuerySolution next() {
+			final QuerySolution soln = solutions.next();
+			if (rows != null) {
+				final Node[] row = new Node[vars.length];
+				for (int i = 0; i < vars.length; i++) {
+					row[i] = ResultCache.getNode(soln, vars[i]);
+				}
+				size += SpillingSolutionList.estimateSize(row);
+				if (size > maxBytes) {
+					// too large to cache.
+					rows = null;
+				}
+				else {
+					rows.add(row);
+				}
+			}
+			return soln;
+		}
+
+		@Override
+		public void close() {
+			// the results are incomplete.
+			rows = null;
+			solutions.close();
+		}
+	}
+
+	private static final Logger LOG = LoggerFactory
+			.getLogger(ResultCache.class);
+
+	private static Node getNode(final QuerySolution soln, final Var var) {
+		if (soln instanceof ResultBinding) {
+			return ((ResultBinding) soln).getBinding().get(var);
+		}
+		final RDFNode node = soln.get(var.getVarName());
+		return node == null ? null : node.asNode();
+	}
+
+	private final long maxBytes;
+	private final long timeToLive;
+	private final Map<Key, Entry> results;
+	private long totalSize;
+	private final Map<Model, Invalidator> watched;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong evictions;
+	private final AtomicLong invalidations;
+	// incremented each time results are invalidated.
+	private final AtomicLong generation;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxBytes
+	 *            The maximum number of bytes of rows to cache. 0 disables the
+	 *            cache.
+	 * @param timeToLive
+	 *            The number of milliseconds results are kept. 0 keeps local
+	 *            results until the model changes and does not cache SERVICE
+	 *            results.
+	 */
+	public ResultCache(final long maxBytes, final long timeToLive) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException(
+					"maxBytes may not be less than zero");
+		}
+		if (timeToLive < 0) {
+			throw new IllegalArgumentException(
+					"timeToLive may not be less than zero");
+		}
+		this.maxBytes = maxBytes;
+		this.timeToLive = timeToLive;
+		this.results = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		this.totalSize = 0;
+		this.watched = new IdentityHashMap<Model, Invalidator>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+		this.evictions = new AtomicLong();
+		this.invalidations = new AtomicLong();
+		this.generation = new AtomicLong();
+	}
+
+	/**
+	 * Determine if the results of queries against the catalog may be cached.
+	 *
+	 * @param catalog
+	 *            The catalog the query is executed against.
+	 * @return true if the results may be cached.
+	 */
+	public boolean isCacheable(final Catalog catalog) {
+		return (maxBytes > 0) && (catalog instanceof RdfCatalog)
+				&& (!catalog.isService() || (timeToLive > 0));
+	}
+
+	/**
+	 * Get the cached results of the query. For local catalogs the local model
+	 * is watched so that the results are removed when it changes.
+	 *
+	 * @param catalog
+	 *            The catalog the query is executed against.
+	 * @param query
+	 *            The built query.
+	 * @return the solutions or null if they are not in the cache.
+	 */
+	public ClosableIterator<QuerySolution> get(final Catalog catalog,
+			final Query query) {
+		if (!isCacheable(catalog)) {
+			return null;
+		}
+		if (!catalog.isService()) {
+			watch(catalog.getShortName(),
+					((RdfCatalog) catalog).getLocalModel());
+		}
+		final Key key = new Key(catalog.getShortName(), query.toString());
+		Entry entry;
+		synchronized (results) {
+			entry = results.get(key);
+			if ((entry != null) && entry.isExpired(System.currentTimeMillis())) {
+				remove(key);
+				evictions.incrementAndGet();
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		if (LOG.isDebugEnabled()) {
+			ResultCache.LOG.debug("using {} cached rows", entry.rows.length);
+		}
+		return new ReplayIterator(entry);
+	}
+
+	/**
+	 * Get the generation of the cache. The generation changes each time
+	 * results are invalidated.
+	 *
+	 * @return the current generation.
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Record the solutions of the query as they are read. The rows are added
+	 * to the cache when the last solution has been read. The rows are not
+	 * added if results have been invalidated since the generation was read
+	 * as the solutions may have been read from an old model.
+	 *
+	 * @param catalog
+	 *            The catalog the query is executed against.
+	 * @param query
+	 *            The built query.
+	 * @param solutions
+	 *            The solutions of the query.
+	 * @param generation
+	 *            The generation read before the query was executed.
+	 * @return the solutions to read.
+	 */
+	public ClosableIterator<QuerySolution> record(final Catalog catalog,
+			final Query query, final ClosableIterator<QuerySolution> solutions,
+			final long generation) {
+		if (!isCacheable(catalog)) {
+			return solutions;
+		}
+		return new RecordingIterator(new Key(catalog.getShortName(),
+				query.toString()), query, solutions, generation);
+	}
+
+	private void put(final Key key, final Entry entry, final long generation) {
+		synchronized (results) {
+			if (this.generation.get() != generation) {
+				return;
+			}
+			remove(key);
+			results.put(key, entry);
+			totalSize += entry.size;
+			final Iterator<Entry> iter = results.values().iterator();
+			while (totalSize > maxBytes) {
+				totalSize -= iter.next().size;
+				iter.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private void remove(final Key key) {
+		final Entry old = results.remove(key);
+		if (old != null) {
+			totalSize -= old.size;
+		}
+	}
+
+	private void watch(final String catalog, final Model model) {
+		if (model == null) {
+			return;
+		}
+		synchronized (watched) {
+			Invalidator invalidator = watched.get(model);
+			if (invalidator == null) {
+				invalidator = new Invalidator();
+				model.register(invalidator);
+				watched.put(model, invalidator);
+			}
+			invalidator.catalogs.add(catalog);
+		}
+	}
+
+	/**
+	 * Remove the results of all queries against the catalog.
+	 *
+	 * @param catalog
+	 *            The short name of the catalog.
+	 */
+	public void invalidate(final String catalog) {
+		synchronized (results) {
+			generation.incrementAndGet();
+			final Iterator<Map.Entry<Key, Entry>> iter = results.entrySet()
+					.iterator();
+			int count = 0;
+			while (iter.hasNext()) {
+				final Map.Entry<Key, Entry> entry = iter.next();
+				if (entry.getKey().catalog.equals(catalog)) {
+					totalSize -= entry.getValue().size;
+					iter.remove();
+					count++;
+				}
+			}
+			if (count > 0) {
+				invalidations.addAndGet(count);
+				if (LOG.isDebugEnabled()) {
+					ResultCache.LOG.debug("Invalidated {} results for {}",
+							count, catalog);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all the results from the cache.
+	 */
+	public void clear() {
+		synchronized (results) {
+			generation.incrementAndGet();
+			results.clear();
+			totalSize = 0;
+		}
+	}
+
+	/**
+	 * Clear the cache and stop watching the models.
+	 */
+	public void close() {
+		clear();
+		synchronized (watched) {
+			for (final Map.Entry<Model, Invalidator> entry : watched
+					.entrySet()) {
+				entry.getKey().unregister(entry.getValue());
+			}
+			watched.clear();
+		}
+	}
+
+	/**
+	 * Get the number of lookups that found results.
+	 *
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of lookups that did not find results.
+	 *
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Get the number of results removed to make room for others or because
+	 * they expired.
+	 *
+	 * @return the eviction count.
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Get the number of results removed because the model changed.
+	 *
+	 * @return the invalidation count.
+	 */
+	public long getInvalidationCount() {
+		return invalidations.get();
+	}
+
+	/**
+	 * Get the maximum number of bytes of rows in the cache.
+	 *
+	 * @return the maximum size, 0 if the cache is disabled.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Get the number of milliseconds results are kept.
+	 *
+	 * @return the time to live, 0 if results do not expire.
+	 */
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Get the estimated number of bytes of rows in the cache.
+	 *
+	 * @return the size of the cached rows.
+	 */
+	public long getByteSize() {
+		synchronized (results) {
+			return totalSize;
+		}
+	}
+
+	/**
+	 * Get the number of results in the cache.
+	 *
+	 * @return the number of cached results.
+	 */
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+}
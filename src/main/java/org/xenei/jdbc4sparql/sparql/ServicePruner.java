@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.SortCondition;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.core.VarExprList;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprAggregator;
+import com.hp.hpl.jena.sparql.syntax.Element;
+import com.hp.hpl.jena.sparql.syntax.ElementAssign;
+import com.hp.hpl.jena.sparql.syntax.ElementBind;
+import com.hp.hpl.jena.sparql.syntax.ElementFilter;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.syntax.ElementOptional;
+import com.hp.hpl.jena.sparql.syntax.ElementVisitorBase;
+import com.hp.hpl.jena.sparql.syntax.ElementWalker;
+import com.hp.hpl.jena.sparql.syntax.PatternVars;
+
+/**
+ * Finds the variables used by the parts of a query and removes the parts of
+ * a service call that are not used.
+ *
+ * An OPTIONAL pattern may be removed when none of the variables it binds are
+ * used. Columns are single valued so removing the pattern does not change the
+ * number of rows.
+ */
+final class ServicePruner {
+
+	/**
+	 * Collects the variables in filter and bind expressions. Sub queries are
+	 * not entered.
+	 */
+	private static class ExprVarCollector extends ElementVisitorBase {
+		private final Set<Var> vars;
+
+		ExprVarCollector(final Set<Var> vars) {
+			this.vars = vars;
+		}
+
+		@Override
+		public void visit(final ElementAssign el) {
+			vars.addAll(el.getExpr().getVarsMentioned());
+		}
+
+		@Override
+		public void visit(final ElementBind el) {
+			vars.addAll(el.getExpr().getVarsMentioned());
+		}
+
+		@Override
+		public void visit(final ElementFilter el) {
+			vars.addAll(el.getExpr().getVarsMentioned());
+		}
+	}
+
+	/**
+	 * Don't instantiate.
+	 */
+	private ServicePruner() {
+	}
+
+	/**
+	 * Add the variables used by the expressions in the element to the set.
+	 *
+	 * @param vars
+	 *            The set to add the variables to.
+	 * @param element
+	 *            The element to scan.
+	 * @return the vars set.
+	 */
+	static Set<Var> addExprVars(final Set<Var> vars, final Element element) {
+		ElementWalker.walk(element, new ExprVarCollector(vars));
+		return vars;
+	}
+
+	/**
+	 * Add the variables used by the expressions in the list to the set.
+	 *
+	 * @param vars
+	 *            The set to add the variables to.
+	 * @param exprList
+	 *            The expressions to scan.
+	 * @return the vars set.
+	 */
+	static Set<Var> addExprVars(final Set<Var> vars,
+			final VarExprList exprList) {
+		for (final Var v : exprList.getVars()) {
+			final Expr expr = exprList.getExpr(v);
+			if (expr == null) {
+				vars.add(v);
+			}
+			else {
+				vars.addAll(expr.getVarsMentioned());
+			}
+		}
+		return vars;
+	}
+
+	/**
+	 * Get the variables used by the query other than in its triple patterns.
+	 * This includes the filters, binds, projection, aggregates, order by, group
+	 * by and having clauses.
+	 *
+	 * @param query
+	 *            The query to scan.
+	 * @return the set of variables.
+	 */
+	static Set<Var> getUsedVars(final Query query) {
+		final Set<Var> vars = new HashSet<Var>();
+		if (query.getQueryPattern() != null) {
+			addExprVars(vars, query.getQueryPattern());
+		}
+		addExprVars(vars, query.getProject());
+		// the projection only mentions the aggregate variable.
+		for (final ExprAggregator agg : query.getAggregators()) {
+			if (agg.getAggregator().getExpr() != null) {
+				vars.addAll(agg.getAggregator().getExpr().getVarsMentioned());
+			}
+		}
+		if (query.hasGroupBy()) {
+			addExprVars(vars, query.getGroupBy());
+		}
+		if (query.hasHaving()) {
+			for (final Expr expr : query.getHavingExprs()) {
+				vars.addAll(expr.getVarsMentioned());
+			}
+		}
+		if (query.hasOrderBy()) {
+			for (final SortCondition sc : query.getOrderBy()) {
+				vars.addAll(sc.getExpression().getVarsMentioned());
+			}
+		}
+		return vars;
+	}
+
+	/**
+	 * Remove the OPTIONAL patterns that do not bind any of the used variables.
+	 *
+	 * Only OPTIONAL patterns in the group or its nested groups are removed.
+	 * Patterns that bind a variable that another OPTIONAL pattern also binds
+	 * are kept as they restrict each other.
+	 *
+	 * @param group
+	 *            The group to prune.
+	 * @param used
+	 *            The variables that are used.
+	 * @return the number of patterns removed.
+	 */
+	static int removeUnusedOptionals(final ElementGroup group,
+			final Collection<Var> used) {
+		final Set<Var> required = new HashSet<Var>();
+		final List<ElementGroup> parents = new ArrayList<ElementGroup>();
+		final List<ElementOptional> optionals = new ArrayList<ElementOptional>();
+		scan(group, required, parents, optionals);
+
+		// the variables that only the optional binds.
+		final List<Set<Var>> bound = new ArrayList<Set<Var>>();
+		for (final ElementOptional optional : optionals) {
+			final Set<Var> vars = new HashSet<Var>(
+					PatternVars.vars(optional.getOptionalElement()));
+			vars.removeAll(required);
+			bound.add(vars);
+		}
+
+		final List<Integer> remove = new ArrayList<Integer>();
+		for (int i = 0; i < optionals.size(); i++) {
+			final Set<Var> vars = bound.get(i);
+			boolean unused = !containsAny(vars, used);
+			for (int j = 0; unused && (j < optionals.size()); j++) {
+				if (j != i) {
+					unused = !containsAny(vars, bound.get(j));
+				}
+			}
+			if (unused) {
+				remove.add(i);
+			}
+		}
+		for (final Integer i : remove) {
+			// elements compare by structure so remove by identity.
+			final Iterator<Element> iter = parents.get(i).getElements()
+					.iterator();
+			while (iter.hasNext()) {
+				if (iter.next() == optionals.get(i)) {
+					iter.remove();
+				}
+			}
+		}
+		return remove.size();
+	}
+
+	private static boolean containsAny(final Set<Var> vars,
+			final Collection<Var> other) {
+		for (final Var v : other) {
+			if (vars.contains(v)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void scan(final ElementGroup group, final Set<Var> required,
+			final List<ElementGroup> parents,
+			final List<ElementOptional> optionals) {
+		for (final Element element : group.getElements()) {
+			if (element instanceof ElementOptional) {
+				parents.add(group);
+				optionals.add((ElementOptional) element);
+			}
+			else if (element instanceof ElementGroup) {
+				scan((ElementGroup) element, required, parents, optionals);
+			}
+			else {
+				PatternVars.vars(required, element);
+			}
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.sql.Types;
+import java.util.List;
+
+import org.xenei.jdbc4sparql.iface.Column;
+import org.xenei.jdbc4sparql.iface.ColumnDef;
+import org.xenei.jdbc4sparql.iface.Table;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.sparql.core.ResultBinding;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+
+/**
+ * The plan for decoding the columns of a query solution.
+ *
+ * The plan is built once when the result set is opened. Each column is
+ * resolved to its query variable and expected SQL type so that reading a
+ * cell is an array lookup followed by a direct read from the solution
+ * binding.
+ */
+class SolutionDecoder {
+	private final Var[] vars;
+	private final String[] names;
+	private final int[] sqlTypes;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param query
+	 *            The query that produces the solutions.
+	 * @param table
+	 *            The table that describes the result columns.
+	 */
+	SolutionDecoder(final Query query, final Table table) {
+		final List<Var> projectVars = query.getProjectVars();
+		final int size = projectVars.size();
+		vars = projectVars.toArray(new Var[size]);
+		names = new String[size];
+		sqlTypes = new int[size];
+		final List<Column> columns = table.getColumnList();
+		for (int i = 0; i < size; i++) {
+			names[i] = vars[i].getName();
+			ColumnDef colDef = null;
+			if (i < columns.size()) {
+				colDef = columns.get(i).getColumnDef();
+			}
+			sqlTypes[i] = colDef == null ? Types.OTHER : colDef.getType();
+		}
+	}
+
+	/**
+	 * Get the number of columns in the plan.
+	 *
+	 * @return the column count.
+	 */
+	int getColumnCount() {
+		return vars.length;
+	}
+
+	/**
+	 * Get the expected SQL type of the column.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the java.sql.Types value for the column.
+	 */
+	int getSqlType(final int columnOrdinal) {
+		return sqlTypes[columnOrdinal - 1];
+	}
+
+	/**
+	 * Get the variable for the column.
+	 *
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the variable.
+	 */
+	Var getVar(final int columnOrdinal) {
+		return vars[columnOrdinal - 1];
+	}
+
+	/**
+	 * Get the node bound to the column in the solution.
+	 *
+	 * @param soln
+	 *            The solution to read.
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the node or null if the column is not bound.
+	 */
+	Node getNode(final QuerySolution soln, final int columnOrdinal) {
+		if (soln instanceof ResultBinding) {
+			final Binding binding = ((ResultBinding) soln).getBinding();
+			return binding.get(vars[columnOrdinal - 1]);
+		}
+		final RDFNode node = soln.get(names[columnOrdinal - 1]);
+		return node == null ? null : node.asNode();
+	}
+
+	/**
+	 * Read the java value of the column from the solution.
+	 *
+	 * @param soln
+	 *            The solution to read.
+	 * @param columnOrdinal
+	 *            The 1 based column ordinal.
+	 * @return the java value or null if the column is not bound.
+	 */
+	Object decode(final QuerySolution soln, final int columnOrdinal) {
+		return SolutionDecoder.decode(getNode(soln, columnOrdinal));
+	}
+
+	/**
+	 * Get the parsed value of a typed literal.
+	 *
+	 * The value is parsed once when the node is created so this does not
+	 * create any objects.
+	 *
+	 * @param node
+	 *            the node to read, may be null.
+	 * @return the value or null if the node is not a typed literal.
+	 */
+	static Object getLiteralValue(final Node node) {
+		if ((node == null) || !node.isLiteral()
+				|| (node.getLiteralDatatype() == null)) {
+			return null;
+		}
+		return node.getLiteralValue();
+	}
+
+	/**
+	 * Convert a node into the java object returned to the caller.
+	 *
+	 * Typed literals are returned as their parsed value, plain literals as
+	 * their lexical form (with language tag if any) and all other nodes as
+	 * their string representation.
+	 *
+	 * @param node
+	 *            the node to convert, may be null.
+	 * @return the java value for the node.
+	 */
+	static Object decode(final Node node) {
+		if (node == null) {
+			return null;
+		}
+		if (node.isLiteral()) {
+			if (node.getLiteralDatatype() == null) {
+				final String lang = node.getLiteralLanguage();
+				if ((lang == null) || lang.isEmpty()) {
+					return node.getLiteralLexicalForm();
+				}
+				return node.getLiteralLexicalForm() + "@" + lang;
+			}
+			// the literal value is parsed once when the node is created.
+			return node.getLiteralValue();
+		}
+		return node.toString();
+	}
+}
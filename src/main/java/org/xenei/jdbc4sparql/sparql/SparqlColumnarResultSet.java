@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.sql.SQLException;
+
+import org.xenei.jdbc4sparql.iface.Table;
+import org.xenei.jdbc4sparql.impl.IteratorResultSet;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryCancelledException;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * A forward only result set that decodes the solutions in blocks into a
+ * ColumnarBatch.
+ *
+ * The query solutions are released as soon as each block is decoded so only
+ * the column vectors for the current block are retained.
+ */
+public class SparqlColumnarResultSet extends IteratorResultSet {
+
+	/**
+	 * Iterator that returns the batch positioned on each row in turn. The
+	 * batch is refilled from the solutions when the current block is
+	 * exhausted.
+	 */
+	private static class BatchIterator extends NiceIterator<ColumnarBatch> {
+		private final ColumnarBatch batch;
+		private final ClosableIterator<QuerySolution> solutions;
+		private boolean positioned;
+
+		BatchIterator(final ColumnarBatch batch,
+				final ClosableIterator<QuerySolution> solutions) {
+			this.batch = batch;
+			this.solutions = solutions;
+			this.positioned = false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (!positioned) {
+				positioned = batch.advance();
+				if (!positioned && (batch.fill(solutions) > 0)) {
+					positioned = batch.advance();
+				}
+			}
+			return positioned;
+		}
+
+		@Override
+		public ColumnarBatch next() {
+			if (!hasNext()) {
+				return noElements("No more rows");
+			}
+			positioned = false;
+			return batch;
+		}
+
+		@Override
+		public void close() {
+			solutions.close();
+		}
+	}
+
+	private BatchIterator batches;
+
+	/**
+	 * Create a result set over solutions produced for the query.
+	 *
+	 * @param table
+	 *            The table the result set is for.
+	 * @param query
+	 *            The query that defines the result columns.
+	 * @param solutions
+	 *            The solutions. Closed when the result set is closed.
+	 * @param batchSize
+	 *            The number of rows to decode in each block.
+	 * @throws SQLException
+	 */
+	public SparqlColumnarResultSet(final Table table, final Query query,
+			final ClosableIterator<QuerySolution> solutions,
+			final int batchSize) throws SQLException {
+		this(table, new BatchIterator(new ColumnarBatch(new SolutionDecoder(
+				query, table), batchSize), solutions));
+	}
+
+	private SparqlColumnarResultSet(final Table table,
+			final BatchIterator batches) throws SQLException {
+		super(batches, table);
+		this.batches = batches;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (batches != null) {
+			batches.close();
+			batches = null;
+		}
+		super.close();
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+		if (isClosed()) {
+			throw new SQLException("Result set is closed");
+		}
+		try {
+			return super.next();
+		} catch (final QueryCancelledException e) {
+			// release the query and the current batch.
+			close();
+			throw new SQLException("Query was cancelled or timed out", e);
+		}
+	}
+
+	private ColumnarBatch readBatch(final int columnOrdinal)
+			throws SQLException {
+		checkColumn(columnOrdinal);
+		return (ColumnarBatch) getRowObject();
+	}
+
+	@Override
+	protected boolean readBoolean(final int columnOrdinal) throws SQLException {
+		final ColumnarBatch batch = readBatch(columnOrdinal);
+		if (batch.isNull(columnOrdinal)) {
+			setWasNull(true);
+			return false;
+		}
+		if (batch.isPrimitive(columnOrdinal)) {
+			setWasNull(false);
+			return batch.getBoolean(columnOrdinal);
+		}
+		return super.readBoolean(columnOrdinal);
+	}
+
+	@Override
+	protected double readDouble(final int columnOrdinal) throws SQLException {
+		final ColumnarBatch batch = readBatch(columnOrdinal);
+		if (batch.isNull(columnOrdinal)) {
+			setWasNull(true);
+			return 0;
+		}
+		if (batch.isPrimitive(columnOrdinal)) {
+			setWasNull(false);
+			return batch.getDouble(columnOrdinal);
+		}
+		return super.readDouble(columnOrdinal);
+	}
+
+	@Override
+	protected long readLong(final int columnOrdinal) throws SQLException {
+		final ColumnarBatch batch = readBatch(columnOrdinal);
+		if (batch.isNull(columnOrdinal)) {
+			setWasNull(true);
+			return 0;
+		}
+		if (batch.isPrimitive(columnOrdinal)) {
+			setWasNull(false);
+			return batch.getLong(columnOrdinal);
+		}
+		return super.readLong(columnOrdinal);
+	}
+
+	@Override
+	protected Object readObject(final int columnOrdinal) throws SQLException {
+		return readBatch(columnOrdinal).getObject(columnOrdinal);
+	}
+}
@@ -23,9 +23,15 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,10 +40,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xenei.jdbc4sparql.iface.Catalog;
 import org.xenei.jdbc4sparql.iface.Column;
+import org.xenei.jdbc4sparql.iface.ColumnDef;
 import org.xenei.jdbc4sparql.iface.Key;
 import org.xenei.jdbc4sparql.iface.KeySegment;
 import org.xenei.jdbc4sparql.iface.Schema;
 import org.xenei.jdbc4sparql.iface.Table;
+import org.xenei.jdbc4sparql.iface.TypeConverter;
 import org.xenei.jdbc4sparql.iface.name.ColumnName;
 import org.xenei.jdbc4sparql.iface.name.ItemName;
 import org.xenei.jdbc4sparql.iface.name.NameSegments;
@@ -53,24 +61,35 @@ import org.xenei.jdbc4sparql.sparql.items.QueryTableInfo;
 import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
 import org.xenei.jdbc4sparql.sparql.parser.jsqlparser.functions.FunctionColumn;
 
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.SortCondition;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.core.VarExprList;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
 import com.hp.hpl.jena.sparql.expr.E_Equals;
 import com.hp.hpl.jena.sparql.expr.E_Function;
 import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
 import com.hp.hpl.jena.sparql.expr.Expr;
 import com.hp.hpl.jena.sparql.expr.ExprAggregator;
+import com.hp.hpl.jena.sparql.expr.ExprEvalException;
+import com.hp.hpl.jena.sparql.expr.ExprFunction;
 import com.hp.hpl.jena.sparql.expr.ExprVar;
 import com.hp.hpl.jena.sparql.expr.NodeValue;
 import com.hp.hpl.jena.sparql.expr.aggregate.Aggregator;
 import com.hp.hpl.jena.sparql.syntax.Element;
 import com.hp.hpl.jena.sparql.syntax.ElementBind;
+import com.hp.hpl.jena.sparql.syntax.ElementData;
 import com.hp.hpl.jena.sparql.syntax.ElementFilter;
 import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
 import com.hp.hpl.jena.sparql.syntax.ElementService;
 import com.hp.hpl.jena.sparql.syntax.ElementSubQuery;
+import com.hp.hpl.jena.sparql.syntax.ElementTriplesBlock;
 import com.hp.hpl.jena.sparql.syntax.ElementUnion;
+import com.hp.hpl.jena.sparql.syntax.PatternVars;
 import com.hp.hpl.jena.util.iterator.Filter;
 
 /**
@@ -101,6 +120,12 @@ public class SparqlQueryBuilder {
 
 	static final String NOT_FOUND_IN_ANY_ = "%s was not found in any %s";
 	public static final String NOT_FOUND_IN_ = "%s was not found in %s";
+	// the prefix for the JDBC parameter variables.
+	static final String PARAMETER_PREFIX = "_param";
+	// the column types whose values can be written as VALUES terms.
+	private static final Set<Class<?>> VALUES_TYPES = new HashSet<Class<?>>(
+			Arrays.<Class<?>> asList(String.class, Byte.class, Short.class,
+					Integer.class, Long.class));
 	public static final boolean OPTIONAL = true;
 	public static final boolean REQUIRED = false;
 
@@ -116,6 +141,14 @@ public class SparqlQueryBuilder {
 	// query was built flag;
 	private boolean isBuilt;
 
+	// the query sent to the SERVICE endpoint. Only set once a service query
+	// is built.
+	private Query serviceQuery;
+
+	// the estimated number of rows for the tables with statistics. Only set
+	// once the query is built.
+	private final Map<QueryTableInfo, Long> estimates;
+
 	// sparql catalog we are running against.
 	private final Catalog catalog;
 
@@ -130,6 +163,16 @@ public class SparqlQueryBuilder {
 	// tables are added to the query later. But I don't think so.
 	private final List<String> columnsInUsing;
 
+	// the JDBC parameters in the order they are numbered and the objects
+	// that identify them.
+	private final List<Var> parameters;
+	private final List<Object> parameterKeys;
+
+	// the IN lists that the where clause requires and the number of items a
+	// list must have to be added as a VALUES block.
+	private final Map<QueryColumnInfo, List<Expr>> inLists;
+	private int inValuesThreshold;
+
 	// columns indexed by var.
 	// private final List<Column> columnsInResult;
 
@@ -170,10 +213,43 @@ public class SparqlQueryBuilder {
 		this.isBuilt = false;
 		this.infoSet = new QueryInfoSet();
 		this.columnsInUsing = new ArrayList<String>();
+		this.parameters = new ArrayList<Var>();
+		this.parameterKeys = new ArrayList<Object>();
+		this.estimates = new IdentityHashMap<QueryTableInfo, Long>();
+		this.inLists = new LinkedHashMap<QueryColumnInfo, List<Expr>>();
+		this.inValuesThreshold = 0;
 		this.infoSet.setUseGUID(catalog.isService());
 		query.setQuerySelectType();
 	}
 
+	/**
+	 * Create a built query builder that executes the query of the template.
+	 *
+	 * @param template
+	 *            The built builder to copy.
+	 * @param query
+	 *            The query to execute, a modified clone of the template query.
+	 */
+	private SparqlQueryBuilder(final SparqlQueryBuilder template,
+			final Query query) {
+		this.aliasCount = template.aliasCount;
+		this.catalogs = template.catalogs;
+		this.parser = template.parser;
+		this.catalog = template.catalog;
+		this.schema = template.schema;
+		this.infoSet = template.infoSet;
+		this.columnsInUsing = template.columnsInUsing;
+		this.parameters = template.parameters;
+		this.parameterKeys = template.parameterKeys;
+		this.estimates = template.estimates;
+		this.inLists = template.inLists;
+		this.inValuesThreshold = template.inValuesThreshold;
+		this.query = query;
+		this.isBuilt = true;
+		this.serviceQuery = template.serviceQuery == null ? null
+				: findServiceQuery(query.getQueryPattern());
+	}
+
 	/**
 	 * Create a sub query builder
 	 *
@@ -183,6 +259,9 @@ public class SparqlQueryBuilder {
 	public SparqlQueryBuilder(final SparqlQueryBuilder parent) {
 		this(parent.catalogs, parent.parser, parent.catalog, parent.schema);
 		this.infoSet.setUseGUID(parent.infoSet.useGUID());
+		this.infoSet.setNativeTypeFilters(parent.infoSet
+				.useNativeTypeFilters());
+		this.inValuesThreshold = parent.inValuesThreshold;
 	}
 
 	/**
@@ -275,6 +354,192 @@ public class SparqlQueryBuilder {
 		SparqlQueryBuilder.getElementGroup(query).addElementFilter(el);
 	}
 
+	/**
+	 * Determine if the column type checks are written with standard SPARQL
+	 * functions instead of the java extension functions.
+	 *
+	 * @return true if native type filters are used.
+	 */
+	public boolean isNativeTypeFilters() {
+		return infoSet.useNativeTypeFilters();
+	}
+
+	/**
+	 * Set whether the column type checks are written with standard SPARQL
+	 * functions when the query is built so that they can be evaluated by
+	 * remote endpoints and optimized by the query engine.
+	 *
+	 * @param state
+	 *            true to use native type filters.
+	 */
+	public void setNativeTypeFilters(final boolean state) {
+		checkBuilt();
+		infoSet.setNativeTypeFilters(state);
+	}
+
+	/**
+	 * Get the number of items an IN list must have before its values are
+	 * added as a VALUES block.
+	 *
+	 * @return the threshold or 0 if no VALUES blocks are added.
+	 */
+	public int getInValuesThreshold() {
+		return inValuesThreshold;
+	}
+
+	/**
+	 * Set the number of items an IN list must have before its values are
+	 * added as a VALUES block when the query is built.
+	 *
+	 * @param threshold
+	 *            the number of items, 0 for no VALUES blocks.
+	 */
+	public void setInValuesThreshold(final int threshold) {
+		checkBuilt();
+		if (threshold < 0) {
+			throw new IllegalArgumentException(
+					"threshold may not be less than zero");
+		}
+		inValuesThreshold = threshold;
+	}
+
+	/**
+	 * Add an IN list that must be true for the where clause to be true. The
+	 * IN filter is not changed. When the query is built a list with at least
+	 * the threshold number of items is also added as a VALUES block on the
+	 * data variable of the column ahead of the table patterns so that the
+	 * query engine, or the endpoint for SERVICE catalogs, looks up the
+	 * matching rows rather than scanning the table.
+	 *
+	 * @param columnInfo
+	 *            The column the list limits.
+	 * @param values
+	 *            The values from the IN list.
+	 */
+	public void addInList(final QueryColumnInfo columnInfo,
+			final List<Expr> values) {
+		checkBuilt();
+		if (!inLists.containsKey(columnInfo)) {
+			inLists.put(columnInfo, values);
+		}
+	}
+
+	/**
+	 * Add the VALUES blocks for the IN lists to the table groups.
+	 */
+	private void addValuesBlocks() {
+		if (inValuesThreshold == 0) {
+			return;
+		}
+		for (final Map.Entry<QueryColumnInfo, List<Expr>> entry : inLists
+				.entrySet()) {
+			if (entry.getValue().size() >= inValuesThreshold) {
+				final QueryColumnInfo columnInfo = entry.getKey()
+						.getBaseColumnInfo();
+				final QueryTableInfo tableInfo = infoSet.getTable(columnInfo
+						.getName().getTableName());
+				final ElementData data = getValuesBlock(tableInfo,
+						columnInfo, entry.getValue());
+				if (data != null) {
+					if (LOG.isDebugEnabled()) {
+						SparqlQueryBuilder.LOG.debug(
+								"adding {} values for {}", entry.getValue()
+										.size(), columnInfo.getGUIDVar());
+					}
+					tableInfo.getElementGroup().getElements().add(0, data);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create the VALUES block for an IN list.
+	 *
+	 * VALUES matches RDF terms while IN compares the converted values, so the
+	 * block lists each value in the forms the column data is expected to take:
+	 * a plain literal for string columns, a plain literal and an xsd:integer
+	 * for integral columns. The IN filter still checks the values. The block
+	 * is only created when the data variable is bound by a required pattern
+	 * of the table, so that the block can not bind it for a row without the
+	 * column, and every item is a constant that converts to the column type
+	 * without change.
+	 *
+	 * @return the VALUES block or null if the IN list can not be written as
+	 *         one.
+	 */
+	private ElementData getValuesBlock(final QueryTableInfo tableInfo,
+			final QueryColumnInfo columnInfo, final List<Expr> values) {
+		if ((tableInfo == null) || tableInfo.isOptional()) {
+			return null;
+		}
+		final Var var = columnInfo.getGUIDVar();
+		if (!SparqlQueryBuilder.addMatchedVars(new HashSet<Var>(),
+				tableInfo.getElementGroup()).contains(var)) {
+			return null;
+		}
+		final ColumnDef columnDef = columnInfo.getColumn().getColumnDef();
+		Class<?> javaType;
+		try {
+			javaType = TypeConverter.getJavaType(columnDef.getType());
+		} catch (final SQLDataException e) {
+			return null;
+		}
+		if (!SparqlQueryBuilder.VALUES_TYPES.contains(javaType)) {
+			return null;
+		}
+		// each term once so that rows are not repeated.
+		final Set<Node> terms = new LinkedHashSet<Node>();
+		for (final Expr expr : values) {
+			if (!expr.isConstant() || !expr.getConstant().isLiteral()) {
+				return null;
+			}
+			final NodeValue value = expr.getConstant();
+			try {
+				final Object converted = TypeConverter.extractData(value
+						.asNode().getLiteralValue(), javaType);
+				final NodeValue term = TypeConverter.getNodeValue(converted);
+				if ((term == null) || !NodeValue.sameAs(value, term)) {
+					return null;
+				}
+				final String lexical = converted.toString();
+				terms.add(NodeFactory.createLiteral(lexical));
+				if (!String.class.equals(javaType)) {
+					terms.add(NodeValue.makeInteger(lexical).asNode());
+				}
+			} catch (final SQLException e) {
+				return null;
+			} catch (final ExprEvalException e) {
+				return null;
+			}
+		}
+		final ElementData data = new ElementData();
+		data.add(var);
+		for (final Node term : terms) {
+			data.add(BindingFactory.binding(var, term));
+		}
+		return data;
+	}
+
+	/**
+	 * Add the variables that the triple patterns of a group bind for every
+	 * row. Optional patterns are not included.
+	 *
+	 * @return vars
+	 */
+	private static Set<Var> addMatchedVars(final Set<Var> vars,
+			final ElementGroup group) {
+		for (final Element element : group.getElements()) {
+			if (element instanceof ElementGroup) {
+				addMatchedVars(vars, (ElementGroup) element);
+			}
+			else if ((element instanceof ElementPathBlock)
+					|| (element instanceof ElementTriplesBlock)) {
+				PatternVars.vars(vars, element);
+			}
+		}
+		return vars;
+	}
+
 	public QueryColumnInfo addColumnToQuery(final ColumnName cName,
 			final boolean optional) {
 		cName.setUsedSegments(getSegments());
@@ -308,6 +573,45 @@ public class SparqlQueryBuilder {
 				: Query.ORDER_DESCENDING);
 	}
 
+	/**
+	 * Set the JDBC parameters for the query. The parser provides an object
+	 * for each parameter in the order the parameters appear in the SQL. The
+	 * parameters are numbered in that order.
+	 *
+	 * @param keys
+	 *            The objects that identify the parameters.
+	 */
+	public void setParameterKeys(final List<?> keys) {
+		checkBuilt();
+		parameterKeys.clear();
+		parameters.clear();
+		for (final Object key : keys) {
+			parameterKeys.add(key);
+			parameters.add(Var.alloc(String.format("%s%s",
+					SparqlQueryBuilder.PARAMETER_PREFIX, parameters.size() + 1)));
+		}
+	}
+
+	/**
+	 * Get the variable for a JDBC parameter.
+	 *
+	 * @param key
+	 *            The object that identifies the parameter.
+	 * @return the variable for the parameter.
+	 * @throws IllegalArgumentException
+	 *             if the key is not one of the parameter keys.
+	 */
+	public Var getParameter(final Object key) {
+		// the keys are compared by identity as each parameter is distinct.
+		for (int i = 0; i < parameterKeys.size(); i++) {
+			if (parameterKeys.get(i) == key) {
+				return parameters.get(i);
+			}
+		}
+		throw new IllegalArgumentException(String.format(
+				"%s is not a parameter of the query", key));
+	}
+
 	public void addDefinedColumns() throws SQLDataException {
 		infoSet.addDefinedColumns(columnsInUsing);
 	}
@@ -511,6 +815,19 @@ public class SparqlQueryBuilder {
 				}
 			}
 
+			// join the optional columns that the filters require.
+			final int required = OptionalRewriter.rewrite(getElementGroup());
+			if (LOG.isDebugEnabled()) {
+				SparqlQueryBuilder.LOG.debug(
+						"Converted {} optional patterns to required", required);
+			}
+
+			// look up the rows for the large IN lists.
+			addValuesBlocks();
+
+			// put the most selective tables first.
+			orderTables();
+
 			// renumber the Bnodes.
 			final Element e = new BnodeRenumber().renumber(query
 					.getQueryPattern());
@@ -547,6 +864,11 @@ public class SparqlQueryBuilder {
 				filterGroup.addElement(service);
 				final ElementGroup typeGroup = new ElementGroup();
 				typeGroup.addElement(filterGroup);
+				// filters are evaluated by the endpoint unless they need the
+				// driver.
+				final ElementGroup serviceGroup = (ElementGroup) serviceCall
+						.getQueryPattern();
+				moveLocalFilters(serviceGroup, filterGroup);
 				infoSet.setUseGUID(false); // we are now building complete set.
 				// create the service call
 				// make sure we project all vars for the filters.
@@ -575,16 +897,36 @@ public class SparqlQueryBuilder {
 					}		
 				}
 
+				// find the columns that the query uses.
+				final Set<Var> usedVars = ServicePruner.getUsedVars(serviceCall);
+				ServicePruner.addExprVars(usedVars, vars);
+				ServicePruner.addExprVars(usedVars, filterGroup);
+				for (final QueryTableInfo tableInfo : infoSet.getTables()) {
+					for (final Element joinElement : tableInfo.getJoinElements()) {
+						ServicePruner.addExprVars(usedVars, joinElement);
+					}
+				}
+				for (final String columnName : columnsInUsing) {
+					for (final QueryColumnInfo columnInfo : infoSet
+							.listColumns(new SearchName(null, null, null,
+									columnName))) {
+						usedVars.add(columnInfo.getGUIDVar());
+					}
+				}
+
 				// add the columns to the query.
 				// the columns are named by GUID in the query.
 				boolean firstTable = true;
 				for (final QueryTableInfo tableInfo : infoSet.getTables()) {
-					// add the data type filters
+					// add the data type filters. Unused optional columns
+					// do not change the result so they are not checked.
 					for (final Column tblCol : tableInfo.getTable().getColumnList())
 					{
 						QueryColumnInfo columnInfo = new QueryColumnInfo(tblCol);
-						typeFilters.add( columnInfo );
-						serviceCall.addResultVar(columnInfo.getGUIDVar());	
+						if (!tblCol.isOptional()
+								|| usedVars.contains(columnInfo.getGUIDVar())) {
+							typeFilters.add( columnInfo );
+						}
 					}
 					// add the binds
 					for (QueryColumnInfo colInfo : columnsInQuery)
@@ -601,7 +943,7 @@ public class SparqlQueryBuilder {
 					try {
 						QueryTableInfo.addTypeFilters(infoSet, typeFilters,
 								dataFilters, tableInfo.getJoinElements(),
-								filterGroup, typeGroup);
+								serviceGroup, filterGroup, typeGroup);
 					} catch (final SQLDataException e1) {
 						throw new IllegalStateException(e1.getMessage(), e1);
 					}
@@ -638,12 +980,73 @@ public class SparqlQueryBuilder {
 						if (LOG.isDebugEnabled()) {
 							LOG.debug("Adding filter: {}", expr);
 						}
-						((ElementGroup)serviceCall.getQueryPattern()).addElementFilter(new ElementFilter(expr));
+						serviceGroup.addElementFilter(new ElementFilter(expr));
+					}
+				}
+
+				// the aggregate service call applies its own modifiers.
+				final Query aggregateCall = getAggregateServiceCall(
+						serviceCall, vars, filterGroup, typeGroup);
+				if (aggregateCall == null) {
+					placeSolutionModifiers(serviceCall, newResult, filterGroup,
+							typeGroup, columnsInQuery);
+				}
+
+				// only return the columns that are used outside of the
+				// service call.
+				final Set<Var> localVars = ServicePruner.addExprVars(
+						new HashSet<Var>(), typeGroup);
+				ServicePruner.addExprVars(localVars, newResult.getProject());
+				if (newResult.hasOrderBy()) {
+					for (final SortCondition sc : newResult.getOrderBy()) {
+						localVars.addAll(sc.getExpression().getVarsMentioned());
+					}
+				}
+				for (final QueryTableInfo tableInfo : infoSet.getTables()) {
+					for (final Column tblCol : tableInfo.getTable().getColumnList()) {
+						final Var v = new QueryColumnInfo(tblCol).getGUIDVar();
+						if (localVars.contains(v)
+								&& !serviceCall.getProjectVars().contains(v)) {
+							serviceCall.addResultVar(v);
+						}
 					}
 				}
+				if (serviceCall.getProjectVars().isEmpty()) {
+					// nothing is used (e.g. count(*)) but a var must be
+					// returned.
+					serviceCall.addResultVar(new QueryColumnInfo(infoSet
+							.getTables().iterator().next().getTable()
+							.getColumnList().get(0)).getGUIDVar());
+				}
+				usedVars.addAll(localVars);
+				final int pruned = ServicePruner.removeUnusedOptionals(
+						serviceGroup, usedVars);
+				if (LOG.isDebugEnabled()) {
+					SparqlQueryBuilder.LOG.debug(
+							"Removed {} unused optional patterns", pruned);
+				}
 
-				newResult.setQueryPattern(typeGroup);
-				query = newResult;
+				if (aggregateCall == null) {
+					newResult.setQueryPattern(typeGroup);
+					query = newResult;
+					serviceQuery = serviceCall;
+				}
+				else {
+					// the endpoint returns the result rows.
+					final Query aggregateResult = new Query();
+					aggregateResult.setQuerySelectType();
+					for (final Var v : aggregateCall.getProjectVars()) {
+						aggregateResult.addResultVar(v);
+					}
+					SparqlQueryBuilder.getElementGroup(aggregateResult)
+							.addElement(
+									new ElementService(catalog
+											.getServiceNode(),
+											new ElementSubQuery(aggregateCall),
+											false));
+					query = aggregateResult;
+					serviceQuery = aggregateCall;
+				}
 			}
 			isBuilt = true;
 			if (LOG.isDebugEnabled()) {
@@ -653,6 +1056,565 @@ public class SparqlQueryBuilder {
 		return query;
 	}
 
+	/**
+	 * Estimate the number of rows for each table with statistics and order
+	 * the required tables in the query so that the most selective tables are
+	 * evaluated first. The order is not changed unless at least two required
+	 * tables have statistics.
+	 *
+	 * @see JoinOrderer
+	 */
+	private void orderTables() {
+		final Map<Element, Long> rowCounts = new IdentityHashMap<Element, Long>();
+		final Map<Element, QueryTableInfo> tables = new IdentityHashMap<Element, QueryTableInfo>();
+		final List<Expr> joinExprs = new ArrayList<Expr>();
+		int required = 0;
+		for (final QueryTableInfo tableInfo : infoSet.getTables()) {
+			final Long rowCount = tableInfo.getTable().getRowCount();
+			if (rowCount != null) {
+				rowCounts.put(tableInfo.getElementGroup(), rowCount);
+				tables.put(tableInfo.getElementGroup(), tableInfo);
+				if (!tableInfo.isOptional()) {
+					required++;
+				}
+			}
+			for (final Element joinElement : tableInfo.getJoinElements()) {
+				joinExprs.add(((ElementFilter) joinElement).getExpr());
+			}
+		}
+		if (rowCounts.isEmpty()) {
+			return;
+		}
+		final Map<Var, Long> distinctCounts = new HashMap<Var, Long>();
+		for (final QueryColumnInfo columnInfo : infoSet.getColumns()) {
+			final Column column = columnInfo.getColumn();
+			final Long distinctCount = column.getTable() == null ? null
+					: column.getTable().getDistinctCount(column);
+			if (distinctCount != null) {
+				distinctCounts.put(columnInfo.getGUIDVar(), distinctCount);
+			}
+		}
+		for (final Map.Entry<Element, Long> entry : JoinOrderer.estimate(
+				getElementGroup(), rowCounts, distinctCounts, joinExprs)
+				.entrySet()) {
+			estimates.put(tables.get(entry.getKey()), entry.getValue());
+		}
+		// optional tables are not in the group so they are not moved.
+		if ((required > 1)
+				&& JoinOrderer.reorder(getElementGroup(), rowCounts,
+						distinctCounts, joinExprs) && LOG.isDebugEnabled()) {
+			SparqlQueryBuilder.LOG.debug("Reordered tables by statistics");
+		}
+	}
+
+	/**
+	 * Get the estimated number of rows for a table in the query. The estimate
+	 * is the number of rows in the table reduced by the filters that compare
+	 * its columns to constants.
+	 *
+	 * @param tableInfo
+	 *            The table in the query.
+	 * @return the estimate or null if the table has no statistics or the query
+	 *         has not been built.
+	 */
+	public Long getEstimatedRows(final QueryTableInfo tableInfo) {
+		return estimates.get(tableInfo);
+	}
+
+	/**
+	 * Create a service call that evaluates the grouping and aggregates of the
+	 * query at the endpoint so that only the result rows are returned.
+	 *
+	 * This is only possible when nothing has to be evaluated by the driver:
+	 * all type filters are native, there are no local filters or joins, every
+	 * grouped column is native and every result is a grouped column or an
+	 * aggregate (e.g. COUNT, SUM, MIN or MAX) of a native column.
+	 *
+	 * @param serviceCall
+	 *            The service call built for the query.
+	 * @param vars
+	 *            The projection of the original query.
+	 * @param filterGroup
+	 *            The group that is evaluated by the driver.
+	 * @param typeGroup
+	 *            The group that holds the local bindings.
+	 * @return the aggregate service call or null if the aggregates must be
+	 *         evaluated by the driver.
+	 */
+	private Query getAggregateServiceCall(final Query serviceCall,
+			final VarExprList vars, final ElementGroup filterGroup,
+			final ElementGroup typeGroup) {
+		if (!(serviceCall.hasAggregators() || serviceCall.hasGroupBy())
+				|| serviceCall.hasHaving() || !infoSet.useNativeTypeFilters()) {
+			return null;
+		}
+		if (hasLocalFilters(filterGroup, typeGroup)) {
+			return null;
+		}
+
+		final Query retval = new Query();
+		retval.setQuerySelectType();
+		retval.setPrefixMapping(serviceCall.getPrefixMapping());
+		retval.setQueryPattern(serviceCall.getQueryPattern());
+
+		// the grouped columns by GUID var.
+		final Map<Var, QueryColumnInfo> groupColumns = new HashMap<Var, QueryColumnInfo>();
+		if (serviceCall.hasGroupBy()) {
+			final VarExprList groupBy = serviceCall.getGroupBy();
+			for (final Var v : groupBy.getVars()) {
+				final QueryColumnInfo colInfo = infoSet.findColumnByGUIDVar(v
+						.getName());
+				if ((groupBy.getExpr(v) != null) || (colInfo == null)
+						|| !NativeTypeF.isSupported(colInfo)) {
+					return null;
+				}
+				groupColumns.put(v, colInfo);
+				retval.addGroupBy(colInfo.getVar(),
+						NativeTypeF.getValue(colInfo));
+			}
+		}
+
+		for (final Var v : vars.getVars()) {
+			final Expr expr = vars.getExpr(v);
+			if (expr == null) {
+				final QueryColumnInfo colInfo = groupColumns.get(v);
+				if (colInfo == null) {
+					return null;
+				}
+				retval.addResultVar(colInfo.getVar());
+			}
+			else if (expr instanceof ExprAggregator) {
+				final Aggregator agg = ((ExprAggregator) expr).getAggregator();
+				Aggregator remoteAgg = agg;
+				if (agg.getExpr() != null) {
+					if (!agg.getExpr().isVariable()) {
+						return null;
+					}
+					final QueryColumnInfo colInfo = infoSet
+							.findColumnByGUIDVar(agg.getExpr().getVarName());
+					if ((colInfo == null) || !NativeTypeF.isSupported(colInfo)) {
+						return null;
+					}
+					remoteAgg = agg.copy(NativeTypeF.getValue(colInfo));
+				}
+				retval.addResultVar(v, retval.allocAggregate(remoteAgg));
+			}
+			else {
+				return null;
+			}
+		}
+
+		if (serviceCall.hasOrderBy()) {
+			for (final SortCondition sc : serviceCall.getOrderBy()) {
+				if (!sc.getExpression().isVariable()) {
+					return null;
+				}
+				Var v = sc.getExpression().asVar();
+				if (groupColumns.containsKey(v)) {
+					v = groupColumns.get(v).getVar();
+				}
+				else if (!vars.contains(v)) {
+					return null;
+				}
+				retval.addOrderBy(v, sc.getDirection());
+			}
+		}
+		if (serviceCall.isDistinct()) {
+			retval.setDistinct(true);
+		}
+		if (serviceCall.hasLimit()) {
+			retval.setLimit(serviceCall.getLimit());
+		}
+		if (serviceCall.hasOffset()) {
+			retval.setOffset(serviceCall.getOffset());
+		}
+		if (LOG.isDebugEnabled()) {
+			SparqlQueryBuilder.LOG.debug("Aggregates evaluated by endpoint: {}",
+					retval);
+		}
+		return retval;
+	}
+
+	/**
+	 * Determine if the driver removes rows returned by the service call.
+	 *
+	 * @param filterGroup
+	 *            The group that is evaluated by the driver.
+	 * @param typeGroup
+	 *            The group that holds the local bindings.
+	 * @return true if there are local filters or joins.
+	 */
+	private static boolean hasLocalFilters(final ElementGroup filterGroup,
+			final ElementGroup typeGroup) {
+		// only the service call may be in the filter group.
+		if (filterGroup.getElements().size() != 1) {
+			return true;
+		}
+		for (final Element element : typeGroup.getElements()) {
+			if ((element != filterGroup) && !(element instanceof ElementBind)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Place the ORDER BY, LIMIT, OFFSET and DISTINCT of the query.
+	 *
+	 * They remain in the service call when the driver does not remove or
+	 * aggregate any of the returned rows and every sort key is a column with a
+	 * native conversion, so the endpoint only returns the requested rows.
+	 * Otherwise they are moved to the local query so that they apply to the
+	 * checked rows. ARQ evaluates a local ORDER BY with a LIMIT as a top N
+	 * sort.
+	 *
+	 * @param serviceCall
+	 *            The service call built for the query.
+	 * @param localQuery
+	 *            The query that is evaluated by the driver.
+	 * @param filterGroup
+	 *            The group that is evaluated by the driver.
+	 * @param typeGroup
+	 *            The group that holds the local bindings.
+	 * @param columnsInQuery
+	 *            The columns that are bound in the local query.
+	 */
+	private void placeSolutionModifiers(final Query serviceCall,
+			final Query localQuery, final ElementGroup filterGroup,
+			final ElementGroup typeGroup,
+			final Collection<QueryColumnInfo> columnsInQuery) {
+		if (!(serviceCall.hasOrderBy() || serviceCall.hasLimit()
+				|| serviceCall.hasOffset() || serviceCall.isDistinct())) {
+			return;
+		}
+		final List<SortCondition> remoteOrder = getRemoteOrder(serviceCall,
+				filterGroup, typeGroup);
+		if (remoteOrder != null) {
+			if (serviceCall.hasOrderBy()) {
+				serviceCall.getOrderBy().clear();
+				for (final SortCondition sc : remoteOrder) {
+					serviceCall.addOrderBy(sc);
+				}
+			}
+			return;
+		}
+
+		if (LOG.isDebugEnabled()) {
+			SparqlQueryBuilder.LOG
+					.debug("Evaluating solution modifiers locally");
+		}
+		if (serviceCall.hasOrderBy()) {
+			for (final SortCondition sc : serviceCall.getOrderBy()) {
+				Expr expr = sc.getExpression();
+				if (expr.isVariable()) {
+					// sort on the converted value if the column is bound.
+					final QueryColumnInfo colInfo = infoSet
+							.findColumnByGUIDVar(expr.getVarName());
+					if ((colInfo != null) && columnsInQuery.contains(colInfo)) {
+						expr = new ExprVar(colInfo.getVar());
+					}
+				}
+				localQuery.addOrderBy(expr, sc.getDirection());
+			}
+			serviceCall.getOrderBy().clear();
+		}
+		localQuery.setDistinct(serviceCall.isDistinct());
+		serviceCall.setDistinct(false);
+		localQuery.setLimit(serviceCall.getLimit());
+		serviceCall.setLimit(Query.NOLIMIT);
+		localQuery.setOffset(serviceCall.getOffset());
+		serviceCall.setOffset(Query.NOLIMIT);
+	}
+
+	/**
+	 * Get the sort conditions for the service call.
+	 *
+	 * @return the sort conditions on the converted column values or null if
+	 *         the solution modifiers must be evaluated locally.
+	 */
+	private List<SortCondition> getRemoteOrder(final Query serviceCall,
+			final ElementGroup filterGroup, final ElementGroup typeGroup) {
+		// local aggregates need every row.
+		if (!infoSet.useNativeTypeFilters() || serviceCall.hasAggregators()
+				|| serviceCall.hasGroupBy()
+				|| hasLocalFilters(filterGroup, typeGroup)) {
+			return null;
+		}
+		final List<SortCondition> retval = new ArrayList<SortCondition>();
+		if (serviceCall.hasOrderBy()) {
+			for (final SortCondition sc : serviceCall.getOrderBy()) {
+				if (!sc.getExpression().isVariable()) {
+					return null;
+				}
+				final QueryColumnInfo colInfo = infoSet
+						.findColumnByGUIDVar(sc.getExpression().getVarName());
+				if ((colInfo == null) || !NativeTypeF.isSupported(colInfo)) {
+					return null;
+				}
+				retval.add(new SortCondition(NativeTypeF.getValue(colInfo), sc
+						.getDirection()));
+			}
+		}
+		return retval;
+	}
+
+	/**
+	 * Move the filters that can not be evaluated by a remote endpoint from the
+	 * service group to the local group. Conjunctions are split so that the
+	 * parts that the endpoint can evaluate remain in the service group.
+	 *
+	 * @param serviceGroup
+	 *            The group that is sent to the endpoint.
+	 * @param localGroup
+	 *            The group that is evaluated by the driver.
+	 */
+	private static void moveLocalFilters(final ElementGroup serviceGroup,
+			final ElementGroup localGroup) {
+		final ListIterator<Element> iter = serviceGroup.getElements()
+				.listIterator();
+		while (iter.hasNext()) {
+			final Element element = iter.next();
+			if (element instanceof ElementFilter) {
+				final List<Expr> remote = new ArrayList<Expr>();
+				final List<Expr> local = new ArrayList<Expr>();
+				splitFilter(((ElementFilter) element).getExpr(), remote, local);
+				if (!local.isEmpty()) {
+					if (LOG.isDebugEnabled()) {
+						SparqlQueryBuilder.LOG.debug(
+								"Evaluating filter {} locally", local);
+					}
+					localGroup.addElementFilter(new ElementFilter(
+							and(local)));
+					if (remote.isEmpty()) {
+						iter.remove();
+					}
+					else {
+						iter.set(new ElementFilter(and(remote)));
+					}
+				}
+			}
+		}
+	}
+
+	private static void splitFilter(final Expr expr, final List<Expr> remote,
+			final List<Expr> local) {
+		if (expr instanceof E_LogicalAnd) {
+			splitFilter(((E_LogicalAnd) expr).getArg1(), remote, local);
+			splitFilter(((E_LogicalAnd) expr).getArg2(), remote, local);
+		}
+		else if (isRemote(expr)) {
+			remote.add(expr);
+		}
+		else {
+			local.add(expr);
+		}
+	}
+
+	private static Expr and(final List<Expr> exprs) {
+		Expr retval = null;
+		for (final Expr expr : exprs) {
+			retval = retval == null ? expr : new E_LogicalAnd(retval, expr);
+		}
+		return retval;
+	}
+
+	/**
+	 * Determine if the expression can be evaluated by a remote endpoint. An
+	 * expression that calls a java function can only be evaluated by the
+	 * driver.
+	 *
+	 * @param expr
+	 *            The expression to check.
+	 * @return true if the expression only uses standard functions.
+	 */
+	private static boolean isRemote(final Expr expr) {
+		if (expr instanceof E_Function) {
+			if (((E_Function) expr).getFunctionIRI().startsWith("java:")) {
+				return false;
+			}
+		}
+		if (expr instanceof ExprFunction) {
+			for (final Expr arg : ((ExprFunction) expr).getArgs()) {
+				if (!isRemote(arg)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine if the built query can be retrieved in windows.
+	 *
+	 * A query can be windowed when it executes against a SERVICE and all
+	 * solution modifiers are applied within the service call so that each
+	 * window of service results produces an independent set of rows.
+	 *
+	 * @return true if the query may be windowed.
+	 * @throws SQLDataException
+	 */
+	public boolean isWindowable() throws SQLDataException {
+		build();
+		if (serviceQuery == null) {
+			return false;
+		}
+		return !(serviceQuery.hasGroupBy() || serviceQuery.hasAggregators()
+				|| serviceQuery.hasHaving() || query.hasGroupBy()
+				|| query.hasAggregators() || query.hasOrderBy()
+				|| query.hasLimit() || query.hasOffset() || query.isDistinct());
+	}
+
+	/**
+	 * Get the query that retrieves one window of rows from the SERVICE
+	 * endpoint.
+	 *
+	 * The service call is ordered by all of its projected variables so that
+	 * successive windows are stable. Any limit or offset specified in the
+	 * original query is honored.
+	 *
+	 * @param windowOffset
+	 *            The number of service rows to skip.
+	 * @param windowSize
+	 *            The number of service rows to retrieve.
+	 * @return The window query or null if the window is past the end of the
+	 *         results.
+	 * @throws SQLDataException
+	 * @throws IllegalStateException
+	 *             if the query may not be windowed.
+	 */
+	public Query getServiceWindowQuery(final long windowOffset,
+			final long windowSize) throws SQLDataException {
+		if (!isWindowable()) {
+			throw new IllegalStateException("Query may not be windowed");
+		}
+		final Query subQuery = serviceQuery.cloneQuery();
+		long limit = windowSize;
+		if (subQuery.hasLimit()) {
+			final long remaining = subQuery.getLimit() - windowOffset;
+			if (remaining <= 0) {
+				return null;
+			}
+			limit = Math.min(limit, remaining);
+		}
+		final long offset = (subQuery.hasOffset() ? subQuery.getOffset() : 0)
+				+ windowOffset;
+		// add the projected vars as the final sort keys to force a stable
+		// order.
+		for (final Var v : subQuery.getProjectVars()) {
+			subQuery.addOrderBy(v, Query.ORDER_ASCENDING);
+		}
+		subQuery.setLimit(limit);
+		subQuery.setOffset(offset);
+
+		final Query retval = new Query();
+		retval.setQuerySelectType();
+		retval.setQueryResultStar(true);
+		retval.setQueryPattern(new ElementService(catalog.getServiceNode(),
+				new ElementSubQuery(subQuery), false));
+		return retval;
+	}
+
+	/**
+	 * Get the built query with the SERVICE call replaced by the data.
+	 *
+	 * This is used to apply the local filters and bindings to a window of
+	 * rows that were retrieved from the service.
+	 *
+	 * @param data
+	 *            The rows retrieved from the service window query.
+	 * @return the query to execute locally.
+	 * @throws SQLDataException
+	 * @throws IllegalStateException
+	 *             if the query may not be windowed.
+	 */
+	public Query getWindowQuery(final ElementData data)
+			throws SQLDataException {
+		if (!isWindowable()) {
+			throw new IllegalStateException("Query may not be windowed");
+		}
+		final Query retval = query.cloneQuery();
+		if (!replaceService(retval.getQueryPattern(), data)) {
+			throw new IllegalStateException(String.format(
+					NOT_FOUND_IN_QUERY, "SERVICE"));
+		}
+		return retval;
+	}
+
+	/**
+	 * Get the JDBC parameters in the order they are numbered.
+	 *
+	 * @return the list of parameter variables.
+	 */
+	public List<Var> getParameters() {
+		return Collections.unmodifiableList(parameters);
+	}
+
+	/**
+	 * Get a builder for the query with the parameter values bound.
+	 *
+	 * A single binding is substituted into the query. Several bindings are
+	 * added as VALUES blocks so that one query returns the rows for all of
+	 * them. This builder is not changed.
+	 *
+	 * @param bindings
+	 *            The parameter values, one binding for each set of values.
+	 * @return a built builder for the bound query.
+	 * @throws SQLDataException
+	 *             if the query can not be built.
+	 */
+	public SparqlQueryBuilder bindParameters(final List<Binding> bindings)
+			throws SQLDataException {
+		if (bindings.isEmpty()) {
+			throw new IllegalArgumentException("bindings may not be empty");
+		}
+		final Query retval = build().cloneQuery();
+		if (bindings.size() == 1) {
+			ParameterBinder.substitute(retval, bindings.get(0));
+		}
+		else {
+			ParameterBinder.addValues(retval, parameters, bindings);
+		}
+		if (LOG.isDebugEnabled()) {
+			SparqlQueryBuilder.LOG.debug("Query bound as {}", retval);
+		}
+		return new SparqlQueryBuilder(this, retval);
+	}
+
+	// find the query in the SERVICE call.
+	private static Query findServiceQuery(final Element element) {
+		if (element instanceof ElementGroup) {
+			for (final Element e : ((ElementGroup) element).getElements()) {
+				if ((e instanceof ElementService)
+						&& (((ElementService) e).getElement() instanceof ElementSubQuery)) {
+					return ((ElementSubQuery) ((ElementService) e)
+							.getElement()).getQuery();
+				}
+				final Query retval = findServiceQuery(e);
+				if (retval != null) {
+					return retval;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean replaceService(final Element element,
+			final Element replacement) {
+		if (element instanceof ElementGroup) {
+			final List<Element> lst = ((ElementGroup) element).getElements();
+			for (int i = 0; i < lst.size(); i++) {
+				if (lst.get(i) instanceof ElementService) {
+					lst.set(i, replacement);
+					return true;
+				}
+				if (replaceService(lst.get(i), replacement)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	private void checkBuilt() {
 		if (isBuilt) {
 			throw new IllegalStateException("Query was already built");
@@ -766,6 +1728,15 @@ public class SparqlQueryBuilder {
 		return retval;
 	}
 
+	/**
+	 * Get the tables in the query.
+	 *
+	 * @return the tables in the order they were added.
+	 */
+	public Collection<QueryTableInfo> getTables() {
+		return Collections.unmodifiableCollection(infoSet.getTables());
+	}
+
 	/**
 	 * Get a table from the query.
 	 *
@@ -933,6 +1904,15 @@ public class SparqlQueryBuilder {
 		return this;
 	}
 
+	/**
+	 * Get the limit for the SPARQL query.
+	 *
+	 * @return The number of records to return or null if there is no limit.
+	 */
+	public Long getLimit() {
+		return query.hasLimit() ? Long.valueOf(query.getLimit()) : null;
+	}
+
 	/**
 	 * Sets the limit for the SPARQL query.
 	 *
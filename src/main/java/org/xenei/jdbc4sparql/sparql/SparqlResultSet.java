@@ -17,23 +17,237 @@
  */
 package org.xenei.jdbc4sparql.sparql;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.xenei.jdbc4sparql.iface.Table;
-import org.xenei.jdbc4sparql.iface.TypeConverter;
 import org.xenei.jdbc4sparql.impl.ListResultSet;
 
+import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryCancelledException;
 import com.hp.hpl.jena.query.QuerySolution;
-import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
 
 public class SparqlResultSet extends ListResultSet {
-	private final Query query;
+	private final SolutionDecoder decoder;
+	// the rows still being retrieved in the background, null once all the
+	// rows are in the list.
+	private PrefetchIterator pending;
 
 	public SparqlResultSet(final Table table, final Query query)
 			throws SQLException {
-		super(table.getCatalog().executeLocalQuery(query), table);
-		this.query = query;
+		this(table, query, table.getCatalog().executeLocalQuery(query));
+	}
+
+	/**
+	 * Create a result set over solutions that have already been retrieved.
+	 *
+	 * @param table
+	 *            The table the result set is for.
+	 * @param query
+	 *            The query that defines the result columns.
+	 * @param solutions
+	 *            The solutions for the query.
+	 * @throws SQLException
+	 */
+	public SparqlResultSet(final Table table, final Query query,
+			final List<QuerySolution> solutions) throws SQLException {
+		super(solutions, table);
+		this.decoder = new SolutionDecoder(query, table);
+	}
+
+	/**
+	 * Create a result set that reads all the solutions into a list that spills
+	 * to disk once the threshold is reached.
+	 *
+	 * @param table
+	 *            The table the result set is for.
+	 * @param query
+	 *            The query that defines the result columns.
+	 * @param solutions
+	 *            The solutions for the query. Closed once they are read.
+	 * @param spillThreshold
+	 *            The number of bytes of rows to hold in memory. 0 or less
+	 *            means never spill.
+	 * @throws SQLException
+	 */
+	public SparqlResultSet(final Table table, final Query query,
+			final ClosableIterator<QuerySolution> solutions,
+			final long spillThreshold) throws SQLException {
+		this(table, query, solutions, spillThreshold, 0, null);
+	}
+
+	/**
+	 * Create a result set that retrieves the solutions in the background.
+	 *
+	 * A worker decodes the solutions into a buffer of prefetch rows. Rows are
+	 * moved from the buffer into the list that spills to disk as the cursor
+	 * reaches them so the caller can process the first rows while the query
+	 * is still executing.
+	 *
+	 * @param table
+	 *            The table the result set is for.
+	 * @param query
+	 *            The query that defines the result columns.
+	 * @param solutions
+	 *            The solutions for the query. Closed once they are read.
+	 * @param spillThreshold
+	 *            The number of bytes of rows to hold in memory. 0 or less
+	 *            means never spill.
+	 * @param prefetch
+	 *            The number of rows to buffer ahead of the cursor. 0 or less
+	 *            reads all the rows before returning.
+	 * @param executor
+	 *            The executor that runs the worker. If null all the rows are
+	 *            read before returning.
+	 * @throws SQLException
+	 */
+	public SparqlResultSet(final Table table, final Query query,
+			final ClosableIterator<QuerySolution> solutions,
+			final long spillThreshold, final int prefetch,
+			final ExecutorService executor) throws SQLException {
+		this(table, new SolutionDecoder(query, table), solutions,
+				spillThreshold, executor == null ? 0 : prefetch, executor);
+	}
+
+	private SparqlResultSet(final Table table, final SolutionDecoder decoder,
+			final ClosableIterator<QuerySolution> solutions,
+			final long spillThreshold, final int prefetch,
+			final ExecutorService executor) throws SQLException {
+		super(prefetch > 0 ? new SpillingSolutionList(
+				decoder.getColumnCount(), spillThreshold) : SparqlResultSet
+				.readRows(decoder, solutions, spillThreshold), table);
+		this.decoder = decoder;
+		this.pending = prefetch > 0 ? new PrefetchIterator(decoder,
+				solutions, prefetch, executor) : null;
+	}
+
+	private static SpillingSolutionList readRows(
+			final SolutionDecoder decoder,
+			final ClosableIterator<QuerySolution> solutions,
+			final long spillThreshold) {
+		final int columnCount = decoder.getColumnCount();
+		final SpillingSolutionList rows = new SpillingSolutionList(
+				columnCount, spillThreshold);
+		try {
+			while (solutions.hasNext()) {
+				final QuerySolution soln = solutions.next();
+				final Node[] row = new Node[columnCount];
+				for (int i = 0; i < columnCount; i++) {
+					row[i] = decoder.getNode(soln, i + 1);
+				}
+				rows.add(row);
+			}
+		} catch (final RuntimeException e) {
+			rows.close();
+			throw e;
+		} finally {
+			solutions.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * Move rows from the prefetch buffer into the list until the row at the
+	 * index is available or there are no more rows.
+	 *
+	 * @param index
+	 *            The 0 based index of the row.
+	 * @throws SQLException
+	 *             if the retrieval of the rows failed.
+	 */
+	private void ensureRow(final int index) throws SQLException {
+		if (pending == null) {
+			return;
+		}
+		final SpillingSolutionList rows = (SpillingSolutionList) getDataCollection();
+		try {
+			while (rows.size() <= index) {
+				if (!pending.hasNext()) {
+					pending.close();
+					pending = null;
+					return;
+				}
+				rows.add(pending.next());
+			}
+		} catch (final QueryCancelledException e) {
+			// release the rows read so far.
+			close();
+			throw new SQLException("Query was cancelled or timed out", e);
+		} catch (final RuntimeException e) {
+			pending.close();
+			pending = null;
+			throw new SQLException("Unable to retrieve rows: "
+					+ e.getMessage(), e);
+		}
+	}
+
+	private void ensureAllRows() throws SQLException {
+		ensureRow(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean absolute(final int pos) throws SQLException {
+		if (pos < 0) {
+			ensureAllRows();
+		}
+		else {
+			ensureRow(pos - 1);
+		}
+		return super.absolute(pos);
+	}
+
+	@Override
+	public void afterLast() throws SQLException {
+		ensureAllRows();
+		super.afterLast();
+	}
+
+	@Override
+	public boolean first() throws SQLException {
+		ensureRow(0);
+		return super.first();
+	}
+
+	@Override
+	public boolean isAfterLast() throws SQLException {
+		ensureRow(getPosition());
+		return super.isAfterLast();
+	}
+
+	@Override
+	public boolean isLast() throws SQLException {
+		ensureRow(getPosition() + 1);
+		return super.isLast();
+	}
+
+	@Override
+	public boolean last() throws SQLException {
+		ensureAllRows();
+		return super.last();
+	}
+
+	@Override
+	public boolean relative(final int rows) throws SQLException {
+		if ((rows > 0) == (getFetchDirection() != ResultSet.FETCH_REVERSE)) {
+			ensureRow(getPosition() + Math.abs(rows));
+		}
+		return super.relative(rows);
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (pending != null) {
+			pending.close();
+			pending = null;
+		}
+		if (getDataCollection() instanceof SpillingSolutionList) {
+			((SpillingSolutionList) getDataCollection()).close();
+		}
+		super.close();
 	}
 
 	@Override
@@ -42,20 +256,50 @@ public class SparqlResultSet extends ListResultSet {
 	}
 
 	@Override
-	protected Object readObject(final int columnOrdinal) throws SQLException {
-		checkPosition();
-		checkColumn(columnOrdinal);
-		final QuerySolution soln = (QuerySolution) getRowObject();
-		final String colName = query.getProjectVars().get(columnOrdinal - 1)
-				.getName();
-		final RDFNode node = soln.get(colName);
+	protected boolean readBoolean(final int columnOrdinal) throws SQLException {
+		final Node node = readNode(columnOrdinal);
+		final Object value = SolutionDecoder.getLiteralValue(node);
+		if (value instanceof Boolean) {
+			setWasNull(false);
+			return ((Boolean) value).booleanValue();
+		}
+		return super.readBoolean(columnOrdinal);
+	}
+
+	@Override
+	protected double readDouble(final int columnOrdinal) throws SQLException {
+		final Node node = readNode(columnOrdinal);
+		final Object value = SolutionDecoder.getLiteralValue(node);
+		if (value instanceof Number) {
+			setWasNull(false);
+			return ((Number) value).doubleValue();
+		}
+		return super.readDouble(columnOrdinal);
+	}
 
-		if (node == null) {
-			return null;
+	@Override
+	protected long readLong(final int columnOrdinal) throws SQLException {
+		final Node node = readNode(columnOrdinal);
+		final Object value = SolutionDecoder.getLiteralValue(node);
+		if (value instanceof Number) {
+			setWasNull(false);
+			return ((Number) value).longValue();
 		}
-		if (node.isLiteral()) {
-			return TypeConverter.getJavaValue(node.asLiteral());
+		return super.readLong(columnOrdinal);
+	}
+
+	private Node readNode(final int columnOrdinal) throws SQLException {
+		checkPosition();
+		checkColumn(columnOrdinal);
+		final Object row = getRowObject();
+		if (row instanceof Node[]) {
+			return ((Node[]) row)[columnOrdinal - 1];
 		}
-		return node.toString();
+		return decoder.getNode((QuerySolution) row, columnOrdinal);
+	}
+
+	@Override
+	protected Object readObject(final int columnOrdinal) throws SQLException {
+		return SolutionDecoder.decode(readNode(columnOrdinal));
 	}
 }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.sql.SQLException;
+
+import org.xenei.jdbc4sparql.iface.Table;
+import org.xenei.jdbc4sparql.impl.IteratorResultSet;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryCancelledException;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * A forward only result set that reads the solutions directly from the
+ * executing query.
+ *
+ * The solutions are never collected into a list so the first row is available
+ * as soon as the query engine produces it. The underlying QueryExecution is
+ * held open until the result set is closed.
+ */
+public class SparqlStreamingResultSet extends IteratorResultSet {
+
+	/**
+	 * An iterator over the results of a QueryExecution that closes the
+	 * execution when it is closed.
+	 */
+	static class ExecutionIterator extends NiceIterator<QuerySolution> {
+		private final QueryExecution qexec;
+		private final ResultSet rs;
+
+		ExecutionIterator(final QueryExecution qexec) {
+			this.qexec = qexec;
+			try {
+				this.rs = qexec.execSelect();
+			} catch (final RuntimeException e) {
+				qexec.close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !qexec.isClosed() && rs.hasNext();
+		}
+
+		@Override
+		public QuerySolution next() {
+			if (!hasNext()) {
+				return noElements("No more solutions");
+			}
+			return rs.next();
+		}
+
+		@Override
+		public void close() {
+			qexec.close();
+		}
+	}
+
+	private final SolutionDecoder decoder;
+	private ClosableIterator<QuerySolution> solutions;
+
+	public SparqlStreamingResultSet(final Table table, final Query query)
+			throws SQLException {
+		this(table, query, new ExecutionIterator(table.getCatalog()
+				.createLocalExecution(query)));
+	}
+
+	/**
+	 * Create a result set over solutions produced for the query.
+	 *
+	 * @param table
+	 *            The table the result set is for.
+	 * @param query
+	 *            The query that defines the result columns.
+	 * @param solutions
+	 *            The solutions. Closed when the result set is closed.
+	 * @throws SQLException
+	 */
+	public SparqlStreamingResultSet(final Table table, final Query query,
+			final ClosableIterator<QuerySolution> solutions)
+			throws SQLException {
+		super(solutions, table);
+		this.decoder = new SolutionDecoder(query, table);
+		this.solutions = solutions;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (solutions != null) {
+			solutions.close();
+			solutions = null;
+		}
+		super.close();
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		if (solutions instanceof WindowedSolutionIterator) {
+			return ((WindowedSolutionIterator) solutions).getWindowSize();
+		}
+		return super.getFetchSize();
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+		if (isClosed()) {
+			throw new SQLException("Result set is closed");
+		}
+		final boolean retval;
+		try {
+			retval = super.next();
+		} catch (final QueryCancelledException e) {
+			// release the query and the rows read so far.
+			close();
+			throw new SQLException("Query was cancelled or timed out", e);
+		}
+		if (!retval) {
+			// release the query as soon as the results are exhausted.
+			solutions.close();
+		}
+		return retval;
+	}
+
+	@Override
+	protected boolean readBoolean(final int columnOrdinal) throws SQLException {
+		final Node node = readNode(columnOrdinal);
+		final Object value = SolutionDecoder.getLiteralValue(node);
+		if (value instanceof Boolean) {
+			setWasNull(false);
+			return ((Boolean) value).booleanValue();
+		}
+		return super.readBoolean(columnOrdinal);
+	}
+
+	@Override
+	protected double readDouble(final int columnOrdinal) throws SQLException {
+		final Node node = readNode(columnOrdinal);
+		final Object value = SolutionDecoder.getLiteralValue(node);
+		if (value instanceof Number) {
+			setWasNull(false);
+			return ((Number) value).doubleValue();
+		}
+		return super.readDouble(columnOrdinal);
+	}
+
+	@Override
+	protected long readLong(final int columnOrdinal) throws SQLException {
+		final Node node = readNode(columnOrdinal);
+		final Object value = SolutionDecoder.getLiteralValue(node);
+		if (value instanceof Number) {
+			setWasNull(false);
+			return ((Number) value).longValue();
+		}
+		return super.readLong(columnOrdinal);
+	}
+
+	private Node readNode(final int columnOrdinal) throws SQLException {
+		checkColumn(columnOrdinal);
+		return decoder.getNode((QuerySolution) getRowObject(), columnOrdinal);
+	}
+
+	@Override
+	protected Object readObject(final int columnOrdinal) throws SQLException {
+		return SolutionDecoder.decode(readNode(columnOrdinal));
+	}
+
+	@Override
+	public void setFetchSize(final int rows) throws SQLException {
+		if (rows < 0) {
+			throw new SQLException("Fetch size may not be negative");
+		}
+		if ((rows > 0) && (solutions instanceof WindowedSolutionIterator)) {
+			((WindowedSolutionIterator) solutions).setWindowSize(rows);
+		}
+	}
+}
@@ -17,6 +17,7 @@
  */
 package org.xenei.jdbc4sparql.sparql;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -37,6 +38,9 @@ import org.xenei.jdbc4sparql.impl.virtual.VirtualCatalog;
 import org.xenei.jdbc4sparql.impl.virtual.VirtualSchema;
 import org.xenei.jdbc4sparql.sparql.items.QueryColumnInfo;
 
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
 import com.hp.hpl.jena.util.iterator.Map1;
 import com.hp.hpl.jena.util.iterator.WrappedIterator;
 
@@ -184,6 +188,79 @@ public class SparqlView extends AbstractTable {
 		return new SparqlResultSet(this, builder.build());
 	}
 
+	/**
+	 * Get the result set for the view.
+	 *
+	 * Forward only result sets stream the solutions from the query execution,
+	 * all other types are materialized. If a fetch size is specified and the
+	 * query executes against a SERVICE the service results are retrieved in
+	 * windows of fetch size rows. If a batch size is specified forward only
+	 * result sets decode the solutions into columnar blocks of batch size
+	 * rows. Scrollable result sets move rows to disk once the spill threshold
+	 * is reached. If a prefetch size is specified scrollable result sets
+	 * retrieve the rows in the background on the executor of the control. If a result cache is specified the
+	 * cached rows of the query are returned when available, otherwise the rows
+	 * are added to the cache once they have all been read.
+	 *
+	 * @param resultSetType
+	 *            the java.sql.ResultSet type requested by the statement.
+	 * @param fetchSize
+	 *            the number of rows to retrieve at a time or 0 for all.
+	 * @param batchSize
+	 *            the number of rows to decode in each columnar block or 0 to
+	 *            retain the solutions.
+	 * @param spillThreshold
+	 *            the number of bytes of rows that scrollable result sets hold
+	 *            in memory before spilling to disk or 0 to never spill.
+	 * @param prefetchSize
+	 *            the number of rows that scrollable result sets retrieve ahead
+	 *            of the cursor or 0 to retrieve all rows before returning.
+	 * @param control
+	 *            the control that creates, times out and cancels the query
+	 *            executions and provides the executor for background
+	 *            retrieval.
+	 * @param cache
+	 *            the cache of query results or null to always execute the
+	 *            query.
+	 * @return the result set.
+	 * @throws SQLException
+	 */
+	public ResultSet getResultSet(final int resultSetType,
+			final int fetchSize, final int batchSize,
+			final long spillThreshold, final int prefetchSize,
+			final ExecutionControl control, final ResultCache cache)
+					throws SQLException {
+		final Query query = builder.build();
+		ClosableIterator<QuerySolution> solutions = null;
+		if (cache != null) {
+			solutions = cache.get(getCatalog(), query);
+		}
+		if (solutions == null) {
+			final long generation = cache == null ? 0 : cache.getGeneration();
+			if ((fetchSize > 0) && builder.isWindowable()) {
+				solutions = new WindowedSolutionIterator(builder, fetchSize,
+						control);
+			}
+			else {
+				solutions = new SparqlStreamingResultSet.ExecutionIterator(
+						control.createExecution(getCatalog(), query));
+			}
+			if (cache != null) {
+				solutions = cache.record(getCatalog(), query, solutions,
+						generation);
+			}
+		}
+		if (resultSetType == ResultSet.TYPE_FORWARD_ONLY) {
+			if (batchSize > 0) {
+				return new SparqlColumnarResultSet(this, query, solutions,
+						batchSize);
+			}
+			return new SparqlStreamingResultSet(this, query, solutions);
+		}
+		return new SparqlResultSet(this, query, solutions, spillThreshold,
+				prefetchSize, control.getExecutor());
+	}
+
 	@Override
 	public Schema getSchema() {
 		return schema;
@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.rdf.model.AnonId;
+
+/**
+ * A list of solution rows that moves to disk once a memory threshold is
+ * reached.
+ *
+ * Each row is an array of nodes, one per result column. Rows are held on the
+ * heap until their estimated size reaches the threshold, all subsequent rows
+ * are written in a compact binary form to a temporary file. When a row is
+ * read the file is memory mapped and an offset index is used to read any row
+ * directly, so positioning a scrollable result set remains constant time.
+ *
+ * Rows may be added after the list is read. The rows written since the file
+ * was last mapped are mapped as a new segment when one of them is read.
+ */
+public class SpillingSolutionList extends AbstractList<Node[]> implements
+Closeable {
+	private static final Logger LOG = LoggerFactory
+			.getLogger(SpillingSolutionList.class);
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// the largest segment of the file to map at one time.
+	private static final long MAX_SEGMENT = Integer.MAX_VALUE;
+
+	// node type tags.
+	private static final byte NULL = 0;
+	private static final byte URI = 1;
+	private static final byte BLANK = 2;
+	private static final byte PLAIN_LITERAL = 3;
+	private static final byte TYPED_LITERAL = 4;
+
+	// approximate overhead of an in memory row and node.
+	private static final long ROW_OVERHEAD = 32;
+	private static final long NODE_OVERHEAD = 64;
+
+	private final int columnCount;
+	private final long threshold;
+	private final List<Node[]> memoryRows;
+	private long memorySize;
+
+	// the spill file data.
+	private File spillFile;
+	private DataOutputStream spillOut;
+	private long spillPosition;
+	private long[] offsets;
+	private int spilledCount;
+	private final List<String> datatypes;
+	private final Map<String, Integer> datatypeIdx;
+
+	// the mapped file segments, the row index each starts at and the number
+	// of spilled rows that are mapped.
+	private final List<MappedByteBuffer> segments;
+	private final List<Integer> segmentStarts;
+	private int mappedCount;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param columnCount
+	 *            The number of columns in each row.
+	 * @param threshold
+	 *            The number of bytes of rows to retain in memory. 0 or less
+	 *            means never spill.
+	 */
+	public SpillingSolutionList(final int columnCount, final long threshold) {
+		this.columnCount = columnCount;
+		this.threshold = threshold;
+		this.memoryRows = new ArrayList<Node[]>();
+		this.memorySize = 0;
+		this.spilledCount = 0;
+		this.offsets = new long[0];
+		this.datatypes = new ArrayList<String>();
+		this.datatypeIdx = new HashMap<String, Integer>();
+		this.segments = new ArrayList<MappedByteBuffer>();
+		this.segmentStarts = new ArrayList<Integer>();
+		this.mappedCount = 0;
+	}
+
+	/**
+	 * Add a row to the list.
+	 *
+	 * @param row
+	 *            The nodes for the row.
+	 * @return true
+	 */
+	@Override
+	public boolean add(final Node[] row) {
+		if (row.length != columnCount) {
+			throw new IllegalArgumentException(String.format(
+					"Row must have %s columns", columnCount));
+		}
+		if (spillOut == null) {
+			memoryRows.add(row);
+			memorySize += estimateSize(row);
+			if ((threshold > 0) && (memorySize >= threshold)) {
+				openSpillFile();
+			}
+		}
+		else {
+			writeRow(row);
+		}
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Returns true if rows have been written to disk.
+	 *
+	 * @return true if rows were spilled.
+	 */
+	public boolean isSpilled() {
+		return spillFile != null;
+	}
+
+	/**
+	 * Estimate the number of bytes an in memory row uses.
+	 *
+	 * @param row
+	 *            The row.
+	 * @return the approximate size of the row.
+	 */
+	static long estimateSize(final Node[] row) {
+		long size = ROW_OVERHEAD;
+		for (final Node n : row) {
+			if (n != null) {
+				size += NODE_OVERHEAD;
+				if (n.isLiteral()) {
+					size += 2 * n.getLiteralLexicalForm().length();
+				}
+				else if (n.isURI()) {
+					size += 2 * n.getURI().length();
+				}
+			}
+		}
+		return size;
+	}
+
+	private void openSpillFile() {
+		try {
+			spillFile = File.createTempFile("j4s", ".spill");
+			spillFile.deleteOnExit();
+			spillOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(spillFile)));
+			spillPosition = 0;
+			offsets = new long[1024];
+			if (LOG.isDebugEnabled()) {
+				SpillingSolutionList.LOG.debug(
+						"Spilling rows after {} to {}", memoryRows.size(),
+						spillFile);
+			}
+		} catch (final IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	private void writeRow(final Node[] row) {
+		try {
+			if (spilledCount + 1 >= offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[spilledCount] = spillPosition;
+			for (final Node n : row) {
+				writeNode(n);
+			}
+			spilledCount++;
+			offsets[spilledCount] = spillPosition;
+		} catch (final IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	private void writeString(final String s) throws IOException {
+		final byte[] bytes = s.getBytes(UTF8);
+		spillOut.writeInt(bytes.length);
+		spillOut.write(bytes);
+		spillPosition += 4 + bytes.length;
+	}
+
+	private void writeTag(final byte tag) throws IOException {
+		spillOut.writeByte(tag);
+		spillPosition++;
+	}
+
+	private void writeNode(final Node n) throws IOException {
+		if (n == null) {
+			writeTag(NULL);
+		}
+		else if (n.isURI()) {
+			writeTag(URI);
+			writeString(n.getURI());
+		}
+		else if (n.isBlank()) {
+			writeTag(BLANK);
+			writeString(n.getBlankNodeLabel());
+		}
+		else if (n.isLiteral()) {
+			final String dtURI = n.getLiteralDatatypeURI();
+			if (dtURI == null) {
+				writeTag(PLAIN_LITERAL);
+				writeString(n.getLiteralLexicalForm());
+				writeString(n.getLiteralLanguage());
+			}
+			else {
+				Integer idx = datatypeIdx.get(dtURI);
+				if (idx == null) {
+					idx = datatypes.size();
+					datatypes.add(dtURI);
+					datatypeIdx.put(dtURI, idx);
+				}
+				writeTag(TYPED_LITERAL);
+				writeString(n.getLiteralLexicalForm());
+				spillOut.writeInt(idx);
+				spillPosition += 4;
+			}
+		}
+		else {
+			throw new IllegalArgumentException(String.format(
+					"Can not store node %s", n));
+		}
+	}
+
+	/**
+	 * Flush the spill file and map the rows written since it was last mapped.
+	 */
+	private void mapSpillFile() {
+		if (mappedCount == spilledCount) {
+			return;
+		}
+		try {
+			spillOut.flush();
+			final RandomAccessFile raf = new RandomAccessFile(spillFile, "r");
+			try {
+				final FileChannel channel = raf.getChannel();
+				int row = mappedCount;
+				while (row < spilledCount) {
+					final long segStart = offsets[row];
+					int end = row;
+					while ((end < spilledCount)
+							&& ((offsets[end + 1] - segStart) <= MAX_SEGMENT)) {
+						end++;
+					}
+					if (end == row) {
+						throw new IllegalStateException(
+								"Row is too large to map");
+					}
+					segments.add(channel.map(FileChannel.MapMode.READ_ONLY,
+							segStart, offsets[end] - segStart));
+					segmentStarts.add(Integer.valueOf(row));
+					row = end;
+				}
+				mappedCount = row;
+			} finally {
+				// the mapping remains valid after the channel is closed.
+				raf.close();
+			}
+		} catch (final IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public Node[] get(final int index) {
+		if (index < memoryRows.size()) {
+			return memoryRows.get(index);
+		}
+		final int row = index - memoryRows.size();
+		if ((row < 0) || (row >= spilledCount)) {
+			throw new IndexOutOfBoundsException(String.format(
+					"Index: %s, Size: %s", index, size()));
+		}
+		if (row >= mappedCount) {
+			mapSpillFile();
+		}
+		int seg = Collections.binarySearch(segmentStarts, Integer.valueOf(row));
+		if (seg < 0) {
+			seg = -seg - 2;
+		}
+		final ByteBuffer buffer = segments.get(seg).duplicate();
+		buffer.position((int) (offsets[row] - offsets[segmentStarts.get(seg)]));
+		final Node[] retval = new Node[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			retval[i] = readNode(buffer);
+		}
+		return retval;
+	}
+
+	private String readString(final ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	private Node readNode(final ByteBuffer buffer) {
+		switch (buffer.get()) {
+			case NULL:
+				return null;
+			case URI:
+				return NodeFactory.createURI(readString(buffer));
+			case BLANK:
+				return NodeFactory.createAnon(new AnonId(readString(buffer)));
+			case PLAIN_LITERAL:
+				final String lex = readString(buffer);
+				return NodeFactory.createLiteral(lex, readString(buffer), false);
+			case TYPED_LITERAL:
+				final String lexical = readString(buffer);
+				return NodeFactory.createLiteral(lexical, null, TypeMapper
+						.getInstance().getSafeTypeByName(
+								datatypes.get(buffer.getInt())));
+			default:
+				throw new IllegalStateException("Corrupt spill file");
+		}
+	}
+
+	@Override
+	public int size() {
+		return memoryRows.size() + spilledCount;
+	}
+
+	/**
+	 * Release the rows and delete the spill file.
+	 */
+	@Override
+	public void close() {
+		memoryRows.clear();
+		segments.clear();
+		segmentStarts.clear();
+		mappedCount = 0;
+		if (spillOut != null) {
+			try {
+				spillOut.close();
+			} catch (final IOException e) {
+				SpillingSolutionList.LOG.warn("Unable to close spill file", e);
+			}
+			spillOut = null;
+		}
+		if (spillFile != null) {
+			if (!spillFile.delete()) {
+				SpillingSolutionList.LOG.debug("Unable to delete {}",
+						spillFile);
+			}
+			spillFile = null;
+		}
+		spilledCount = 0;
+	}
+}
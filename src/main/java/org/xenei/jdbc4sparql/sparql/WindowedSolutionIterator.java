@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.xenei.jdbc4sparql.sparql;
+
+import java.sql.SQLDataException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xenei.jdbc4sparql.iface.Catalog;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.syntax.ElementData;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+import com.hp.hpl.jena.util.iterator.WrappedIterator;
+
+/**
+ * An iterator over the solutions of a SERVICE query that retrieves the
+ * results from the endpoint in windows.
+ *
+ * Each window is a LIMIT/OFFSET slice of the service call with a stable ORDER
+ * BY. The rows of the window are then passed through the local filters and
+ * bindings of the built query. If the control has an executor the next
+ * window is retrieved in the background while the caller consumes the current
+ * one.
+ */
+public class WindowedSolutionIterator extends NiceIterator<QuerySolution> {
+	private static final Logger LOG = LoggerFactory
+			.getLogger(WindowedSolutionIterator.class);
+
+	/**
+	 * The result of retrieving one window.
+	 */
+	private static class Window {
+		// the number of rows requested from the service.
+		final int requested;
+		// the number of rows returned by the service.
+		final int serviceRows;
+		// the solutions after local processing.
+		final List<QuerySolution> solutions;
+
+		Window(final int requested, final int serviceRows,
+				final List<QuerySolution> solutions) {
+			this.requested = requested;
+			this.serviceRows = serviceRows;
+			this.solutions = solutions;
+		}
+	}
+
+	private final SparqlQueryBuilder builder;
+	private final Catalog catalog;
+	private final ExecutionControl control;
+	private volatile int windowSize;
+	private long nextOffset;
+	private boolean lastWindow;
+	private Iterator<QuerySolution> current;
+	private Future<Window> prefetch;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param builder
+	 *            The builder for the query. Must be windowable.
+	 * @param windowSize
+	 *            The number of rows to retrieve from the service in each
+	 *            window.
+	 * @throws SQLDataException
+	 * @throws IllegalArgumentException
+	 *             if the query can not be windowed or the window size is not
+	 *             positive.
+	 */
+	public WindowedSolutionIterator(final SparqlQueryBuilder builder,
+			final int windowSize) throws SQLDataException {
+		this(builder, windowSize, new ExecutionControl(0));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param builder
+	 *            The builder for the query. Must be windowable.
+	 * @param windowSize
+	 *            The number of rows to retrieve from the service in each
+	 *            window.
+	 * @param control
+	 *            The control that creates the executions for each window and
+	 *            provides the executor for the background retrieval.
+	 * @throws SQLDataException
+	 * @throws IllegalArgumentException
+	 *             if the query can not be windowed or the window size is not
+	 *             positive.
+	 */
+	public WindowedSolutionIterator(final SparqlQueryBuilder builder,
+			final int windowSize, final ExecutionControl control)
+			throws SQLDataException {
+		if (!builder.isWindowable()) {
+			throw new IllegalArgumentException("Query may not be windowed");
+		}
+		this.builder = builder;
+		this.catalog = builder.getCatalog();
+		this.control = control;
+		setWindowSize(windowSize);
+		this.nextOffset = 0;
+		this.lastWindow = false;
+		this.current = Collections.<QuerySolution> emptyList().iterator();
+		this.prefetch = null;
+	}
+
+	/**
+	 * Set the number of rows to retrieve in subsequent windows.
+	 *
+	 * @param windowSize
+	 *            the window size.
+	 * @throws IllegalArgumentException
+	 *             if the window size is not positive.
+	 */
+	public void setWindowSize(final int windowSize) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException(
+					"Window size must be greater than 0");
+		}
+		this.windowSize = windowSize;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!current.hasNext()) {
+			if (lastWindow && (prefetch == null)) {
+				return false;
+			}
+			final Window window = nextWindow();
+			current = window.solutions.iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public QuerySolution next() {
+		if (!hasNext()) {
+			return noElements("No more solutions");
+		}
+		return current.next();
+	}
+
+	@Override
+	public void close() {
+		if (prefetch != null) {
+			prefetch.cancel(true);
+			prefetch = null;
+		}
+		lastWindow = true;
+		current = Collections.<QuerySolution> emptyList().iterator();
+	}
+
+	/**
+	 * Get the next window, waiting for the prefetch if there is one, and start
+	 * the prefetch of the following window.
+	 */
+	private Window nextWindow() {
+		Window window;
+		if (prefetch == null) {
+			window = fetch(nextOffset, windowSize);
+			nextOffset += windowSize;
+		}
+		else {
+			try {
+				window = prefetch.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e.getMessage(), e);
+			} catch (final ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause().getMessage(),
+						e.getCause());
+			} finally {
+				prefetch = null;
+			}
+		}
+		if (window.serviceRows < window.requested) {
+			// short window so this is the end of the service data.
+			lastWindow = true;
+		}
+		else if (!lastWindow) {
+			// there may be more rows so start the next retrieval.
+			final ExecutorService executor = control.getExecutor();
+			if (executor != null) {
+				final int size = windowSize;
+				prefetch = executor.submit(createFetch(nextOffset, size));
+				nextOffset += size;
+			}
+		}
+		return window;
+	}
+
+	private Callable<Window> createFetch(final long offset, final int size) {
+		return new Callable<Window>() {
+			@Override
+			public Window call() {
+				return fetch(offset, size);
+			}
+		};
+	}
+
+	/**
+	 * Retrieve a window from the service and apply the local query to it.
+	 */
+	private Window fetch(final long offset, final int size) {
+		if (LOG.isDebugEnabled()) {
+			WindowedSolutionIterator.LOG.debug(
+					"Fetching window offset {} size {}", offset, size);
+		}
+		try {
+			final Query serviceQuery = builder.getServiceWindowQuery(offset,
+					size);
+			if (serviceQuery == null) {
+				return new Window(size, 0,
+						Collections.<QuerySolution> emptyList());
+			}
+			final ElementData data = new ElementData();
+			QueryExecution qexec = control.createExecution(catalog,
+					serviceQuery);
+			try {
+				final ResultSet rs = qexec.execSelect();
+				for (final String name : rs.getResultVars()) {
+					data.add(Var.alloc(name));
+				}
+				while (rs.hasNext()) {
+					data.add(rs.nextBinding());
+				}
+			} finally {
+				qexec.close();
+			}
+			final int rowCount = data.getRows().size();
+			if (rowCount == 0) {
+				return new Window(size, 0,
+						Collections.<QuerySolution> emptyList());
+			}
+			qexec = control.createExecution(catalog,
+					builder.getWindowQuery(data));
+			try {
+				return new Window(size, rowCount, WrappedIterator.create(
+						qexec.execSelect()).toList());
+			} finally {
+				qexec.close();
+			}
+		} catch (final SQLDataException e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+}
@@ -2,12 +2,22 @@ package org.xenei.jdbc4sparql.sparql.items;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.xenei.jdbc4sparql.iface.name.ColumnName;
 import org.xenei.jdbc4sparql.iface.name.ItemName;
 import org.xenei.jdbc4sparql.iface.name.NameSegments;
+import org.xenei.jdbc4sparql.iface.name.SearchName;
+import org.xenei.jdbc4sparql.iface.name.TableName;
+import org.xenei.jdbc4sparql.impl.NameUtils;
 import org.xenei.jdbc4sparql.sparql.SparqlQueryBuilder;
 
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
@@ -26,6 +36,11 @@ import com.hp.hpl.jena.util.iterator.WrappedIterator;
  * <li>QueryItemInfo - check for quality of objects</li>
  * </ul>
  *
+ * The items are indexed by the name segment values that match() compares and
+ * by GUID so that name lookups do not scan the collection. The indexes only
+ * use the parts of the names that do not change (the fully qualified name and
+ * the GUID) so changing the used segments of a name does not invalidate them.
+ *
  * @param <T>
  */
 public class QueryItemCollection<I extends QueryItemInfo<T, N>, T extends NamedObject<N>, N extends ItemName>
@@ -33,8 +48,25 @@ implements Collection<I> {
 
 	private List<I> lst;
 
+	// the items by the segment values compared by match().
+	private final Map<NameKey, List<I>> nameIndex;
+	// the number of items that match with each set of segments.
+	private final Map<NameSegments, Integer> matchSegments;
+	// the items by name GUID.
+	private final Map<String, List<I>> guidIndex;
+	// the items by base object GUID.
+	private final Map<String, List<I>> baseGuidIndex;
+	// the items by the last segment of the name. Items that can not be
+	// indexed this way are under null.
+	private final Map<String, List<I>> shortNameIndex;
+
 	public QueryItemCollection() {
 		lst = new ArrayList<I>();
+		nameIndex = new HashMap<NameKey, List<I>>();
+		matchSegments = new HashMap<NameSegments, Integer>();
+		guidIndex = new HashMap<String, List<I>>();
+		baseGuidIndex = new HashMap<String, List<I>>();
+		shortNameIndex = new HashMap<String, List<I>>();
 	}
 
 	public QueryItemCollection(final Collection<? extends I> initial) {
@@ -51,9 +83,153 @@ implements Collection<I> {
 			return false;
 		}
 		lst.add(arg0);
+		index(arg0);
 		return true;
 	}
 
+	/**
+	 * Get the segments that are compared when an ItemName is matched against
+	 * the item name.
+	 */
+	private static NameSegments getMatchSegments(final ItemName name) {
+		return name.clone(NameSegments.ALL).getUsedSegments();
+	}
+
+	private static NameSegments and(final NameSegments segs1,
+			final NameSegments segs2) {
+		return NameSegments.getInstance(segs1.isCatalog() && segs2.isCatalog(),
+				segs1.isSchema() && segs2.isSchema(),
+				segs1.isTable() && segs2.isTable(),
+				segs1.isColumn() && segs2.isColumn());
+	}
+
+	/**
+	 * Get the value of the last segment of a column or table name. This is the
+	 * last segment of the name when the GUID is not used.
+	 *
+	 * @return the value or null if the name can not be indexed by it.
+	 */
+	private static String getShortNameKey(final ItemName name) {
+		final ItemName fqName = new SearchName(name, NameSegments.ALL);
+		String retval = null;
+		if (name instanceof ColumnName) {
+			retval = fqName.getColumn();
+		}
+		else if (name instanceof TableName) {
+			retval = fqName.getTable();
+		}
+		return (retval == null) || (retval.length() == 0) ? null : retval;
+	}
+
+	private static <K, V> void addTo(final Map<K, List<V>> map, final K key,
+			final V value) {
+		List<V> values = map.get(key);
+		if (values == null) {
+			values = new ArrayList<V>();
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+
+	private static <K, V> void removeFrom(final Map<K, List<V>> map,
+			final K key, final V value) {
+		final List<V> values = map.get(key);
+		if (values != null) {
+			final Iterator<V> iter = values.iterator();
+			while (iter.hasNext()) {
+				if (iter.next() == value) {
+					iter.remove();
+					break;
+				}
+			}
+			if (values.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+
+	private static <K, V> List<V> get(final Map<K, List<V>> map, final K key) {
+		final List<V> values = map.get(key);
+		return values == null ? Collections.<V> emptyList() : values;
+	}
+
+	/**
+	 * Get the keys for every name that may match the item name.
+	 */
+	private Set<NameKey> getNameKeys(final I item) {
+		final NameSegments used = getMatchSegments(item.getName());
+		final ItemName fqName = new SearchName(item.getName(),
+				NameSegments.ALL);
+		final Set<NameKey> retval = new HashSet<NameKey>();
+		for (int i = 0; i < 16; i++) {
+			final NameSegments segs = NameSegments.getInstance((i & 8) != 0,
+					(i & 4) != 0, (i & 2) != 0, (i & 1) != 0);
+			retval.add(new NameKey(and(used, segs), fqName));
+		}
+		return retval;
+	}
+
+	// the base object may not be named yet.
+	private static String getBaseGUID(final QueryItemInfo<?, ?> item) {
+		return item.getBaseObject().getName() == null ? null : item
+				.getGUID();
+	}
+
+	private void index(final I item) {
+		for (final NameKey key : getNameKeys(item)) {
+			addTo(nameIndex, key, item);
+		}
+		final NameSegments used = getMatchSegments(item.getName());
+		final Integer count = matchSegments.get(used);
+		matchSegments.put(used, count == null ? 1 : count + 1);
+		addTo(guidIndex, item.getName().getGUID(), item);
+		addTo(baseGuidIndex, getBaseGUID(item), item);
+		addTo(shortNameIndex, getShortNameKey(item.getName()), item);
+	}
+
+	private void unindex(final I item) {
+		for (final NameKey key : getNameKeys(item)) {
+			removeFrom(nameIndex, key, item);
+		}
+		final NameSegments used = getMatchSegments(item.getName());
+		final int count = matchSegments.get(used);
+		if (count == 1) {
+			matchSegments.remove(used);
+		}
+		else {
+			matchSegments.put(used, count - 1);
+		}
+		removeFrom(guidIndex, item.getName().getGUID(), item);
+		removeFrom(baseGuidIndex, getBaseGUID(item), item);
+		removeFrom(shortNameIndex, getShortNameKey(item.getName()), item);
+	}
+
+	// rebuild the indexes after the list has been replaced.
+	private void reindex() {
+		nameIndex.clear();
+		matchSegments.clear();
+		guidIndex.clear();
+		baseGuidIndex.clear();
+		shortNameIndex.clear();
+		for (final I item : lst) {
+			index(item);
+		}
+	}
+
+	/**
+	 * Remove the item (not an equal item) from the collection.
+	 */
+	private boolean removeItem(final I item) {
+		for (int i = 0; i < lst.size(); i++) {
+			if (lst.get(i) == item) {
+				lst.remove(i);
+				unindex(item);
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Add all items in the collection.
 	 */
@@ -72,6 +248,7 @@ implements Collection<I> {
 	@Override
 	public void clear() {
 		lst.clear();
+		reindex();
 	}
 
 	// public boolean contains(ItemName name) {
@@ -112,7 +289,23 @@ implements Collection<I> {
 	 * @return true if it is found.
 	 */
 	public boolean contains(final QueryItemInfo<?, ?> arg0) {
-		return lst.contains(arg0);
+		// equal items have the same SPARQL name, so an equal item either
+		// uses the GUID as the name or has the same last name segment.
+		final String name = arg0.getName().getSPARQLName();
+		final String shortName = name.substring(name
+				.lastIndexOf(NameUtils.SPARQL_DOT) + 1);
+		return containsEqual(get(guidIndex, name), arg0)
+				|| containsEqual(get(shortNameIndex, shortName), arg0)
+				|| containsEqual(get(shortNameIndex, null), arg0);
+	}
+
+	private static boolean containsEqual(final List<?> items, final Object o) {
+		for (final Object item : items) {
+			if (item.equals(o)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -123,6 +316,10 @@ implements Collection<I> {
 	 * @return true if the named object is found.
 	 */
 	public boolean contains(final NamedObject<?> arg0) {
+		// the same base object matches with any segments.
+		if (baseGuidIndex.containsKey(arg0.getName().getGUID())) {
+			return true;
+		}
 		for (final QueryItemInfo<?, ?> itemInfo : lst) {
 			if (itemInfo.getBaseObject().getName().matches(arg0.getName())) {
 				return true;
@@ -139,7 +336,7 @@ implements Collection<I> {
 	 * @return true if the named object is found.
 	 */
 	public boolean contains(final ItemName arg0) {
-		return match(arg0).hasNext();
+		return !matchList(arg0).isEmpty();
 	}
 
 	/**
@@ -168,7 +365,38 @@ implements Collection<I> {
 	 */
 	@Override
 	public ExtendedIterator<I> iterator() {
-		return WrappedIterator.create(lst.iterator());
+		return createIterator(lst);
+	}
+
+	/**
+	 * Create an iterator over a copy of the items. Removing an item through
+	 * the iterator removes it from the collection.
+	 */
+	private ExtendedIterator<I> createIterator(final List<I> items) {
+		final Iterator<I> iter = new ArrayList<I>(items).iterator();
+		return WrappedIterator.create(new Iterator<I>() {
+			private I last;
+
+			@Override
+			public boolean hasNext() {
+				return iter.hasNext();
+			}
+
+			@Override
+			public I next() {
+				last = iter.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				removeItem(last);
+				last = null;
+			}
+		});
 	}
 
 	/**
@@ -186,7 +414,12 @@ implements Collection<I> {
 	 * @return true if the item was removed.
 	 */
 	public boolean remove(final QueryItemInfo<?, ?> arg0) {
-		return lst.remove(arg0);
+		final int idx = lst.indexOf(arg0);
+		if (idx == -1) {
+			return false;
+		}
+		unindex(lst.remove(idx));
+		return true;
 	}
 
 	/**
@@ -197,9 +430,11 @@ implements Collection<I> {
 	 * @return true if an item has been removed.
 	 */
 	public boolean remove(final ItemName arg0) {
-		final int startSize = lst.size();
-		lst = notMatch(arg0).toList();
-		return startSize != lst.size();
+		boolean retval = false;
+		for (final I item : new ArrayList<I>(matchList(arg0))) {
+			retval |= removeItem(item);
+		}
+		return retval;
 	}
 
 	/**
@@ -211,9 +446,9 @@ implements Collection<I> {
 	 */
 	public boolean remove(final NamedObject<?> arg0) {
 		boolean found = false;
-		for (final QueryItemInfo<?, ?> itemInfo : lst) {
+		for (final I itemInfo : new ArrayList<I>(lst)) {
 			if (itemInfo.getBaseObject().equals(arg0)) {
-				found |= remove(itemInfo);
+				found |= removeItem(itemInfo);
 			}
 		}
 		return found;
@@ -264,7 +499,11 @@ implements Collection<I> {
 		}
 		final Object o = arg0.iterator().next();
 		if (o instanceof QueryItemInfo<?, ?>) {
-			return lst.retainAll(arg0);
+			if (lst.retainAll(arg0)) {
+				reindex();
+				return true;
+			}
+			return false;
 		}
 
 		if (o instanceof NamedObject<?>) {
@@ -313,6 +552,7 @@ implements Collection<I> {
 		}
 		if (retval) {
 			lst = newLst;
+			reindex();
 		}
 		return retval;
 	}
@@ -342,17 +582,16 @@ implements Collection<I> {
 	 *             if more than one object matches.
 	 */
 	public I get(final ItemName name) {
-		final Iterator<I> iter = match(name);
-		if (iter.hasNext()) {
-			final I retval = iter.next();
-			if (iter.hasNext()) {
-				throw new IllegalArgumentException(String.format(
-						SparqlQueryBuilder.FOUND_IN_MULTIPLE_, name, lst.get(0)
-						.getClass()));
-			}
-			return retval;
+		final List<I> matches = matchList(name);
+		if (matches.isEmpty()) {
+			return null;
 		}
-		return null;
+		if (matches.size() > 1) {
+			throw new IllegalArgumentException(String.format(
+					SparqlQueryBuilder.FOUND_IN_MULTIPLE_, name, lst.get(0)
+					.getClass()));
+		}
+		return matches.get(0);
 	}
 
 	/**
@@ -402,25 +641,16 @@ implements Collection<I> {
 	// }
 	//
 	public I findGUIDVar(final String guid) {
-
-		final ExtendedIterator<I> iter = iterator();
-		I backupResult = null;
-		while (iter.hasNext()) {
-			final I item = iter.next();
-			if (item.getName().getGUID().equals(guid)) {
-				return item;
-			}
-			if ((backupResult == null) && item.getGUID().equals(guid)) {
-				backupResult = item;
-			}
+		List<I> items = get(guidIndex, guid);
+		if (items.isEmpty()) {
+			// the base object may have the GUID.
+			items = get(baseGuidIndex, guid);
 		}
-
-		return backupResult;
-
+		return items.isEmpty() ? null : items.get(0);
 	}
 
 	public int count(final ItemName name) {
-		return match(name).toList().size();
+		return matchList(name).size();
 	}
 
 	public int count(final T namedObject) {
@@ -428,8 +658,28 @@ implements Collection<I> {
 	}
 
 	public ExtendedIterator<I> match(final ItemName name) {
-		final ItemNameFilter<I> nof = new ItemNameFilter<I>(name);
-		return iterator().filterKeep(nof);
+		return createIterator(matchList(name));
+	}
+
+	/**
+	 * Get the items that match the name in collection order.
+	 *
+	 * @param name
+	 *            The item name to match.
+	 * @return the matching items. The list must not be modified.
+	 */
+	private List<I> matchList(final ItemName name) {
+		if (matchSegments.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if (matchSegments.size() > 1) {
+			// the items compare different segments so scan them.
+			return WrappedIterator.create(lst.iterator())
+					.filterKeep(new ItemNameFilter<I>(name)).toList();
+		}
+		final NameSegments used = matchSegments.keySet().iterator().next();
+		return get(nameIndex, new NameKey(and(used, name.getUsedSegments()),
+				new SearchName(name, NameSegments.ALL)));
 	}
 
 	public ExtendedIterator<I> match(final T name) {
@@ -438,7 +688,8 @@ implements Collection<I> {
 	}
 
 	public ExtendedIterator<I> findBaseObject(final T baseObject) {
-		return iterator().filterKeep(new BaseObjectFilter<I>(baseObject));
+		return createIterator(get(baseGuidIndex, baseObject.getName()
+				.getGUID()));
 	}
 
 	public ExtendedIterator<I> notMatch(final ItemName name) {
@@ -469,14 +720,14 @@ implements Collection<I> {
 	}
 
 	public int indexOf(final ItemName name) {
-		final ItemNameFilter<I> nof = new ItemNameFilter<I>(name);
-		final Iterator<I> iter = iterator();
-		int i = 0;
-		while (iter.hasNext()) {
-			if (nof.accept(iter.next())) {
-				return i;
+		final List<I> matches = matchList(name);
+		if (!matches.isEmpty()) {
+			final I item = matches.get(0);
+			for (int i = 0; i < lst.size(); i++) {
+				if (lst.get(i) == item) {
+					return i;
+				}
 			}
-			i++;
 		}
 		return -1;
 	}
@@ -486,6 +737,52 @@ implements Collection<I> {
 		return lst.toString();
 	}
 
+	/**
+	 * The segments compared by ItemName.matches() and their values.
+	 */
+	private static final class NameKey {
+		private final NameSegments segs;
+		private final String catalog;
+		private final String schema;
+		private final String table;
+		private final String column;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param segs
+		 *            The segments that are compared.
+		 * @param fqName
+		 *            The name with all segments used.
+		 */
+		NameKey(final NameSegments segs, final ItemName fqName) {
+			this.segs = segs;
+			this.catalog = segs.isCatalog() ? fqName.getCatalog() : null;
+			this.schema = segs.isSchema() ? fqName.getSchema() : null;
+			this.table = segs.isTable() ? fqName.getTable() : null;
+			this.column = segs.isColumn() ? fqName.getColumn() : null;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (o instanceof NameKey) {
+				final NameKey other = (NameKey) o;
+				return new EqualsBuilder().append(segs, other.segs)
+						.append(catalog, other.catalog)
+						.append(schema, other.schema)
+						.append(table, other.table)
+						.append(column, other.column).isEquals();
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return new HashCodeBuilder().append(segs).append(catalog)
+					.append(schema).append(table).append(column).toHashCode();
+		}
+	}
+
 	public static class ItemNameFilter<I extends QueryItemInfo<?, ?>> extends
 	Filter<I> {
 
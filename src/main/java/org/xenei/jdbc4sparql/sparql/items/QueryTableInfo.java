@@ -19,6 +19,7 @@ import org.xenei.jdbc4sparql.iface.name.NameSegments;
 import org.xenei.jdbc4sparql.iface.name.TableName;
 import org.xenei.jdbc4sparql.sparql.CheckTypeF;
 import org.xenei.jdbc4sparql.sparql.ForceTypeF;
+import org.xenei.jdbc4sparql.sparql.NativeTypeF;
 import org.xenei.jdbc4sparql.sparql.QueryInfoSet;
 import org.xenei.jdbc4sparql.sparql.SparqlQueryBuilder;
 import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
@@ -26,7 +27,6 @@ import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryException;
 import com.hp.hpl.jena.sparql.core.Var;
-import com.hp.hpl.jena.sparql.expr.E_Function;
 import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
 import com.hp.hpl.jena.sparql.expr.Expr;
 import com.hp.hpl.jena.sparql.lang.sparql_11.ParseException;
@@ -291,6 +291,17 @@ public class QueryTableInfo extends QueryItemInfo<Table, TableName> {
 		return joinElementList;
 	}
 
+	/**
+	 * Get the group that holds the table patterns and filters. This is the
+	 * element that is added to the query (wrapped in an optional element if
+	 * the table is optional).
+	 *
+	 * @return the table element group.
+	 */
+	public ElementGroup getElementGroup() {
+		return egWrapper;
+	}
+
 	/**
 	 * Adds the defined column and table definition to the query.
 	 * <p>
@@ -411,6 +422,9 @@ public class QueryTableInfo extends QueryItemInfo<Table, TableName> {
 	 * Data filters are columns that need to be filtered to ensure that the data
 	 * is not null.
 	 *
+	 * If the info set uses native type filters the checks are written with
+	 * standard SPARQL functions, otherwise with CheckTypeF and ForceTypeF.
+	 *
 	 * @param typeFilterList
 	 *            The list of QueryColumnInfos to be added to the type filter.
 	 * @param dataFilterList
@@ -427,27 +441,77 @@ public class QueryTableInfo extends QueryItemInfo<Table, TableName> {
 			final Collection<Element> joinFilterList,
 			final ElementGroup filterGroup, final ElementGroup typeGroup)
 			throws SQLDataException {
+		addTypeFilters(infoSet, typeFilterList, dataFilterList,
+				joinFilterList, filterGroup, filterGroup, typeGroup);
+	}
 
+	/**
+	 * Add the type and data filters for the table.
+	 *
+	 * Native type filters are placed in the nativeGroup, all other type
+	 * filters are placed in the filterGroup. This allows the native filters to
+	 * be evaluated by a remote endpoint.
+	 *
+	 * @param typeFilterList
+	 *            The list of QueryColumnInfos to be added to the type filter.
+	 * @param dataFilterList
+	 *            The list of QueryColumnInfos to be added to the data filter.
+	 * @param nativeGroup
+	 *            The ElementGroup for the native type filters.
+	 * @param filterGroup
+	 *            The ElementGroup for the data filters.
+	 * @param typeGroup
+	 *            The ElementGroup for the type filters.
+	 * @throws SQLDataException
+	 */
+	public static void addTypeFilters(final QueryInfoSet infoSet,
+			final Collection<QueryColumnInfo> typeFilterList,
+			final Collection<QueryColumnInfo> dataFilterList,
+			final Collection<Element> joinFilterList,
+			final ElementGroup nativeGroup, final ElementGroup filterGroup,
+			final ElementGroup typeGroup) throws SQLDataException {
+
+		final boolean nativeFilters = infoSet.useNativeTypeFilters();
 		Expr expr = null;
+		Expr nativeExpr = null;
 		for (final QueryColumnInfo columnInfo : typeFilterList) {
-			final E_Function f = CheckTypeF.getFunction(columnInfo);
-			if (LOG.isDebugEnabled()) {
-				QueryTableInfo.LOG.debug("Adding filter: {} ({})", f,
-						columnInfo);
-			}
-			if (expr == null) {
-				expr = f;
+			if (nativeFilters && NativeTypeF.isSupported(columnInfo)) {
+				final Expr f = NativeTypeF.getFilter(columnInfo);
+				if (f != null) {
+					if (LOG.isDebugEnabled()) {
+						QueryTableInfo.LOG.debug("Adding native filter: {} ({})",
+								f, columnInfo);
+					}
+					nativeExpr = nativeExpr == null ? f : new E_LogicalAnd(
+							nativeExpr, f);
+				}
 			}
 			else {
-				expr = new E_LogicalAnd(expr, f);
+				final Expr f = CheckTypeF.getFunction(columnInfo);
+				if (LOG.isDebugEnabled()) {
+					QueryTableInfo.LOG.debug("Adding filter: {} ({})", f,
+							columnInfo);
+				}
+				expr = expr == null ? f : new E_LogicalAnd(expr, f);
 			}
 		}
+		if ((nativeExpr != null) && (nativeGroup == filterGroup)) {
+			// same group so use one filter.
+			expr = expr == null ? nativeExpr : new E_LogicalAnd(nativeExpr,
+					expr);
+			nativeExpr = null;
+		}
+		if (nativeExpr != null) {
+			nativeGroup.addElementFilter(new ElementFilter(nativeExpr));
+		}
 		if (expr != null) {
 			filterGroup.addElementFilter(new ElementFilter(expr));
 		}
 
 		for (final QueryColumnInfo columnInfo : dataFilterList) {
-			final ElementBind bind = ForceTypeF.getBinding(columnInfo);
+			final ElementBind bind = nativeFilters
+					&& NativeTypeF.isSupported(columnInfo) ? NativeTypeF
+					.getBinding(columnInfo) : ForceTypeF.getBinding(columnInfo);
 			if (LOG.isDebugEnabled()) {
 				QueryTableInfo.LOG.debug("Adding binding: {}", bind);
 			}
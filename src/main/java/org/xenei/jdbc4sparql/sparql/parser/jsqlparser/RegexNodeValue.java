@@ -7,17 +7,118 @@ import java.util.StringTokenizer;
 import com.hp.hpl.jena.sparql.expr.nodevalue.NodeValueString;
 
 class RegexNodeValue extends NodeValueString {
+	/**
+	 * How the LIKE pattern is matched.
+	 */
+	enum MatchType {
+		/** The pattern has no wildcards */
+		EXACT,
+		/** The pattern is text followed by % */
+		STARTS_WITH,
+		/** The pattern is % followed by text */
+		ENDS_WITH,
+		/** The pattern is text surrounded by % */
+		CONTAINS,
+		/** Any other pattern */
+		REGEX
+	}
+
 	private final boolean wildcard;
+	private MatchType matchType;
+	// the text of the pattern without the wildcards.
+	private String literal;
 
-	private RegexNodeValue(final String str, final boolean wildcard) {
+	private RegexNodeValue(final String str, final boolean wildcard,
+			final String part) {
 		super(str);
 		this.wildcard = wildcard;
+		parseMatchType(part);
 	}
 
 	public boolean isWildcard() {
 		return wildcard;
 	}
 
+	/**
+	 * Get the simplest way to match the pattern.
+	 *
+	 * @return the match type.
+	 */
+	public MatchType getMatchType() {
+		return matchType;
+	}
+
+	/**
+	 * Get the text to match for the EXACT, STARTS_WITH, ENDS_WITH and
+	 * CONTAINS match types.
+	 *
+	 * @return the text of the pattern without the wildcards.
+	 */
+	public String getLiteral() {
+		return literal;
+	}
+
+	/**
+	 * Determine if the pattern is a literal with % only at the start and/or
+	 * end. Escapes are processed as in create(): a backslash before % or _
+	 * makes it a literal and a pair of backslashes are literal backslashes.
+	 */
+	private void parseMatchType(final String part) {
+		final StringBuilder sb = new StringBuilder();
+		boolean leading = false;
+		boolean trailing = false;
+		for (int i = 0; i < part.length(); i++) {
+			final char c = part.charAt(i);
+			if ((c == '\\') && ((i + 1) < part.length())) {
+				final char next = part.charAt(i + 1);
+				if ((next == '%') || (next == '_')) {
+					sb.append(next);
+					i++;
+				}
+				else if (next == '\\') {
+					// an escaped backslash is a single literal backslash.
+					sb.append(c);
+					i++;
+				}
+				else {
+					sb.append(c);
+				}
+			}
+			else if (c == '_') {
+				matchType = MatchType.REGEX;
+				return;
+			}
+			else if (c == '%') {
+				if (i == 0) {
+					leading = true;
+				}
+				else if (i == (part.length() - 1)) {
+					trailing = true;
+				}
+				else {
+					matchType = MatchType.REGEX;
+					return;
+				}
+			}
+			else {
+				sb.append(c);
+			}
+		}
+		literal = sb.toString();
+		if (!leading && !trailing) {
+			matchType = MatchType.EXACT;
+		}
+		else if (literal.length() == 0) {
+			matchType = MatchType.REGEX;
+		}
+		else if (leading && trailing) {
+			matchType = MatchType.CONTAINS;
+		}
+		else {
+			matchType = leading ? MatchType.ENDS_WITH : MatchType.STARTS_WITH;
+		}
+	}
+
 	private final static String SLASH = "\\";
 	private final static String PATTERN = "[]^.?*+{}()|$_%" + SLASH;
 	private final static Map<String, String> CONVERSION = new HashMap<String, String>();
@@ -28,7 +129,7 @@ class RegexNodeValue extends NodeValueString {
 			CONVERSION.put(s, SLASH + s);
 		}
 		CONVERSION.put("_", ".");
-		CONVERSION.put("%", "(.+)");
+		CONVERSION.put("%", "(.*)");
 	}
 
 	public static RegexNodeValue create(final String part) {
@@ -53,8 +154,9 @@ class RegexNodeValue extends NodeValueString {
 					if (candidate.equals("%") || candidate.equals("_")) {
 						sb.setCharAt(sb.length() - 2, candidate.charAt(0));
 						sb.setLength(sb.length() - 1);
-						plainSb.setCharAt(sb.length() - 2, candidate.charAt(0));
-						plainSb.setLength(sb.length() - 1);
+						plainSb.setCharAt(plainSb.length() - 2,
+								candidate.charAt(0));
+						plainSb.setLength(plainSb.length() - 1);
 						escaping--;
 					}
 					else if (candidate.equals(SLASH)) {
@@ -97,7 +199,7 @@ class RegexNodeValue extends NodeValueString {
 
 		return new RegexNodeValue(
 				(escaping > 0) && (wildcard > 0) ? sb.toString()
-						: plainSb.toString(), wildcard > 0);
+						: plainSb.toString(), wildcard > 0, part);
 	}
 
 }
\ No newline at end of file
@@ -97,6 +97,9 @@ import com.hp.hpl.jena.sparql.expr.E_Multiply;
 import com.hp.hpl.jena.sparql.expr.E_NotEquals;
 import com.hp.hpl.jena.sparql.expr.E_OneOf;
 import com.hp.hpl.jena.sparql.expr.E_Regex;
+import com.hp.hpl.jena.sparql.expr.E_StrContains;
+import com.hp.hpl.jena.sparql.expr.E_StrEndsWith;
+import com.hp.hpl.jena.sparql.expr.E_StrStartsWith;
 import com.hp.hpl.jena.sparql.expr.E_Subtract;
 import com.hp.hpl.jena.sparql.expr.Expr;
 import com.hp.hpl.jena.sparql.expr.ExprFunction;
@@ -463,8 +466,17 @@ public class SparqlExprVisitor implements ExpressionVisitor {
 
 	@Override
 	public void visit(final JdbcParameter jdbcParameter) {
-		throw new UnsupportedOperationException(
-				"JDBC Parameters are not supported");
+		if (LOG.isDebugEnabled()) {
+			logVisit("JdbcParameter", jdbcParameter);
+		}
+		final AliasInfo exprAlias = getAlias();
+		try {
+			stack.push(processAlias(
+					new ExprVar(builder.getParameter(jdbcParameter)), exprAlias));
+		} catch (final IllegalArgumentException e) {
+			throw new UnsupportedOperationException(
+					"JDBC Parameters are not supported in sub queries");
+		}
 	}
 
 	@Override
@@ -479,12 +491,31 @@ public class SparqlExprVisitor implements ExpressionVisitor {
 		if (right instanceof NodeValueString) {
 			final RegexNodeValue rnv = RegexNodeValue
 					.create(((NodeValueString) right).getString());
-			if (rnv.isWildcard()) {
-				stack.push(processAlias(new E_Regex(left, rnv,
-						new NodeValueString("")), exprAlias));
-			}
-			else {
-				stack.push(processAlias(new E_Equals(left, rnv), exprAlias));
+			// use the string functions where the pattern allows as they are
+			// cheaper than a regex and may use the endpoint text indexes.
+			switch (rnv.getMatchType()) {
+				case STARTS_WITH:
+					stack.push(processAlias(new E_StrStartsWith(left,
+							new NodeValueString(rnv.getLiteral())), exprAlias));
+					break;
+				case ENDS_WITH:
+					stack.push(processAlias(new E_StrEndsWith(left,
+							new NodeValueString(rnv.getLiteral())), exprAlias));
+					break;
+				case CONTAINS:
+					stack.push(processAlias(new E_StrContains(left,
+							new NodeValueString(rnv.getLiteral())), exprAlias));
+					break;
+				default:
+					if (rnv.isWildcard()) {
+						stack.push(processAlias(new E_Regex(left, rnv,
+								new NodeValueString("")), exprAlias));
+					}
+					else {
+						stack.push(processAlias(new E_Equals(left, rnv),
+								exprAlias));
+					}
+					break;
 			}
 		}
 		else {
@@ -21,13 +21,19 @@ package org.xenei.jdbc4sparql.sparql.parser.jsqlparser;
 
 import java.io.StringReader;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.JdbcParameter;
 import net.sf.jsqlparser.parser.CCJSqlParserManager;
 import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
 import net.sf.jsqlparser.util.deparser.StatementDeParser;
 
 import org.slf4j.Logger;
@@ -95,6 +101,7 @@ public class SparqlParserImpl implements SparqlParser {
 					sqlQuery));
 			final SparqlVisitor sv = new SparqlVisitor(catalogs, this,
 					(RdfCatalog) catalog, schema);
+			sv.getBuilder().setParameterKeys(findParameters(stmt));
 			stmt.accept(sv);
 			if (SparqlParserImpl.LOG.isDebugEnabled()) {
 				SparqlParserImpl.LOG.debug("Parsed as {}", sv.getBuilder());
@@ -103,6 +110,37 @@ public class SparqlParserImpl implements SparqlParser {
 		} catch (final JSQLParserException e) {
 			SparqlParserImpl.LOG.error("Error parsing: " + e.getMessage(), e);
 			throw new SQLException(e);
+		} catch (final UnsupportedOperationException e) {
+			throw new SQLFeatureNotSupportedException(e.getMessage(), e);
 		}
 	}
+
+	/**
+	 * Find the JDBC parameters in the order they appear in the SQL. The
+	 * parser visits the statement in a different order so the parameters are
+	 * found by deparsing the statement.
+	 *
+	 * @param stmt
+	 *            The statement to search.
+	 * @return the list of parameters.
+	 */
+	private static List<JdbcParameter> findParameters(final Statement stmt) {
+		final List<JdbcParameter> retval = new ArrayList<JdbcParameter>();
+		if (stmt instanceof Select) {
+			final StringBuffer buffer = new StringBuffer();
+			final SelectDeParser selectDeParser = new SelectDeParser();
+			final ExpressionDeParser expressionDeParser = new ExpressionDeParser(
+					selectDeParser, buffer) {
+				@Override
+				public void visit(final JdbcParameter jdbcParameter) {
+					retval.add(jdbcParameter);
+					super.visit(jdbcParameter);
+				}
+			};
+			selectDeParser.setBuffer(buffer);
+			selectDeParser.setExpressionVisitor(expressionDeParser);
+			((Select) stmt).getSelectBody().accept(selectDeParser);
+		}
+		return retval;
+	}
 }
@@ -52,6 +52,8 @@ import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.expr.E_Bound;
 import com.hp.hpl.jena.sparql.expr.E_Equals;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.E_OneOf;
 import com.hp.hpl.jena.sparql.expr.Expr;
 import com.hp.hpl.jena.sparql.expr.ExprFunction;
 import com.hp.hpl.jena.sparql.expr.ExprFunction2;
@@ -176,6 +178,27 @@ public class SparqlSelectVisitor implements SelectVisitor, OrderByVisitor {
 		}
 	}
 
+	/**
+	 * Add the IN lists that must be true for the where clause to be true to
+	 * the query builder so that it can look up their values.
+	 *
+	 * @param expr
+	 *            The where clause expression.
+	 */
+	private void addInLists(final Expr expr) {
+		if (expr instanceof E_LogicalAnd) {
+			addInLists(((E_LogicalAnd) expr).getArg1());
+			addInLists(((E_LogicalAnd) expr).getArg2());
+		}
+		else if (expr instanceof E_OneOf) {
+			final E_OneOf oneOf = (E_OneOf) expr;
+			if (oneOf.getLHS() instanceof ExprColumn) {
+				queryBuilder.addInList(((ExprColumn) oneOf.getLHS())
+						.getColumnInfo(), oneOf.getRHS().getList());
+			}
+		}
+	}
+
 	// take apart the join and figure out how to merge it.
 	private void deparseJoin(final Join join, final TableName tableName) {
 		if (LOG.isDebugEnabled()) {
@@ -351,6 +374,7 @@ public class SparqlSelectVisitor implements SelectVisitor, OrderByVisitor {
 					queryBuilder, SparqlQueryBuilder.OPTIONAL, false);
 			plainSelect.getWhere().accept(expressionVisitor);
 			final Expr expr = expressionVisitor.getResult();
+			addInLists(expr);
 			queryBuilder.addFilter(expr);
 			for (final ExprColumn exprCol : expressionVisitor.getColumns()) {
 				final QueryColumnInfo paramColumnInfo = exprCol.getColumnInfo();
@@ -0,0 +1,220 @@
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.xenei.jdbc4sparql.LoggingConfig;
+import org.xenei.jdbc4sparql.iface.Column;
+import org.xenei.jdbc4sparql.iface.ColumnDef;
+import org.xenei.jdbc4sparql.iface.Table;
+import org.xenei.jdbc4sparql.iface.TypeConverter;
+import org.xenei.jdbc4sparql.impl.virtual.VirtualCatalog;
+import org.xenei.jdbc4sparql.impl.virtual.VirtualSchema;
+import org.xenei.jdbc4sparql.impl.virtual.VirtualTable;
+import org.xenei.jdbc4sparql.sparql.SparqlColumnarResultSet;
+import org.xenei.jdbc4sparql.sparql.SparqlStreamingResultSet;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.sparql.core.ResultBinding;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+/**
+ * Compares reading a 10M cell result (1M rows of 10 numeric columns) through
+ * the boxed getObject() conversion with the primitive typed getters.
+ *
+ * Run with the test classpath, e.g.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=TypedGetterBenchmark \
+ *     -Dexec.classpathScope=test
+ * </pre>
+ */
+public class TypedGetterBenchmark {
+
+	private static final int ROWS = 1000000;
+	private static final int COLUMNS = 10;
+	private static final int POOL = 1024;
+	private static final int BATCH = 1024;
+	private static final int RUNS = 5;
+
+	/**
+	 * Returns the pool of solutions over and over until ROWS solutions have
+	 * been returned.
+	 */
+	private static class SolutionSource extends NiceIterator<QuerySolution> {
+		private final QuerySolution[] pool;
+		private int count;
+
+		SolutionSource(final QuerySolution[] pool) {
+			this.pool = pool;
+			this.count = 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return count < ROWS;
+		}
+
+		@Override
+		public QuerySolution next() {
+			if (!hasNext()) {
+				return noElements("No more rows");
+			}
+			return pool[count++ % pool.length];
+		}
+	}
+
+	private static int columnType(final int col) {
+		return (col % 2) == 0 ? Types.BIGINT : Types.DOUBLE;
+	}
+
+	private static Table createTable() {
+		final VirtualTable table = new VirtualTable(new VirtualSchema(
+				new VirtualCatalog()), "benchmark");
+		final List<Column> columns = table.getColumnList();
+		for (int i = 0; i < COLUMNS; i++) {
+			final ColumnDef colDef = mock(ColumnDef.class);
+			when(colDef.getType()).thenReturn(columnType(i));
+			final Column column = mock(Column.class);
+			when(column.getColumnDef()).thenReturn(colDef);
+			when(column.getName()).thenReturn(
+					table.getName().getColumnName("c" + i));
+			columns.add(column);
+		}
+		return table;
+	}
+
+	private static Query createQuery() {
+		final Query query = new Query();
+		query.setQuerySelectType();
+		for (int i = 0; i < COLUMNS; i++) {
+			query.addResultVar(Var.alloc("c" + i));
+		}
+		return query;
+	}
+
+	private static QuerySolution[] createPool() {
+		final Model model = ModelFactory.createDefaultModel();
+		final QuerySolution[] pool = new QuerySolution[POOL];
+		for (int row = 0; row < POOL; row++) {
+			final BindingMap binding = BindingFactory.create();
+			for (int col = 0; col < COLUMNS; col++) {
+				// leave one cell in every 16 unbound to exercise wasNull()
+				if (((row + col) % 16) == 0) {
+					continue;
+				}
+				final long value = (row * 1000L) + col;
+				if (columnType(col) == Types.BIGINT) {
+					binding.add(Var.alloc("c" + col), NodeFactory
+							.createLiteral(Long.toString(value), null,
+									XSDDatatype.XSDlong));
+				}
+				else {
+					binding.add(Var.alloc("c" + col), NodeFactory
+							.createLiteral(Double.toString(value + 0.5),
+									null, XSDDatatype.XSDdouble));
+				}
+			}
+			pool[row] = new ResultBinding(model, binding);
+		}
+		return pool;
+	}
+
+	private static double scanBoxed(final ResultSet rs) throws SQLException {
+		double sum = 0;
+		int nulls = 0;
+		while (rs.next()) {
+			for (int col = 1; col <= COLUMNS; col++) {
+				final Object value = rs.getObject(col);
+				if (columnType(col - 1) == Types.BIGINT) {
+					sum += TypeConverter.extractData(value, Long.class);
+				}
+				else {
+					sum += TypeConverter.extractData(value, Double.class);
+				}
+				if (rs.wasNull()) {
+					nulls++;
+				}
+			}
+		}
+		rs.close();
+		return sum + nulls;
+	}
+
+	private static double scanTyped(final ResultSet rs) throws SQLException {
+		double sum = 0;
+		int nulls = 0;
+		while (rs.next()) {
+			for (int col = 1; col <= COLUMNS; col++) {
+				if (columnType(col - 1) == Types.BIGINT) {
+					sum += rs.getLong(col);
+				}
+				else {
+					sum += rs.getDouble(col);
+				}
+				if (rs.wasNull()) {
+					nulls++;
+				}
+			}
+		}
+		rs.close();
+		return sum + nulls;
+	}
+
+	private static ResultSet open(final boolean columnar, final Table table,
+			final Query query, final QuerySolution[] pool) throws SQLException {
+		if (columnar) {
+			return new SparqlColumnarResultSet(table, query,
+					new SolutionSource(pool), BATCH);
+		}
+		return new SparqlStreamingResultSet(table, query, new SolutionSource(
+				pool));
+	}
+
+	private static void run(final String name, final boolean columnar,
+			final Table table, final Query query, final QuerySolution[] pool)
+					throws SQLException {
+		long boxed = Long.MAX_VALUE;
+		long typed = Long.MAX_VALUE;
+		double check = 0;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			check += scanBoxed(open(columnar, table, query, pool));
+			boxed = Math.min(boxed, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			check -= scanTyped(open(columnar, table, query, pool));
+			typed = Math.min(typed, System.nanoTime() - start);
+		}
+		final double cells = (double) ROWS * COLUMNS;
+		System.out.println(String.format(
+				"%-10s boxed %6d ms (%5.1f ns/cell)  typed %6d ms (%5.1f ns/cell)  check %s",
+				name, boxed / 1000000, boxed / cells, typed / 1000000, typed
+				/ cells, check == 0 ? "ok" : "MISMATCH"));
+	}
+
+	public static void main(final String[] args) throws SQLException {
+		// debug logging in the column checks would swamp the measurement
+		LoggingConfig.setConsole(Level.INFO);
+		LoggingConfig.setRootLogger(Level.INFO);
+		final Table table = createTable();
+		final Query query = createQuery();
+		final QuerySolution[] pool = createPool();
+		System.out.println(String.format("Scanning %d rows x %d columns", ROWS,
+				COLUMNS));
+		run("streaming", false, table, query, pool);
+		run("columnar", true, table, query, pool);
+	}
+}
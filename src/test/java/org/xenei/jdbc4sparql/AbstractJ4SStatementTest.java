@@ -1,14 +1,21 @@
 package org.xenei.jdbc4sparql;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.xenei.jdbc4sparql.meta.MetaCatalogBuilder;
+import org.xenei.jdbc4sparql.sparql.PlanCache;
 
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryFactory;
@@ -88,6 +95,322 @@ public abstract class AbstractJ4SStatementTest extends AbstractJ4SSetup {
 
 	}
 
+	@Test
+	public void testForwardOnlyRetrieval() throws Exception {
+		stmt.close();
+		stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+		final ResultSet rset = stmt
+				.executeQuery("select IntCol from fooTable order by IntCol");
+		Assert.assertEquals(ResultSet.TYPE_FORWARD_ONLY, rset.getType());
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(4, rset.getInt(1));
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(5, rset.getInt(1));
+		Assert.assertFalse(rset.next());
+		rset.close();
+		Assert.assertTrue(rset.isClosed());
+	}
+
+	@Test
+	public void testForwardOnlyTypedGetters() throws Exception {
+		stmt.close();
+		stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+		final ResultSet rset = stmt
+				.executeQuery("select IntCol, NullableIntCol from fooTable order by IntCol");
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(4L, rset.getLong(1));
+		Assert.assertFalse(rset.wasNull());
+		Assert.assertEquals(0.0, rset.getDouble(2), 0.0);
+		Assert.assertTrue(rset.wasNull());
+		Assert.assertEquals(4.0, rset.getDouble("IntCol"), 0.0);
+		Assert.assertFalse(rset.wasNull());
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals((short) 5, rset.getShort(1));
+		Assert.assertEquals(6, rset.getInt("NullableIntCol"));
+		Assert.assertFalse(rset.wasNull());
+		Assert.assertFalse(rset.next());
+		rset.close();
+	}
+
+	@Test
+	public void testExecuteQueryAsync() throws Exception {
+		Assert.assertTrue(stmt.isWrapperFor(J4SStatement.class));
+		final J4SStatement j4sStmt = stmt.unwrap(J4SStatement.class);
+		final List<Future<ResultSet>> futures = new ArrayList<Future<ResultSet>>();
+		for (int i = 0; i < 5; i++) {
+			futures.add(j4sStmt
+					.executeQueryAsync("select IntCol from fooTable order by IntCol"));
+		}
+		for (final Future<ResultSet> future : futures) {
+			final ResultSet rset = future.get();
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(4, rset.getInt(1));
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(5, rset.getInt(1));
+			Assert.assertFalse(rset.next());
+			rset.close();
+		}
+	}
+
+	@Test
+	public void testPlanCache() throws Exception {
+		final PlanCache cache = conn.unwrap(J4SConnection.class)
+				.getPlanCache();
+		final long hits = cache.getHitCount();
+		final String sql = "select IntCol from fooTable order by IntCol";
+		for (int i = 0; i < 3; i++) {
+			final ResultSet rset = stmt.executeQuery(sql);
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(4, rset.getInt(1));
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(5, rset.getInt(1));
+			Assert.assertFalse(rset.next());
+			rset.close();
+		}
+		Assert.assertEquals(hits + 2, cache.getHitCount());
+
+		// max rows is part of the key.
+		stmt.setMaxRows(1);
+		final ResultSet rset = stmt.executeQuery(sql);
+		Assert.assertTrue(rset.next());
+		Assert.assertFalse(rset.next());
+		rset.close();
+		Assert.assertEquals(hits + 2, cache.getHitCount());
+	}
+
+	@Test
+	public void testExplain() throws Exception {
+		final String sql = "select IntCol from fooTable order by IntCol";
+		final ResultSet rset = stmt.executeQuery("explain " + sql);
+		final List<String> steps = new ArrayList<String>();
+		while (rset.next()) {
+			steps.add(rset.getString("STEP"));
+			if ("SQL".equals(rset.getString("STEP"))) {
+				Assert.assertEquals(sql, rset.getString("DETAIL"));
+			}
+		}
+		rset.close();
+		Assert.assertEquals("SQL", steps.get(0));
+		Assert.assertTrue(steps.toString(), steps.containsAll(Arrays.asList(
+				"SPARQL", "ALGEBRA", "LOCAL", "TABLE")));
+		Assert.assertFalse(steps.toString(), steps.contains("FETCH"));
+
+		// the plan is not a table of the metadata schema.
+		final ResultSet tables = conn.getMetaData().getTables(
+				MetaCatalogBuilder.LOCAL_NAME, MetaCatalogBuilder.SCHEMA_NAME,
+				"Explain", null);
+		Assert.assertFalse(tables.next());
+		tables.close();
+	}
+
+	@Test
+	public void testExplainAnalyze() throws Exception {
+		final ResultSet rset = stmt
+				.executeQuery("explain analyze select IntCol from fooTable");
+		boolean found = false;
+		while (rset.next()) {
+			if ("FETCH".equals(rset.getString("STEP"))) {
+				found = true;
+				Assert.assertEquals(2, rset.getInt("ACTUAL_ROWS"));
+				Assert.assertTrue(rset.getInt("ELAPSED_MS") >= 0);
+			}
+		}
+		rset.close();
+		Assert.assertTrue(found);
+	}
+
+	@Test
+	public void testInValues() throws Exception {
+		// long enough to be sent as a VALUES block.
+		final StringBuilder sql = new StringBuilder(
+				"select IntCol from fooTable where IntCol in (4");
+		for (int i = 6; i < 40; i++) {
+			sql.append(", ").append(i);
+		}
+		ResultSet rset = stmt.executeQuery(sql.append(")").toString());
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(4, rset.getInt(1));
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		sql.setLength(0);
+		sql.append("select IntCol from fooTable where StringCol in ('FooString'");
+		for (int i = 0; i < 40; i++) {
+			sql.append(", 'Bar").append(i).append("'");
+		}
+		rset = stmt.executeQuery(sql.append(")").toString());
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(5, rset.getInt(1));
+		Assert.assertFalse(rset.next());
+		rset.close();
+	}
+
+	@Test
+	public void testPreparedStatement() throws Exception {
+		final PreparedStatement pstmt = conn
+				.prepareStatement("select IntCol from fooTable where StringCol = ? and IntCol > ?");
+		pstmt.setString(1, "Foo2String");
+		pstmt.setInt(2, 0);
+		ResultSet rset = pstmt.executeQuery();
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(4, rset.getInt(1));
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		pstmt.setString(1, "FooString");
+		rset = pstmt.executeQuery();
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(5, rset.getInt(1));
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		pstmt.setInt(2, 5);
+		rset = pstmt.executeQuery();
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		// null never matches.
+		pstmt.setNull(2, Types.INTEGER);
+		rset = pstmt.executeQuery();
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		pstmt.clearParameters();
+		try {
+			pstmt.executeQuery();
+			Assert.fail("Should have thrown SQLException");
+		} catch (final SQLException expected) {
+			// expected
+		}
+		pstmt.close();
+	}
+
+	@Test
+	public void testPreparedStatementBatch() throws Exception {
+		final PreparedStatement pstmt = conn
+				.prepareStatement("select IntCol, StringCol from fooTable where StringCol = ? order by IntCol");
+		pstmt.setString(1, "FooString");
+		pstmt.addBatch();
+		pstmt.setString(1, "Foo2String");
+		pstmt.addBatch();
+		pstmt.setString(1, "NoString");
+		pstmt.addBatch();
+		final int[] counts = pstmt.executeBatch();
+		Assert.assertEquals(3, counts.length);
+		for (final int count : counts) {
+			Assert.assertEquals(Statement.SUCCESS_NO_INFO, count);
+		}
+		final ResultSet rset = pstmt.getResultSet();
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(4, rset.getInt(1));
+		Assert.assertEquals("Foo2String", rset.getString(2));
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(5, rset.getInt(1));
+		Assert.assertEquals("FooString", rset.getString(2));
+		Assert.assertFalse(rset.next());
+		rset.close();
+		// the batch is cleared.
+		Assert.assertEquals(0, pstmt.executeBatch().length);
+		pstmt.close();
+	}
+
+	@Test
+	public void testPreparedStatementParameterOrder() throws Exception {
+		// the parameters are numbered in the order they appear.
+		final PreparedStatement pstmt = conn
+				.prepareStatement("select IntCol from fooTable where IntCol >= ? and IntCol < ?");
+		pstmt.setInt(1, 5);
+		pstmt.setInt(2, 10);
+		final ResultSet rset = pstmt.executeQuery();
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(5, rset.getInt(1));
+		Assert.assertFalse(rset.next());
+		rset.close();
+		pstmt.close();
+	}
+
+	@Test
+	public void testExecuteQueryAsyncError() throws Exception {
+		final Future<ResultSet> future = stmt.unwrap(J4SStatement.class)
+				.executeQueryAsync("selct IntCol from fooTable");
+		try {
+			future.get();
+			Assert.fail("Should have thrown ExecutionException");
+		} catch (final ExecutionException expected) {
+			Assert.assertTrue(expected.getCause() instanceof SQLException);
+		}
+	}
+
+	@Test
+	public void testQueryTimeoutAndCancel() throws Exception {
+		Assert.assertEquals(0, stmt.getQueryTimeout());
+		// the network timeout is not used as the query timeout.
+		conn.setNetworkTimeout(null, 30000);
+		final Statement other = conn.createStatement();
+		Assert.assertEquals(0, other.getQueryTimeout());
+		other.close();
+		try {
+			stmt.setQueryTimeout(-1);
+			Assert.fail("Should have thrown SQLException");
+		} catch (final SQLException expected) {
+			// expected
+		}
+		stmt.setQueryTimeout(30);
+		Assert.assertEquals(30, stmt.getQueryTimeout());
+		// cancel with nothing executing does not affect later queries.
+		stmt.cancel();
+		final ResultSet rset = stmt
+				.executeQuery("select IntCol from fooTable order by IntCol");
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(4, rset.getInt(1));
+		rset.close();
+		stmt.close();
+		try {
+			stmt.cancel();
+			Assert.fail("Should have thrown SQLException");
+		} catch (final SQLException expected) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testMaxRows() throws Exception {
+		Assert.assertEquals(0, stmt.getMaxRows());
+		stmt.setMaxRows(1);
+		Assert.assertEquals(1, stmt.getMaxRows());
+		ResultSet rset = stmt
+				.executeQuery("select IntCol from fooTable order by IntCol");
+		Assert.assertTrue(rset.next());
+		Assert.assertEquals(4, rset.getInt(1));
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		// a smaller SQL limit is kept.
+		stmt.setMaxRows(5);
+		rset = stmt
+				.executeQuery("select IntCol from fooTable order by IntCol limit 1");
+		Assert.assertTrue(rset.next());
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		stmt.setMaxRows(0);
+		rset = stmt
+				.executeQuery("select IntCol from fooTable order by IntCol");
+		Assert.assertTrue(rset.next());
+		Assert.assertTrue(rset.next());
+		Assert.assertFalse(rset.next());
+		rset.close();
+
+		try {
+			stmt.setMaxRows(-1);
+			Assert.fail("Should have thrown SQLException");
+		} catch (final SQLException expected) {
+			// expected
+		}
+	}
+
 	@Test
 	public void testInnerJoinSelect() throws SQLException {
 		final ResultSet rset = stmt
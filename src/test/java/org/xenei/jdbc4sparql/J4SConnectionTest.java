@@ -3,6 +3,7 @@ package org.xenei.jdbc4sparql;
 import java.io.ByteArrayOutputStream;
 import java.net.URL;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
@@ -11,6 +12,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -39,6 +42,14 @@ public class J4SConnectionTest {
 				"org.xenei.jdbc4sparql.config.MemDatasetProducer");
 	}
 
+	private J4SConnection createBuilderConnection() throws Exception {
+		final URL fUrl = J4SConnectionTest.class
+				.getResource("./J4SDriverTest.ttl");
+		return new J4SConnection(driver, new J4SUrl(
+				"jdbc:j4s?catalog=test&type=turtle&builder:"
+						+ fUrl.toExternalForm()), properties);
+	}
+
 	@After
 	public void tearDown() throws Exception {
 		connection.close();
@@ -80,6 +91,29 @@ public class J4SConnectionTest {
 		Assert.assertTrue(connection.isClosed());
 	}
 
+	@Test
+	public void testCloseShutsDownExecutor() throws Exception {
+		connection = new J4SConnection(driver, url, properties);
+		final ExecutorService executor = connection.getExecutor();
+		Assert.assertFalse(executor.isShutdown());
+		connection.close();
+		Assert.assertTrue(executor.isShutdown());
+	}
+
+	@Test
+	public void testCloseLeavesSetExecutor() throws Exception {
+		connection = new J4SConnection(driver, url, properties);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			connection.setExecutor(executor);
+			Assert.assertSame(executor, connection.getExecutor());
+			connection.close();
+			Assert.assertFalse(executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Test
 	public void testCommit() throws Exception {
 		connection = new J4SConnection(driver, url, properties);
@@ -311,6 +345,7 @@ public class J4SConnectionTest {
 		connection = new J4SConnection(driver, url, properties);
 		Assert.assertFalse(connection.isWrapperFor(null));
 		Assert.assertFalse(connection.isWrapperFor(Integer.class));
+		Assert.assertTrue(connection.isWrapperFor(J4SConnection.class));
 	}
 
 	@Test
@@ -365,12 +400,13 @@ public class J4SConnectionTest {
 
 	@Test
 	public void testPrepareStatementString() throws Exception {
-		connection = new J4SConnection(driver, url, properties);
-		try {
-			connection.prepareStatement("select foo from aTable");
-			Assert.fail("Should have thrown SQLFeatureNotSupportedException");
-		} catch (final SQLFeatureNotSupportedException expected) {
-		}
+		connection = createBuilderConnection();
+		final PreparedStatement stmt = connection
+				.prepareStatement("select * from fooTable where StringCol = ?");
+		Assert.assertNotNull(stmt);
+		Assert.assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE,
+				stmt.getResultSetType());
+		stmt.close();
 	}
 
 	@Test
@@ -395,22 +431,24 @@ public class J4SConnectionTest {
 
 	@Test
 	public void testPrepareStatementStringIntInt() throws Exception {
-		connection = new J4SConnection(driver, url, properties);
-		try {
-			connection.prepareStatement("select foo from aTable", 1, 2);
-			Assert.fail("Should have thrown SQLFeatureNotSupportedException");
-		} catch (final SQLFeatureNotSupportedException expected) {
-		}
+		connection = createBuilderConnection();
+		final PreparedStatement stmt = connection.prepareStatement(
+				"select * from fooTable", ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+		Assert.assertEquals(ResultSet.TYPE_FORWARD_ONLY,
+				stmt.getResultSetType());
+		stmt.close();
 	}
 
 	@Test
 	public void testPrepareStatementStringIntIntInt() throws Exception {
-		connection = new J4SConnection(driver, url, properties);
-		try {
-			connection.prepareStatement("select foo from aTable", 1, 2, 3);
-			Assert.fail("Should have thrown SQLFeatureNotSupportedException");
-		} catch (final SQLFeatureNotSupportedException expected) {
-		}
+		connection = createBuilderConnection();
+		final PreparedStatement stmt = connection.prepareStatement(
+				"select * from fooTable", ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY, ResultSet.HOLD_CURSORS_OVER_COMMIT);
+		Assert.assertEquals(ResultSet.HOLD_CURSORS_OVER_COMMIT,
+				stmt.getResultSetHoldability());
+		stmt.close();
 	}
 
 	@Test
@@ -614,10 +652,11 @@ public class J4SConnectionTest {
 	@Test
 	public void testUnwrap() throws Exception {
 		connection = new J4SConnection(driver, url, properties);
+		Assert.assertSame(connection, connection.unwrap(J4SConnection.class));
 		try {
 			connection.unwrap(this.getClass());
-			Assert.fail("Should have thrown SQLFeatureNotSupportedException");
-		} catch (final SQLFeatureNotSupportedException e) {
+			Assert.fail("Should have thrown SQLException");
+		} catch (final SQLException e) {
 			// expected
 		}
 	}
@@ -3,12 +3,22 @@ package org.xenei.jdbc4sparql;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Level;
 import org.junit.After;
@@ -17,14 +27,24 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.xenei.jdbc4sparql.iface.Catalog;
+import org.xenei.jdbc4sparql.impl.rdf.RdfCatalog;
+import org.xenei.jdbc4sparql.sparql.ResultCache;
 
+import com.hp.hpl.jena.query.ARQ;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryExecutionFactory;
 import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.sparql.core.BasicPattern;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.main.StageBuilder;
+import com.hp.hpl.jena.sparql.engine.main.StageGenerator;
 import com.hp.hpl.jena.util.iterator.WrappedIterator;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 public class J4SStatementMemTest extends AbstractJ4SStatementTest {
 	// file URL
@@ -63,6 +83,263 @@ public class J4SStatementMemTest extends AbstractJ4SStatementTest {
 		stmt.close();
 	}
 	
+	@Test
+	public void testColumnarBatchRetrieval() throws Exception {
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.RESULT_BATCH_PROPERTY, "1");
+		final Connection batchConn = DriverManager.getConnection(url, prop);
+		try {
+			final Statement batchStmt = batchConn.createStatement(
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			final ResultSet rset = batchStmt
+					.executeQuery("select IntCol, NullableIntCol, StringCol from fooTable order by IntCol");
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(Integer.valueOf(4), rset.getObject(1));
+			Assert.assertEquals(0, rset.getInt(2));
+			Assert.assertTrue(rset.wasNull());
+			Assert.assertEquals("Foo2String", rset.getString(3));
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(5, rset.getInt(1));
+			Assert.assertEquals(6, rset.getInt(2));
+			Assert.assertFalse(rset.wasNull());
+			Assert.assertEquals("FooString", rset.getString(3));
+			Assert.assertFalse(rset.next());
+			rset.close();
+			batchStmt.close();
+		} finally {
+			batchConn.close();
+		}
+	}
+
+	@Test
+	public void testInValuesRetrieval() throws Exception {
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.IN_VALUES_THRESHOLD_PROPERTY, "2");
+		final Connection valuesConn = DriverManager.getConnection(url, prop);
+		try {
+			final Statement valuesStmt = valuesConn.createStatement();
+			ResultSet rset = valuesStmt
+					.executeQuery("select IntCol from fooTable where IntCol in ( 3, 5, 7 )");
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(5, rset.getInt(1));
+			Assert.assertFalse(rset.next());
+			rset.close();
+
+			rset = valuesStmt
+					.executeQuery("select IntCol from fooTable where StringCol in ( 'FooString', 'Foo2String' ) order by IntCol");
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(4, rset.getInt(1));
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(5, rset.getInt(1));
+			Assert.assertFalse(rset.next());
+			rset.close();
+			valuesStmt.close();
+		} finally {
+			valuesConn.close();
+		}
+	}
+
+	@Test
+	public void testSpilledScrollableRetrieval() throws Exception {
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.SPILL_THRESHOLD_PROPERTY, "1");
+		final Connection spillConn = DriverManager.getConnection(url, prop);
+		try {
+			final Statement spillStmt = spillConn.createStatement(
+					ResultSet.TYPE_SCROLL_INSENSITIVE,
+					ResultSet.CONCUR_READ_ONLY);
+			final ResultSet rset = spillStmt
+					.executeQuery("select IntCol, NullableIntCol from fooTable order by IntCol");
+			Assert.assertTrue(rset.last());
+			Assert.assertEquals(5, rset.getInt(1));
+			Assert.assertEquals(6, rset.getInt(2));
+			Assert.assertTrue(rset.previous());
+			Assert.assertEquals(4, rset.getInt(1));
+			Assert.assertEquals(0, rset.getInt(2));
+			Assert.assertTrue(rset.wasNull());
+			Assert.assertTrue(rset.absolute(2));
+			Assert.assertEquals(5, rset.getInt(1));
+			rset.close();
+			spillStmt.close();
+		} finally {
+			spillConn.close();
+		}
+	}
+
+	@Test
+	public void testPrefetchScrollableRetrieval() throws Exception {
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.PREFETCH_PROPERTY, "1");
+		final Connection prefetchConn = DriverManager.getConnection(url, prop);
+		try {
+			final Statement prefetchStmt = prefetchConn.createStatement(
+					ResultSet.TYPE_SCROLL_INSENSITIVE,
+					ResultSet.CONCUR_READ_ONLY);
+			final ResultSet rset = prefetchStmt
+					.executeQuery("select IntCol, NullableIntCol from fooTable order by IntCol");
+			Assert.assertTrue(rset.isBeforeFirst());
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(4, rset.getInt(1));
+			Assert.assertFalse(rset.isLast());
+			Assert.assertTrue(rset.next());
+			Assert.assertEquals(5, rset.getInt(1));
+			Assert.assertTrue(rset.isLast());
+			Assert.assertFalse(rset.next());
+			Assert.assertTrue(rset.isAfterLast());
+			Assert.assertTrue(rset.first());
+			Assert.assertEquals(4, rset.getInt(1));
+			Assert.assertTrue(rset.last());
+			Assert.assertEquals(6, rset.getInt(2));
+			rset.close();
+			prefetchStmt.close();
+		} finally {
+			prefetchConn.close();
+		}
+	}
+
+	@Test
+	public void testPrefetchSpilledRetrieval() throws Exception {
+		final String sql = "select fooTable.IntCol, barTable.IntCol from fooTable, barTable";
+		final List<String> expected = new ArrayList<String>();
+		ResultSet rset = stmt.executeQuery(sql);
+		while (rset.next()) {
+			expected.add(rset.getInt(1) + ":" + rset.getInt(2));
+		}
+		rset.close();
+		Assert.assertTrue(expected.size() > 2);
+
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.PREFETCH_PROPERTY, "1");
+		prop.setProperty(J4SPropertyNames.SPILL_THRESHOLD_PROPERTY, "1");
+		final Connection prefetchConn = DriverManager.getConnection(url, prop);
+		try {
+			final Statement prefetchStmt = prefetchConn.createStatement(
+					ResultSet.TYPE_SCROLL_INSENSITIVE,
+					ResultSet.CONCUR_READ_ONLY);
+			rset = prefetchStmt.executeQuery(sql);
+			// read each spilled row before the next one is added.
+			final List<String> actual = new ArrayList<String>();
+			while (rset.next()) {
+				actual.add(rset.getInt(1) + ":" + rset.getInt(2));
+			}
+			Assert.assertEquals(expected, actual);
+			actual.clear();
+			while (rset.previous()) {
+				actual.add(0, rset.getInt(1) + ":" + rset.getInt(2));
+			}
+			Assert.assertEquals(expected, actual);
+			rset.close();
+			prefetchStmt.close();
+		} finally {
+			prefetchConn.close();
+		}
+	}
+
+	@Test
+	public void testAsyncQueriesOverlap() throws Exception {
+		final String sqlA = "select IntCol from fooTable order by IntCol";
+		final String sqlB = "select StringCol from fooTable order by StringCol";
+		final J4SConnection j4sConn = conn.unwrap(J4SConnection.class);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		j4sConn.setExecutor(executor);
+		final Statement scrollStmt = conn.createStatement(
+				ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+		final J4SStatement j4sStmt = scrollStmt.unwrap(J4SStatement.class);
+		// translate the queries so only the executions are blocked.
+		j4sStmt.executeQuery(sqlA).close();
+		j4sStmt.executeQuery(sqlB).close();
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicBoolean block = new AtomicBoolean(true);
+		final StageGenerator original = StageBuilder.getGenerator(ARQ
+				.getContext());
+		StageBuilder.setGenerator(ARQ.getContext(), new StageGenerator() {
+			@Override
+			public QueryIterator execute(final BasicPattern pattern,
+					final QueryIterator input,
+					final ExecutionContext execCxt) {
+				if (block.compareAndSet(true, false)) {
+					started.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return original.execute(pattern, input, execCxt);
+			}
+		});
+		try {
+			final Future<ResultSet> futureA = j4sStmt.executeQueryAsync(sqlA);
+			Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+			// the first query is executing, the second must not wait for it.
+			final ResultSet rsetB = j4sStmt.executeQueryAsync(sqlB).get(10,
+					TimeUnit.SECONDS);
+			Assert.assertTrue(rsetB.next());
+			rsetB.close();
+			Assert.assertFalse(futureA.isDone());
+			release.countDown();
+			final ResultSet rsetA = futureA.get(10, TimeUnit.SECONDS);
+			Assert.assertTrue(rsetA.next());
+			Assert.assertEquals(4, rsetA.getInt(1));
+			rsetA.close();
+		} finally {
+			release.countDown();
+			StageBuilder.setGenerator(ARQ.getContext(), original);
+			j4sConn.setExecutor(null);
+			executor.shutdown();
+			scrollStmt.close();
+		}
+	}
+
+	private List<Integer> readIntCol(final Statement cacheStmt)
+			throws SQLException {
+		final ResultSet rset = cacheStmt
+				.executeQuery("select IntCol from fooTable order by IntCol");
+		final List<Integer> retval = new ArrayList<Integer>();
+		while (rset.next()) {
+			retval.add(rset.getInt(1));
+		}
+		rset.close();
+		return retval;
+	}
+
+	@Test
+	public void testResultCache() throws Exception {
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.RESULT_CACHE_PROPERTY, "1048576");
+		final Connection cacheConn = DriverManager.getConnection(url, prop);
+		try {
+			final J4SConnection j4sConn = cacheConn.unwrap(J4SConnection.class);
+			final ResultCache cache = j4sConn.getResultCache();
+			final Statement cacheStmt = cacheConn.createStatement();
+			Assert.assertEquals(Arrays.asList(4, 5), readIntCol(cacheStmt));
+			Assert.assertEquals(0, cache.getHitCount());
+			Assert.assertEquals(Arrays.asList(4, 5), readIntCol(cacheStmt));
+			Assert.assertEquals(1, cache.getHitCount());
+
+			// changing the local model removes the cached results.
+			final Model model = ((RdfCatalog) j4sConn.getCatalogs().get(
+					"test")).getLocalModel();
+			final Resource r = model.createResource();
+			r.addProperty(RDF.type,
+					model.createResource("http://example.com/jdbc4sparql#fooTable"));
+			r.addProperty(model
+					.createProperty("http://example.com/jdbc4sparql#IntCol"),
+					"7");
+			r.addProperty(model
+					.createProperty("http://example.com/jdbc4sparql#StringCol"),
+					"Foo7String");
+			Assert.assertEquals(0, cache.size());
+			Assert.assertEquals(Arrays.asList(4, 5, 7), readIntCol(cacheStmt));
+			Assert.assertEquals(1, cache.getHitCount());
+			cacheStmt.close();
+		} finally {
+			cacheConn.close();
+		}
+	}
+
 	@Test
 	@Ignore
 	public void arbitraryQuery() throws Exception {
@@ -0,0 +1,105 @@
+package org.xenei.jdbc4sparql;
+
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the statement tests with the column type checks written in standard
+ * SPARQL.
+ */
+public class J4SStatementNativeTypeTest extends AbstractJ4SStatementTest {
+	// file URL
+	private URL fUrl;
+
+	// J4SUrl
+	private String url;
+
+	@Before
+	public void setup() throws Exception {
+		Class.forName("org.xenei.jdbc4sparql.J4SDriver");
+
+		fUrl = J4SDriverTest.class.getResource("./J4SStatementTest.ttl");
+
+		url = "jdbc:j4s?catalog=test&type=turtle&builder=org.xenei.jdbc4sparql.sparql.builders.SimpleNullableBuilder:"
+				+ fUrl.toString();
+
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.USER_PROPERTY, "myschema");
+		prop.setProperty(J4SPropertyNames.PASSWORD_PROPERTY, "mypassw");
+		prop.setProperty(J4SPropertyNames.TYPE_FILTER_PROPERTY, "native");
+		conn = DriverManager.getConnection(url, prop);
+		conn.setAutoCommit(false);
+		stmt = conn.createStatement();
+	}
+
+	@After
+	public void teardown() throws SQLException {
+		stmt.close();
+	}
+
+	@Test
+	public void testNoJavaFunctions() throws Exception {
+		final J4SStatement j4sStmt = stmt.unwrap(J4SStatement.class);
+		final String query = j4sStmt
+				.parse("select IntCol, NullableIntCol, StringCol, NullableStringCol from fooTable")
+				.build().toString();
+		Assert.assertFalse(query, query.contains("java:"));
+		Assert.assertTrue(query, query.contains("datatype("));
+		Assert.assertTrue(query, query.contains("bound("));
+	}
+
+	@Test
+	public void testBadNullableValue() throws Exception {
+		final String badUrl = "jdbc:j4s?catalog=test&type=turtle&builder=org.xenei.jdbc4sparql.sparql.builders.SimpleNullableBuilder:"
+				+ J4SDriverTest.class.getResource("./J4SStatementBadTypeTest.ttl")
+						.toString();
+		final String sql = "select IntCol, NullableIntCol from fooTable order by IntCol";
+		// the same rows in both modes.
+		for (final String mode : new String[] {
+				"java", "native"
+		}) {
+			final Properties prop = new Properties();
+			prop.setProperty(J4SPropertyNames.TYPE_FILTER_PROPERTY, mode);
+			final Connection badConn = DriverManager.getConnection(badUrl, prop);
+			try {
+				final Statement badStmt = badConn.createStatement();
+				final ResultSet rset = badStmt.executeQuery(sql);
+				// the row with the value that is not an integer is removed.
+				Assert.assertTrue(mode, rset.next());
+				Assert.assertEquals(mode, 2, rset.getInt(1));
+				Assert.assertEquals(mode, 7, rset.getInt(2));
+				Assert.assertTrue(mode, rset.next());
+				Assert.assertEquals(mode, 3, rset.getInt(1));
+				Assert.assertEquals(mode, 0, rset.getInt(2));
+				Assert.assertTrue(mode, rset.wasNull());
+				Assert.assertFalse(mode, rset.next());
+				rset.close();
+				badStmt.close();
+			} finally {
+				badConn.close();
+			}
+		}
+	}
+
+	@Test
+	public void testBadTypeFilterProperty() throws Exception {
+		final Properties prop = new Properties();
+		prop.setProperty(J4SPropertyNames.TYPE_FILTER_PROPERTY, "fast");
+		try {
+			DriverManager.getConnection(url, prop);
+			Assert.fail("Should have thrown SQLException");
+		} catch (final SQLException expected) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package org.xenei.jdbc4sparql.iface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.junit.Test;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+
+public class TypeConverterTest {
+
+	@Test
+	public void testGetJavaTypeFromSqlType() throws SQLDataException {
+		assertEquals(String.class, TypeConverter.getJavaType(Types.VARCHAR));
+		assertEquals(Integer.class, TypeConverter.getJavaType(Types.INTEGER));
+		assertEquals(Boolean.class, TypeConverter.getJavaType(Types.BIT));
+		assertEquals(Double.class, TypeConverter.getJavaType(Types.FLOAT));
+		try {
+			TypeConverter.getJavaType(Types.ARRAY);
+			fail("Should have thrown SQLDataException");
+		} catch (final SQLDataException expected) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testGetJavaTypeFromDatatype() throws SQLDataException {
+		assertEquals(String.class, TypeConverter.getJavaType((XSDDatatype) null));
+		assertEquals(Integer.class,
+				TypeConverter.getJavaType(XSDDatatype.XSDint));
+		assertEquals(String.class,
+				TypeConverter.getJavaType(XSDDatatype.XSDunsignedInt));
+	}
+
+	@Test
+	public void testGetSqlType() {
+		// first entry wins
+		assertEquals(Integer.valueOf(Types.BOOLEAN),
+				TypeConverter.getSqlType(Boolean.class));
+		assertEquals(Integer.valueOf(Types.BLOB),
+				TypeConverter.getSqlType(byte[].class));
+		assertNull(TypeConverter.getSqlType(Object.class));
+	}
+
+	@Test
+	public void testExtractData() throws SQLException {
+		assertEquals(Integer.valueOf(0),
+				TypeConverter.extractData(null, Integer.class));
+		assertNull(TypeConverter.extractData(null, String.class));
+		assertEquals(Integer.valueOf(5),
+				TypeConverter.extractData(Long.valueOf(5), Integer.class));
+		assertEquals(new BigDecimal("1.5"),
+				TypeConverter.extractData(Double.valueOf(1.5), BigDecimal.class));
+		assertEquals("5", TypeConverter.extractData(Integer.valueOf(5),
+				String.class));
+		assertEquals(Long.valueOf(12),
+				TypeConverter.extractData("12", Long.class));
+		assertNull(TypeConverter.extractData("twelve", Long.class));
+		assertEquals(Boolean.TRUE,
+				TypeConverter.extractData(Integer.valueOf(1), Boolean.class));
+		assertEquals(Integer.valueOf(1),
+				TypeConverter.extractData(Boolean.TRUE, Integer.class));
+		try {
+			TypeConverter.extractData(new Object(), Integer.class);
+			fail("Should have thrown SQLException");
+		} catch (final SQLException expected) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testConverterIsShared() {
+		final TypeConverter.Converter<Long> conv = TypeConverter
+				.getConverter(Integer.class, Long.class);
+		assertSame(conv, TypeConverter.getConverter(Integer.class, Long.class));
+		assertEquals(Integer.class, conv.getSourceType());
+		assertEquals(Long.class, conv.getTargetType());
+	}
+
+	@Test
+	public void testRegisterConverter() throws SQLException {
+		final TypeConverter.Converter<String> conv = new TypeConverter.Converter<String>(
+				StringBuilder.class, String.class) {
+			@Override
+			public String convert(final Object value) {
+				return "sb:" + value;
+			}
+		};
+		TypeConverter.registerConverter(conv);
+		assertSame(conv,
+				TypeConverter.getConverter(StringBuilder.class, String.class));
+		assertEquals("sb:x",
+				TypeConverter.extractData(new StringBuilder("x"), String.class));
+	}
+
+	@Test
+	public void testColumnConverter() throws SQLException {
+		final TypeConverter.ColumnConverter<Integer> conv = new TypeConverter.ColumnConverter<Integer>(
+				Integer.class);
+		assertEquals(Integer.class, conv.getTargetType());
+		assertEquals(Integer.valueOf(0), conv.convert(null));
+		assertEquals(Integer.valueOf(3), conv.convert(Long.valueOf(3)));
+		assertEquals(Integer.valueOf(4), conv.convert("4"));
+		assertEquals(Integer.valueOf(5), conv.convert(Integer.valueOf(5)));
+	}
+}
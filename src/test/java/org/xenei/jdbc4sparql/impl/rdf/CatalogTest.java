@@ -1,6 +1,7 @@
 package org.xenei.jdbc4sparql.impl.rdf;
 
 import java.net.URL;
+import java.sql.DatabaseMetaData;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -22,6 +23,7 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 public class CatalogTest {
 	private Model model;
@@ -326,4 +328,37 @@ public class CatalogTest {
 		Assert.assertTrue(cat4.isService());
 	}
 
+	@Test
+	public void testUpdateStatistics() throws Exception {
+		final Resource type = dataModel.createResource("http://example.com/T");
+		final Property p = dataModel.createProperty("http://example.com/prop");
+		dataModel.createResource("http://example.com/a")
+				.addProperty(RDF.type, type).addLiteral(p, "foo");
+		dataModel.createResource("http://example.com/b")
+				.addProperty(RDF.type, type).addLiteral(p, "foo");
+		dataModel.createResource("http://example.com/c").addLiteral(p, "bar");
+
+		final RdfSchema schema = new RdfSchema.Builder().setName("testSchema")
+				.setCatalog(catalog).build(model);
+		final RdfTableDef tableDef = new RdfTableDef.Builder().addColumnDef(
+				RdfColumnDef.Builder.getStringBuilder()
+						.setNullable(DatabaseMetaData.columnNoNulls)
+						.build(model)).build(model);
+		final RdfTable.Builder builder = new RdfTable.Builder()
+				.setTableDef(tableDef).setName("testTable")
+				.setColumn(0, "StringCol").setSchema(schema)
+				.addQuerySegment("%1$s a <http://example.com/T> .");
+		builder.getColumn(0).addQuerySegment(
+				"%1$s <http://example.com/prop> %2$s .");
+		final RdfTable table = builder.build(model);
+
+		Assert.assertNull(table.getRowCount());
+		Assert.assertNull(table.getDistinctCount(table.getColumn(0)));
+
+		catalog.updateStatistics();
+
+		Assert.assertEquals(Long.valueOf(2), table.getRowCount());
+		Assert.assertEquals(Long.valueOf(1),
+				table.getDistinctCount(table.getColumn(0)));
+	}
 }
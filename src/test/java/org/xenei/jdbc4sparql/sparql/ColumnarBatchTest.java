@@ -0,0 +1,131 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xenei.jdbc4sparql.iface.Column;
+import org.xenei.jdbc4sparql.iface.ColumnDef;
+import org.xenei.jdbc4sparql.iface.Table;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+
+public class ColumnarBatchTest {
+
+	private SolutionDecoder decoder;
+	private Model model;
+	private List<QuerySolution> solutions;
+
+	private Column createColumn(final int type) {
+		final ColumnDef colDef = mock(ColumnDef.class);
+		when(colDef.getType()).thenReturn(type);
+		final Column column = mock(Column.class);
+		when(column.getColumnDef()).thenReturn(colDef);
+		return column;
+	}
+
+	private QuerySolution createSolution(final Object intVal,
+			final Object dblVal, final Object boolVal, final String strVal) {
+		final QuerySolutionMap soln = new QuerySolutionMap();
+		if (intVal != null) {
+			soln.add("intCol", model.createTypedLiteral(intVal));
+		}
+		if (dblVal != null) {
+			soln.add("dblCol", model.createTypedLiteral(dblVal));
+		}
+		if (boolVal != null) {
+			soln.add("boolCol", model.createTypedLiteral(boolVal));
+		}
+		if (strVal != null) {
+			soln.add("strCol", model.createLiteral(strVal));
+		}
+		return soln;
+	}
+
+	@Before
+	public void setup() {
+		model = ModelFactory.createDefaultModel();
+		final Query query = new Query();
+		query.setQuerySelectType();
+		query.addResultVar(Var.alloc("intCol"));
+		query.addResultVar(Var.alloc("dblCol"));
+		query.addResultVar(Var.alloc("boolCol"));
+		query.addResultVar(Var.alloc("strCol"));
+
+		final List<Column> cols = new ArrayList<Column>();
+		cols.add(createColumn(Types.INTEGER));
+		cols.add(createColumn(Types.DOUBLE));
+		cols.add(createColumn(Types.BOOLEAN));
+		cols.add(createColumn(Types.VARCHAR));
+		final Table table = mock(Table.class);
+		when(table.getColumnList()).thenReturn(cols);
+		decoder = new SolutionDecoder(query, table);
+
+		solutions = new ArrayList<QuerySolution>();
+		solutions.add(createSolution(1, 1.5, true, "one"));
+		solutions.add(createSolution(null, null, null, null));
+		solutions.add(createSolution("notAnInt", 3.5, false, "one"));
+	}
+
+	@Test
+	public void testFill() {
+		final ColumnarBatch batch = new ColumnarBatch(decoder, 2);
+		final Iterator<QuerySolution> iter = solutions.iterator();
+
+		assertEquals(2, batch.fill(iter));
+		assertTrue(batch.advance());
+		assertTrue(batch.isPrimitive(1));
+		assertEquals(Integer.valueOf(1), batch.getObject(1));
+		assertEquals(1L, batch.getLong(1));
+		assertEquals(1.5, batch.getDouble(2), 0.0);
+		assertTrue(batch.getBoolean(3));
+		assertEquals("one", batch.getObject(4));
+
+		assertTrue(batch.advance());
+		for (int i = 1; i < 5; i++) {
+			assertTrue(batch.isNull(i));
+			assertNull(batch.getObject(i));
+			assertFalse(batch.isPrimitive(i));
+		}
+		assertFalse(batch.advance());
+
+		assertEquals(1, batch.fill(iter));
+		assertTrue(batch.advance());
+		assertFalse(batch.isPrimitive(1));
+		assertEquals("notAnInt", batch.getObject(1));
+		assertEquals(Double.valueOf(3.5), batch.getObject(2));
+		assertEquals(Boolean.FALSE, batch.getObject(3));
+		assertEquals("one", batch.getObject(4));
+		assertFalse(batch.advance());
+
+		assertEquals(0, batch.fill(iter));
+		assertFalse(batch.advance());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNotPositioned() {
+		final ColumnarBatch batch = new ColumnarBatch(decoder, 2);
+		batch.fill(solutions.iterator());
+		batch.getObject(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadCapacity() {
+		new ColumnarBatch(decoder, 0);
+	}
+}
@@ -0,0 +1,166 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xenei.jdbc4sparql.iface.Catalog;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryCancelledException;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.sparql.engine.http.Service;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+public class ExecutionControlTest {
+
+	private Catalog catalog;
+	private Query query;
+
+	@Before
+	public void setup() {
+		final Model model = ModelFactory.createDefaultModel();
+		for (int i = 0; i < 10; i++) {
+			final Resource r = model.createResource("http://example.com/r"
+					+ i);
+			r.addProperty(RDF.value, model.createTypedLiteral(i));
+		}
+		query = QueryFactory.create("SELECT * WHERE { ?s ?p ?o }");
+		catalog = mock(Catalog.class);
+		when(catalog.createLocalExecution(any(Query.class))).thenAnswer(
+				new Answer<QueryExecution>() {
+					@Override
+					public QueryExecution answer(
+							final InvocationOnMock invocation) {
+						return QueryExecutionFactory.create(
+								(Query) invocation.getArguments()[0], model);
+					}
+				});
+	}
+
+	@Test
+	public void testTimeoutApplied() {
+		final ExecutionControl control = new ExecutionControl(5000);
+		assertEquals(5000, control.getTimeout());
+		final QueryExecution qexec = control.createExecution(catalog, query);
+		assertEquals(5000, qexec.getTimeout1());
+		assertTrue(qexec.getTimeout2() < 0);
+		assertEquals(Long.valueOf(5000),
+				qexec.getContext().get(Service.queryTimeout));
+		qexec.close();
+	}
+
+	@Test
+	public void testExecutor() {
+		assertNull(new ExecutionControl(0).getExecutor());
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			assertSame(executor,
+					new ExecutionControl(0, executor).getExecutor());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSlowReadNotTimedOut() throws Exception {
+		final ExecutionControl control = new ExecutionControl(1000);
+		final QueryExecution qexec = control.createExecution(catalog, query);
+		final ResultSet rs = qexec.execSelect();
+		int count = 0;
+		while (rs.hasNext()) {
+			rs.next();
+			count++;
+			// reading all the rows takes longer than the timeout.
+			Thread.sleep(150);
+		}
+		assertEquals(10, count);
+		qexec.close();
+	}
+
+	@Test
+	public void testNoTimeout() {
+		final ExecutionControl control = new ExecutionControl(-1);
+		assertEquals(0, control.getTimeout());
+		final QueryExecution qexec = control.createExecution(catalog, query);
+		assertTrue(qexec.getTimeout2() < 0);
+		assertEquals(null, qexec.getContext().get(Service.queryTimeout));
+		qexec.close();
+	}
+
+	@Test
+	public void testCancel() {
+		final ExecutionControl control = new ExecutionControl(0);
+		final QueryExecution qexec = control.createExecution(catalog, query);
+		final ResultSet rs = qexec.execSelect();
+		assertTrue(rs.hasNext());
+		rs.next();
+		control.cancel();
+		assertTrue(control.isCancelled());
+		try {
+			while (rs.hasNext()) {
+				rs.next();
+			}
+			fail("Should have thrown QueryCancelledException");
+		} catch (final QueryCancelledException expected) {
+			// expected
+		}
+		qexec.close();
+		try {
+			control.createExecution(catalog, query);
+			fail("Should have thrown QueryCancelledException");
+		} catch (final QueryCancelledException expected) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testClosedExecutionsReleased() {
+		final ExecutionControl control = new ExecutionControl(0);
+		final QueryExecution qexec1 = control.createExecution(catalog, query);
+		final QueryExecution qexec2 = control.createExecution(catalog, query);
+		assertEquals(2, control.getActiveCount());
+		qexec1.close();
+		assertEquals(1, control.getActiveCount());
+		qexec2.close();
+		assertEquals(0, control.getActiveCount());
+	}
+
+	@Test
+	public void testCreateException() {
+		final QueryCancelledException cause = new QueryCancelledException();
+		ExecutionControl control = new ExecutionControl(1000);
+		SQLException e = control.createException(cause);
+		assertTrue(e instanceof SQLTimeoutException);
+		assertEquals(cause, e.getCause());
+
+		control.cancel();
+		e = control.createException(cause);
+		assertFalse(e instanceof SQLTimeoutException);
+		assertEquals(cause, e.getCause());
+
+		control = new ExecutionControl(0);
+		assertFalse(control.createException(cause) instanceof SQLTimeoutException);
+	}
+}
@@ -0,0 +1,115 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.syntax.Element;
+import com.hp.hpl.jena.sparql.syntax.ElementFilter;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+
+public class JoinOrdererTest {
+
+	private static final String A = "{ ?a <http://example.com/type> <http://example.com/A> ; <http://example.com/x> ?ax }";
+	private static final String B = "{ ?b <http://example.com/type> <http://example.com/B> ; <http://example.com/x> ?bx }";
+	private static final String C = "{ ?c <http://example.com/type> <http://example.com/C> ; <http://example.com/x> ?cx }";
+
+	private ElementGroup getGroup(final String pattern) {
+		final Query query = QueryFactory.create("SELECT * WHERE " + pattern);
+		return (ElementGroup) query.getQueryPattern();
+	}
+
+	private Map<Element, Long> counts(final ElementGroup group,
+			final long... rowCounts) {
+		final Map<Element, Long> retval = new IdentityHashMap<Element, Long>();
+		int i = 0;
+		for (final Element el : group.getElements()) {
+			if (el instanceof ElementGroup) {
+				retval.put(el, rowCounts[i++]);
+			}
+		}
+		return retval;
+	}
+
+	private boolean reorder(final ElementGroup group,
+			final Map<Element, Long> rowCounts,
+			final Map<Var, Long> distinctCounts) {
+		return JoinOrderer.reorder(group, rowCounts, distinctCounts,
+				Collections.<Expr> emptyList());
+	}
+
+	@Test
+	public void testSmallestFirst() {
+		final ElementGroup group = getGroup("{ " + A + B + C + " }");
+		final List<Element> orig = group.getElements().subList(0, 3);
+		final Element a = orig.get(0);
+		final Element b = orig.get(1);
+		final Element c = orig.get(2);
+		assertTrue(reorder(group, counts(group, 1000, 10, 100),
+				new HashMap<Var, Long>()));
+		assertSame(b, group.getElements().get(0));
+		assertSame(c, group.getElements().get(1));
+		assertSame(a, group.getElements().get(2));
+	}
+
+	@Test
+	public void testNoChange() {
+		final ElementGroup group = getGroup("{ " + A + B + " }");
+		assertFalse(reorder(group, counts(group, 10, 100),
+				new HashMap<Var, Long>()));
+	}
+
+	@Test
+	public void testConstantFilter() {
+		final ElementGroup group = getGroup("{ " + A + B
+				+ " FILTER( ?bx = 5 ) }");
+		final Element b = group.getElements().get(1);
+		final Map<Var, Long> distinct = new HashMap<Var, Long>();
+		distinct.put(Var.alloc("bx"), 100L);
+		// B has 1000 rows but only 10 match the filter.
+		assertTrue(reorder(group, counts(group, 100, 1000), distinct));
+		assertSame(b, group.getElements().get(0));
+		assertTrue(group.getElements().get(2) instanceof ElementFilter);
+	}
+
+	@Test
+	public void testJoinedTablesFirst() {
+		// A is smallest and joined to C, B is not joined.
+		final ElementGroup group = getGroup("{ " + A + B + C
+				+ " FILTER( ?ax = ?cx ) }");
+		final Element a = group.getElements().get(0);
+		final Element b = group.getElements().get(1);
+		final Element c = group.getElements().get(2);
+		assertTrue(reorder(group, counts(group, 10, 100, 1000),
+				new HashMap<Var, Long>()));
+		assertSame(a, group.getElements().get(0));
+		assertSame(c, group.getElements().get(1));
+		assertSame(b, group.getElements().get(2));
+	}
+
+	@Test
+	public void testOptionalNotMoved() {
+		final ElementGroup group = getGroup("{ " + A + " OPTIONAL " + B + C
+				+ " }");
+		final Element a = group.getElements().get(0);
+		final Map<Element, Long> rowCounts = new IdentityHashMap<Element, Long>();
+		rowCounts.put(a, 1000L);
+		rowCounts.put(group.getElements().get(2), 10L);
+		assertFalse(reorder(group, rowCounts, new HashMap<Var, Long>()));
+		assertSame(a, group.getElements().get(0));
+		assertEquals(3, group.getElements().size());
+	}
+}
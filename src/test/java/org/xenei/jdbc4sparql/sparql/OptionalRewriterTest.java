@@ -0,0 +1,115 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+import com.hp.hpl.jena.sparql.util.ExprUtils;
+
+public class OptionalRewriterTest {
+
+	private static final String PATTERN = "{ ?s a <http://example.com/t> ; <http://example.com/a> ?a "
+			+ "OPTIONAL { ?s <http://example.com/b> ?b } "
+			+ "OPTIONAL { ?s <http://example.com/c> ?c } ";
+
+	private Query rewrite(final String filter, final int expected) {
+		final Query query = QueryFactory.create("SELECT * WHERE " + PATTERN
+				+ filter + " }");
+		assertEquals(query.toString(), expected,
+				OptionalRewriter.rewrite((ElementGroup) query.getQueryPattern()));
+		return query;
+	}
+
+	private Set<Var> rejected(final String expr) {
+		return OptionalRewriter.addRejectedVars(new HashSet<Var>(),
+				ExprUtils.parse(expr));
+	}
+
+	@Test
+	public void testAddRejectedVars() {
+		assertTrue(rejected("?a = 5").contains(Var.alloc("a")));
+		assertTrue(rejected("bound(?a)").contains(Var.alloc("a")));
+		assertTrue(rejected("strstarts(str(?a), 'x')").contains(
+				Var.alloc("a")));
+		assertTrue(rejected("?a = ?b").contains(Var.alloc("b")));
+		assertTrue(rejected("?a = 5 && ?b = 6").contains(Var.alloc("b")));
+		assertTrue(rejected("?a = 5 || ?a = 6").contains(Var.alloc("a")));
+		assertTrue(rejected("!( ?a = 5 )").contains(Var.alloc("a")));
+		assertFalse(rejected("?a = 5 || ?b = 6").contains(Var.alloc("b")));
+		assertFalse(rejected("!bound(?a)").contains(Var.alloc("a")));
+		assertFalse(rejected("coalesce(?a, 5) = 5").contains(Var.alloc("a")));
+		assertFalse(rejected("bound(?a) || ?b = 5").contains(Var.alloc("a")));
+	}
+
+	@Test
+	public void testEqualsConverted() {
+		final Query query = rewrite("FILTER( ?b = 5 )", 1);
+		final String result = query.toString();
+		assertEquals(result, 1, result.split("OPTIONAL").length - 1);
+		assertTrue(result, result.contains("?c"));
+	}
+
+	@Test
+	public void testTriplesMerged() {
+		final Query query = rewrite("FILTER( bound(?b) && bound(?c) )", 2);
+		final ElementGroup group = (ElementGroup) query.getQueryPattern();
+		// the triples and the filter.
+		assertEquals(query.toString(), 2, group.getElements().size());
+	}
+
+	@Test
+	public void testAliasConverted() {
+		final Query query = QueryFactory.create("SELECT * WHERE { { "
+				+ PATTERN + "} BIND( <" + ForceTypeF.IRI
+				+ ">(?b, 4, true) AS ?x ) } FILTER( ?x > 5 ) }");
+		assertEquals(1, OptionalRewriter.rewrite((ElementGroup) query
+				.getQueryPattern()));
+	}
+
+	@Test
+	public void testNotRejectedKept() {
+		rewrite("FILTER( !bound(?b) )", 0);
+		rewrite("FILTER( ?b = 5 || ?a = 6 )", 0);
+	}
+
+	@Test
+	public void testSharedVarKept() {
+		final Query query = QueryFactory
+				.create("SELECT * WHERE { ?s <http://example.com/a> ?a "
+						+ "OPTIONAL { ?s <http://example.com/b> ?b } "
+						+ "OPTIONAL { ?s <http://example.com/c> ?b } "
+						+ "FILTER( ?b = 5 ) }");
+		assertEquals(0, OptionalRewriter.rewrite((ElementGroup) query
+				.getQueryPattern()));
+	}
+
+	@Test
+	public void testNestedFilterNotApplied() {
+		// the filter only applies to its own group.
+		final Query query = QueryFactory.create("SELECT * WHERE " + PATTERN
+				+ "{ ?s <http://example.com/d> ?d FILTER( bound(?b) ) } }");
+		assertEquals(0, OptionalRewriter.rewrite((ElementGroup) query
+				.getQueryPattern()));
+	}
+
+	@Test
+	public void testOptionalTableConverted() {
+		final Query query = QueryFactory.create("SELECT * WHERE { "
+				+ "?s <http://example.com/a> ?a "
+				+ "OPTIONAL { ?t <http://example.com/a> ?a "
+				+ "OPTIONAL { ?t <http://example.com/b> ?b } } "
+				+ "FILTER( ?b = 5 ) }");
+		assertEquals(2, OptionalRewriter.rewrite((ElementGroup) query
+				.getQueryPattern()));
+		assertFalse(query.toString(), query.toString().contains("OPTIONAL"));
+	}
+}
@@ -0,0 +1,77 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.expr.NodeValue;
+
+public class ParameterBinderTest {
+
+	private static final Var P1 = Var.alloc("_param1");
+
+	private Binding binding(final long value) {
+		return BindingFactory.binding(P1, NodeValue.makeInteger(value)
+				.asNode());
+	}
+
+	@Test
+	public void testSubstitute() {
+		final Query query = QueryFactory
+				.create("SELECT ?s WHERE { ?s <http://example.com/a> ?a "
+						+ "OPTIONAL { ?s <http://example.com/b> ?b FILTER( ?b = ?_param1 ) } "
+						+ "FILTER( ?a > ?_param1 ) }");
+		ParameterBinder.substitute(query, binding(5));
+		final String result = query.toString();
+		assertFalse(result, result.contains("_param1"));
+		assertTrue(result, result.contains("?a > 5"));
+		assertTrue(result, result.contains("?b = 5"));
+	}
+
+	@Test
+	public void testSubstituteSubQuery() {
+		final Query query = QueryFactory
+				.create("SELECT * WHERE { { SELECT ?s WHERE { ?s <http://example.com/a> ?a "
+						+ "FILTER( ?a > ?_param1 ) } } }");
+		ParameterBinder.substitute(query, binding(5));
+		final String result = query.toString();
+		assertFalse(result, result.contains("_param1"));
+	}
+
+	@Test
+	public void testAddValues() {
+		final Query query = QueryFactory
+				.create("SELECT ?s WHERE { ?s <http://example.com/a> ?a "
+						+ "FILTER( ?a > ?_param1 ) }");
+		final List<Binding> rows = Arrays.asList(binding(1), binding(2));
+		ParameterBinder.addValues(query, Arrays.asList(P1), rows);
+		final String result = query.toString();
+		assertEquals(result, 1, StringUtils.countMatches(result, "VALUES"));
+		assertTrue(result, result.contains("?a > ?_param1"));
+	}
+
+	@Test
+	public void testAddValuesSubQuery() {
+		final Query query = QueryFactory
+				.create("SELECT ?s WHERE { { SELECT ?s WHERE { ?s <http://example.com/a> ?a "
+						+ "FILTER( ?a > ?_param1 ) } } ?s <http://example.com/b> ?b }");
+		final List<Binding> rows = Arrays.asList(binding(1), binding(2));
+		ParameterBinder.addValues(query, Arrays.asList(P1), rows);
+		final String result = query.toString();
+		// in the sub query and the outer query.
+		assertEquals(result, 2, StringUtils.countMatches(result, "VALUES"));
+		// the sub query projects the parameter.
+		assertTrue(result, result.contains("SELECT  ?s ?_param1"));
+	}
+}
@@ -0,0 +1,101 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+public class PlanCacheTest {
+
+	private SparqlQueryBuilder builder;
+
+	@Before
+	public void setup() throws Exception {
+		builder = Mockito.mock(SparqlQueryBuilder.class);
+		Mockito.when(builder.build()).thenReturn(
+				QueryFactory.create("SELECT * WHERE { ?s ?p ?o }"));
+	}
+
+	private PlanCache.Key key(final String sql) {
+		return new PlanCache.Key(sql, "catalog", "schema", 0);
+	}
+
+	@Test
+	public void testHitAndMiss() throws Exception {
+		final PlanCache cache = new PlanCache(5);
+		assertNull(cache.get(key("one")));
+		cache.put(key("one"), builder, cache.getGeneration());
+		assertSame(builder, cache.get(key("one")));
+		assertNull(cache.get(new PlanCache.Key("one", "catalog", null, 0)));
+		assertNull(cache.get(new PlanCache.Key("one", "catalog", "schema", 5)));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		final PlanCache cache = new PlanCache(2);
+		cache.put(key("one"), builder, cache.getGeneration());
+		cache.put(key("two"), builder, cache.getGeneration());
+		// make "one" the most recently used.
+		cache.get(key("one"));
+		cache.put(key("three"), builder, cache.getGeneration());
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(builder, cache.get(key("one")));
+		assertNull(cache.get(key("two")));
+		assertSame(builder, cache.get(key("three")));
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		final PlanCache cache = new PlanCache(0);
+		cache.put(key("one"), builder, cache.getGeneration());
+		assertNull(cache.get(key("one")));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void testModelChangeClears() throws Exception {
+		final PlanCache cache = new PlanCache(5);
+		final Model model = ModelFactory.createDefaultModel();
+		cache.watch(model);
+		cache.watch(model);
+		cache.put(key("one"), builder, cache.getGeneration());
+		assertEquals(1, cache.size());
+		model.add(model.createResource("http://example.com/s"), RDF.type,
+				model.createResource("http://example.com/t"));
+		assertEquals(0, cache.size());
+
+		cache.put(key("one"), builder, cache.getGeneration());
+		cache.close();
+		assertEquals(0, cache.size());
+		// no longer watched.
+		cache.put(key("one"), builder, cache.getGeneration());
+		model.removeAll();
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testStalePlanNotCached() throws Exception {
+		final PlanCache cache = new PlanCache(5);
+		final long generation = cache.getGeneration();
+		cache.clear();
+		cache.put(key("one"), builder, generation);
+		assertEquals(0, cache.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new PlanCache(-1);
+	}
+}
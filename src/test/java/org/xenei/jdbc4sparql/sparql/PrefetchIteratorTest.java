@@ -0,0 +1,205 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xenei.jdbc4sparql.iface.Column;
+import org.xenei.jdbc4sparql.iface.ColumnDef;
+import org.xenei.jdbc4sparql.iface.Table;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.util.iterator.NiceIterator;
+
+public class PrefetchIteratorTest {
+
+	private SolutionDecoder decoder;
+	private Model model;
+	private ExecutorService executor;
+
+	/**
+	 * Returns count solutions and then fails if fail is set.
+	 */
+	private class Source extends NiceIterator<QuerySolution> {
+		private final int count;
+		private final boolean fail;
+		final AtomicInteger read = new AtomicInteger();
+		final AtomicBoolean closed = new AtomicBoolean();
+
+		Source(final int count, final boolean fail) {
+			this.count = count;
+			this.fail = fail;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (read.get() < count) {
+				return true;
+			}
+			if (fail) {
+				throw new IllegalStateException("Source failed");
+			}
+			return false;
+		}
+
+		@Override
+		public QuerySolution next() {
+			final QuerySolutionMap soln = new QuerySolutionMap();
+			soln.add("intCol", model.createTypedLiteral(read.getAndIncrement()));
+			return soln;
+		}
+
+		@Override
+		public void close() {
+			closed.set(true);
+		}
+	}
+
+	private void waitFor(final PrefetchIterator iter) throws InterruptedException {
+		for (int i = 0; (i < 100) && iter.isRunning(); i++) {
+			Thread.sleep(20);
+		}
+		assertFalse(iter.isRunning());
+	}
+
+	@Before
+	public void setup() {
+		executor = Executors.newCachedThreadPool();
+		model = ModelFactory.createDefaultModel();
+		final Query query = new Query();
+		query.setQuerySelectType();
+		query.addResultVar(Var.alloc("intCol"));
+
+		final ColumnDef colDef = mock(ColumnDef.class);
+		when(colDef.getType()).thenReturn(Types.INTEGER);
+		final Column column = mock(Column.class);
+		when(column.getColumnDef()).thenReturn(colDef);
+		final List<Column> cols = new ArrayList<Column>();
+		cols.add(column);
+		final Table table = mock(Table.class);
+		when(table.getColumnList()).thenReturn(cols);
+		decoder = new SolutionDecoder(query, table);
+	}
+
+	@After
+	public void teardown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRowsInOrder() throws InterruptedException {
+		final Source source = new Source(10, false);
+		final PrefetchIterator iter = new PrefetchIterator(decoder, source,
+				3, executor);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(iter.hasNext());
+			final Node[] row = iter.next();
+			assertEquals(1, row.length);
+			assertEquals(Integer.valueOf(i), row[0].getLiteralValue());
+		}
+		assertFalse(iter.hasNext());
+		waitFor(iter);
+		assertTrue(source.closed.get());
+	}
+
+	@Test
+	public void testBackPressure() throws InterruptedException {
+		final Source source = new Source(100, false);
+		final PrefetchIterator iter = new PrefetchIterator(decoder, source,
+				2, executor);
+		Thread.sleep(200);
+		// the buffer plus the row waiting to be added.
+		assertTrue(source.read.get() <= 3);
+		assertTrue(iter.isRunning());
+		iter.close();
+		waitFor(iter);
+		assertTrue(source.closed.get());
+		assertFalse(iter.hasNext());
+	}
+
+	@Test
+	public void testErrorPropagation() throws InterruptedException {
+		final Source source = new Source(2, true);
+		final PrefetchIterator iter = new PrefetchIterator(decoder, source,
+				5, executor);
+		assertTrue(iter.hasNext());
+		iter.next();
+		assertTrue(iter.hasNext());
+		iter.next();
+		try {
+			iter.hasNext();
+			fail("Should have thrown IllegalStateException");
+		} catch (final IllegalStateException expected) {
+			assertEquals("Source failed", expected.getMessage());
+		}
+		assertFalse(iter.hasNext());
+		waitFor(iter);
+		assertTrue(source.closed.get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadCapacity() {
+		new PrefetchIterator(decoder, new Source(1, false), 0, executor);
+	}
+
+	@Test
+	public void testCloseBeforeStart() throws InterruptedException {
+		final ExecutorService single = Executors.newSingleThreadExecutor();
+		try {
+			// keep the only thread busy so the worker waits in the queue.
+			final Object lock = new Object();
+			synchronized (lock) {
+				single.submit(new Runnable() {
+					@Override
+					public void run() {
+						synchronized (lock) {
+							// released once the iterator is closed.
+						}
+					}
+				});
+				final Source source = new Source(10, false);
+				final PrefetchIterator iter = new PrefetchIterator(decoder,
+						source, 3, single);
+				iter.close();
+				assertFalse(iter.isRunning());
+				assertTrue(source.closed.get());
+				assertEquals(0, source.read.get());
+			}
+		} finally {
+			single.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testRejected() {
+		final Source source = new Source(10, false);
+		executor.shutdown();
+		try {
+			new PrefetchIterator(decoder, source, 3, executor);
+			fail("Should have thrown RejectedExecutionException");
+		} catch (final RejectedExecutionException expected) {
+			assertTrue(source.closed.get());
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.xenei.jdbc4sparql.impl.rdf.RdfCatalog;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+public class ResultCacheTest {
+
+	private Model model;
+	private RdfCatalog catalog;
+	private Query query;
+
+	@Before
+	public void setup() {
+		model = ModelFactory.createDefaultModel();
+		for (int i = 0; i < 3; i++) {
+			final Resource r = model.createResource("http://example.com/s" + i);
+			r.addProperty(RDF.type, model.createResource("http://example.com/t"));
+			if (i > 0) {
+				r.addLiteral(RDFS.label, i);
+			}
+		}
+		catalog = mockCatalog("catalog", false);
+		query = QueryFactory
+				.create("SELECT ?s ?l WHERE { ?s a <http://example.com/t> OPTIONAL { ?s <"
+						+ RDFS.label.getURI() + "> ?l } } ORDER BY ?s");
+	}
+
+	private RdfCatalog mockCatalog(final String name, final boolean service) {
+		final RdfCatalog retval = Mockito.mock(RdfCatalog.class);
+		Mockito.when(retval.getShortName()).thenReturn(name);
+		Mockito.when(retval.isService()).thenReturn(service);
+		Mockito.when(retval.getLocalModel()).thenReturn(model);
+		return retval;
+	}
+
+	private ClosableIterator<QuerySolution> execute(final Query query) {
+		return new SparqlStreamingResultSet.ExecutionIterator(
+				QueryExecutionFactory.create(query, model));
+	}
+
+	private List<String> read(final ClosableIterator<QuerySolution> iter) {
+		final List<String> retval = new ArrayList<String>();
+		while (iter.hasNext()) {
+			final QuerySolution soln = iter.next();
+			retval.add(soln.getResource("s").getURI() + " " + soln.get("l"));
+		}
+		iter.close();
+		return retval;
+	}
+
+	private List<String> executeAndRecord(final ResultCache cache,
+			final RdfCatalog catalog, final Query query) {
+		assertNull(cache.get(catalog, query));
+		return read(cache.record(catalog, query, execute(query),
+				cache.getGeneration()));
+	}
+
+	@Test
+	public void testHitAndMiss() {
+		final ResultCache cache = new ResultCache(1024 * 1024, 0);
+		final List<String> expected = executeAndRecord(cache, catalog, query);
+		assertEquals(3, expected.size());
+		assertEquals(1, cache.size());
+		assertTrue(cache.getByteSize() > 0);
+
+		final ClosableIterator<QuerySolution> cached = cache.get(catalog,
+				query);
+		assertNotNull(cached);
+		assertEquals(expected, read(cached));
+
+		// the catalog is part of the key.
+		assertNull(cache.get(mockCatalog("other", false), query));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testPartialReadNotCached() {
+		final ResultCache cache = new ResultCache(1024 * 1024, 0);
+		assertNull(cache.get(catalog, query));
+		final ClosableIterator<QuerySolution> iter = cache.record(catalog,
+				query, execute(query), cache.getGeneration());
+		assertTrue(iter.hasNext());
+		iter.next();
+		iter.close();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(catalog, query));
+	}
+
+	@Test
+	public void testModelChangeInvalidates() {
+		final ResultCache cache = new ResultCache(1024 * 1024, 0);
+		executeAndRecord(cache, catalog, query);
+		assertEquals(1, cache.size());
+		model.createResource("http://example.com/s3").addProperty(RDF.type,
+				model.createResource("http://example.com/t"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getInvalidationCount());
+		assertEquals(4, executeAndRecord(cache, catalog, query).size());
+
+		// results read while the model changes are not cached.
+		final long generation = cache.getGeneration();
+		final ClosableIterator<QuerySolution> iter = cache.record(catalog,
+				QueryFactory.create("SELECT * WHERE { ?s ?p ?o }"),
+				execute(QueryFactory.create("SELECT * WHERE { ?s ?p ?o }")),
+				generation);
+		model.removeAll(null, RDFS.label, null);
+		read(iter);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testMemoryBound() {
+		final ResultCache cache = new ResultCache(1024 * 1024, 0);
+		executeAndRecord(cache, catalog, query);
+		final long size = cache.getByteSize();
+
+		// room for one result.
+		final ResultCache small = new ResultCache(size + (size / 2), 0);
+		final Query other = QueryFactory.create(query.toString().replace(
+				"ORDER BY ?s", "ORDER BY DESC(?s)"));
+		executeAndRecord(small, catalog, query);
+		executeAndRecord(small, catalog, other);
+		assertEquals(1, small.size());
+		assertEquals(1, small.getEvictionCount());
+		assertNull(small.get(catalog, query));
+		assertNotNull(small.get(catalog, other));
+
+		// larger than the cache.
+		final ResultCache tiny = new ResultCache(size / 2, 0);
+		executeAndRecord(tiny, catalog, query);
+		assertEquals(0, tiny.size());
+	}
+
+	@Test
+	public void testServiceRequiresTimeToLive() throws Exception {
+		final RdfCatalog service = mockCatalog("service", true);
+		final ResultCache cache = new ResultCache(1024 * 1024, 0);
+		assertFalse(cache.isCacheable(service));
+		final ClosableIterator<QuerySolution> solutions = execute(query);
+		assertSame(solutions,
+				cache.record(service, query, solutions, cache.getGeneration()));
+		solutions.close();
+
+		final ResultCache ttlCache = new ResultCache(1024 * 1024, 50);
+		assertTrue(ttlCache.isCacheable(service));
+		executeAndRecord(ttlCache, service, query);
+		assertNotNull(ttlCache.get(service, query));
+		Thread.sleep(100);
+		assertNull(ttlCache.get(service, query));
+		assertEquals(1, ttlCache.getEvictionCount());
+		assertEquals(0, ttlCache.size());
+	}
+
+	@Test
+	public void testDisabled() {
+		final ResultCache cache = new ResultCache(0, 0);
+		assertFalse(cache.isCacheable(catalog));
+		final ClosableIterator<QuerySolution> solutions = execute(query);
+		assertSame(solutions,
+				cache.record(catalog, query, solutions, cache.getGeneration()));
+		read(solutions);
+		assertNull(cache.get(catalog, query));
+		assertEquals(0, cache.getMissCount());
+	}
+}
@@ -0,0 +1,77 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup;
+
+public class ServicePrunerTest {
+
+	private static final String PATTERN = "{ ?s a <http://example.com/t> ; <http://example.com/a> ?a "
+			+ "OPTIONAL { ?s <http://example.com/b> ?b } "
+			+ "OPTIONAL { ?s <http://example.com/c> ?c } }";
+
+	@Test
+	public void testGetUsedVars() {
+		final Query query = QueryFactory
+				.create("SELECT ?a (str(?b) as ?x) WHERE { ?s ?p ?a ; ?q ?b ; ?r ?c ; ?t ?d ; ?u ?e "
+						+ "FILTER( ?c > 5 ) BIND( ?d AS ?y ) } ORDER BY ?e");
+		final Set<Var> vars = ServicePruner.getUsedVars(query);
+		assertTrue(vars.containsAll(Arrays.asList(Var.alloc("a"),
+				Var.alloc("b"), Var.alloc("c"), Var.alloc("d"),
+				Var.alloc("e"))));
+		assertFalse(vars.contains(Var.alloc("s")));
+		assertFalse(vars.contains(Var.alloc("p")));
+	}
+
+	@Test
+	public void testGetUsedVarsAggregate() {
+		final Query query = QueryFactory.create("SELECT (count(?b) as ?x) WHERE "
+				+ PATTERN);
+		final Set<Var> vars = ServicePruner.getUsedVars(query);
+		assertTrue(vars.contains(Var.alloc("b")));
+		assertFalse(vars.contains(Var.alloc("c")));
+	}
+
+	@Test
+	public void testRemoveUnusedOptionals() {
+		final Query query = QueryFactory.create("SELECT * WHERE " + PATTERN);
+		final ElementGroup group = (ElementGroup) query.getQueryPattern();
+		assertEquals(1, ServicePruner.removeUnusedOptionals(group,
+				Collections.singleton(Var.alloc("b"))));
+		final String result = query.toString();
+		assertTrue(result, result.contains("?b"));
+		assertFalse(result, result.contains("?c"));
+		assertTrue(result, result.contains("?a"));
+	}
+
+	@Test
+	public void testRemoveAllOptionals() {
+		final Query query = QueryFactory.create("SELECT * WHERE " + PATTERN);
+		final ElementGroup group = (ElementGroup) query.getQueryPattern();
+		assertEquals(2, ServicePruner.removeUnusedOptionals(group,
+				Collections.<Var> emptySet()));
+		assertFalse(query.toString().contains("OPTIONAL"));
+	}
+
+	@Test
+	public void testSharedOptionalVarsKept() {
+		final Query query = QueryFactory
+				.create("SELECT * WHERE { ?s <http://example.com/a> ?a "
+						+ "OPTIONAL { ?s <http://example.com/b> ?b } "
+						+ "OPTIONAL { ?b <http://example.com/c> ?c } }");
+		final ElementGroup group = (ElementGroup) query.getQueryPattern();
+		assertEquals(0, ServicePruner.removeUnusedOptionals(group,
+				Collections.<Var> emptySet()));
+	}
+}
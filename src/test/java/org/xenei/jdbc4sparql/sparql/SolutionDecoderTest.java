@@ -0,0 +1,117 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xenei.jdbc4sparql.iface.Column;
+import org.xenei.jdbc4sparql.iface.ColumnDef;
+import org.xenei.jdbc4sparql.iface.Table;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.sparql.core.ResultBinding;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
+
+public class SolutionDecoderTest {
+
+	private SolutionDecoder decoder;
+	private Var intVar;
+	private Var strVar;
+
+	private Column createColumn(final int type) {
+		final ColumnDef colDef = mock(ColumnDef.class);
+		when(colDef.getType()).thenReturn(type);
+		final Column column = mock(Column.class);
+		when(column.getColumnDef()).thenReturn(colDef);
+		return column;
+	}
+
+	@Before
+	public void setup() {
+		intVar = Var.alloc("intCol");
+		strVar = Var.alloc("strCol");
+		final Query query = new Query();
+		query.setQuerySelectType();
+		query.addResultVar(intVar);
+		query.addResultVar(strVar);
+
+		final List<Column> cols = new ArrayList<Column>();
+		cols.add(createColumn(Types.INTEGER));
+		cols.add(createColumn(Types.VARCHAR));
+		final Table table = mock(Table.class);
+		when(table.getColumnList()).thenReturn(cols);
+
+		decoder = new SolutionDecoder(query, table);
+	}
+
+	@Test
+	public void testPlan() {
+		assertEquals(2, decoder.getColumnCount());
+		assertEquals(intVar, decoder.getVar(1));
+		assertEquals(strVar, decoder.getVar(2));
+		assertEquals(Types.INTEGER, decoder.getSqlType(1));
+		assertEquals(Types.VARCHAR, decoder.getSqlType(2));
+	}
+
+	@Test
+	public void testDecodeBinding() {
+		final BindingMap binding = BindingFactory.create();
+		binding.add(intVar,
+				NodeFactory.createLiteral("5", null, XSDDatatype.XSDint));
+		final ResultBinding soln = new ResultBinding(
+				ModelFactory.createDefaultModel(), binding);
+		assertEquals(Integer.valueOf(5), decoder.decode(soln, 1));
+		assertNull(decoder.decode(soln, 2));
+	}
+
+	@Test
+	public void testDecodeSolutionMap() {
+		final QuerySolutionMap soln = new QuerySolutionMap();
+		soln.add(strVar.getName(), ModelFactory.createDefaultModel()
+				.createLiteral("hello"));
+		assertNull(decoder.decode(soln, 1));
+		assertEquals("hello", decoder.decode(soln, 2));
+	}
+
+	@Test
+	public void testDecodeNode() {
+		assertNull(SolutionDecoder.decode(null));
+		final Node uri = NodeFactory.createURI("http://example.com/a");
+		assertEquals("http://example.com/a", SolutionDecoder.decode(uri));
+		assertEquals("abc",
+				SolutionDecoder.decode(NodeFactory.createLiteral("abc")));
+		assertEquals("abc@en", SolutionDecoder.decode(NodeFactory
+				.createLiteral("abc", "en", false)));
+		assertEquals(Integer.valueOf(5), SolutionDecoder.decode(NodeFactory
+				.createLiteral("5", null, XSDDatatype.XSDint)));
+	}
+
+	@Test
+	public void testGetLiteralValue() {
+		assertNull(SolutionDecoder.getLiteralValue(null));
+		assertNull(SolutionDecoder.getLiteralValue(NodeFactory
+				.createURI("http://example.com/a")));
+		assertNull(SolutionDecoder.getLiteralValue(NodeFactory
+				.createLiteral("5")));
+		assertEquals(Integer.valueOf(5), SolutionDecoder
+				.getLiteralValue(NodeFactory.createLiteral("5", null,
+						XSDDatatype.XSDint)));
+		assertEquals(Boolean.TRUE, SolutionDecoder
+				.getLiteralValue(NodeFactory.createLiteral("true", null,
+						XSDDatatype.XSDboolean)));
+	}
+}
@@ -0,0 +1,119 @@
+package org.xenei.jdbc4sparql.sparql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+
+public class SpillingSolutionListTest {
+
+	private SpillingSolutionList lst;
+	private Node[][] rows;
+
+	@Before
+	public void setup() {
+		rows = new Node[][] {
+				{
+						NodeFactory.createURI("http://example.com/one"),
+						NodeFactory.createLiteral("one")
+				},
+				{
+						NodeFactory.createAnon(),
+						NodeFactory.createLiteral("deux", "fr", false)
+				},
+				{
+						null,
+						NodeFactory.createLiteral("3", null,
+								XSDDatatype.XSDinteger)
+				},
+				{
+						NodeFactory.createURI("http://example.com/é"),
+						NodeFactory.createLiteral("4.5", null,
+								XSDDatatype.XSDdouble)
+				}
+		};
+	}
+
+	@After
+	public void teardown() {
+		if (lst != null) {
+			lst.close();
+		}
+	}
+
+	private void fill() {
+		for (final Node[] row : rows) {
+			lst.add(row);
+		}
+	}
+
+	@Test
+	public void testInMemory() {
+		lst = new SpillingSolutionList(2, 0);
+		fill();
+		assertFalse(lst.isSpilled());
+		assertEquals(rows.length, lst.size());
+		for (int i = 0; i < rows.length; i++) {
+			assertArrayEquals(rows[i], lst.get(i));
+		}
+	}
+
+	@Test
+	public void testSpilled() {
+		lst = new SpillingSolutionList(2, 1);
+		fill();
+		assertTrue(lst.isSpilled());
+		assertEquals(rows.length, lst.size());
+		// read out of order to verify random access.
+		for (final int i : new int[] {
+				3, 0, 2, 1, 3
+		}) {
+			assertArrayEquals(rows[i], lst.get(i));
+		}
+	}
+
+	@Test
+	public void testAddAfterRead() {
+		lst = new SpillingSolutionList(2, 1);
+		fill();
+		assertArrayEquals(rows[2], lst.get(2));
+		lst.add(rows[0]);
+		lst.add(rows[1]);
+		assertEquals(rows.length + 2, lst.size());
+		assertArrayEquals(rows[1], lst.get(rows.length + 1));
+		assertArrayEquals(rows[0], lst.get(rows.length));
+		for (int i = 0; i < rows.length; i++) {
+			assertArrayEquals(rows[i], lst.get(i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongColumnCount() {
+		lst = new SpillingSolutionList(3, 0);
+		lst.add(rows[0]);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfRange() {
+		lst = new SpillingSolutionList(2, 1);
+		fill();
+		lst.get(rows.length);
+	}
+
+	@Test
+	public void testClose() {
+		lst = new SpillingSolutionList(2, 1);
+		fill();
+		lst.close();
+		assertFalse(lst.isSpilled());
+		assertEquals(0, lst.size());
+	}
+}
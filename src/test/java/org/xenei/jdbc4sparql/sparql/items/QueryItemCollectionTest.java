@@ -13,6 +13,7 @@ import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.xenei.jdbc4sparql.iface.name.ColumnName;
 import org.xenei.jdbc4sparql.iface.name.ItemName;
 import org.xenei.jdbc4sparql.iface.name.NameSegments;
 //import org.xenei.jdbc4sparql.iface.name.RenamedBaseName;
@@ -528,4 +529,57 @@ public class QueryItemCollectionTest {
 		assertNull(itemInfo);
 	}
 
+	@Test
+	public void testMatchAfterRemove() {
+		final ItemName name = new SearchName("catalog", "schema", "table",
+				null);
+		assertEquals(2, itemCollection.count(name));
+		assertTrue(itemCollection.remove(new SearchName("catalog", "schema",
+				"table", "column")));
+		assertEquals(1, itemCollection.count(name));
+		assertNull(itemCollection.findGUIDVar(new SearchName("catalog",
+				"schema", "table", "column").getGUID()));
+
+		final Iterator<QueryItemInfo<NamedObject<ItemName>, ItemName>> iter = itemCollection
+				.match(name);
+		iter.next();
+		iter.remove();
+		assertFalse(itemCollection.contains(name));
+		assertEquals(-1, itemCollection.indexOf(name));
+	}
+
+	@Test
+	public void testMatch_ColumnName() {
+		itemCollection.clear();
+		for (final String table : new String[] {
+				"table", "table2"
+		}) {
+			for (final String column : new String[] {
+					"column", "column2"
+			}) {
+				final ColumnName name = new ColumnName("catalog", "schema",
+						table, column);
+				itemCollection
+				.add(new QueryItemInfo<NamedObject<ItemName>, ItemName>(
+						new TestingNamedObject(name), name, false));
+			}
+		}
+
+		assertEquals(2, itemCollection.count(new SearchName(null, null, null,
+				"column")));
+		assertEquals(2, itemCollection.count(new SearchName(null, "schema",
+				"table", null)));
+		assertEquals(1, itemCollection.indexOf(new SearchName(null, null,
+				"table", "column2")));
+		assertNull(itemCollection.get(new SearchName(null, null, "table3",
+				"column")));
+
+		final ColumnName name = new ColumnName("catalog", "schema", "table2",
+				"column");
+		assertFalse(itemCollection
+				.add(new QueryItemInfo<NamedObject<ItemName>, ItemName>(
+						namedObject, name, false)));
+		assertEquals(4, itemCollection.size());
+	}
+
 }
@@ -34,6 +34,7 @@ import org.xenei.jdbc4sparql.impl.rdf.RdfTableDef;
 import org.xenei.jdbc4sparql.impl.virtual.VirtualCatalog;
 import org.xenei.jdbc4sparql.meta.MetaCatalogBuilder;
 import org.xenei.jdbc4sparql.sparql.ForceTypeF;
+import org.xenei.jdbc4sparql.sparql.SparqlQueryBuilder;
 import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
 import org.xenei.jdbc4sparql.sparql.parser.jsqlparser.proxies.ExprInfo;
 import org.xenei.jdbc4sparql.utils.ElementExtractor;
@@ -70,6 +71,8 @@ abstract public class AbstractSparqlParserTest {
 	protected TableName fooTableName;
 	protected TableName barTableName;
 	protected List<String> vars;
+	// use native type filters in the builders from getBuilder().
+	protected boolean nativeTypeFilters;
 
 	protected static String RQD = "IntCol";
 	protected static String OPT = "NullableStringCol";
@@ -176,11 +179,18 @@ abstract public class AbstractSparqlParserTest {
 
 	protected Query getQuery(final String sql) throws SQLDataException,
 	JSQLParserException {
+		return getBuilder(sql).build();
+	}
+
+	protected SparqlQueryBuilder getBuilder(final String sql)
+			throws JSQLParserException {
 		final Statement stmt = parserManager.parse(new StringReader(sql));
 		final SparqlVisitor sparqlVisitor = new SparqlVisitor(catalogs, parser,
 				catalog, schema);
 		stmt.accept(sparqlVisitor);
-		return sparqlVisitor.getBuilder().build();
+		final SparqlQueryBuilder builder = sparqlVisitor.getBuilder();
+		builder.setNativeTypeFilters(nativeTypeFilters);
+		return builder;
 	}
 
 	protected class Wrapper {
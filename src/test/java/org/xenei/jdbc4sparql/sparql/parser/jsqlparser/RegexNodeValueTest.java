@@ -175,7 +175,7 @@ public class RegexNodeValueTest {
 	public void testPercent() {
 		rnv = RegexNodeValue.create("x%x");
 		assertTrue(rnv.isWildcard());
-		assertEquals("^x(.+)x$", rnv.asString());
+		assertEquals("^x(.*)x$", rnv.asString());
 	}
 
 	@Test
@@ -204,7 +204,7 @@ public class RegexNodeValueTest {
 	public void testDblEscPercent() {
 		rnv = RegexNodeValue.create("x" + SLASH + SLASH + "%x");
 		assertTrue(rnv.isWildcard());
-		assertEquals("^x" + SLASH + SLASH + SLASH + SLASH + "(.+)x$",
+		assertEquals("^x" + SLASH + SLASH + SLASH + SLASH + "(.*)x$",
 				rnv.asString());
 	}
 
@@ -219,4 +219,44 @@ public class RegexNodeValueTest {
 		assertEquals("^x" + SLASH + SLASH + SLASH + SLASH + SLASH + "^x.$",
 				rnv.asString());
 	}
+
+	@Test
+	public void testMatchType() {
+		rnv = RegexNodeValue.create("xx");
+		assertEquals(RegexNodeValue.MatchType.EXACT, rnv.getMatchType());
+		assertEquals("xx", rnv.getLiteral());
+
+		rnv = RegexNodeValue.create("xx%");
+		assertEquals(RegexNodeValue.MatchType.STARTS_WITH, rnv.getMatchType());
+		assertEquals("xx", rnv.getLiteral());
+
+		rnv = RegexNodeValue.create("%xx");
+		assertEquals(RegexNodeValue.MatchType.ENDS_WITH, rnv.getMatchType());
+		assertEquals("xx", rnv.getLiteral());
+
+		rnv = RegexNodeValue.create("%x.x%");
+		assertEquals(RegexNodeValue.MatchType.CONTAINS, rnv.getMatchType());
+		assertEquals("x.x", rnv.getLiteral());
+
+		rnv = RegexNodeValue.create("x" + SLASH + "%x%");
+		assertEquals(RegexNodeValue.MatchType.STARTS_WITH, rnv.getMatchType());
+		assertEquals("x%x", rnv.getLiteral());
+
+		rnv = RegexNodeValue.create("%x" + SLASH + "_");
+		assertEquals(RegexNodeValue.MatchType.ENDS_WITH, rnv.getMatchType());
+		assertEquals("x_", rnv.getLiteral());
+
+		rnv = RegexNodeValue.create("x" + SLASH + SLASH + "x%");
+		assertEquals(RegexNodeValue.MatchType.STARTS_WITH, rnv.getMatchType());
+		assertEquals("x" + SLASH + "x", rnv.getLiteral());
+
+		rnv = RegexNodeValue.create("x%x");
+		assertEquals(RegexNodeValue.MatchType.REGEX, rnv.getMatchType());
+
+		rnv = RegexNodeValue.create("x_%");
+		assertEquals(RegexNodeValue.MatchType.REGEX, rnv.getMatchType());
+
+		rnv = RegexNodeValue.create("%");
+		assertEquals(RegexNodeValue.MatchType.REGEX, rnv.getMatchType());
+	}
 }
@@ -3,10 +3,10 @@ package org.xenei.jdbc4sparql.sparql.parser.jsqlparser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.SQLDataException;
 import java.util.ArrayList;
@@ -16,10 +16,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.parser.CCJSqlParserManager;
-import net.sf.jsqlparser.statement.Statement;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Level;
 import org.junit.Assert;
 import org.junit.Before;
@@ -35,25 +34,40 @@ import org.xenei.jdbc4sparql.impl.rdf.ResourceBuilder;
 import org.xenei.jdbc4sparql.impl.virtual.VirtualCatalog;
 import org.xenei.jdbc4sparql.meta.MetaCatalogBuilder;
 import org.xenei.jdbc4sparql.sparql.ForceTypeF;
+import org.xenei.jdbc4sparql.sparql.SparqlQueryBuilder;
 import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
 import org.xenei.jdbc4sparql.sparql.parser.jsqlparser.proxies.ExprInfo;
 import org.xenei.jdbc4sparql.utils.ElementExtractor;
 
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.query.SortCondition;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.sparql.core.TriplePath;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
 import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.E_Bound;
+import com.hp.hpl.jena.sparql.expr.E_Conditional;
 import com.hp.hpl.jena.sparql.expr.E_Function;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
 import com.hp.hpl.jena.sparql.expr.Expr;
+import com.hp.hpl.jena.sparql.expr.ExprList;
+import com.hp.hpl.jena.sparql.expr.ExprVar;
 import com.hp.hpl.jena.sparql.syntax.Element;
 import com.hp.hpl.jena.sparql.syntax.ElementBind;
+import com.hp.hpl.jena.sparql.syntax.ElementData;
 import com.hp.hpl.jena.sparql.syntax.ElementFilter;
 import com.hp.hpl.jena.sparql.syntax.ElementOptional;
 import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
 import com.hp.hpl.jena.sparql.syntax.ElementService;
+import com.hp.hpl.jena.sparql.syntax.ElementSubQuery;
+import com.hp.hpl.jena.vocabulary.RDF;
 
 /**
  * Class that validates the parser correctly parses the SQL into SPARQL
@@ -83,8 +97,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -96,8 +110,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -115,8 +129,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -128,8 +142,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -188,6 +202,364 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		validate(service,tests);
 	}
 
+	@Test
+	public void testServiceWindowQuery() throws Exception {
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo");
+		assertTrue(builder.isWindowable());
+
+		query = builder.getServiceWindowQuery(10, 5);
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		tests.clear();
+		final ElementService service = (ElementService) results
+				.get(ElementService.class).lst.get(0);
+		assertEquals(SERVICE_URI, service.getServiceNode().getURI());
+		final Query subQuery = ((ElementSubQuery) service.getElement())
+				.getQuery();
+		assertEquals(5, subQuery.getLimit());
+		assertEquals(10, subQuery.getOffset());
+		assertTrue(subQuery.hasOrderBy());
+		assertEquals(subQuery.getProjectVars().size(), subQuery.getOrderBy()
+				.size());
+	}
+
+	@Test
+	public void testServiceWindowQueryWithLimit() throws Exception {
+		nativeTypeFilters = true;
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo LIMIT 12 OFFSET 3");
+		assertTrue(builder.isWindowable());
+
+		query = builder.getServiceWindowQuery(10, 5);
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		tests.clear();
+		final ElementService service = (ElementService) results
+				.get(ElementService.class).lst.get(0);
+		final Query subQuery = ((ElementSubQuery) service.getElement())
+				.getQuery();
+		assertEquals(2, subQuery.getLimit());
+		assertEquals(13, subQuery.getOffset());
+
+		assertNull(builder.getServiceWindowQuery(15, 5));
+	}
+
+	@Test
+	public void testLimitInServiceQuery() throws Exception {
+		nativeTypeFilters = true;
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo");
+		assertNull(builder.getLimit());
+		builder.setLimit(100L);
+		assertEquals(Long.valueOf(100), builder.getLimit());
+		query = builder.build();
+		assertFalse(query.hasLimit());
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		tests.clear();
+		final ElementService service = (ElementService) results
+				.get(ElementService.class).lst.get(0);
+		final Query subQuery = ((ElementSubQuery) service.getElement())
+				.getQuery();
+		assertEquals(100, subQuery.getLimit());
+		assertTrue(builder.isWindowable());
+	}
+
+	@Test
+	public void testLimitNotInServiceQuery() throws Exception {
+		// the type checks are evaluated locally so the limit must be.
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo");
+		builder.setLimit(100L);
+		query = builder.build();
+		assertEquals(100, query.getLimit());
+		assertFalse(getServiceQuery(query).hasLimit());
+		assertFalse(builder.isWindowable());
+	}
+
+	@Test
+	public void testOrderByInServiceQuery() throws Exception {
+		nativeTypeFilters = true;
+		query = getQuery("SELECT StringCol FROM foo ORDER BY IntCol DESC LIMIT 10 OFFSET 20");
+		assertFalse(query.hasOrderBy());
+		assertFalse(query.hasLimit());
+		assertFalse(query.hasOffset());
+		final Query subQuery = getServiceQuery(query);
+		assertEquals(10, subQuery.getLimit());
+		assertEquals(20, subQuery.getOffset());
+		assertEquals(1, subQuery.getOrderBy().size());
+		final SortCondition sc = subQuery.getOrderBy().get(0);
+		assertEquals(Query.ORDER_DESCENDING, sc.getDirection());
+		// sorted on the range checked value.
+		assertTrue(sc.getExpression() instanceof E_Conditional);
+
+		// the sort key is not a column.
+		query = getQuery("SELECT StringCol FROM foo ORDER BY IntCol+1 LIMIT 10");
+		assertTrue(query.hasOrderBy());
+		assertEquals(10, query.getLimit());
+		assertFalse(getServiceQuery(query).hasOrderBy());
+	}
+
+	@Test
+	public void testOrderByNotInServiceQuery() throws Exception {
+		query = getQuery("SELECT StringCol FROM foo ORDER BY IntCol LIMIT 10 OFFSET 20");
+		assertEquals(10, query.getLimit());
+		assertEquals(20, query.getOffset());
+		assertEquals(1, query.getOrderBy().size());
+		final Query subQuery = getServiceQuery(query);
+		assertFalse(subQuery.hasOrderBy());
+		assertFalse(subQuery.hasLimit());
+		assertFalse(subQuery.hasOffset());
+		// the sort key is returned by the service call.
+		final Var key = query.getOrderBy().get(0).getExpression().asVar();
+		assertTrue(subQuery.getProjectVars().contains(key));
+
+		// the selected column is sorted on the converted value.
+		query = getQuery("SELECT StringCol FROM foo ORDER BY StringCol");
+		assertEquals(Var.alloc("StringCol"), query.getOrderBy().get(0)
+				.getExpression().asVar());
+	}
+
+	@Test
+	public void testNativeTypeFiltersInServiceQuery() throws Exception {
+		nativeTypeFilters = true;
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo WHERE IntCol > 5");
+		query = builder.build();
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		tests.clear();
+		final ElementService service = (ElementService) results
+				.get(ElementService.class).lst.get(0);
+		final Query subQuery = ((ElementSubQuery) service.getElement())
+				.getQuery();
+
+		tests.put(ElementFilter.class, 2);
+		validate(subQuery, tests);
+		tests.clear();
+		final String remote = subQuery.toString();
+		assertTrue(remote, remote.contains("datatype("));
+		assertTrue(remote, remote.contains("bound("));
+		assertTrue(remote, remote.contains("> 5"));
+
+		// all the filters are in the service.
+		final String local = query.toString();
+		assertEquals(local, 2, StringUtils.countMatches(local, "FILTER"));
+		assertFalse(local, local.contains("java:"));
+		assertTrue(builder.isWindowable());
+	}
+
+	@Test
+	public void testNativeTypeRange() throws Exception {
+		nativeTypeFilters = true;
+		query = getQuery("SELECT * FROM foo WHERE IntCol > 5");
+		final Query subQuery = getServiceQuery(query);
+		// only the casts required by SPARQL 1.1 are used.
+		final String remote = subQuery.toString();
+		assertTrue(remote, remote.contains("XMLSchema#integer>(?"));
+		assertFalse(remote, remote.contains("XMLSchema#int>(?"));
+
+		// a value outside of the integer range does not convert.
+		final Model data = createFooData();
+		final long[] ints = { 7, 3000000000L };
+		for (final long i : ints) {
+			final Resource r = data.createResource();
+			r.addProperty(RDF.type,
+					data.createResource("http://example.com/foo"));
+			r.addProperty(data.createProperty("http://example.com/zero"), "c");
+			r.addLiteral(data.createProperty("http://example.com/two"), i);
+		}
+		final ResultSet rs = QueryExecutionFactory.create(subQuery, data)
+				.execSelect();
+		assertTrue(rs.hasNext());
+		rs.next();
+		assertFalse(rs.hasNext());
+	}
+
+	@Test
+	public void testMaxRowsNotInFilteredServiceQuery() throws Exception {
+		// the type checks and the where clause are evaluated locally.
+		SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo WHERE IntCol > 1");
+		builder.setLimit(1L);
+		query = builder.build();
+		assertEquals(1, query.getLimit());
+		Query subQuery = getServiceQuery(query);
+		assertFalse(subQuery.hasLimit());
+		// the endpoint returns every matching row for the type checks.
+		ResultSet rs = QueryExecutionFactory.create(subQuery, createFooData())
+				.execSelect();
+		int count = 0;
+		while (rs.hasNext()) {
+			rs.next();
+			count++;
+		}
+		assertEquals(2, count);
+
+		// a filter that only the driver can evaluate.
+		nativeTypeFilters = true;
+		builder = getBuilder("SELECT * FROM foo WHERE IntCol > 1");
+		builder.addFilter(new E_Function("java:org.example.TestF",
+				new ExprList()));
+		builder.setLimit(1L);
+		query = builder.build();
+		assertEquals(1, query.getLimit());
+		assertFalse(getServiceQuery(query).hasLimit());
+
+		// an aggregate that only the driver can evaluate.
+		builder = getBuilder("SELECT MAX(IntCol), CATALOG() FROM foo");
+		builder.setLimit(1L);
+		query = builder.build();
+		assertEquals(1, query.getLimit());
+		assertFalse(getServiceQuery(query).hasLimit());
+	}
+
+	@Test
+	public void testLocalFiltersOutsideServiceQuery() throws Exception {
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo WHERE IntCol > 5");
+		builder.addFilter(new E_LogicalAnd(new E_Function(
+				"java:org.example.TestF", new ExprList()), new E_Bound(
+				new ExprVar("x"))));
+		query = builder.build();
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		tests.clear();
+		final ElementService service = (ElementService) results
+				.get(ElementService.class).lst.get(0);
+		final Query subQuery = ((ElementSubQuery) service.getElement())
+				.getQuery();
+		final String remote = subQuery.toString();
+		assertFalse(remote, remote.contains("java:"));
+		assertTrue(remote, remote.contains("bound(?x)"));
+		assertTrue(remote, remote.contains("> 5"));
+
+		final String local = query.toString();
+		assertTrue(local, local.contains("java:org.example.TestF"));
+		assertTrue(local, local.contains("CheckTypeF"));
+	}
+
+	@Test
+	public void testServiceProjection() throws Exception {
+		SparqlQueryBuilder builder = getBuilder("SELECT NullableIntCol FROM foo");
+		query = builder.build();
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		ElementService service = (ElementService) results
+				.get(ElementService.class).lst.get(0);
+		Query subQuery = ((ElementSubQuery) service.getElement()).getQuery();
+		// the selected column and the required columns for the type checks.
+		assertEquals(3, subQuery.getProjectVars().size());
+		tests.clear();
+		tests.put(ElementOptional.class, 1);
+		validate(subQuery, tests);
+		tests.clear();
+
+		nativeTypeFilters = true;
+		builder = getBuilder("SELECT NullableIntCol FROM foo");
+		query = builder.build();
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		service = (ElementService) results.get(ElementService.class).lst
+				.get(0);
+		subQuery = ((ElementSubQuery) service.getElement()).getQuery();
+		// the type checks are in the service call.
+		assertEquals(1, subQuery.getProjectVars().size());
+		tests.clear();
+		tests.put(ElementOptional.class, 1);
+		validate(subQuery, tests);
+		tests.clear();
+	}
+
+	private Model createFooData() {
+		final Model data = ModelFactory.createDefaultModel();
+		final String[] strs = { "a", "a", "b" };
+		final int[] ints = { 1, 5, 2 };
+		for (int i = 0; i < strs.length; i++) {
+			final Resource r = data.createResource();
+			r.addProperty(RDF.type,
+					data.createResource("http://example.com/foo"));
+			r.addProperty(data.createProperty("http://example.com/zero"),
+					strs[i]);
+			r.addLiteral(data.createProperty("http://example.com/two"),
+					ints[i]);
+		}
+		return data;
+	}
+
+	private Query getServiceQuery(final Query query) throws Exception {
+		tests.put(ElementService.class, 1);
+		results = validate(query, tests);
+		tests.clear();
+		final ElementService service = (ElementService) results
+				.get(ElementService.class).lst.get(0);
+		return ((ElementSubQuery) service.getElement()).getQuery();
+	}
+
+	@Test
+	public void testAggregateServiceQuery() throws Exception {
+		nativeTypeFilters = true;
+		SparqlQueryBuilder builder = getBuilder("SELECT COUNT(*) FROM foo");
+		query = builder.build();
+		assertFalse(query.hasAggregators());
+		assertFalse(builder.isWindowable());
+		Query subQuery = getServiceQuery(query);
+		assertTrue(subQuery.hasAggregators());
+		assertEquals("var0", subQuery.getProjectVars().get(0).getName());
+
+		// the endpoint returns the count.
+		ResultSet rs = QueryExecutionFactory.create(subQuery, createFooData())
+				.execSelect();
+		assertEquals(3, rs.next().getLiteral("var0").getInt());
+		assertFalse(rs.hasNext());
+
+		builder = getBuilder("SELECT StringCol, MAX(IntCol) FROM foo GROUP BY StringCol");
+		query = builder.build();
+		assertFalse(query.hasAggregators());
+		assertFalse(query.hasGroupBy());
+		subQuery = getServiceQuery(query);
+		assertTrue(subQuery.hasGroupBy());
+		assertEquals(query.getProjectVars(), subQuery.getProjectVars());
+
+		rs = QueryExecutionFactory.create(subQuery, createFooData())
+				.execSelect();
+		final Map<String, Integer> found = new HashMap<String, Integer>();
+		while (rs.hasNext()) {
+			final QuerySolution soln = rs.next();
+			found.put(soln.getLiteral("StringCol").getString(), soln
+					.getLiteral("var0").getInt());
+		}
+		assertEquals(2, found.size());
+		assertEquals(Integer.valueOf(5), found.get("a"));
+		assertEquals(Integer.valueOf(2), found.get("b"));
+	}
+
+	@Test
+	public void testAggregateNotInServiceQuery() throws Exception {
+		// the type checks are evaluated locally.
+		query = getQuery("SELECT COUNT(*) FROM foo");
+		Query subQuery = getServiceQuery(query);
+		assertFalse(subQuery.getProjectVars().contains(Var.alloc("var0")));
+		assertTrue(query.toString().contains("count"));
+
+		// a function must be evaluated locally.
+		nativeTypeFilters = true;
+		query = getQuery("SELECT MAX(IntCol), CATALOG() FROM foo");
+		subQuery = getServiceQuery(query);
+		assertFalse(subQuery.getProjectVars().contains(Var.alloc("var0")));
+
+		// the having clause is evaluated locally.
+		query = getQuery("SELECT StringCol, MAX(IntCol) FROM foo GROUP BY StringCol HAVING MAX(IntCol) > 3");
+		subQuery = getServiceQuery(query);
+		assertFalse(subQuery.getProjectVars().contains(Var.alloc("var0")));
+	}
+
+	@Test
+	public void testWindowQuery() throws Exception {
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo");
+		final ElementData data = new ElementData();
+		query = builder.getWindowQuery(data);
+		tests.put(ElementService.class, 0);
+		tests.put(ElementData.class, 1);
+		validate(query, tests);
+		tests.clear();
+		assertEquals(builder.build().getProjectVars(), query.getProjectVars());
+	}
+
 	@Test
 	public void testLengthFunctionSelect() throws Exception {
 
@@ -198,8 +570,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -211,8 +583,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -231,8 +603,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -244,8 +616,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -264,8 +636,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -277,8 +649,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -290,8 +662,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -303,8 +675,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -323,8 +695,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -336,8 +708,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -349,8 +721,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -362,8 +734,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -382,8 +754,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -395,8 +767,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -564,8 +936,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -577,8 +949,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -597,8 +969,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -610,8 +982,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -630,8 +1002,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -643,8 +1015,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -656,8 +1028,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -669,8 +1041,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -690,8 +1062,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -702,8 +1074,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -721,8 +1093,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -734,8 +1106,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -754,8 +1126,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -767,8 +1139,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -787,8 +1159,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -800,8 +1172,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -820,8 +1192,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -833,8 +1205,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -853,8 +1225,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -866,8 +1238,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -1272,6 +1644,36 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		assertFalse(filter.getExpr() instanceof ExprInfo);
 	}
 
+	@Test
+	public void testInWhereValues() throws Exception {
+		final SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo WHERE IntCol IN ( 2,4,6)");
+		builder.setInValuesThreshold(3);
+		query = builder.build();
+		// the VALUES block is sent to the endpoint.
+		final Query subQuery = getServiceQuery(query);
+		tests.put(ElementData.class, 1);
+		results = validate(subQuery, tests);
+		tests.clear();
+		final ElementData data = (ElementData) results.get(ElementData.class).lst
+				.get(0);
+		assertEquals(6, data.getRows().size());
+		final String algebra = Algebra.optimize(Algebra.compile(subQuery))
+				.toString();
+		assertTrue(algebra, algebra.contains("(sequence"));
+		assertTrue(algebra,
+				algebra.indexOf("(table") < algebra.indexOf("(bgp"));
+
+		// the endpoint returns the matching rows once each.
+		final ResultSet rs = QueryExecutionFactory.create(subQuery,
+				createFooData()).execSelect();
+		int count = 0;
+		while (rs.hasNext()) {
+			rs.next();
+			count++;
+		}
+		assertEquals(1, count);
+	}
+
 	//
 	// @Override
 	// public void visit(final InverseExpression inverseExpression) {
@@ -1301,8 +1703,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 4);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -1554,8 +1956,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -1568,8 +1970,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -1695,8 +2097,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -1709,8 +2111,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -1946,8 +2348,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -1960,8 +2362,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2082,8 +2484,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2096,8 +2498,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2159,8 +2561,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 0);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2211,8 +2613,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 4);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2266,8 +2668,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 				opt_tst));
 		tests.put(ElementBind.class, 4);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2285,8 +2687,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2300,8 +2702,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2317,8 +2719,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2334,7 +2736,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 0);
 		tests.put(ElementPathBlock.class, null);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
@@ -2351,8 +2753,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2368,8 +2770,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2390,8 +2792,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2405,8 +2807,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2422,8 +2824,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2439,8 +2841,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2456,8 +2858,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2473,8 +2875,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 0);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2495,8 +2897,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2510,8 +2912,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2527,8 +2929,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2544,8 +2946,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2561,8 +2963,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2578,8 +2980,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2600,7 +3002,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + outer table
-		tests.put(ElementOptional.class, 5);
+		tests.put(ElementOptional.class, 3);
 		results = validate(query, tests);
 	}
 
@@ -2617,7 +3019,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
+		tests.put(ElementOptional.class, 4);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2631,7 +3033,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
+		tests.put(ElementOptional.class, 4);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2678,7 +3080,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2692,7 +3094,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2706,7 +3108,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2720,7 +3122,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2784,7 +3186,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table
 		tests.put(ElementFilter.class, 3);
 		// 1 from each table
-		tests.put(ElementOptional.class, 3);
+		tests.put(ElementOptional.class, 2);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2818,7 +3220,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table
 		tests.put(ElementFilter.class, 3);
 		// 1 from each table
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2833,7 +3235,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table
 		tests.put(ElementFilter.class, 3);
 		// 1 from each table
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2848,7 +3250,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table
 		tests.put(ElementFilter.class, 3);
 		// 1 from each table
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2880,7 +3282,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -2894,7 +3296,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -2908,7 +3310,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 2);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -2928,7 +3330,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 2);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2942,7 +3344,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 2);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2956,7 +3358,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2970,7 +3372,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2989,7 +3391,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3004,7 +3406,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3018,7 +3420,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3032,7 +3434,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3051,7 +3453,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3065,7 +3467,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3079,7 +3481,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3093,7 +3495,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3127,7 +3529,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -3141,7 +3543,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 3);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -3155,7 +3557,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 2);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -3175,7 +3577,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 2);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -3189,7 +3591,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 2);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -3203,7 +3605,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -3217,7 +3619,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -3236,7 +3638,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3251,7 +3653,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3265,7 +3667,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3279,7 +3681,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 1);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3298,7 +3700,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3312,7 +3714,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3326,7 +3728,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3340,7 +3742,7 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
+		tests.put(ElementOptional.class, 0);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3356,8 +3758,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -3371,8 +3773,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -3388,8 +3790,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -3405,8 +3807,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		tests.put(ElementService.class, 1 );
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -3422,8 +3824,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -3439,8 +3841,8 @@ public class RemoteSparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 3);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -80,6 +80,7 @@ import org.xenei.jdbc4sparql.sparql.parser.jsqlparser.SparqlExprVisitor.ExprColu
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.expr.E_Add;
 import com.hp.hpl.jena.sparql.expr.E_Bound;
 import com.hp.hpl.jena.sparql.expr.E_Divide;
@@ -95,9 +96,13 @@ import com.hp.hpl.jena.sparql.expr.E_Multiply;
 import com.hp.hpl.jena.sparql.expr.E_NotEquals;
 import com.hp.hpl.jena.sparql.expr.E_OneOf;
 import com.hp.hpl.jena.sparql.expr.E_Regex;
+import com.hp.hpl.jena.sparql.expr.E_StrContains;
+import com.hp.hpl.jena.sparql.expr.E_StrEndsWith;
+import com.hp.hpl.jena.sparql.expr.E_StrStartsWith;
 import com.hp.hpl.jena.sparql.expr.E_Subtract;
 import com.hp.hpl.jena.sparql.expr.Expr;
 import com.hp.hpl.jena.sparql.expr.ExprAggregator;
+import com.hp.hpl.jena.sparql.expr.ExprFunction;
 import com.hp.hpl.jena.sparql.expr.ExprFunction2;
 import com.hp.hpl.jena.sparql.expr.ExprVar;
 import com.hp.hpl.jena.sparql.expr.aggregate.Aggregator;
@@ -116,16 +121,14 @@ public class SparqlExprVisitorTest {
 
 	@BeforeClass
 	public static void init() {
-		SparqlExprVisitorTest.regexMap.put("%ab", "^(.+)ab$");
-		SparqlExprVisitorTest.regexMap.put("a%b", "^a(.+)b$");
-		SparqlExprVisitorTest.regexMap.put("ab%", "^ab(.+)$");
+		SparqlExprVisitorTest.regexMap.put("a%b", "^a(.*)b$");
 		SparqlExprVisitorTest.regexMap.put("_ab", "^.ab$");
 		SparqlExprVisitorTest.regexMap.put("a_b", "^a.b$");
 		SparqlExprVisitorTest.regexMap.put("a\\b_", "^a\\\\b.$");
 		SparqlExprVisitorTest.regexMap.put("ab_", "^ab.$");
 		SparqlExprVisitorTest.regexMap.put("a.b_", "^a\\.b.$");
-		SparqlExprVisitorTest.regexMap.put("a%b_", "^a(.+)b.$");
-		SparqlExprVisitorTest.regexMap.put("%", "^(.+)$");
+		SparqlExprVisitorTest.regexMap.put("a%b_", "^a(.*)b.$");
+		SparqlExprVisitorTest.regexMap.put("%", "^(.*)$");
 		SparqlExprVisitorTest.regexMap.put("_", "^.$");
 
 		SparqlExprVisitorTest.plainMap.put("\\%ab", "%ab");
@@ -309,6 +312,42 @@ public class SparqlExprVisitorTest {
 		}
 	}
 
+	private Expr visitLike(final String pattern) {
+		final LikeExpression like = new LikeExpression();
+		like.setLeftExpression(col);
+		like.setRightExpression(new StringValue(String.format("'%s'", pattern)));
+		visitor.visit(like);
+		return visitor.getResult();
+	}
+
+	private void assertStringFunction(final String msg, final Expr expr,
+			final Class<? extends Expr> clazz, final String value) {
+		Assert.assertTrue("Error processing: " + msg, clazz.isInstance(expr));
+		final Expr arg = ((ExprFunction) expr).getArg(2);
+		Assert.assertTrue("Error processing: " + msg,
+				arg instanceof NodeValueString);
+		Assert.assertEquals("Error processing: " + msg, value,
+				((NodeValueString) arg).getString());
+	}
+
+	@Test
+	public void testVisitLikeExpressionStringFunctions() throws Exception {
+		assertStringFunction("ab%", visitLike("ab%"), E_StrStartsWith.class,
+				"ab");
+		assertStringFunction("%ab", visitLike("%ab"), E_StrEndsWith.class,
+				"ab");
+		assertStringFunction("%ab%", visitLike("%ab%"), E_StrContains.class,
+				"ab");
+		assertStringFunction("a\\%b%", visitLike("a\\%b%"),
+				E_StrStartsWith.class, "a%b");
+		assertStringFunction("%a.b", visitLike("%a.b"), E_StrEndsWith.class,
+				"a.b");
+		// multiple wildcards and _ use a regex
+		assertRegex("%a%b", visitLike("%a%b"), "^(.*)a(.*)b$");
+		assertRegex("a_%", visitLike("a_%"), "^a.(.*)$");
+		assertRegex("%%", visitLike("%%"), "^(.*)(.*)$");
+	}
+
 	// @Test
 	// public void testLikeExpression() throws Exception {
 	// // method to test individual like expressions during development
@@ -385,6 +424,18 @@ public class SparqlExprVisitorTest {
 	@Test
 	public void testVisitJDBCParameter() {
 		final JdbcParameter param = new JdbcParameter();
+		final Var v = Var.alloc("_param1");
+		when(queryBuilder.getParameter(param)).thenReturn(v);
+		visitor.visit(param);
+		final Expr expr = visitor.getResult();
+		assertEquals(new ExprVar(v), expr);
+	}
+
+	@Test
+	public void testVisitUnknownJDBCParameter() {
+		final JdbcParameter param = new JdbcParameter();
+		when(queryBuilder.getParameter(param)).thenThrow(
+				new IllegalArgumentException());
 		try {
 			visitor.visit(param);
 			fail("Should have thrown UnsupportedOperationException");
@@ -34,6 +34,7 @@ import org.xenei.jdbc4sparql.impl.rdf.RdfTableDef;
 import org.xenei.jdbc4sparql.impl.virtual.VirtualCatalog;
 import org.xenei.jdbc4sparql.meta.MetaCatalogBuilder;
 import org.xenei.jdbc4sparql.sparql.ForceTypeF;
+import org.xenei.jdbc4sparql.sparql.SparqlQueryBuilder;
 import org.xenei.jdbc4sparql.sparql.parser.SparqlParser;
 import org.xenei.jdbc4sparql.sparql.parser.jsqlparser.proxies.ExprInfo;
 import org.xenei.jdbc4sparql.utils.ElementExtractor;
@@ -43,11 +44,15 @@ import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.sparql.core.TriplePath;
+import com.hp.hpl.jena.sparql.algebra.Algebra;
 import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.expr.E_LogicalAnd;
+import com.hp.hpl.jena.sparql.expr.E_OneOf;
 import com.hp.hpl.jena.sparql.expr.E_Function;
 import com.hp.hpl.jena.sparql.expr.Expr;
 import com.hp.hpl.jena.sparql.syntax.Element;
 import com.hp.hpl.jena.sparql.syntax.ElementBind;
+import com.hp.hpl.jena.sparql.syntax.ElementData;
 import com.hp.hpl.jena.sparql.syntax.ElementFilter;
 import com.hp.hpl.jena.sparql.syntax.ElementOptional;
 import com.hp.hpl.jena.sparql.syntax.ElementPathBlock;
@@ -1190,6 +1195,90 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		assertFalse(filter.getExpr() instanceof ExprInfo);
 	}
 
+	@Test
+	public void testInWhereValues() throws Exception {
+		SparqlQueryBuilder builder = getBuilder("SELECT * FROM foo WHERE IntCol IN ( 2,4,6) AND StringCol = 'x'");
+		builder.setInValuesThreshold(3);
+		query = builder.build();
+		tests.put(ElementData.class, 1);
+		tests.put(ElementFilter.class, 2);
+		tests.put(ElementPathBlock.class, null);
+		results = validate(query, tests);
+		tests.clear();
+		final ElementData data = (ElementData) results.get(ElementData.class).lst
+				.get(0);
+		assertEquals(1, data.getVars().size());
+		// the values are on the data variable of the column.
+		final Var var = data.getVars().get(0);
+		boolean found = false;
+		for (final Element el : results.get(ElementPathBlock.class).lst) {
+			for (final TriplePath tp : ((ElementPathBlock) el).getPattern()
+					.getList()) {
+				found |= var.equals(tp.getObject());
+			}
+		}
+		assertTrue(found);
+		// a plain literal and an xsd:integer for each value.
+		assertEquals(6, data.getRows().size());
+		// the IN filter is kept.
+		final ElementFilter filter = (ElementFilter) results
+				.get(ElementFilter.class).lst.get(1);
+		assertTrue(filter.getExpr() instanceof E_LogicalAnd);
+		assertTrue(((E_LogicalAnd) filter.getExpr()).getArg1() instanceof E_OneOf);
+		// the values are looked up before the table patterns are matched.
+		final String algebra = Algebra.optimize(Algebra.compile(query))
+				.toString();
+		assertTrue(algebra, algebra.contains("(sequence"));
+		assertTrue(algebra,
+				algebra.indexOf("(table") < algebra.indexOf("(bgp"));
+
+		// no VALUES blocks by default.
+		query = getQuery("SELECT * FROM foo WHERE IntCol IN ( 2,4,6)");
+		tests.put(ElementData.class, 0);
+		tests.put(ElementFilter.class, 2);
+		validate(query, tests);
+		tests.clear();
+
+		// below the threshold
+		builder = getBuilder("SELECT * FROM foo WHERE IntCol IN ( 2,4)");
+		builder.setInValuesThreshold(3);
+		tests.put(ElementData.class, 0);
+		tests.put(ElementFilter.class, 2);
+		validate(builder.build(), tests);
+		tests.clear();
+
+		// the IN list requires the nullable column.
+		builder = getBuilder("SELECT * FROM foo WHERE NullableIntCol IN ( 2,4,6)");
+		builder.setInValuesThreshold(3);
+		tests.put(ElementData.class, 1);
+		tests.put(ElementFilter.class, 2);
+		validate(builder.build(), tests);
+		tests.clear();
+
+		// a column that may be null for a row is not looked up.
+		builder = getBuilder("SELECT * FROM foo WHERE NullableIntCol IN ( 2,4,6) OR NullableIntCol IS NULL");
+		builder.setInValuesThreshold(1);
+		tests.put(ElementData.class, 0);
+		validate(builder.build(), tests);
+		tests.clear();
+
+		// values that do not convert to the column type
+		builder = getBuilder("SELECT * FROM foo WHERE IntCol IN ( 2,4,6.5)");
+		builder.setInValuesThreshold(3);
+		tests.put(ElementData.class, 0);
+		tests.put(ElementFilter.class, 2);
+		validate(builder.build(), tests);
+		tests.clear();
+
+		// IN lists that are not required by the where clause
+		builder = getBuilder("SELECT * FROM foo WHERE IntCol IN ( 2,4,6) OR StringCol = 'x'");
+		builder.setInValuesThreshold(3);
+		tests.put(ElementData.class, 0);
+		tests.put(ElementFilter.class, 2);
+		validate(builder.build(), tests);
+		tests.clear();
+	}
+
 	//
 	// @Override
 	// public void visit(final InverseExpression inverseExpression) {
@@ -1217,8 +1306,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		query = getQuery("SELECT * FROM foo WHERE NullableStringCol IS NOT NULL ");
 		tests.put(ElementBind.class, 4);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2108,8 +2197,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		query = getQuery(String.format("SELECT * FROM foo WHERE %s", opt_tst));
 		tests.put(ElementBind.class, 4);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2161,8 +2250,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 				opt_tst));
 		tests.put(ElementBind.class, 4);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2241,8 +2330,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2257,8 +2346,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2340,8 +2429,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2356,8 +2445,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -2439,8 +2528,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2455,8 +2544,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				fooTableName.getGUID());
@@ -2507,8 +2596,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 4);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2535,8 +2624,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table + 1 for outer table
-		tests.put(ElementOptional.class, 5);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 4);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2756,8 +2845,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -2770,8 +2859,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -2784,8 +2873,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 2);
+		tests.put(ElementPathBlock.class, 8);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -2818,8 +2907,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2832,8 +2921,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2846,8 +2935,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 2);
+		tests.put(ElementPathBlock.class, 8);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -2880,8 +2969,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2894,8 +2983,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -2908,8 +2997,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 2);
+		tests.put(ElementPathBlock.class, 8);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3003,8 +3092,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -3017,8 +3106,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -3031,8 +3120,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 2);
+		tests.put(ElementPathBlock.class, 8);
 		validate(query, tests);
 		assertEquals(8, query.getProjectVars().size());
 		tests.clear();
@@ -3064,8 +3153,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -3078,8 +3167,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -3092,8 +3181,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 2);
+		tests.put(ElementPathBlock.class, 8);
 		validate(query, tests);
 		assertEquals(4, query.getProjectVars().size());
 		tests.clear();
@@ -3126,8 +3215,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3140,8 +3229,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 3);
+		tests.put(ElementPathBlock.class, 9);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3154,8 +3243,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// 1 from each table + join filter
 		tests.put(ElementFilter.class, 3);
 		// 2 from each table
-		tests.put(ElementOptional.class, 4);
-		tests.put(ElementPathBlock.class, 10);
+		tests.put(ElementOptional.class, 2);
+		tests.put(ElementPathBlock.class, 8);
 		validate(query, tests);
 		assertEquals(1, query.getProjectVars().size());
 		tests.clear();
@@ -3293,8 +3382,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -3309,8 +3398,8 @@ public class SparqlParserTest extends AbstractSparqlParserTest {
 		// one for select one for filter
 		tests.put(ElementBind.class, 2);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
-		tests.put(ElementPathBlock.class, 5);
+		tests.put(ElementOptional.class, 1);
+		tests.put(ElementPathBlock.class, 4);
 		results = validate(query, tests);
 		vars = verifyTable(results.get(ElementPathBlock.class),
 				barTableName.getGUID());
@@ -192,7 +192,7 @@ public class RemoteSparqlVisitorTest extends AbstractSparqlVisitorTest {
 
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 0);
 		tests.put(ElementService.class, 1);
 		results = validate(q, tests);
 
@@ -208,8 +208,8 @@ public class RemoteSparqlVisitorTest extends AbstractSparqlVisitorTest {
 				.get(ElementService.class).lst.get(0);
 		final ElementSubQuery esq = (ElementSubQuery) srv.getElement();
 		final List<Var> vars = esq.getQuery().getProjectVars();
-		// all 4 columns in foo
-		Assert.assertEquals(4, vars.size());
+		// StringCol and the required IntCol
+		Assert.assertEquals(2, vars.size());
 	}
 
 	@Test
@@ -218,7 +218,7 @@ public class RemoteSparqlVisitorTest extends AbstractSparqlVisitorTest {
 
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 1);
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 0);
 		tests.put(ElementService.class, 1);
 		results = validate(q, tests);
 
@@ -239,7 +239,7 @@ public class RemoteSparqlVisitorTest extends AbstractSparqlVisitorTest {
 
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 0);
 		tests.put(ElementService.class, 1);
 		results = validate(q, tests);
 
@@ -252,7 +252,7 @@ public class RemoteSparqlVisitorTest extends AbstractSparqlVisitorTest {
 				.get(ElementService.class).lst.get(0);
 		final ElementSubQuery esq = (ElementSubQuery) srv.getElement();
 		final List<Var> vars = esq.getQuery().getProjectVars();
-		Assert.assertEquals(4, vars.size());
+		Assert.assertEquals(2, vars.size());
 		tests.clear();
 		tests.put(ElementFilter.class, 1);
 		results = validate(srv.getElement(), tests);
@@ -278,9 +278,9 @@ public class RemoteSparqlVisitorTest extends AbstractSparqlVisitorTest {
 
 		tests.put(ElementBind.class, 1);
 		tests.put(ElementFilter.class, 2);
-		tests.put(ElementOptional.class, 2);
+		tests.put(ElementOptional.class, 0);
 		tests.put(ElementService.class, 1);
-		tests.put(ElementPathBlock.class, 4);
+		tests.put(ElementPathBlock.class, 2);
 		results = validate(q, tests);
 
 		final List<Var> vLst = q.getProjectVars();